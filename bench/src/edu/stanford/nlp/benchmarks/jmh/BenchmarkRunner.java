@@ -0,0 +1,34 @@
+package edu.stanford.nlp.benchmarks.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks in this package, always with the GC profiler, so that
+ * the allocation rate ({@code gc.alloc.rate.norm}, in bytes per operation) is
+ * reported next to the time of each benchmark.
+ * Takes the usual JMH command line options; for instance, {@code TokensRegex}
+ * runs only the benchmarks whose names match that regular expression.
+ * <p>
+ * From Gradle, run {@code ./gradlew jmh}, passing options with {@code -Pjmh.args="..."};
+ * from Maven, run {@code mvn -Pjmh test-compile exec:exec}, passing options with
+ * {@code -Djmh.args="..."}. The tagger, NER, and parser benchmarks need the
+ * CoreNLP models jar on the classpath; the rest use only the bundled fixtures.
+ */
+public class BenchmarkRunner {
+
+  private BenchmarkRunner() { } // main method only
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    new Runner(new OptionsBuilder()
+        .parent(commandLine)
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+
+}
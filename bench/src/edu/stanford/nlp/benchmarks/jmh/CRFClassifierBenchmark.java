@@ -0,0 +1,41 @@
+package edu.stanford.nlp.benchmarks.jmh;
+
+import edu.stanford.nlp.ie.crf.CRFClassifier;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.DefaultPaths;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Labeling the sentences of the news fixture with {@link CRFClassifier#classify(List)},
+ * using the default three class English NER model, which must be on the classpath.
+ * The answers of one invocation overwrite those of the previous one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CRFClassifierBenchmark {
+
+  private List<List<CoreLabel>> sentences;
+  private CRFClassifier<CoreLabel> classifier;
+
+  @Setup
+  public void setup() {
+    sentences = Fixtures.sentences();
+    classifier = CRFClassifier.getClassifierNoExceptions(DefaultPaths.DEFAULT_NER_THREECLASS_MODEL);
+  }
+
+  @Benchmark
+  public void classify(Blackhole blackhole) {
+    for (List<CoreLabel> sentence : sentences) {
+      blackhole.consume(classifier.classify(sentence));
+    }
+  }
+
+}
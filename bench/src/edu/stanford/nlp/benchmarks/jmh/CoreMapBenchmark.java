@@ -0,0 +1,58 @@
+package edu.stanford.nlp.benchmarks.jmh;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.util.ArrayCoreMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ArrayCoreMap#get(Class)} and {@link ArrayCoreMap#set(Class, Object)} on the tokens of the
+ * news fixture, which hold the dozen or so keys the tokenizer and sentence splitter set.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CoreMapBenchmark {
+
+  private List<CoreLabel> tokens;
+
+  @Setup
+  public void setup() {
+    tokens = Fixtures.tokenizedText().get(CoreAnnotations.TokensAnnotation.class);
+  }
+
+  /** Get a key which each token has, and one which it doesn't. */
+  @Benchmark
+  public void get(Blackhole blackhole) {
+    for (CoreLabel token : tokens) {
+      blackhole.consume(token.get(CoreAnnotations.TextAnnotation.class));
+      blackhole.consume(token.get(CoreAnnotations.NamedEntityTagAnnotation.class));
+    }
+  }
+
+  /** Overwrite a key which each token already has. */
+  @Benchmark
+  public void setExisting() {
+    for (CoreLabel token : tokens) {
+      token.set(CoreAnnotations.LemmaAnnotation.class, token.word());
+    }
+  }
+
+  /** Add a new key to a fresh copy of each token, which grows its arrays. */
+  @Benchmark
+  public void setNew(Blackhole blackhole) {
+    for (CoreLabel token : tokens) {
+      CoreLabel copy = new CoreLabel(token);
+      copy.set(CoreAnnotations.NamedEntityTagAnnotation.class, "O");
+      blackhole.consume(copy);
+    }
+  }
+
+}
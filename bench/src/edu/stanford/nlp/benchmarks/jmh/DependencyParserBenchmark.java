@@ -0,0 +1,55 @@
+package edu.stanford.nlp.benchmarks.jmh;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.TaggedWord;
+import edu.stanford.nlp.parser.nndep.DependencyParser;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.DefaultPaths;
+import edu.stanford.nlp.tagger.maxent.MaxentTagger;
+import edu.stanford.nlp.util.CoreMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the sentences of the news fixture with {@link DependencyParser#predict(CoreMap)}.
+ * The sentences are tagged once beforehand. Needs the default English tagger and
+ * dependency parser on the classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DependencyParserBenchmark {
+
+  private List<CoreMap> sentences;
+  private DependencyParser parser;
+
+  @Setup
+  public void setup() {
+    Annotation annotation = Fixtures.tokenizedText();
+    sentences = annotation.get(CoreAnnotations.SentencesAnnotation.class);
+    MaxentTagger tagger = new MaxentTagger(DefaultPaths.DEFAULT_POS_MODEL);
+    for (CoreMap sentence : sentences) {
+      List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
+      List<TaggedWord> tagged = tagger.tagSentence(tokens);
+      for (int i = 0; i < tokens.size(); ++i) {
+        tokens.get(i).setTag(tagged.get(i).tag());
+      }
+    }
+    parser = DependencyParser.loadFromModelFile(DefaultPaths.DEFAULT_DEPENDENCY_PARSER_MODEL);
+  }
+
+  @Benchmark
+  public void predict(Blackhole blackhole) {
+    for (CoreMap sentence : sentences) {
+      blackhole.consume(parser.predict(sentence));
+    }
+  }
+
+}
@@ -0,0 +1,73 @@
+package edu.stanford.nlp.benchmarks.jmh;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.io.RuntimeIOException;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.PropertiesUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The fixed inputs shared by the benchmarks, which are bundled with them so that
+ * every run measures the same work: a short news text, and a few dependency graphs
+ * in the format of {@link SemanticGraph#valueOf(String)}.
+ */
+public class Fixtures {
+
+  private static final String NEWS_PATH = "edu/stanford/nlp/benchmarks/jmh/news.txt";
+  private static final String GRAPHS_PATH = "edu/stanford/nlp/benchmarks/jmh/graphs.txt";
+
+  private Fixtures() { } // static methods
+
+  /** Read a fixture from the classpath. */
+  private static String slurp(String path) {
+    try {
+      return IOUtils.slurpReader(IOUtils.readerFromString(path));
+    } catch (IOException e) {
+      throw new RuntimeIOException(e);
+    }
+  }
+
+  /** The news text, one sentence per line. */
+  public static String text() {
+    return slurp(NEWS_PATH);
+  }
+
+  /** The news text, tokenized and split into sentences. This doesn't need any models. */
+  public static Annotation tokenizedText() {
+    StanfordCoreNLP pipeline = new StanfordCoreNLP(PropertiesUtils.asProperties(
+        "annotators", "tokenize,ssplit",
+        "ssplit.eolonly", "true"));
+    Annotation annotation = new Annotation(text());
+    pipeline.annotate(annotation);
+    return annotation;
+  }
+
+  /** The tokens of each sentence of the news text. */
+  public static List<List<CoreLabel>> sentences() {
+    List<List<CoreLabel>> sentences = new ArrayList<>();
+    for (CoreMap sentence : tokenizedText().get(CoreAnnotations.SentencesAnnotation.class)) {
+      sentences.add(sentence.get(CoreAnnotations.TokensAnnotation.class));
+    }
+    return sentences;
+  }
+
+  /** The dependency graphs. */
+  public static List<SemanticGraph> graphs() {
+    List<SemanticGraph> graphs = new ArrayList<>();
+    for (String line : slurp(GRAPHS_PATH).split("\n")) {
+      if ( ! line.trim().isEmpty()) {
+        graphs.add(SemanticGraph.valueOf(line));
+      }
+    }
+    return graphs;
+  }
+
+}
@@ -0,0 +1,40 @@
+package edu.stanford.nlp.benchmarks.jmh;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.pipeline.DefaultPaths;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the sentences of the news fixture with {@link LexicalizedParser#parse(List)},
+ * using the default English PCFG, which must be on the classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class LexicalizedParserBenchmark {
+
+  private List<List<CoreLabel>> sentences;
+  private LexicalizedParser parser;
+
+  @Setup
+  public void setup() {
+    sentences = Fixtures.sentences();
+    parser = LexicalizedParser.loadModel(DefaultPaths.DEFAULT_PARSER_MODEL);
+  }
+
+  @Benchmark
+  public void parse(Blackhole blackhole) {
+    for (List<CoreLabel> sentence : sentences) {
+      blackhole.consume(parser.parse(sentence));
+    }
+  }
+
+}
@@ -0,0 +1,48 @@
+package edu.stanford.nlp.benchmarks.jmh;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.CoreNLPProtos;
+import edu.stanford.nlp.pipeline.ProtobufAnnotationSerializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing the tokenized news fixture with the {@link ProtobufAnnotationSerializer} and reading it back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProtobufBenchmark {
+
+  private Annotation annotation;
+  private byte[] bytes;
+  private ProtobufAnnotationSerializer serializer;
+
+  @Setup
+  public void setup() {
+    annotation = Fixtures.tokenizedText();
+    serializer = new ProtobufAnnotationSerializer(false);
+    bytes = serializer.toProto(annotation).toByteArray();
+  }
+
+  @Benchmark
+  public byte[] write() {
+    return serializer.toProto(annotation).toByteArray();
+  }
+
+  @Benchmark
+  public Annotation read() throws InvalidProtocolBufferException {
+    return serializer.fromProto(CoreNLPProtos.Document.parseFrom(bytes));
+  }
+
+  @Benchmark
+  public Annotation roundTrip() throws InvalidProtocolBufferException {
+    return serializer.fromProto(CoreNLPProtos.Document.parseFrom(serializer.toProto(annotation).toByteArray()));
+  }
+
+}
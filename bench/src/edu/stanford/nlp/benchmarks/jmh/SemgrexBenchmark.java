@@ -0,0 +1,54 @@
+package edu.stanford.nlp.benchmarks.jmh;
+
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.semgrex.SemgrexMatcher;
+import edu.stanford.nlp.semgraph.semgrex.SemgrexPattern;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding every match of a few {@link SemgrexPattern}s in the bundled dependency graphs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SemgrexBenchmark {
+
+  private static final String[] PATTERNS = {
+      "{}=verb >nsubj {}=subject >dobj {}=object",
+      "{} >/nmod:.*/ ({}=noun >case {})",
+      "{word:/said|estimated|complained/} >ccomp ({} >mark {word:that})",
+      "{} >>nummod {}=number",
+  };
+
+  private List<SemanticGraph> graphs;
+  private SemgrexPattern[] patterns;
+
+  @Setup
+  public void setup() {
+    graphs = Fixtures.graphs();
+    patterns = new SemgrexPattern[PATTERNS.length];
+    for (int i = 0; i < PATTERNS.length; ++i) {
+      patterns[i] = SemgrexPattern.compile(PATTERNS[i]);
+    }
+  }
+
+  @Benchmark
+  public void find(Blackhole blackhole) {
+    for (SemanticGraph graph : graphs) {
+      for (SemgrexPattern pattern : patterns) {
+        SemgrexMatcher matcher = pattern.matcher(graph);
+        while (matcher.find()) {
+          blackhole.consume(matcher.getMatch());
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,45 @@
+package edu.stanford.nlp.benchmarks.jmh;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.WordsToSentencesAnnotator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting the tokens of the news fixture into sentences with the {@link WordsToSentencesAnnotator}.
+ * Each invocation annotates a fresh document holding the same tokens.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SentenceSplitBenchmark {
+
+  private String text;
+  private List<CoreLabel> tokens;
+  private WordsToSentencesAnnotator annotator;
+
+  @Setup
+  public void setup() {
+    Annotation tokenized = Fixtures.tokenizedText();
+    text = tokenized.get(CoreAnnotations.TextAnnotation.class);
+    tokens = tokenized.get(CoreAnnotations.TokensAnnotation.class);
+    annotator = new WordsToSentencesAnnotator(false);
+  }
+
+  @Benchmark
+  public void split(Blackhole blackhole) {
+    Annotation annotation = new Annotation(text);
+    annotation.set(CoreAnnotations.TokensAnnotation.class, tokens);
+    annotator.annotate(annotation);
+    blackhole.consume(annotation.get(CoreAnnotations.SentencesAnnotation.class));
+  }
+
+}
@@ -0,0 +1,40 @@
+package edu.stanford.nlp.benchmarks.jmh;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.DefaultPaths;
+import edu.stanford.nlp.tagger.maxent.MaxentTagger;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tagging the sentences of the news fixture with {@link MaxentTagger#tagSentence(List)}.
+ * Needs the default English tagger on the classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TaggerBenchmark {
+
+  private List<List<CoreLabel>> sentences;
+  private MaxentTagger tagger;
+
+  @Setup
+  public void setup() {
+    sentences = Fixtures.sentences();
+    tagger = new MaxentTagger(DefaultPaths.DEFAULT_POS_MODEL);
+  }
+
+  @Benchmark
+  public void tagSentences(Blackhole blackhole) {
+    for (List<CoreLabel> sentence : sentences) {
+      blackhole.consume(tagger.tagSentence(sentence));
+    }
+  }
+
+}
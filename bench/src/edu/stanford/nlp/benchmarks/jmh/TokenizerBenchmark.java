@@ -0,0 +1,38 @@
+package edu.stanford.nlp.benchmarks.jmh;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.process.CoreLabelTokenFactory;
+import edu.stanford.nlp.process.PTBTokenizer;
+import edu.stanford.nlp.process.TokenizerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenizing the news fixture with {@link PTBTokenizer}, as the tokenize annotator does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TokenizerBenchmark {
+
+  private String text;
+  private TokenizerFactory<CoreLabel> factory;
+
+  @Setup
+  public void setup() {
+    text = Fixtures.text();
+    factory = PTBTokenizer.factory(new CoreLabelTokenFactory(), "invertible");
+  }
+
+  @Benchmark
+  public void tokenize(Blackhole blackhole) {
+    blackhole.consume(factory.getTokenizer(new StringReader(text)).tokenize());
+  }
+
+}
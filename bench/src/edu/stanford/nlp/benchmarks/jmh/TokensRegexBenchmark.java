@@ -0,0 +1,55 @@
+package edu.stanford.nlp.benchmarks.jmh;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.tokensregex.TokenSequenceMatcher;
+import edu.stanford.nlp.ling.tokensregex.TokenSequencePattern;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding every match of a few {@link TokenSequencePattern}s in the sentences of the news fixture.
+ * The patterns mix literal words, regular expressions over words, and sequence operators.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TokensRegexBenchmark {
+
+  private static final String[] PATTERNS = {
+      "[{word:/[A-Z][a-z]+/}]+ [{word:/Inc\\.|Builders|Department/}]",
+      "/the/ /city/ /council/",
+      "[{word:/\\$/}]? [{word:/[0-9.]+/}] [{word:/million|percent|tons/}]",
+      "(?$who [{word:/[A-Z][a-z]+/}]) [{word:/said|told|estimated/}]",
+  };
+
+  private List<List<CoreLabel>> sentences;
+  private TokenSequencePattern[] patterns;
+
+  @Setup
+  public void setup() {
+    sentences = Fixtures.sentences();
+    patterns = new TokenSequencePattern[PATTERNS.length];
+    for (int i = 0; i < PATTERNS.length; ++i) {
+      patterns[i] = TokenSequencePattern.compile(PATTERNS[i]);
+    }
+  }
+
+  @Benchmark
+  public void find(Blackhole blackhole) {
+    for (List<CoreLabel> sentence : sentences) {
+      for (TokenSequencePattern pattern : patterns) {
+        TokenSequenceMatcher matcher = pattern.getMatcher(sentence);
+        while (matcher.find()) {
+          blackhole.consume(matcher.start());
+        }
+      }
+    }
+  }
+
+}
@@ -1,6 +1,7 @@
 package edu.stanford.nlp.coref.neural;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -22,6 +23,11 @@ import edu.stanford.nlp.util.Pair;
  * @author Kevin Clark
  */
 public class CategoricalFeatureExtractor {
+  private static final int NUM_PAIRWISE_FEATURES = 6;
+  private static final int DISTANCE_FEATURES = 11;
+  /** Mention type, length, position in the document, and whether it is nested in a mention with the same head. */
+  private static final int MENTION_FEATURES = 4 + DISTANCE_FEATURES + 2;
+
   private final Dictionaries dictionaries;
   private final Map<String, Integer> genres;
   private final boolean conll;
@@ -51,21 +57,41 @@ public class CategoricalFeatureExtractor {
       Map<Integer, List<Mention>> mentionsByHeadIndex) {
     Mention m1 = document.predictedMentionsByID.get(pair.first);
     Mention m2 = document.predictedMentionsByID.get(pair.second);
+    SimpleMatrix features = new SimpleMatrix(getPairFeaturesSize(), 1);
+    getPairFeatures(m1, m2, document,
+        getMentionFeatureVector(m1, document, mentionsByHeadIndex),
+        getMentionFeatureVector(m2, document, mentionsByHeadIndex),
+        getGenreFeatureVector(document), features.getMatrix().getData(), 0);
+    return features;
+  }
+
+  /**
+   * Writes the features {@link #getPairFeatures(Pair, Document, Map)} returns into
+   * {@code out}, starting at {@code offset}, without allocating a matrix per pair.
+   * The mention and genre features don't depend on the pair, so they are passed in,
+   * computed once per mention with {@link #getMentionFeatureVector} and once per
+   * document with {@link #getGenreFeatureVector}.
+   */
+  public void getPairFeatures(Mention m1, Mention m2, Document document,
+      double[] m1Features, double[] m2Features, double[] genreFeatures, double[] out, int offset) {
+    Arrays.fill(out, offset, offset + getPairFeaturesSize(), 0);
     List<Integer> featureVals = pairwiseFeatures(document, m1, m2, dictionaries, conll);
-    SimpleMatrix features = new SimpleMatrix(featureVals.size(), 1);
-    for (int i = 0; i < featureVals.size(); i++) {
-      features.set(i, featureVals.get(i));
+    for (int featureVal : featureVals) {
+      out[offset++] = featureVal;
     }
-    features = NeuralUtils.concatenate(features,
-        encodeDistance(m2.sentNum - m1.sentNum),
-        encodeDistance(m2.mentionNum - m1.mentionNum - 1),
-        new SimpleMatrix(new double[][] {{
-          m1.sentNum == m2.sentNum && m1.endIndex > m2.startIndex ? 1 : 0}}),
-        getMentionFeatures(m1, document, mentionsByHeadIndex),
-        getMentionFeatures(m2, document, mentionsByHeadIndex),
-        encodeGenre(document));
+    offset = encodeDistance(m2.sentNum - m1.sentNum, out, offset);
+    offset = encodeDistance(m2.mentionNum - m1.mentionNum - 1, out, offset);
+    out[offset++] = m1.sentNum == m2.sentNum && m1.endIndex > m2.startIndex ? 1 : 0;
+    System.arraycopy(m1Features, 0, out, offset, m1Features.length);
+    offset += m1Features.length;
+    System.arraycopy(m2Features, 0, out, offset, m2Features.length);
+    offset += m2Features.length;
+    System.arraycopy(genreFeatures, 0, out, offset, genreFeatures.length);
+  }
 
-    return features;
+  /** The number of features {@link #getPairFeatures(Pair, Document, Map)} returns. */
+  public int getPairFeaturesSize() {
+    return NUM_PAIRWISE_FEATURES + 2 * DISTANCE_FEATURES + 1 + 2 * MENTION_FEATURES + getGenreFeaturesSize();
   }
 
   public static List<Integer> pairwiseFeatures(Document document, Mention m1, Mention m2,
@@ -94,6 +120,12 @@ public class CategoricalFeatureExtractor {
     );
   }
 
+  /** The features of a single mention, as they appear in the pair features. */
+  public double[] getMentionFeatureVector(Mention m, Document document,
+      Map<Integer, List<Mention>> mentionsByHeadIndex) {
+    return getMentionFeatures(m, document, mentionsByHeadIndex).getMatrix().getData();
+  }
+
   private SimpleMatrix getMentionFeatures(Mention m, Document document,
       Map<Integer, List<Mention>> mentionsByHeadIndex) {
     return NeuralUtils.concatenate(
@@ -107,22 +139,28 @@ public class CategoricalFeatureExtractor {
   }
 
   private static SimpleMatrix encodeDistance(int d) {
-    SimpleMatrix m = new SimpleMatrix(11, 1);
+    SimpleMatrix m = new SimpleMatrix(DISTANCE_FEATURES, 1);
+    encodeDistance(d, m.getMatrix().getData(), 0);
+    return m;
+  }
+
+  /** Writes the distance features into the zeroed {@code out} at {@code offset}, and returns the offset after them. */
+  private static int encodeDistance(int d, double[] out, int offset) {
     if (d < 5) {
-      m.set(d, 1);
+      out[offset + d] = 1;
     } else if (d < 8) {
-      m.set(5, 1);
+      out[offset + 5] = 1;
     } else if (d < 16) {
-      m.set(6, 1);
+      out[offset + 6] = 1;
     } else if (d < 32) {
-      m.set(7, 1);
+      out[offset + 7] = 1;
     } else if (d < 64) {
-      m.set(8, 1);
+      out[offset + 8] = 1;
     } else {
-      m.set(9, 1);
+      out[offset + 9] = 1;
     }
-    m.set(10, Math.min(d, 64) / 64.0);
-    return m;
+    out[offset + 10] = Math.min(d, 64) / 64.0;
+    return offset + DISTANCE_FEATURES;
   }
 
   private SimpleMatrix encodeGenre(Document document) {
@@ -130,4 +168,13 @@ public class CategoricalFeatureExtractor {
         genres.get(document.docInfo.get("DOC_ID").split("/")[0]), genres.size()) :
           new SimpleMatrix(1, 1);
   }
+
+  /** The genre features of a document, which are the same for every mention and pair in it. */
+  public double[] getGenreFeatureVector(Document document) {
+    return encodeGenre(document).getMatrix().getData();
+  }
+
+  private int getGenreFeaturesSize() {
+    return conll ? genres.size() : 1;
+  }
 }
@@ -70,8 +70,16 @@ public class EmbeddingExtractor {
 
   private SimpleMatrix getAverageEmbedding(List<CoreLabel> words) {
     SimpleMatrix emb = new SimpleMatrix(staticWordEmbeddings.getEmbeddingSize(), 1);
-    for (CoreLabel word : words) {
-      emb = emb.plus(getStaticWordEmbedding(word.word()));
+    if (staticWordEmbeddings.isCompact()) {
+      // sum the rows in place, rather than building a matrix per word
+      double[] sum = emb.getMatrix().getData();
+      for (CoreLabel word : words) {
+        staticWordEmbeddings.addRow(staticWordEmbeddings.getWordIndex(normalizeWord(word.word())), sum);
+      }
+    } else {
+      for (CoreLabel word : words) {
+        emb = emb.plus(getStaticWordEmbedding(word.word()));
+      }
     }
     return emb.divide(Math.max(1, words.size()));
   }
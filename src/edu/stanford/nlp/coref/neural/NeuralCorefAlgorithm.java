@@ -1,5 +1,6 @@
 package edu.stanford.nlp.coref.neural;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -13,9 +14,12 @@ import edu.stanford.nlp.coref.data.Dictionaries;
 import edu.stanford.nlp.coref.data.Document;
 import edu.stanford.nlp.coref.data.Mention;
 import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.io.RuntimeIOException;
+import edu.stanford.nlp.neural.Embedding;
 import edu.stanford.nlp.stats.ClassicCounter;
 import edu.stanford.nlp.stats.Counter;
 import edu.stanford.nlp.util.Pair;
+import edu.stanford.nlp.util.Timing;
 import edu.stanford.nlp.util.logging.Redwood;
 import org.ejml.simple.SimpleMatrix;
 
@@ -44,6 +48,9 @@ public class NeuralCorefAlgorithm implements CorefAlgorithm {
   private final EmbeddingExtractor embeddingExtractor;
   private final NeuralCorefModel model;
 
+  /** Scores anaphors against their candidate antecedents, reusing its buffers from one document to the next. */
+  private final ThreadLocal<PairwiseScorer> scorers;
+
   public NeuralCorefAlgorithm(Properties props, Dictionaries dictionaries) {
     greedyness = NeuralCorefProperties.greedyness(props);
     maxMentionDistance = CorefProperties.maxMentionDistance(props);
@@ -51,11 +58,34 @@ public class NeuralCorefAlgorithm implements CorefAlgorithm {
 
     model = IOUtils.readObjectAnnouncingTimingFromURLOrClasspathOrFileSystem(
         log, "Loading coref model", NeuralCorefProperties.modelPath(props));
+    Embedding staticWordEmbeddings = loadEmbeddings(NeuralCorefProperties.pretrainedEmbeddingsPath(props));
+    if (NeuralCorefProperties.compactEmbeddings(props)) {
+      staticWordEmbeddings.compact();
+      model.getWordEmbeddings().compact();
+    }
     embeddingExtractor = new EmbeddingExtractor(CorefProperties.conll(props),
-        IOUtils.readObjectAnnouncingTimingFromURLOrClasspathOrFileSystem(
-            log, "Loading coref embeddings", NeuralCorefProperties.pretrainedEmbeddingsPath(props)),
-        model.getWordEmbeddings());
+        staticWordEmbeddings, model.getWordEmbeddings());
     featureExtractor = new CategoricalFeatureExtractor(props, dictionaries);
+    PairwiseScorer.Weights pairwiseWeights = new PairwiseScorer.Weights(model);
+    scorers = ThreadLocal.withInitial(() -> new PairwiseScorer(pairwiseWeights));
+  }
+
+  /**
+   * Load the pretrained embeddings: map them if they are a local file written by
+   * {@link Embedding#writeMapped(String)}, and otherwise deserialize them.
+   */
+  private static Embedding loadEmbeddings(String path) {
+    if ( ! Embedding.isMappedEmbedding(path)) {
+      return IOUtils.readObjectAnnouncingTimingFromURLOrClasspathOrFileSystem(log, "Loading coref embeddings", path);
+    }
+    Timing t = new Timing();
+    try {
+      Embedding embedding = Embedding.loadMapped(path);
+      t.done(log, "Mapping coref embeddings from " + path);
+      return embedding;
+    } catch (IOException e) {
+      throw new RuntimeIOException(e);
+    }
   }
 
   @Override
@@ -67,32 +97,67 @@ public class NeuralCorefAlgorithm implements CorefAlgorithm {
       withIndex.add(m);
     }
 
+    // stack the mention embeddings into the columns of one matrix, so that the antecedent
+    // and anaphor embeddings of all the mentions are each computed in a single multiplication
     SimpleMatrix documentEmbedding = embeddingExtractor.getDocumentEmbedding(document);
-    Map<Integer, SimpleMatrix> antecedentEmbeddings = new HashMap<>();
-    Map<Integer, SimpleMatrix> anaphorEmbeddings = new HashMap<>();
+    Map<Integer, Integer> mentionColumns = new HashMap<>();
+    Map<Integer, double[]> mentionFeatures = new HashMap<>();
+    SimpleMatrix mentionEmbeddings = null;
     Counter<Integer> anaphoricityScores = new ClassicCounter<>();
-    for (Mention m : sortedMentions) {
+    for (int i = 0; i < sortedMentions.size(); i++) {
+      Mention m = sortedMentions.get(i);
       SimpleMatrix mentionEmbedding = embeddingExtractor.getMentionEmbeddings(m, documentEmbedding);
-      antecedentEmbeddings.put(m.mentionID, model.getAntecedentEmbedding(mentionEmbedding));
-      anaphorEmbeddings.put(m.mentionID, model.getAnaphorEmbedding(mentionEmbedding));
+      if (mentionEmbeddings == null) {
+        mentionEmbeddings = new SimpleMatrix(mentionEmbedding.numRows(), sortedMentions.size());
+      }
+      mentionEmbeddings.insertIntoThis(0, i, mentionEmbedding);
+      mentionColumns.put(m.mentionID, i);
+      mentionFeatures.put(m.mentionID, featureExtractor.getMentionFeatureVector(m, document, mentionsByHeadIndex));
       anaphoricityScores.incrementCount(m.mentionID,
           model.getAnaphoricityScore(mentionEmbedding,
               featureExtractor.getAnaphoricityFeatures(m, document, mentionsByHeadIndex)));
     }
+    if (mentionEmbeddings == null) {
+      return;
+    }
+
+    PairwiseScorer scorer = scorers.get();
+    scorer.setMentionEmbeddings(model.getAntecedentEmbeddings(mentionEmbeddings),
+        model.getAnaphorEmbeddings(mentionEmbeddings));
+    double[] genreFeatures = featureExtractor.getGenreFeatureVector(document);
+    int numPairFeatures = scorer.numPairFeatures();
+    int[] candidateColumns = new int[0];
 
     Map<Integer, List<Integer>> mentionToCandidateAntecedents = CorefUtils.heuristicFilter(sortedMentions,
         maxMentionDistance, maxMentionDistanceWithStringMatch);
     for (Map.Entry<Integer, List<Integer>> e : mentionToCandidateAntecedents.entrySet()) {
       double bestScore = anaphoricityScores.getCount(e.getKey()) - 50 * (greedyness - 0.5);
       int m = e.getKey();
+      List<Integer> candidates = e.getValue();
+      int count = candidates.size();
+      if (count == 0) {
+        continue;
+      }
+
+      Mention anaphor = document.predictedMentionsByID.get(m);
+      double[] anaphorFeatures = mentionFeatures.get(m);
+      double[] pairFeatures = scorer.pairFeatureBuffer(count);
+      if (candidateColumns.length < count) {
+        candidateColumns = new int[Math.max(count, 2 * candidateColumns.length)];
+      }
+      for (int c = 0; c < count; c++) {
+        int ca = candidates.get(c);
+        candidateColumns[c] = mentionColumns.get(ca);
+        featureExtractor.getPairFeatures(document.predictedMentionsByID.get(ca), anaphor, document,
+            mentionFeatures.get(ca), anaphorFeatures, genreFeatures, pairFeatures, c * numPairFeatures);
+      }
+      double[] scores = scorer.score(mentionColumns.get(m), candidateColumns, count);
+
       Integer antecedent = null;
-      for (int ca : e.getValue()) {
-        double score = model.getPairwiseScore(antecedentEmbeddings.get(ca),
-            anaphorEmbeddings.get(m), featureExtractor.getPairFeatures(
-                  new Pair<>(ca, m), document, mentionsByHeadIndex));
-        if (score > bestScore) {
-          bestScore = score;
-          antecedent = ca;
+      for (int c = 0; c < count; c++) {
+        if (scores[c] > bestScore) {
+          bestScore = scores[c];
+          antecedent = candidates.get(c);
         }
       }
 
@@ -68,6 +68,28 @@ public class NeuralCorefModel implements Serializable {
     return antecedentMatrix.mult(mentionEmbedding);
   }
 
+  /** The anaphor embeddings of many mentions at once, given one mention embedding per column. */
+  public SimpleMatrix getAnaphorEmbeddings(SimpleMatrix mentionEmbeddings) {
+    return anaphorMatrix.mult(mentionEmbeddings);
+  }
+
+  /** The antecedent embeddings of many mentions at once, given one mention embedding per column. */
+  public SimpleMatrix getAntecedentEmbeddings(SimpleMatrix mentionEmbeddings) {
+    return antecedentMatrix.mult(mentionEmbeddings);
+  }
+
+  SimpleMatrix getPairFeaturesMatrix() {
+    return pairFeaturesMatrix;
+  }
+
+  SimpleMatrix getPairwiseFirstLayerBias() {
+    return pairwiseFirstLayerBias;
+  }
+
+  List<SimpleMatrix> getPairwiseModel() {
+    return pairwiseModel;
+  }
+
   public Embedding getWordEmbeddings() {
     return wordEmbeddings;
   }
@@ -22,10 +22,23 @@ public class NeuralCorefProperties {
     return PropertiesUtils.getString(props, "coref.neural.modelPath", defaultPath);
   }
 
+  /**
+   * The pretrained embeddings.  A local file written by {@link edu.stanford.nlp.neural.Embedding#writeMapped(String)}
+   * is memory-mapped; anything else is deserialized.
+   */
   public static String pretrainedEmbeddingsPath(Properties props) {
     String defaultPath = "edu/stanford/nlp/models/coref/neural/" +
         (CorefProperties.getLanguage(props) == Locale.CHINESE ? "chinese" : "english") +
         "-embeddings.ser.gz";
     return PropertiesUtils.getString(props, "coref.neural.embeddingsPath", defaultPath);
   }
+
+  /**
+   * Whether to keep the word embeddings in single float arrays rather than a matrix per word
+   * (see {@link edu.stanford.nlp.neural.Embedding#compact()}), which takes much less memory,
+   * but rounds the vectors to floats.
+   */
+  public static boolean compactEmbeddings(Properties props) {
+    return PropertiesUtils.getBool(props, "coref.neural.compactEmbeddings", false);
+  }
 }
@@ -0,0 +1,217 @@
+package edu.stanford.nlp.coref.neural;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.ejml.simple.SimpleMatrix;
+
+/**
+ * Scores an anaphor against all of its candidate antecedents at once, computing the same
+ * scores as {@link NeuralCorefModel#getPairwiseScore} does one pair at a time.
+ * The antecedent and anaphor embeddings of the mentions of a document, and the pair
+ * features of the candidates, are kept in contiguous row-major buffers; each layer of
+ * the pairwise network then multiplies its weights with the rows of every candidate
+ * in one pass, rather than building small matrices for each pair.
+ * <p>
+ * The buffers grow as needed and are reused from one anaphor and one document to the
+ * next, so a scorer is not thread safe; use one per thread. The packed {@link Weights}
+ * can be shared between scorers.
+ */
+class PairwiseScorer {
+
+  /** The weights of the pairwise network of a {@link NeuralCorefModel}, packed into row-major arrays. */
+  static class Weights {
+    final int hiddenSize;
+    final int numPairFeatures;
+    /** hiddenSize x numPairFeatures */
+    final double[] pairFeatures;
+    final double[] firstLayerBias;
+    /** The weights and biases of the layers after the first one. */
+    final double[][] layers;
+    final double[][] biases;
+    final int[] layerRows;
+    final int[] layerColumns;
+
+    Weights(NeuralCorefModel model) {
+      SimpleMatrix pairFeaturesMatrix = model.getPairFeaturesMatrix();
+      hiddenSize = pairFeaturesMatrix.numRows();
+      numPairFeatures = pairFeaturesMatrix.numCols();
+      pairFeatures = pack(pairFeaturesMatrix);
+      firstLayerBias = pack(model.getPairwiseFirstLayerBias());
+      List<SimpleMatrix> pairwiseModel = model.getPairwiseModel();
+      int numLayers = pairwiseModel.size() / 2;
+      layers = new double[numLayers][];
+      biases = new double[numLayers][];
+      layerRows = new int[numLayers];
+      layerColumns = new int[numLayers];
+      for (int i = 0; i < numLayers; i++) {
+        SimpleMatrix weights = pairwiseModel.get(2 * i);
+        layers[i] = pack(weights);
+        biases[i] = pack(pairwiseModel.get(2 * i + 1));
+        layerRows[i] = weights.numRows();
+        layerColumns[i] = weights.numCols();
+      }
+    }
+
+    private static double[] pack(SimpleMatrix matrix) {
+      // DenseMatrix64F keeps its elements in row-major order
+      return Arrays.copyOf(matrix.getMatrix().getData(), matrix.getNumElements());
+    }
+
+    /** The widest layer, including the input and first layers. */
+    int maxWidth() {
+      int width = Math.max(hiddenSize, numPairFeatures);
+      for (int i = 0; i < layers.length; i++) {
+        width = Math.max(width, Math.max(layerRows[i], layerColumns[i]));
+      }
+      return width;
+    }
+  }
+
+  private final Weights weights;
+  private final int maxWidth;
+
+  /** mentions x hiddenSize */
+  private double[] antecedentEmbeddings = new double[0];
+  private double[] anaphorEmbeddings = new double[0];
+  /** candidates x numPairFeatures */
+  private double[] pairFeatures = new double[0];
+  /** candidates x maxWidth, swapped from one layer to the next */
+  private double[] input = new double[0];
+  private double[] output = new double[0];
+  private double[] scores = new double[0];
+
+  PairwiseScorer(Weights weights) {
+    this.weights = weights;
+    this.maxWidth = weights.maxWidth();
+  }
+
+  /** The number of pair features of each candidate; the row length of {@link #pairFeatureBuffer(int)}. */
+  int numPairFeatures() {
+    return weights.numPairFeatures;
+  }
+
+  /**
+   * Set the antecedent and anaphor embeddings of the mentions of a document, as computed by
+   * {@link NeuralCorefModel#getAntecedentEmbeddings} and {@link NeuralCorefModel#getAnaphorEmbeddings}:
+   * one column per mention. Mentions are then referred to by their column.
+   */
+  void setMentionEmbeddings(SimpleMatrix antecedents, SimpleMatrix anaphors) {
+    int numMentions = antecedents.numCols();
+    antecedentEmbeddings = transpose(antecedents, antecedentEmbeddings);
+    anaphorEmbeddings = transpose(anaphors, anaphorEmbeddings);
+    assert numMentions == anaphors.numCols();
+  }
+
+  /** Copy the columns of the matrix into consecutive rows of the buffer, growing it if needed. */
+  private double[] transpose(SimpleMatrix matrix, double[] buffer) {
+    int rows = matrix.numRows();
+    int columns = matrix.numCols();
+    if (rows != weights.hiddenSize) {
+      throw new IllegalArgumentException("Expected embeddings of size " + weights.hiddenSize + ", not " + rows);
+    }
+    buffer = ensureCapacity(buffer, rows * columns);
+    double[] data = matrix.getMatrix().getData();
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        buffer[j * rows + i] = data[i * columns + j];
+      }
+    }
+    return buffer;
+  }
+
+  private static double[] ensureCapacity(double[] buffer, int size) {
+    return buffer.length >= size ? buffer : new double[Math.max(size, buffer.length * 2)];
+  }
+
+  /**
+   * The buffer to write the pair features of {@code count} candidates into, one row of
+   * {@link #numPairFeatures()} after another, before calling {@link #score}.
+   */
+  double[] pairFeatureBuffer(int count) {
+    pairFeatures = ensureCapacity(pairFeatures, count * weights.numPairFeatures);
+    return pairFeatures;
+  }
+
+  /**
+   * Score an anaphor against its candidate antecedents, whose pair features have been written
+   * into the {@link #pairFeatureBuffer(int)}, in the same order.
+   *
+   * @param anaphor The column of the anaphor in the mention embeddings
+   * @param antecedents The columns of the candidate antecedents in the mention embeddings
+   * @param count The number of candidate antecedents
+   * @return The score of each candidate, in the first {@code count} elements of a reused array
+   */
+  double[] score(int anaphor, int[] antecedents, int count) {
+    final int hiddenSize = weights.hiddenSize;
+    final int numPairFeatures = weights.numPairFeatures;
+    input = ensureCapacity(input, count * maxWidth);
+    output = ensureCapacity(output, count * maxWidth);
+    scores = ensureCapacity(scores, count);
+
+    // first layer: antecedent + anaphor + pairFeaturesMatrix * features + bias, summed in
+    // the same order as getPairwiseScore
+    final double[] pairWeights = weights.pairFeatures;
+    final double[] bias = weights.firstLayerBias;
+    final int anaphorRow = anaphor * hiddenSize;
+    for (int c = 0; c < count; c++) {
+      final int antecedentRow = antecedents[c] * hiddenSize;
+      final int out = c * maxWidth;
+      for (int i = 0; i < hiddenSize; i++) {
+        input[out + i] = antecedentEmbeddings[antecedentRow + i] + anaphorEmbeddings[anaphorRow + i];
+      }
+    }
+    for (int i = 0; i < hiddenSize; i++) {
+      final int weightRow = i * numPairFeatures;
+      for (int c = 0; c < count; c++) {
+        final int featureRow = c * numPairFeatures;
+        double total = 0;
+        for (int j = 0; j < numPairFeatures; j++) {
+          total += pairWeights[weightRow + j] * pairFeatures[featureRow + j];
+        }
+        final int out = c * maxWidth + i;
+        input[out] = Math.max(0, (input[out] + total) + bias[i]);
+      }
+    }
+
+    // the remaining layers, as in NeuralCorefModel.score
+    int width = hiddenSize;
+    for (int layer = 0; layer < weights.layers.length; layer++) {
+      final double[] layerWeights = weights.layers[layer];
+      final double[] layerBias = weights.biases[layer];
+      final int rows = weights.layerRows[layer];
+      final int columns = weights.layerColumns[layer];
+      if (columns != width) {
+        throw new IllegalStateException("Layer " + layer + " expects " + columns + " inputs, not " + width);
+      }
+      final boolean relu = rows > 1;
+      for (int i = 0; i < rows; i++) {
+        final int weightRow = i * columns;
+        for (int c = 0; c < count; c++) {
+          final int inRow = c * maxWidth;
+          double total = 0;
+          for (int j = 0; j < columns; j++) {
+            total += layerWeights[weightRow + j] * input[inRow + j];
+          }
+          total += layerBias[i];
+          output[c * maxWidth + i] = relu ? Math.max(0, total) : total;
+        }
+      }
+      double[] swap = input;
+      input = output;
+      output = swap;
+      width = rows;
+    }
+
+    for (int c = 0; c < count; c++) {
+      final int row = c * maxWidth;
+      double total = 0;
+      for (int i = 0; i < width; i++) {
+        total += input[row + i];
+      }
+      scores[c] = total;
+    }
+    return scores;
+  }
+
+}
@@ -27,6 +27,7 @@ import edu.stanford.nlp.sequences.SeqClassifierFlags;
 import edu.stanford.nlp.util.CoreMap;
 import edu.stanford.nlp.util.ErasureUtils;
 import edu.stanford.nlp.util.Generics;
+import edu.stanford.nlp.util.ModelRegistry;
 import edu.stanford.nlp.util.StringUtils;
 import edu.stanford.nlp.util.PropertiesUtils;
 import edu.stanford.nlp.util.logging.Redwood;
@@ -267,7 +268,22 @@ public class ClassifierCombiner<IN extends CoreMap & HasWord> extends AbstractSe
       baseClassifiers.add(presetASC);
     }
     for(String path: paths){
-      AbstractSequenceClassifier<IN> cls = loadClassifierFromPath(props, path);
+      AbstractSequenceClassifier<IN> cls;
+      try {
+        // classifiers loaded with the same properties are shared with other combiners through the registry
+        cls = ErasureUtils.uncheckedCast(ModelRegistry.acquire(this, AbstractSequenceClassifier.class, path, props, () -> {
+          try {
+            return loadClassifierFromPath(props, path);
+          } catch (IOException e) {
+            throw new RuntimeIOException(e);
+          }
+        }));
+      } catch (RuntimeIOException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw e;
+      }
       baseClassifiers.add(cls);
       if(DEBUG){
         System.err.printf("Successfully loaded classifier #%d from %s.%n", baseClassifiers.size(), path);
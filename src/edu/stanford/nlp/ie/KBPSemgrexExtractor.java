@@ -8,8 +8,8 @@ import edu.stanford.nlp.ling.IndexedWord;
 import edu.stanford.nlp.pipeline.DefaultPaths;
 import edu.stanford.nlp.semgraph.SemanticGraph;
 import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations;
+import edu.stanford.nlp.semgraph.semgrex.MultiPatternMatcher;
 import edu.stanford.nlp.semgraph.semgrex.SemgrexBatchParser;
-import edu.stanford.nlp.semgraph.semgrex.SemgrexMatcher;
 import edu.stanford.nlp.semgraph.semgrex.SemgrexPattern;
 import edu.stanford.nlp.simple.Sentence;
 import edu.stanford.nlp.util.ArgumentParser;
@@ -38,7 +38,7 @@ public class KBPSemgrexExtractor implements KBPRelationExtractor {
   @ArgumentParser.Option(name="predictions", gloss="Dump model predictions to this file")
   public static Optional<String> PREDICTIONS = Optional.empty();
 
-  private final Map<RelationType, Collection<SemgrexPattern> > rules = new HashMap<>();
+  private final Map<RelationType, MultiPatternMatcher> rules = new HashMap<>();
 
   public KBPSemgrexExtractor(String semgrexdir) throws IOException {
     this(semgrexdir, false);
@@ -56,7 +56,7 @@ public class KBPSemgrexExtractor implements KBPRelationExtractor {
         List<SemgrexPattern> rulesforrel = SemgrexBatchParser.compileStream(IOUtils.getInputStreamFromURLOrClasspathOrFileSystem(filename));
         if (verbose)
           logger.log("Read " + rulesforrel.size() + " rules from " + filename + " for relation " + rel);
-        rules.put(rel, rulesforrel);
+        rules.put(rel, SemgrexPattern.getMultiPatternMatcher(rulesforrel));
       }
     }
   }
@@ -69,7 +69,7 @@ public class KBPSemgrexExtractor implements KBPRelationExtractor {
       if (rules.containsKey(rel) &&
           rel.entityType == input.subjectType &&
           rel.validNamedEntityLabels.contains(input.objectType)) {
-        Collection<SemgrexPattern> rulesForRel = rules.get(rel);
+        MultiPatternMatcher rulesForRel = rules.get(rel);
         CoreMap sentence = input.sentence.asCoreMap(Sentence::nerTags, Sentence::dependencyGraph);
         boolean matches
             = matches(sentence, rulesForRel, input,
@@ -90,7 +90,7 @@ public class KBPSemgrexExtractor implements KBPRelationExtractor {
   /**
    * Returns whether any of the given patterns match this tree.
    */
-  private boolean matches(CoreMap sentence, Collection<SemgrexPattern> rulesForRel,
+  private boolean matches(CoreMap sentence, MultiPatternMatcher rulesForRel,
                           KBPInput input, SemanticGraph graph) {
     if (graph == null || graph.isEmpty()) {
       return false;
@@ -108,26 +108,18 @@ public class KBPSemgrexExtractor implements KBPRelationExtractor {
       }
     }
 
-    for (SemgrexPattern p : rulesForRel) {
-
-      try {
-        SemgrexMatcher n = p.matcher(graph);
-        while (n.find()) {
-          IndexedWord entity = n.getNode("entity");
-          IndexedWord slot = n.getNode("slot");
-          boolean hasSubject = entity.index() >= input.subjectSpan.start() + 1 && entity.index() <= input.subjectSpan.end();
-          boolean hasObject  = slot.index() >= input.objectSpan.start() + 1 && slot.index() <= input.objectSpan.end();
-
-          if (hasSubject && hasObject) {
-            return true;
-          }
-        }
-      } catch (Exception e) {
-        //Happens when graph has no roots
-        return false;
-      }
+    try {
+      return rulesForRel.anyMatch(graph, (p, n) -> {
+        IndexedWord entity = n.getNode("entity");
+        IndexedWord slot = n.getNode("slot");
+        boolean hasSubject = entity.index() >= input.subjectSpan.start() + 1 && entity.index() <= input.subjectSpan.end();
+        boolean hasObject  = slot.index() >= input.objectSpan.start() + 1 && slot.index() <= input.objectSpan.end();
+        return hasSubject && hasObject;
+      });
+    } catch (Exception e) {
+      //Happens when graph has no roots
+      return false;
     }
-    return false;
   }
 
 
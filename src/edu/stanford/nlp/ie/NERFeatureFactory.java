@@ -30,12 +30,15 @@ package edu.stanford.nlp.ie;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -50,6 +53,7 @@ import edu.stanford.nlp.process.WordShapeClassifier;
 import edu.stanford.nlp.sequences.Clique;
 import edu.stanford.nlp.sequences.CoNLLDocumentReaderAndWriter;
 import edu.stanford.nlp.sequences.FeatureFactory;
+import edu.stanford.nlp.sequences.FeatureIdBuffer;
 import edu.stanford.nlp.sequences.SeqClassifierFlags;
 import edu.stanford.nlp.trees.international.pennchinese.RadicalMap;
 import edu.stanford.nlp.util.Generics;
@@ -403,60 +407,74 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
 
 //    log.info(doFE+"\t"+domain);
 
-    // there are two special cases below, because 2 cliques have 2 names
-    Collection<String> c;
-    String suffix;
-    if (clique == cliqueC) {
-      //200710: tried making this clique null; didn't improve performance (rafferty)
-      c = featuresC(cInfo, loc);
-      suffix = "C";
-    } else if (clique == cliqueCpC) {
-      c = featuresCpC(cInfo, loc);
-      suffix = "CpC";
+    forEachCliqueFeatureGroup(cInfo, loc, clique, (c, suffix) -> {
       addAllInterningAndSuffixing(features, c, suffix);
       if (doFE) {
         addAllInterningAndSuffixing(features, c, domain + '-' + suffix);
       }
-      c = featuresCnC(cInfo, loc-1);
-      suffix = "CnC";
+    });
+
+    // log.info(StringUtils.join(features,"\n")+"\n");
+    return features;
+  }
+
+  /**
+   * Adds the same features as {@link #getCliqueFeatures}, but appends each clique suffix
+   * in the buffer rather than concatenating a new String, and skips the intermediate Set.
+   * The features of the C clique, which are most of them, are assembled in the buffer from
+   * their values and templates, without building their base names as Strings either.
+   */
+  @Override
+  public void getCliqueFeatureIds(PaddedList<IN> cInfo, int loc, Clique clique, FeatureIdBuffer ids) {
+    ids.startGroup();
+    String domain = cInfo.get(0).get(CoreAnnotations.DomainAnnotation.class);
+    if (clique == cliqueC) {
+      addFeaturesC(cInfo, loc, new FeatureIdCollector(ids, "C", domain));
+      return;
+    }
+    forEachCliqueFeatureGroup(cInfo, loc, clique, (c, suffix) -> {
+      for (String feature : c) {
+        ids.add(feature, suffix);
+      }
+      if (domain != null) {
+        String domainSuffix = domain + '-' + suffix;
+        for (String feature : c) {
+          ids.add(feature, domainSuffix);
+        }
+      }
+    });
+  }
+
+  /**
+   * Computes the base features of each kind for the given clique, and passes each
+   * group to the action along with the suffix which names its kind.
+   * Two cliques have two kinds of features each: CpC also has CnC, and CpCp2C also has CpCnC.
+   */
+  private void forEachCliqueFeatureGroup(PaddedList<IN> cInfo, int loc, Clique clique, BiConsumer<Collection<String>, String> action) {
+    if (clique == cliqueC) {
+      //200710: tried making this clique null; didn't improve performance (rafferty)
+      action.accept(featuresC(cInfo, loc), "C");
+    } else if (clique == cliqueCpC) {
+      action.accept(featuresCpC(cInfo, loc), "CpC");
+      action.accept(featuresCnC(cInfo, loc-1), "CnC");
     } else if (clique == cliqueCp2C) {
-      c = featuresCp2C(cInfo, loc);
-      suffix = "Cp2C";
+      action.accept(featuresCp2C(cInfo, loc), "Cp2C");
     } else if (clique == cliqueCp3C) {
-      c = featuresCp3C(cInfo, loc);
-      suffix = "Cp3C";
+      action.accept(featuresCp3C(cInfo, loc), "Cp3C");
     } else if (clique == cliqueCp4C) {
-      c = featuresCp4C(cInfo, loc);
-      suffix = "Cp4C";
+      action.accept(featuresCp4C(cInfo, loc), "Cp4C");
     } else if (clique == cliqueCp5C) {
-      c = featuresCp5C(cInfo, loc);
-      suffix = "Cp5C";
+      action.accept(featuresCp5C(cInfo, loc), "Cp5C");
     } else if (clique == cliqueCpCp2C) {
-      c = featuresCpCp2C(cInfo, loc);
-      suffix = "CpCp2C";
-      addAllInterningAndSuffixing(features, c, suffix);
-      if (doFE) {
-        addAllInterningAndSuffixing(features, c, domain+ '-' + suffix);
-      }
-      c = featuresCpCnC(cInfo, loc-1);
-      suffix = "CpCnC";
+      action.accept(featuresCpCp2C(cInfo, loc), "CpCp2C");
+      action.accept(featuresCpCnC(cInfo, loc-1), "CpCnC");
     } else if (clique == cliqueCpCp2Cp3C) {
-      c = featuresCpCp2Cp3C(cInfo, loc);
-      suffix = "CpCp2Cp3C";
+      action.accept(featuresCpCp2Cp3C(cInfo, loc), "CpCp2Cp3C");
     } else if (clique == cliqueCpCp2Cp3Cp4C) {
-      c = featuresCpCp2Cp3Cp4C(cInfo, loc);
-      suffix = "CpCp2Cp3Cp4C";
+      action.accept(featuresCpCp2Cp3Cp4C(cInfo, loc), "CpCp2Cp3Cp4C");
     } else {
       throw new IllegalArgumentException("Unknown clique: " + clique);
     }
-
-    addAllInterningAndSuffixing(features, c, suffix);
-    if (doFE) {
-      addAllInterningAndSuffixing(features, c, domain + '-' + suffix);
-    }
-
-    // log.info(StringUtils.join(features,"\n")+"\n");
-    return features;
   }
 
 
@@ -761,19 +779,82 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
     String[] bits = splitSlashHyphenWordsPattern.split(word);
     for (String bit : bits) {
       if (flags.slashHyphenTreatment == SeqClassifierFlags.SlashHyphenEnum.WFRAG) {
-        featuresC.add(bit + fragSuffix);
+        addFeature(featuresC, bit, fragSuffix);
       } else if (flags.slashHyphenTreatment == SeqClassifierFlags.SlashHyphenEnum.BOTH) {
-        featuresC.add(bit + fragSuffix);
-        featuresC.add(bit + wordSuffix);
+        addFeature(featuresC, bit, fragSuffix);
+        addFeature(featuresC, bit, wordSuffix);
       } else {
         // option WORD
-        featuresC.add(bit + wordSuffix);
+        addFeature(featuresC, bit, wordSuffix);
       }
     }
   }
 
 
+  /**
+   * Adds the feature named by the value followed by the template, such as a word and "-WORD".
+   * When collecting feature numbers, the name is assembled in the buffer rather than as a new String.
+   */
+  private static void addFeature(Collection<String> features, Object value, String template) {
+    if (features instanceof FeatureIdCollector) {
+      ((FeatureIdCollector) features).add(value, template);
+    } else {
+      features.add(value + template);
+    }
+  }
+
+  /**
+   * Passes the features added to it on to a {@link FeatureIdBuffer}, followed by a clique suffix,
+   * and by the domain suffix too when there is a domain.
+   * It only collects; it can't be iterated.
+   */
+  private static class FeatureIdCollector extends AbstractCollection<String> {
+
+    private final FeatureIdBuffer ids;
+    private final String suffix;
+    private final String domainSuffix;
+
+    FeatureIdCollector(FeatureIdBuffer ids, String suffix, String domain) {
+      this.ids = ids;
+      this.suffix = suffix;
+      this.domainSuffix = (domain == null) ? null : domain + '-' + suffix;
+    }
+
+    void add(Object value, String template) {
+      ids.add(value, template, suffix);
+      if (domainSuffix != null) {
+        ids.add(value, template, domainSuffix);
+      }
+    }
+
+    @Override
+    public boolean add(String feature) {
+      ids.add(feature, suffix);
+      if (domainSuffix != null) {
+        ids.add(feature, domainSuffix);
+      }
+      return true;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int size() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
   protected Collection<String> featuresC(PaddedList<IN> cInfo, int loc) {
+    Collection<String> featuresC = new ArrayList<>();
+    addFeaturesC(cInfo, loc, featuresC);
+    return featuresC;
+  }
+
+  /** Adds the features of the C clique to the collection; see {@link #featuresC}. */
+  private void addFeaturesC(PaddedList<IN> cInfo, int loc, Collection<String> featuresC) {
     CoreLabel p3 = cInfo.get(loc - 3);
     CoreLabel p2 = cInfo.get(loc - 2);
     CoreLabel p = cInfo.get(loc - 1);
@@ -788,15 +869,13 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
     String pShape = p.getString(CoreAnnotations.ShapeAnnotation.class);
     String nShape = n.getString(CoreAnnotations.ShapeAnnotation.class);
 
-    Collection<String> featuresC = new ArrayList<>();
-
     if (flags.useDistSim) {
       distSimAnnotate(cInfo);
     }
 
     if (flags.useBagOfWords) {
       for (IN word : cInfo) {
-        featuresC.add(getWord(word) + "-BAGOFWORDS");
+        addFeature(featuresC, getWord(word), "-BAGOFWORDS");
       }
     }
 
@@ -806,7 +885,7 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
 
 
     if (flags.useDistSim) {
-      featuresC.add(c.get(CoreAnnotations.DistSimAnnotation.class) + "-DISTSIM");
+      addFeature(featuresC, c.get(CoreAnnotations.DistSimAnnotation.class), "-DISTSIM");
     }
 
 
@@ -832,40 +911,40 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
     if (flags.useInternal && flags.useExternal ) {
 
       if (flags.useWord) {
-        featuresC.add(cWord + "-WORD");
+        addFeature(featuresC, cWord, "-WORD");
       }
 
       if (flags.use2W) {
-        featuresC.add(getWord(p2) + "-P2W");
-        featuresC.add(getWord(n2) + "-N2W");
+        addFeature(featuresC, getWord(p2), "-P2W");
+        addFeature(featuresC, getWord(n2), "-N2W");
       }
 
       if (flags.useLC) {
-        featuresC.add(cWord.toLowerCase() + "-CL");
-        featuresC.add(pWord.toLowerCase() + "-PL");
-        featuresC.add(nWord.toLowerCase() + "-NL");
+        addFeature(featuresC, cWord.toLowerCase(), "-CL");
+        addFeature(featuresC, pWord.toLowerCase(), "-PL");
+        addFeature(featuresC, nWord.toLowerCase(), "-NL");
       }
 
       if (flags.useUnknown) { // for true casing
-        featuresC.add(c.get(CoreAnnotations.UnknownAnnotation.class)+"-UNKNOWN");
-        featuresC.add(p.get(CoreAnnotations.UnknownAnnotation.class)+"-PUNKNOWN");
-        featuresC.add(n.get(CoreAnnotations.UnknownAnnotation.class)+"-NUNKNOWN");
+        addFeature(featuresC, c.get(CoreAnnotations.UnknownAnnotation.class), "-UNKNOWN");
+        addFeature(featuresC, p.get(CoreAnnotations.UnknownAnnotation.class), "-PUNKNOWN");
+        addFeature(featuresC, n.get(CoreAnnotations.UnknownAnnotation.class), "-NUNKNOWN");
       }
 
       if (flags.useLemmas) {
         String lem = c.getString(CoreAnnotations.LemmaAnnotation.class);
         if (! "".equals(lem)) {
-          featuresC.add(lem + "-LEM");
+          addFeature(featuresC, lem, "-LEM");
         }
       }
       if (flags.usePrevNextLemmas) {
         String plem = p.getString(CoreAnnotations.LemmaAnnotation.class);
         String nlem = n.getString(CoreAnnotations.LemmaAnnotation.class);
         if (! "".equals(plem)) {
-          featuresC.add(plem + "-PLEM");
+          addFeature(featuresC, plem, "-PLEM");
         }
         if (! "".equals(nlem)) {
-          featuresC.add(nlem + "-NLEM");
+          addFeature(featuresC, nlem, "-NLEM");
         }
       }
 
@@ -927,9 +1006,9 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
       }
 
       if (flags.useABGENE) {
-        featuresC.add(c.get(CoreAnnotations.AbgeneAnnotation.class) + "-ABGENE");
-        featuresC.add(p.get(CoreAnnotations.AbgeneAnnotation.class) + "-PABGENE");
-        featuresC.add(n.get(CoreAnnotations.AbgeneAnnotation.class) + "-NABGENE");
+        addFeature(featuresC, c.get(CoreAnnotations.AbgeneAnnotation.class), "-ABGENE");
+        addFeature(featuresC, p.get(CoreAnnotations.AbgeneAnnotation.class), "-PABGENE");
+        addFeature(featuresC, n.get(CoreAnnotations.AbgeneAnnotation.class), "-NABGENE");
       }
 
       if (flags.useABSTRFreqDict) {
@@ -939,15 +1018,15 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
       }
 
       if (flags.useABSTR) {
-        featuresC.add(c.get(CoreAnnotations.AbstrAnnotation.class) + "-ABSTRACT");
-        featuresC.add(p.get(CoreAnnotations.AbstrAnnotation.class) + "-PABSTRACT");
-        featuresC.add(n.get(CoreAnnotations.AbstrAnnotation.class) + "-NABSTRACT");
+        addFeature(featuresC, c.get(CoreAnnotations.AbstrAnnotation.class), "-ABSTRACT");
+        addFeature(featuresC, p.get(CoreAnnotations.AbstrAnnotation.class), "-PABSTRACT");
+        addFeature(featuresC, n.get(CoreAnnotations.AbstrAnnotation.class), "-NABSTRACT");
       }
 
       if (flags.useGENIA) {
-        featuresC.add(c.get(CoreAnnotations.GeniaAnnotation.class) + "-GENIA");
-        featuresC.add(p.get(CoreAnnotations.GeniaAnnotation.class) + "-PGENIA");
-        featuresC.add(n.get(CoreAnnotations.GeniaAnnotation.class) + "-NGENIA");
+        addFeature(featuresC, c.get(CoreAnnotations.GeniaAnnotation.class), "-GENIA");
+        addFeature(featuresC, p.get(CoreAnnotations.GeniaAnnotation.class), "-PGENIA");
+        addFeature(featuresC, n.get(CoreAnnotations.GeniaAnnotation.class), "-NGENIA");
       }
       if (flags.useWEBFreqDict) {
         featuresC.add(c.get(CoreAnnotations.WebAnnotation.class) + "-WEB" + c.get(CoreAnnotations.FreqAnnotation.class) + "-FREQ" + c.getString(CoreAnnotations.PartOfSpeechAnnotation.class) + "-TAG");
@@ -956,22 +1035,22 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
       }
 
       if (flags.useWEB) {
-        featuresC.add(c.get(CoreAnnotations.WebAnnotation.class) + "-WEB");
-        featuresC.add(p.get(CoreAnnotations.WebAnnotation.class) + "-PWEB");
-        featuresC.add(n.get(CoreAnnotations.WebAnnotation.class) + "-NWEB");
+        addFeature(featuresC, c.get(CoreAnnotations.WebAnnotation.class), "-WEB");
+        addFeature(featuresC, p.get(CoreAnnotations.WebAnnotation.class), "-PWEB");
+        addFeature(featuresC, n.get(CoreAnnotations.WebAnnotation.class), "-NWEB");
       }
 
       if (flags.useIsURL) {
-        featuresC.add(c.get(CoreAnnotations.IsURLAnnotation.class) + "-ISURL");
+        addFeature(featuresC, c.get(CoreAnnotations.IsURLAnnotation.class), "-ISURL");
       }
       if (flags.useEntityRule) {
-        featuresC.add(c.get(CoreAnnotations.EntityRuleAnnotation.class)+"-ENTITYRULE");
+        addFeature(featuresC, c.get(CoreAnnotations.EntityRuleAnnotation.class), "-ENTITYRULE");
       }
       if (flags.useEntityTypes) {
-        featuresC.add(c.get(CoreAnnotations.EntityTypeAnnotation.class) + "-ENTITYTYPE");
+        addFeature(featuresC, c.get(CoreAnnotations.EntityTypeAnnotation.class), "-ENTITYTYPE");
       }
       if (flags.useIsDateRange) {
-        featuresC.add(c.get(CoreAnnotations.IsDateRangeAnnotation.class) + "-ISDATERANGE");
+        addFeature(featuresC, c.get(CoreAnnotations.IsDateRangeAnnotation.class), "-ISDATERANGE");
       }
 
       if (flags.useABSTRFreq) {
@@ -979,7 +1058,7 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
       }
 
       if (flags.useFREQ) {
-        featuresC.add(c.get(CoreAnnotations.FreqAnnotation.class) + "-FREQ");
+        addFeature(featuresC, c.get(CoreAnnotations.FreqAnnotation.class), "-FREQ");
       }
 
       if (flags.useMoreTags) {
@@ -987,23 +1066,23 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
       }
 
       if (flags.usePosition) {
-        featuresC.add(c.get(CoreAnnotations.PositionAnnotation.class) + "-POSITION");
+        addFeature(featuresC, c.get(CoreAnnotations.PositionAnnotation.class), "-POSITION");
       }
       if (flags.useBeginSent) {
         String pos = c.get(CoreAnnotations.PositionAnnotation.class);
         if ("0".equals(pos)) {
           featuresC.add("BEGIN-SENT");
-          featuresC.add(cShape + "-BEGIN-SENT");
+          addFeature(featuresC, cShape, "-BEGIN-SENT");
         } else if (Integer.toString(cInfo.size() - 1).equals(pos)) {
           featuresC.add("END-SENT");
-          featuresC.add(cShape + "-END-SENT");
+          addFeature(featuresC, cShape, "-END-SENT");
         } else {
           featuresC.add("IN-SENT");
-          featuresC.add(cShape + "-IN-SENT");
+          addFeature(featuresC, cShape, "-IN-SENT");
         }
       }
       if (flags.useTags) {
-        featuresC.add(c.getString(CoreAnnotations.PartOfSpeechAnnotation.class) + "-TAG");
+        addFeature(featuresC, c.getString(CoreAnnotations.PartOfSpeechAnnotation.class), "-TAG");
       }
 
       if (flags.useOrdinal) {
@@ -1021,34 +1100,34 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
       }
 
       if (flags.usePrev) {
-        featuresC.add(pWord + "-PW");
+        addFeature(featuresC, pWord, "-PW");
         if (flags.useTags) {
-          featuresC.add(p.getString(CoreAnnotations.PartOfSpeechAnnotation.class) + "-PTAG");
+          addFeature(featuresC, p.getString(CoreAnnotations.PartOfSpeechAnnotation.class), "-PTAG");
         }
         if (flags.useDistSim) {
-          featuresC.add(p.get(CoreAnnotations.DistSimAnnotation.class) + "-PDISTSIM");
+          addFeature(featuresC, p.get(CoreAnnotations.DistSimAnnotation.class), "-PDISTSIM");
         }
         if (flags.useIsURL) {
-          featuresC.add(p.get(CoreAnnotations.IsURLAnnotation.class) + "-PISURL");
+          addFeature(featuresC, p.get(CoreAnnotations.IsURLAnnotation.class), "-PISURL");
         }
         if (flags.useEntityTypes) {
-          featuresC.add(p.get(CoreAnnotations.EntityTypeAnnotation.class) + "-PENTITYTYPE");
+          addFeature(featuresC, p.get(CoreAnnotations.EntityTypeAnnotation.class), "-PENTITYTYPE");
         }
       }
 
       if (flags.useNext) {
-        featuresC.add(nWord + "-NW");
+        addFeature(featuresC, nWord, "-NW");
         if (flags.useTags) {
-          featuresC.add(n.getString(CoreAnnotations.PartOfSpeechAnnotation.class) + "-NTAG");
+          addFeature(featuresC, n.getString(CoreAnnotations.PartOfSpeechAnnotation.class), "-NTAG");
         }
         if (flags.useDistSim) {
-          featuresC.add(n.get(CoreAnnotations.DistSimAnnotation.class) + "-NDISTSIM");
+          addFeature(featuresC, n.get(CoreAnnotations.DistSimAnnotation.class), "-NDISTSIM");
         }
         if (flags.useIsURL) {
-          featuresC.add(n.get(CoreAnnotations.IsURLAnnotation.class) + "-NISURL");
+          addFeature(featuresC, n.get(CoreAnnotations.IsURLAnnotation.class), "-NISURL");
         }
         if (flags.useEntityTypes) {
-          featuresC.add(n.get(CoreAnnotations.EntityTypeAnnotation.class) + "-NENTITYTYPE");
+          addFeature(featuresC, n.get(CoreAnnotations.EntityTypeAnnotation.class), "-NENTITYTYPE");
         }
       }
       /*here, entityTypes refers to the type in the PASCAL IE challenge:
@@ -1056,8 +1135,8 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
 
 
       if (flags.useEitherSideWord) {
-        featuresC.add(pWord + "-EW");
-        featuresC.add(nWord + "-EW");
+        addFeature(featuresC, pWord, "-EW");
+        addFeature(featuresC, nWord, "-EW");
       }
 
       if (flags.useWordPairs) {
@@ -1089,15 +1168,15 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
       if (flags.useGazFeatures) {
 
         if (cGazAnnotation != null && !cGazAnnotation.equals(flags.dropGaz)) {
-          featuresC.add(cGazAnnotation + "-GAZ");
+          addFeature(featuresC, cGazAnnotation, "-GAZ");
         }
         // n
         if (nGazAnnotation != null && !nGazAnnotation.equals(flags.dropGaz)) {
-          featuresC.add(nGazAnnotation + "-NGAZ");
+          addFeature(featuresC, nGazAnnotation, "-NGAZ");
         }
         // p
         if (pGazAnnotation != null && !pGazAnnotation.equals(flags.dropGaz)) {
-          featuresC.add(pGazAnnotation + "-PGAZ");
+          addFeature(featuresC, pGazAnnotation, "-PGAZ");
         }
       }
 
@@ -1118,12 +1197,12 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
       }
 
       if (flags.useAbbr || flags.useMinimalAbbr) {
-        featuresC.add(c.get(CoreAnnotations.AbbrAnnotation.class) + "-ABBR");
+        addFeature(featuresC, c.get(CoreAnnotations.AbbrAnnotation.class), "-ABBR");
       }
 
       if (flags.useAbbr1 || flags.useMinimalAbbr1) {
         if (!c.get(CoreAnnotations.AbbrAnnotation.class).equals("XX")) {
-          featuresC.add(c.get(CoreAnnotations.AbbrAnnotation.class) + "-ABBR");
+          addFeature(featuresC, c.get(CoreAnnotations.AbbrAnnotation.class), "-ABBR");
         }
       }
 
@@ -1166,7 +1245,7 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
             featuresC.add("X-PVB");
             break;
           } else if (wi.getString(CoreAnnotations.PartOfSpeechAnnotation.class).startsWith("VB")) {
-            featuresC.add(getWord(wi) + "-PVB");
+            addFeature(featuresC, getWord(wi), "-PVB");
             prevVB = getWord(wi);
             break;
           }
@@ -1181,7 +1260,7 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
             nextVB = "X";
             break;
           } else if (wi.getString(CoreAnnotations.PartOfSpeechAnnotation.class).startsWith("VB")) {
-            featuresC.add(getWord(wi) + "-NVB");
+            addFeature(featuresC, getWord(wi), "-NVB");
             nextVB = getWord(wi);
             break;
           }
@@ -1213,7 +1292,7 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
         // TODO: neat idea, but this would need to be set somewhere.
         // Probably should have its own annotation as this one would
         // be more narrow and would clobber other potential uses
-        featuresC.add(c.get(CoreAnnotations.HeadWordStringAnnotation.class) + "-HW");
+        addFeature(featuresC, c.get(CoreAnnotations.HeadWordStringAnnotation.class), "-HW");
         if (flags.useTags) {
           featuresC.add(c.get(CoreAnnotations.HeadWordStringAnnotation.class) + "-" + c.getString(CoreAnnotations.PartOfSpeechAnnotation.class) + "-HW-T");
         }
@@ -1223,7 +1302,7 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
       }
 
       if (flags.useNPGovernor) {
-        featuresC.add(c.get(CoreAnnotations.GovernorAnnotation.class) + "-GW");
+        addFeature(featuresC, c.get(CoreAnnotations.GovernorAnnotation.class), "-GW");
         if (flags.useTags) {
           featuresC.add(c.get(CoreAnnotations.GovernorAnnotation.class) + '-' + c.getString(CoreAnnotations.PartOfSpeechAnnotation.class) + "-GW-T");
         }
@@ -1326,10 +1405,10 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
       }
 
       if ((flags.wordShape > WordShapeClassifier.NOWORDSHAPE) || flags.useShapeStrings) {
-        featuresC.add(cShape + "-TYPE");
+        addFeature(featuresC, cShape, "-TYPE");
         if (flags.useTypeSeqs) {
-          featuresC.add(pShape + "-PTYPE");
-          featuresC.add(nShape + "-NTYPE");
+          addFeature(featuresC, pShape, "-PTYPE");
+          addFeature(featuresC, nShape, "-NTYPE");
           featuresC.add(pWord + "..." + cShape + "-PW_CTYPE");
           featuresC.add(cShape + "..." + nWord + "-NW_CTYPE");
           featuresC.add(pShape + "..." + cShape + "-PCTYPE");
@@ -1360,11 +1439,11 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
         for (int i = 1; i <= flags.disjunctionWidth; i++) {
           CoreLabel dn = cInfo.get(loc + i);
           CoreLabel dp = cInfo.get(loc - i);
-          featuresC.add(getWord(dn) + "-DISJN");
+          addFeature(featuresC, getWord(dn), "-DISJN");
           if (flags.useDisjunctiveShapeInteraction) {
             featuresC.add(getWord(dn) + '-' + cShape + "-DISJN-CS");
           }
-          featuresC.add(getWord(dp) + "-DISJP");
+          addFeature(featuresC, getWord(dp), "-DISJP");
           if (flags.useDisjunctiveShapeInteraction) {
             featuresC.add(getWord(dp) + '-' + cShape + "-DISJP-CS");
           }
@@ -1375,28 +1454,28 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
         for (int i = 1; i <= flags.disjunctionWidth; i++) {
           CoreLabel dn = cInfo.get(loc + i);
           CoreLabel dp = cInfo.get(loc - i);
-          featuresC.add(getWord(dn) + "-DISJ");
-          featuresC.add(getWord(dp) + "-DISJ");
+          addFeature(featuresC, getWord(dn), "-DISJ");
+          addFeature(featuresC, getWord(dp), "-DISJ");
         }
       }
 
       if (flags.useWideDisjunctive) {
         for (int i = 1; i <= flags.wideDisjunctionWidth; i++) {
-          featuresC.add(getWord(cInfo.get(loc + i)) + "-DISJWN");
-          featuresC.add(getWord(cInfo.get(loc - i)) + "-DISJWP");
+          addFeature(featuresC, getWord(cInfo.get(loc + i)), "-DISJWN");
+          addFeature(featuresC, getWord(cInfo.get(loc - i)), "-DISJWP");
         }
       }
 
       if (flags.useEitherSideDisjunctive) {
         for (int i = 1; i <= flags.disjunctionWidth; i++) {
-          featuresC.add(getWord(cInfo.get(loc + i)) + "-DISJWE");
-          featuresC.add(getWord(cInfo.get(loc - i)) + "-DISJWE");
+          addFeature(featuresC, getWord(cInfo.get(loc + i)), "-DISJWE");
+          addFeature(featuresC, getWord(cInfo.get(loc - i)), "-DISJWE");
         }
       }
 
       if (flags.useDisjShape) {
         for (int i = 1; i <= flags.disjunctionWidth; i++) {
-          featuresC.add(cInfo.get(loc + i).get(CoreAnnotations.ShapeAnnotation.class) + "-NDISJSHAPE");
+          addFeature(featuresC, cInfo.get(loc + i).get(CoreAnnotations.ShapeAnnotation.class), "-NDISJSHAPE");
           // featuresC.add(cInfo.get(loc - i).get(CoreAnnotations.ShapeAnnotation.class) + "-PDISJSHAPE");
           featuresC.add(cShape + '-' + cInfo.get(loc + i).get(CoreAnnotations.ShapeAnnotation.class) + "-CNDISJSHAPE");
           // featuresC.add(c.get(CoreAnnotations.ShapeAnnotation.class) + "-" + cInfo.get(loc - i).get(CoreAnnotations.ShapeAnnotation.class) + "-CPDISJSHAPE");
@@ -1415,16 +1494,16 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
       }
 
       if (flags.useMUCFeatures) {
-        featuresC.add(c.get(CoreAnnotations.SectionAnnotation.class)+"-SECTION");
-        featuresC.add(c.get(CoreAnnotations.WordPositionAnnotation.class)+"-WORD_POSITION");
-        featuresC.add(c.get(CoreAnnotations.SentencePositionAnnotation.class)+"-SENT_POSITION");
-        featuresC.add(c.get(CoreAnnotations.ParaPositionAnnotation.class)+"-PARA_POSITION");
+        addFeature(featuresC, c.get(CoreAnnotations.SectionAnnotation.class), "-SECTION");
+        addFeature(featuresC, c.get(CoreAnnotations.WordPositionAnnotation.class), "-WORD_POSITION");
+        addFeature(featuresC, c.get(CoreAnnotations.SentencePositionAnnotation.class), "-SENT_POSITION");
+        addFeature(featuresC, c.get(CoreAnnotations.ParaPositionAnnotation.class), "-PARA_POSITION");
         featuresC.add(c.get(CoreAnnotations.WordPositionAnnotation.class)+ '-' +c.get(CoreAnnotations.ShapeAnnotation.class)+"-WORD_POSITION_SHAPE");
       }
     } else if (flags.useInternal) {
 
       if (flags.useWord) {
-        featuresC.add(cWord + "-WORD");
+        addFeature(featuresC, cWord, "-WORD");
       }
 
       if (flags.useNGrams) {
@@ -1468,7 +1547,7 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
       }
 
       if ((flags.wordShape > WordShapeClassifier.NOWORDSHAPE) || flags.useShapeStrings) {
-        featuresC.add(cShape + "-TYPE");
+        addFeature(featuresC, cShape, "-TYPE");
       }
 
       if (flags.useOccurrencePatterns) {
@@ -1478,11 +1557,11 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
     } else if (flags.useExternal) {
 
       if (flags.usePrev) {
-        featuresC.add(pWord + "-PW");
+        addFeature(featuresC, pWord, "-PW");
       }
 
       if (flags.useNext) {
-        featuresC.add(nWord + "-NW");
+        addFeature(featuresC, nWord, "-NW");
       }
 
       if (flags.useWordPairs) {
@@ -1496,8 +1575,8 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
 
       if ((flags.wordShape > WordShapeClassifier.NOWORDSHAPE) || flags.useShapeStrings) {
         if (flags.useTypeSeqs) {
-          featuresC.add(pShape + "-PTYPE");
-          featuresC.add(nShape + "-NTYPE");
+          addFeature(featuresC, pShape, "-PTYPE");
+          addFeature(featuresC, nShape, "-NTYPE");
           featuresC.add(pWord + "..." + cShape + "-PW_CTYPE");
           featuresC.add(cShape + "..." + nWord + "-NW_CTYPE");
           if (flags.maxLeft > 0) featuresC.add(pShape + "..." + cShape + "-PCTYPE"); // this one just isn't useful, at least given c,pc,s,ps.  Might be useful 0th-order
@@ -1522,11 +1601,11 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
         for (int i = 1; i <= flags.disjunctionWidth; i++) {
           CoreLabel dn = cInfo.get(loc + i);
           CoreLabel dp = cInfo.get(loc - i);
-          featuresC.add(getWord(dn) + "-DISJN");
+          addFeature(featuresC, getWord(dn), "-DISJN");
           if (flags.useDisjunctiveShapeInteraction) {
             featuresC.add(getWord(dn) + '-' + cShape + "-DISJN-CS");
           }
-          featuresC.add(getWord(dp) + "-DISJP");
+          addFeature(featuresC, getWord(dp), "-DISJP");
           if (flags.useDisjunctiveShapeInteraction) {
             featuresC.add(getWord(dp) + '-' + cShape + "-DISJP-CS");
           }
@@ -1535,14 +1614,14 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
 
       if (flags.useWideDisjunctive) {
         for (int i = 1; i <= flags.wideDisjunctionWidth; i++) {
-          featuresC.add(getWord(cInfo.get(loc + i)) + "-DISJWN");
-          featuresC.add(getWord(cInfo.get(loc - i)) + "-DISJWP");
+          addFeature(featuresC, getWord(cInfo.get(loc + i)), "-DISJWN");
+          addFeature(featuresC, getWord(cInfo.get(loc - i)), "-DISJWP");
         }
       }
 
       if (flags.useDisjShape) {
         for (int i = 1; i <= flags.disjunctionWidth; i++) {
-          featuresC.add(cInfo.get(loc + i).get(CoreAnnotations.ShapeAnnotation.class) + "-NDISJSHAPE");
+          addFeature(featuresC, cInfo.get(loc + i).get(CoreAnnotations.ShapeAnnotation.class), "-NDISJSHAPE");
           // featuresC.add(cInfo.get(loc - i).get(CoreAnnotations.ShapeAnnotation.class) + "-PDISJSHAPE");
           featuresC.add(c.get(CoreAnnotations.ShapeAnnotation.class) + '-' + cInfo.get(loc + i).get(CoreAnnotations.ShapeAnnotation.class) + "-CNDISJSHAPE");
           // featuresC.add(c.get(CoreAnnotations.ShapeAnnotation.class) + "-" + cInfo.get(loc - i).get(CoreAnnotations.ShapeAnnotation.class) + "-CPDISJSHAPE");
@@ -1553,12 +1632,12 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
 
     // Stuff to add binary features from the additional columns
     if (flags.twoStage) {
-      featuresC.add(c.get(Bin1Annotation.class) + "-BIN1");
-      featuresC.add(c.get(Bin2Annotation.class) + "-BIN2");
-      featuresC.add(c.get(Bin3Annotation.class) + "-BIN3");
-      featuresC.add(c.get(Bin4Annotation.class) + "-BIN4");
-      featuresC.add(c.get(Bin5Annotation.class) + "-BIN5");
-      featuresC.add(c.get(Bin6Annotation.class) + "-BIN6");
+      addFeature(featuresC, c.get(Bin1Annotation.class), "-BIN1");
+      addFeature(featuresC, c.get(Bin2Annotation.class), "-BIN2");
+      addFeature(featuresC, c.get(Bin3Annotation.class), "-BIN3");
+      addFeature(featuresC, c.get(Bin4Annotation.class), "-BIN4");
+      addFeature(featuresC, c.get(Bin5Annotation.class), "-BIN5");
+      addFeature(featuresC, c.get(Bin6Annotation.class), "-BIN6");
     }
 
     if(flags.useIfInteger){
@@ -1593,9 +1672,9 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
 
     if(flags.useTopics){
       //featuresC.add(p.get(CoreAnnotations.TopicAnnotation.class) + '-' + cWord + "--CWORD");
-      featuresC.add(c.get(CoreAnnotations.TopicAnnotation.class)+ "-TopicID");
-      featuresC.add(p.get(CoreAnnotations.TopicAnnotation.class) + "-PTopicID");
-      featuresC.add(n.get(CoreAnnotations.TopicAnnotation.class) + "-NTopicID");
+      addFeature(featuresC, c.get(CoreAnnotations.TopicAnnotation.class), "-TopicID");
+      addFeature(featuresC, p.get(CoreAnnotations.TopicAnnotation.class), "-PTopicID");
+      addFeature(featuresC, n.get(CoreAnnotations.TopicAnnotation.class), "-NTopicID");
       //featuresC.add(p.get(CoreAnnotations.TopicAnnotation.class) + '-' + c.get(CoreAnnotations.TopicAnnotation.class) + '-' + n.get(CoreAnnotations.TopicAnnotation.class) + "-PCNTopicID");
       //featuresC.add(c.get(CoreAnnotations.TopicAnnotation.class) + '-' + n.get(CoreAnnotations.TopicAnnotation.class) + "-CNTopicID");
       //featuresC.add(p.get(CoreAnnotations.TopicAnnotation.class) + '-' + c.get(CoreAnnotations.TopicAnnotation.class) + "-PCTopicID");
@@ -1606,7 +1685,7 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
     // todo [cdm 2014]: Have this guarded by a flag and things would be a little faster. Set flag in current uses of this annotation.
     // NER tag annotations from a previous NER system
     if (c.get(CoreAnnotations.StackedNamedEntityTagAnnotation.class) != null) {
-      featuresC.add(c.get(CoreAnnotations.StackedNamedEntityTagAnnotation.class)+ "-CStackedNERTag");
+      addFeature(featuresC, c.get(CoreAnnotations.StackedNamedEntityTagAnnotation.class), "-CStackedNERTag");
       featuresC.add(cWord + "-" + c.get(CoreAnnotations.StackedNamedEntityTagAnnotation.class)+ "-WCStackedNERTag");
 
       if (flags.useNext) {
@@ -1624,15 +1703,15 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
       }
     }
     if(flags.useWordnetFeatures)
-      featuresC.add(c.get(CoreAnnotations.WordnetSynAnnotation.class)+"-WordnetSyn");
+      addFeature(featuresC, c.get(CoreAnnotations.WordnetSynAnnotation.class), "-WordnetSyn");
     if(flags.useProtoFeatures)
-      featuresC.add(c.get(CoreAnnotations.ProtoAnnotation.class)+"-Proto");
+      addFeature(featuresC, c.get(CoreAnnotations.ProtoAnnotation.class), "-Proto");
     if(flags.usePhraseWordTags)
-      featuresC.add(c.get(CoreAnnotations.PhraseWordsTagAnnotation.class)+"-PhraseTag");
+      addFeature(featuresC, c.get(CoreAnnotations.PhraseWordsTagAnnotation.class), "-PhraseTag");
     if(flags.usePhraseWords)
     {
       for(String w: c.get(CoreAnnotations.PhraseWordsAnnotation.class))
-      featuresC.add(w+"-PhraseWord");
+      addFeature(featuresC, w, "-PhraseWord");
     }
     if(flags.useCommonWordsFeature)
       featuresC.add(c.get(CoreAnnotations.CommonWordsAnnotation.class));
@@ -1640,24 +1719,20 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
     if (flags.useRadical && cWord.length() > 0) {
       // todo [cdm 2016]: Really all stuff in this file should be fixed to work with codepoints outside BMP
       if (cWord.length() == 1) {
-        featuresC.add(RadicalMap.getRadical(cWord.charAt(0)) +
-                      "-SINGLE-CHAR-RADICAL");
+        addFeature(featuresC, RadicalMap.getRadical(cWord.charAt(0)), "-SINGLE-CHAR-RADICAL");
       } else {
-        featuresC.add(RadicalMap.getRadical(cWord.charAt(0)) +
-                      "-START-RADICAL");
-        featuresC.add(RadicalMap.getRadical(cWord.charAt(cWord.length() - 1)) +
-                      "-END-RADICAL");
+        addFeature(featuresC, RadicalMap.getRadical(cWord.charAt(0)), "-START-RADICAL");
+        addFeature(featuresC, RadicalMap.getRadical(cWord.charAt(cWord.length() - 1)), "-END-RADICAL");
       }
       for (int i = 0; i < cWord.length(); ++i) {
-        featuresC.add(RadicalMap.getRadical(cWord.charAt(i)) +
-                      "-RADICAL");
+        addFeature(featuresC, RadicalMap.getRadical(cWord.charAt(i)), "-RADICAL");
       }
     }
 
     if(flags.splitWordRegex != null && !flags.splitWordRegex.isEmpty()){
       String[] ws = c.word().split(flags.splitWordRegex);
       for(String s: ws){
-       featuresC.add(s+"-SPLITWORD");
+       addFeature(featuresC, s, "-SPLITWORD");
       }
     }
 
@@ -1667,11 +1742,10 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
         maxLen = flags.maxNGramLeng;
       }
       for (int len = 1; len <= maxLen; ++len) {
-        featuresC.add(pWord.substring(0, len) + "-PREV-PREFIX");
+        addFeature(featuresC, pWord.substring(0, len), "-PREV-PREFIX");
       }
       for (int pos = pWord.length() - maxLen; pos < pWord.length(); ++pos) {
-        featuresC.add(pWord.substring(pos, pWord.length()) +
-                        "-PREV-SUFFIX");
+        addFeature(featuresC, pWord.substring(pos, pWord.length()), "-PREV-SUFFIX");
       }
 
       maxLen = nWord.length();
@@ -1679,16 +1753,13 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
         maxLen = flags.maxNGramLeng;
       }
       for (int len = 1; len <= maxLen; ++len) {
-        featuresC.add(nWord.substring(0, len) + "-NEXT-PREFIX");
+        addFeature(featuresC, nWord.substring(0, len), "-NEXT-PREFIX");
       }
       for (int pos = nWord.length() - maxLen; pos < nWord.length(); ++pos) {
-        featuresC.add(nWord.substring(pos, nWord.length()) +
-                        "-NEXT-SUFFIX");
+        addFeature(featuresC, nWord.substring(pos, nWord.length()), "-NEXT-SUFFIX");
       }
     }
-
-    return featuresC;
-  } // end featuresC()
+  } // end addFeaturesC()
 
 
   /**
@@ -91,8 +91,16 @@ public class CRFBiasedClassifier<IN extends CoreMap> extends CRFClassifier<IN>
     return new CRFDatum<>(features, new CRFLabel(labels), null);
   }
 
+  /** The bias feature is added in {@link #makeDatum}, so the features can't come straight from the feature factories. */
+  @Override
+  protected boolean canExtractFeatureIds() {
+    return false;
+  }
+
   private void addBiasFeature() {
+    checkWeightsWritable("set a bias weight");
     if ( ! featureIndex.contains(BIAS)) {
+      thawFeatureIndex();
       featureIndex.add(BIAS);
       double[][] newWeights = new double[weights.length+1][];
       System.arraycopy (weights,0,newWeights,0,weights.length);
@@ -141,6 +141,12 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
   /** Parameter weights of the classifier.  weights[featureIndex][labelIndex] */
   double[][] weights;
 
+  /**
+   * The model a classifier was mapped from, whose weights stay in the mapped file, so that {@link #weights} is null.
+   * Null if the classifier was trained or deserialized.
+   */
+  private MappedCRFModel mappedModel;
+
   /** index the features of CRF */
   Index<String> featureIndex;
   /** caches the featureIndex */
@@ -206,6 +212,7 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
       this.labelIndices = null;
     }
     this.cliquePotentialFunction = crf.cliquePotentialFunction;
+    this.mappedModel = crf.mappedModel;
   }
 
   /**
@@ -214,7 +221,7 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
    * @return number of weights
    */
   public int getNumWeights() {
-    if (weights == null) return 0;
+    if (weights == null) return isMapped() ? mappedModel.numWeights() : 0;
     int numWeights = 0;
     for (double[] wts : weights) {
       numWeights += wts.length;
@@ -258,12 +265,57 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
     }
   }
 
+  /** Whether the weights of this classifier are read from a mapped file, rather than kept in {@link #weights}. */
+  private boolean isMapped() {
+    return weights == null && mappedModel != null;
+  }
+
+  /** The weights of the given feature; for a mapped classifier, a copy of them read from the mapped file. */
+  private double[] weightsOf(int feature) {
+    return isMapped() ? mappedModel.weights(feature) : weights[feature];
+  }
+
+  /** All of the weights; for a mapped classifier, a copy of them read from the mapped file. */
+  private double[][] allWeights() {
+    if ( ! isMapped()) {
+      return weights;
+    }
+    double[][] all = new double[featureIndex.size()][];
+    for (int i = 0; i < all.length; i++) {
+      all[i] = mappedModel.weights(i);
+    }
+    return all;
+  }
+
+  /**
+   * Fail fast in operations which change the weights, since the weights of a mapped classifier are read only.
+   *
+   * @param operation What the caller was trying to do, for the error message
+   */
+  void checkWeightsWritable(String operation) {
+    if (isMapped()) {
+      throw new UnsupportedOperationException("Cannot " + operation + ": the weights of a classifier mapped from a file are read only. " +
+                                              "Load a serialized (non-mapped) classifier to change them.");
+    }
+  }
+
+  /**
+   * Replace a read-only feature index, such as the one a loaded classifier has,
+   * with a HashIndex which can be added to.
+   */
+  void thawFeatureIndex() {
+    if ( ! (featureIndex instanceof HashIndex)) {
+      featureIndex = new HashIndex<>(featureIndex.objectsList());
+    }
+  }
+
   /**
    * Scales the weights of this CRFClassifier by the specified weight.
    *
    * @param scale The scale to multiply by
    */
   public void scaleWeights(double scale) {
+    checkWeightsWritable("scale weights");
     for (int i = 0; i < weights.length; i++) {
       for (int j = 0; j < weights[i].length; j++) {
         weights[i][j] *= scale;
@@ -348,6 +400,8 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
    * @param weight Amount to scale the other CRF's weights by
    */
   public void combine(CRFClassifier<IN> crf, double weight) {
+    checkWeightsWritable("combine classifiers");
+    crf.checkWeightsWritable("combine classifiers");
     Timing timer = new Timing();
 
     // Check the CRFClassifiers are compatible
@@ -370,6 +424,7 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
     int oldNumFeatures2 = crf.featureIndex.size();
     int oldNumWeights1 = this.getNumWeights();
     int oldNumWeights2 = crf.getNumWeights();
+    thawFeatureIndex();
     this.featureIndex.addAll(crf.featureIndex.objectsList());
     this.knownLCWords.addAll(crf.knownLCWords);
     assert (weights.length == oldNumFeatures1);
@@ -391,6 +446,7 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
   }
 
   public void dropFeaturesBelowThreshold(double threshold) {
+    checkWeightsWritable("drop features");
     Index<String> newFeatureIndex = new HashIndex<>();
     for (int i = 0; i < weights.length; i++) {
       double smallest = weights[i][0];
@@ -428,6 +484,9 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
    *         the third element is a double[][][] representing the feature values (optionally null)
    */
   public Triple<int[][][], int[], double[][][]> documentToDataAndLabels(List<IN> document) {
+    if (canExtractFeatureIds()) {
+      return documentToDataAndLabelsFromIds(document);
+    }
     int docSize = document.size();
     // first index is position in the document also the index of the
     // clique/factor table
@@ -493,6 +552,63 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
     return new Triple<>(data, labels, featureVals);
   }
 
+  /**
+   * Whether {@link #documentToDataAndLabels} can have the feature factories add feature numbers
+   * straight to a buffer (see {@link FeatureFactory#getCliqueFeatureIds}) rather than going through
+   * {@link #makeDatum}. This is only done if the {@code extractFeatureIds} flag is set, and not for
+   * embedding features, which have values as well as numbers.
+   */
+  protected boolean canExtractFeatureIds() {
+    return flags.extractFeatureIds && ! flags.useEmbedding;
+  }
+
+  /**
+   * The same as {@link #documentToDataAndLabels}, but the feature factories add the numbers of the
+   * features to a reused buffer instead of building a list of feature Strings for each clique.
+   * The features of each clique come out in a different order, but are otherwise the same.
+   */
+  private Triple<int[][][], int[], double[][][]> documentToDataAndLabelsFromIds(List<IN> document) {
+    int docSize = document.size();
+    int[][][] data = new int[docSize][windowSize][];
+    double[][][] featureVals = new double[docSize][windowSize][];
+    int[] labels = new int[docSize];
+
+    if (flags.useReverse) {
+      Collections.reverse(document);
+    }
+
+    // the cliques for each window position, as makeDatum finds them
+    List<List<Clique>> windowCliques = new ArrayList<>(windowSize);
+    Collection<Clique> done = Generics.newHashSet();
+    for (int i = 0; i < windowSize; i++) {
+      List<Clique> cliques = FeatureFactory.getCliques(i, 0);
+      cliques.removeAll(done);
+      done.addAll(cliques);
+      windowCliques.add(cliques);
+    }
+
+    PaddedList<IN> pInfo = new PaddedList<>(document, pad);
+    FeatureIdBuffer ids = new FeatureIdBuffer(featureIndex);
+    for (int j = 0; j < docSize; j++) {
+      for (int k = 0; k < windowSize; k++) {
+        ids.clear();
+        for (Clique c : windowCliques.get(k)) {
+          for (FeatureFactory<IN> featureFactory : featureFactories) {
+            featureFactory.getCliqueFeatureIds(pInfo, j, c, ids);
+          }
+        }
+        data[j][k] = ids.toArray();
+      }
+      labels[j] = classIndex.indexOf(document.get(j).get(CoreAnnotations.AnswerAnnotation.class));
+    }
+
+    if (flags.useReverse) {
+      Collections.reverse(document);
+    }
+
+    return new Triple<>(data, labels, featureVals);
+  }
+
   private int[][][] transformDocData(int[][][] docData) {
     int[][][] transData = new int[docData.length][][];
     for (int i = 0; i < docData.length; i++) {
@@ -564,7 +680,7 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
               double[] values = new double[labelIndices.get(0).size()];
               for (CRFLabel label : labelIndices.get(k)) {
                 int[] l = label.getLabel();
-                double v = weights[index][labelIndices.get(k).indexOf(label)];
+                double v = weightsOf(index)[labelIndices.get(k).indexOf(label)];
                 values[l[l.length - 1 - p]] += v;
               }
               for (double value : values) {
@@ -2403,6 +2519,7 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
 
     pw.printf("<windowSize> %d </windowSize>%n", windowSize);
 
+    double[][] weights = allWeights();
     pw.printf("weights.length=\t%d%n", weights.length);
     for (double[] ws : weights) {
       ArrayList<Double> list = new ArrayList<>();
@@ -2466,7 +2583,7 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
     ObjectOutputStream oos = null;
     try {
       oos = IOUtils.writeStreamFromString(serializePath);
-      oos.writeObject(weights);
+      oos.writeObject(allWeights());
       log.info("Serializing weights to " + serializePath + "... done.");
     } catch (Exception e) {
       log.info("Serializing weights to " + serializePath + "... FAILED.", e);
@@ -2549,10 +2666,19 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
    */
   @Override
   public void serializeClassifier(ObjectOutputStream oos) {
+    serializeClassifier(oos, true);
+  }
+
+  /**
+   * Serialize the classifier, leaving out the feature index and weights if {@code includeWeights} is false.
+   * Those are written in their place as nulls, so that {@link #loadClassifier(ObjectInputStream, Properties)}
+   * reads either form.
+   */
+  private void serializeClassifier(ObjectOutputStream oos, boolean includeWeights) {
     try {
       oos.writeObject(labelIndices);
       oos.writeObject(classIndex);
-      oos.writeObject(featureIndex);
+      oos.writeObject(includeWeights ? featureIndex : null);
       oos.writeObject(flags);
       if (flags.useEmbedding) {
         oos.writeObject(embeddings);
@@ -2565,7 +2691,7 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
         oos.writeObject(ff);
       }
       oos.writeInt(windowSize);
-      oos.writeObject(weights);
+      oos.writeObject(includeWeights ? allWeights() : null);
       // oos.writeObject(WordShapeClassifier.getKnownLowerCaseWords());
 
       oos.writeObject(knownLCWords);
@@ -2577,6 +2703,51 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
     }
   }
 
+  /**
+   * Serialize the classifier in the memory-mapped format of {@link MappedCRFModel}.
+   * The feature index and weights are written as flat tables which
+   * {@link #loadClassifier(String, Properties)} maps rather than deserializes;
+   * the rest of the classifier is serialized as usual.
+   * The file is not compressed, since compressed data can't be mapped.
+   */
+  public void serializeMappedClassifier(String serializePath) {
+    try {
+      ByteArrayOutputStream metadata = new ByteArrayOutputStream();
+      try (ObjectOutputStream oos = new ObjectOutputStream(metadata)) {
+        serializeClassifier(oos, false);
+      }
+      MappedCRFModel.write(serializePath, metadata.toByteArray(), featureIndex, allWeights());
+      log.info("Serializing mapped classifier to " + serializePath + "... done.");
+    } catch (IOException e) {
+      throw new RuntimeIOException("Serializing mapped classifier to " + serializePath + "... FAILED", e);
+    }
+  }
+
+  /**
+   * Loads a classifier from the file specified by loadPath.
+   * A local file in the mapped format written by {@link #serializeMappedClassifier(String)}
+   * is memory-mapped; anything else is deserialized as usual.
+   * A mapped classifier can be used to tag, and to read or write out its weights, but its weights can't be
+   * changed: scaling them, combining classifiers, or dropping features throws an UnsupportedOperationException.
+   */
+  @Override
+  public void loadClassifier(String loadPath, Properties props) throws ClassCastException, IOException, ClassNotFoundException {
+    if ( ! MappedCRFModel.isMappedModel(loadPath)) {
+      super.loadClassifier(loadPath, props);
+      return;
+    }
+    Timing t = new Timing();
+    MappedCRFModel model = MappedCRFModel.load(loadPath);
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(model.metadata()))) {
+      loadClassifier(ois, props);
+    }
+    featureIndex = model.featureIndex();
+    weights = null;
+    mappedModel = model;
+    cliquePotentialFunction = model.cliquePotentialFunction();
+    t.done(log, "Mapping classifier from " + loadPath);
+  }
+
   /**
    * Loads a classifier from the specified InputStream. This version works
    * quietly (unless VERBOSE is true). If props is non-null then any properties
@@ -2637,9 +2808,14 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
     if (props != null) {
       flags.setProperties(props, false);
     }
+    if (flags.freezeFeatureIndex && featureIndex != null) {
+      // the features of a loaded model no longer change, so they can be kept compactly
+      featureIndex = new FrozenStringIndex(featureIndex);
+    }
 
     windowSize = ois.readInt();
     weights = (double[][]) ois.readObject();
+    mappedModel = null;
 
     // WordShapeClassifier.setKnownLowerCaseWords((Set) ois.readObject());
     Set<String> lcWords = (Set<String>) ois.readObject();
@@ -2767,7 +2943,7 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
       int index = featureIndex.indexOf(feature);
       // line.add(feature+"["+(-p)+"]");
       // rowHeaders.add(feature + '[' + (-p) + ']');
-      double[] v = weights[index];
+      double[] v = weightsOf(index);
       Index<CRFLabel> l = this.labelIndices.get(0);
       p.println(feature + "\t\t");
       for (CRFLabel label : l) {
@@ -2784,7 +2960,7 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
       int index = featureIndex.indexOf(feature);
       // line.add(feature+"["+(-p)+"]");
       // rowHeaders.add(feature + '[' + (-p) + ']');
-      double[] v = weights[index];
+      double[] v = weightsOf(index);
       Index<CRFLabel> l = this.labelIndices.get(0);
       for (CRFLabel label : l) {
         if(!w.containsKey(label.toString(classIndex)))
@@ -2980,6 +3156,7 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
     String loadTextPath = flags.loadTextClassifier;
     String serializeTo = flags.serializeTo;
     String serializeToText = flags.serializeToText;
+    String serializeToMapped = flags.serializeToMapped;
 
     if (crf.flags.useEmbedding && crf.flags.embeddingWords != null && crf.flags.embeddingVectors != null) {
       crf.readEmbeddingsData();
@@ -3033,6 +3210,10 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
       crf.serializeTextClassifier(serializeToText);
     }
 
+    if (serializeToMapped != null) {
+      crf.serializeMappedClassifier(serializeToMapped);
+    }
+
     if (testFile != null) {
       // todo: Change testFile to call testFiles with a singleton list
       DocumentReaderAndWriter<CoreLabel> readerAndWriter = crf.defaultReaderAndWriter();
@@ -0,0 +1,227 @@
+package edu.stanford.nlp.ie.crf;
+
+import edu.stanford.nlp.util.FrozenStringIndex;
+import edu.stanford.nlp.util.Index;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The weights and feature index of a {@link CRFClassifier}, stored in a file which is
+ * memory-mapped rather than deserialized.
+ * Loading such a model only reads the (small) serialized metadata, such as the flags and
+ * feature factories; the feature table and weight matrix are paged in by the OS as they
+ * are used, and processes on the same host which load the same file share those pages.
+ *
+ * <p>
+ * The file starts with a fixed header giving the offset and length of each section:
+ * </p>
+ * <ul>
+ *   <li>The serialized metadata, written by {@link CRFClassifier#serializeMappedClassifier(String)}.</li>
+ *   <li>The feature index, in the binary form of {@link FrozenStringIndex#write(DataOutput)}:
+ *       an open-addressing table keyed on {@link String#hashCode()} of each feature, over the features' text.</li>
+ *   <li>The offset of each feature's weights.</li>
+ *   <li>The weights themselves.</li>
+ * </ul>
+ *
+ * <p>
+ * Each section must be smaller than 2GB, which is far bigger than any of our models.
+ * A mapped model is read only: it can be used for tagging, and its weights can be read with {@link #weights(int)},
+ * but they can't be changed.
+ * </p>
+ */
+public class MappedCRFModel {
+
+  /** "CRFMAP01", which no Java serialization or gzip stream starts with. */
+  private static final long MAGIC = 0x4352464d41503031L;
+
+  private static final int VERSION = 2;
+
+  /** The number of sections after the header. */
+  private static final int SECTIONS = 4;
+
+  /** The size of the header, in bytes. */
+  private static final int HEADER_SIZE = 128;
+
+  private final byte[] metadata;
+  private final FrozenStringIndex featureIndex;
+  private final IntBuffer weightOffsets;
+  private final DoubleBuffer weights;
+
+
+  private MappedCRFModel(byte[] metadata, FrozenStringIndex featureIndex, IntBuffer weightOffsets, DoubleBuffer weights) {
+    this.metadata = metadata;
+    this.featureIndex = featureIndex;
+    this.weightOffsets = weightOffsets;
+    this.weights = weights;
+  }
+
+  /** The serialized fields of the classifier other than the feature index and weights. */
+  public byte[] metadata() {
+    return metadata;
+  }
+
+  /** The feature index, which looks features up directly in the mapped file. */
+  public FrozenStringIndex featureIndex() {
+    return featureIndex;
+  }
+
+  /** A copy of the weights of the given feature, one for each of its labels. */
+  public double[] weights(int feature) {
+    int start = weightOffsets.get(feature);
+    double[] row = new double[weightOffsets.get(feature + 1) - start];
+    for (int j = 0; j < row.length; ++j) {
+      row[j] = weights.get(start + j);
+    }
+    return row;
+  }
+
+  /** The total number of weights, over all the features. */
+  public int numWeights() {
+    return weights.limit();
+  }
+
+  /** A linear clique potential function which reads the weights directly from the mapped file. */
+  public CliquePotentialFunction cliquePotentialFunction() {
+    return (cliqueSize, labelIndex, cliqueFeatures, featureVal, posInSent) -> {
+      double output = 0.0;
+      for (int m = 0; m < cliqueFeatures.length; m++) {
+        double dotProd = weights.get(weightOffsets.get(cliqueFeatures[m]) + labelIndex);
+        if (featureVal != null) {
+          dotProd *= featureVal[m];
+        }
+        output += dotProd;
+      }
+      return output;
+    };
+  }
+
+
+  /**
+   * Returns whether the given path is a local file in the mapped format.
+   * Models in the classpath or at a URL can't be mapped, so they are never reported as mapped.
+   */
+  public static boolean isMappedModel(String path) {
+    File file = new File(path);
+    if ( ! file.isFile() || file.length() < HEADER_SIZE) {
+      return false;
+    }
+    try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+      return in.readLong() == MAGIC;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+
+  /**
+   * Map a model written by {@link #write}.
+   *
+   * @param path The local file to map.
+   * @throws IOException If the file can't be read, or is not a mapped model.
+   */
+  public static MappedCRFModel load(String path) throws IOException {
+    try (FileChannel channel = FileChannel.open(new File(path).toPath(), StandardOpenOption.READ)) {
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+      if (header.getLong() != MAGIC) {
+        throw new IOException(path + " is not a mapped CRF model");
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported mapped CRF model version " + version + " in " + path);
+      }
+      int numFeatures = header.getInt();
+      long[] offsets = new long[SECTIONS];
+      long[] lengths = new long[SECTIONS];
+      for (int i = 0; i < offsets.length; ++i) {
+        offsets[i] = header.getLong();
+        lengths[i] = header.getLong();
+      }
+
+      byte[] metadata = new byte[(int) lengths[0]];
+      map(channel, offsets[0], lengths[0]).get(metadata);
+      FrozenStringIndex featureIndex = FrozenStringIndex.wrap(map(channel, offsets[1], lengths[1]));
+      if (featureIndex.size() != numFeatures) {
+        throw new IOException("Corrupt mapped CRF model " + path + ": expected " + numFeatures + " features but found " + featureIndex.size());
+      }
+      IntBuffer weightOffsets = map(channel, offsets[2], lengths[2]).asIntBuffer();
+      DoubleBuffer weights = map(channel, offsets[3], lengths[3]).asDoubleBuffer();
+      // the mappings stay valid after the channel is closed
+      return new MappedCRFModel(metadata, featureIndex, weightOffsets, weights);
+    }
+  }
+
+  private static MappedByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("Mapped CRF model section is too large: " + length + " bytes");
+    }
+    return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+  }
+
+
+  /**
+   * Write a model in the mapped format.
+   *
+   * @param path The file to write to.
+   * @param metadata The serialized fields of the classifier other than the feature index and weights.
+   * @param featureIndex The feature index.
+   * @param weights The weights, indexed by feature and then by label.
+   */
+  public static void write(String path, byte[] metadata, Index<String> featureIndex, double[][] weights) throws IOException {
+    int numFeatures = featureIndex.size();
+    if (weights.length != numFeatures) {
+      throw new IllegalArgumentException("There are " + numFeatures + " features but " + weights.length + " rows of weights");
+    }
+    FrozenStringIndex frozen = (featureIndex instanceof FrozenStringIndex) ? (FrozenStringIndex) featureIndex : new FrozenStringIndex(featureIndex);
+    int[] weightOffsets = new int[numFeatures + 1];
+    for (int i = 0; i < numFeatures; ++i) {
+      weightOffsets[i + 1] = Math.addExact(weightOffsets[i], weights[i].length);
+    }
+
+    long[] lengths = { metadata.length, frozen.binarySize(), weightOffsets.length * 4L, weightOffsets[numFeatures] * 8L };
+    long[] offsets = new long[lengths.length];
+    long offset = HEADER_SIZE;
+    for (int i = 0; i < lengths.length; ++i) {
+      offsets[i] = offset;
+      offset += (lengths[i] + 7) & ~7L;  // keep every section 8-byte aligned
+    }
+
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16))) {
+      out.writeLong(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(numFeatures);
+      for (int i = 0; i < lengths.length; ++i) {
+        out.writeLong(offsets[i]);
+        out.writeLong(lengths[i]);
+      }
+      pad(out, HEADER_SIZE - (8 + 4 + 4 + 16 * lengths.length));
+
+      out.write(metadata);
+      pad(out, offsets[1] - offsets[0] - lengths[0]);
+      frozen.write(out);
+      pad(out, offsets[2] - offsets[1] - lengths[1]);
+      for (int value : weightOffsets) {
+        out.writeInt(value);
+      }
+      pad(out, offsets[3] - offsets[2] - lengths[2]);
+      for (double[] row : weights) {
+        for (double weight : row) {
+          out.writeDouble(weight);
+        }
+      }
+    }
+  }
+
+  /** Write the given number of zeros. */
+  private static void pad(DataOutputStream out, long count) throws IOException {
+    for (long i = 0; i < count; ++i) {
+      out.writeByte(0);
+    }
+  }
+
+}
@@ -1,5 +1,7 @@
 package edu.stanford.nlp.ling;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Map;
@@ -8,6 +10,7 @@ import java.util.function.Consumer;
 
 import edu.stanford.nlp.util.ArrayCoreMap;
 import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.ErasureUtils;
 import edu.stanford.nlp.util.Generics;
 
 
@@ -25,6 +28,14 @@ import edu.stanford.nlp.util.Generics;
  * Labels and the new CoreMap infrastructure.  Instances of this class can be
  * used (almost) anywhere that the now-defunct FeatureLabel family could be
  * used.  This data structure is backed by an {@link ArrayCoreMap}.
+ * <p>
+ * Since tokens are the most numerous objects of an annotated document,
+ * the most common keys of a token (its value, word, original text, character
+ * offsets, index, part of speech, lemma, and named entity tag) are kept in
+ * fields of their own, with the integers unboxed, rather than in the arrays
+ * of the ArrayCoreMap, which hold all of the other keys. This is invisible
+ * through the CoreMap interface, except that these keys always come first
+ * in the {@link #keySet()}, in a fixed order.
  *
  * @author dramage
  * @author rafferty
@@ -33,6 +44,24 @@ public class CoreLabel extends ArrayCoreMap implements AbstractCoreLabel, HasCat
 
   private static final long serialVersionUID = 2L;
 
+  // The slots of the keys which are kept in fields: the bit (1 << slot) of present says whether
+  // the field holds the value of the key. A value which doesn't fit in its field (a null Integer, or
+  // a value of another type put in through a raw key) is instead kept in the arrays, and marked in spilled.
+  private static final int VALUE = 0, TEXT = 1, ORIGINAL_TEXT = 2, BEGIN = 3, END = 4, INDEX = 5, TAG = 6, LEMMA = 7, NER = 8;
+
+  private static final Class<? extends Key<?>>[] SLOT_KEYS = ErasureUtils.uncheckedCast(new Class<?>[] {
+      CoreAnnotations.ValueAnnotation.class, CoreAnnotations.TextAnnotation.class,
+      CoreAnnotations.OriginalTextAnnotation.class, CoreAnnotations.CharacterOffsetBeginAnnotation.class,
+      CoreAnnotations.CharacterOffsetEndAnnotation.class, CoreAnnotations.IndexAnnotation.class,
+      CoreAnnotations.PartOfSpeechAnnotation.class, CoreAnnotations.LemmaAnnotation.class,
+      CoreAnnotations.NamedEntityTagAnnotation.class });
+
+  // These are all transient: ArrayCoreMap serializes every entry in its arrays, and readObject puts them back here
+  private transient int present; // = 0
+  private transient int spilled; // = 0
+  private transient String valueField, word, originalText, tag, lemma, ner;
+  private transient int beginPosition, endPosition, index;
+
 
   // /**
   //  * Should warnings be printed when converting from MapLabel family.
@@ -76,7 +105,7 @@ public class CoreLabel extends ArrayCoreMap implements AbstractCoreLabel, HasCat
    */
   @SuppressWarnings({"unchecked"})
   public CoreLabel(CoreMap label) {
-    super(label.size());
+    super(numUnslottedKeys(label));
     Consumer<Class<? extends Key<?>>> savedListener = ArrayCoreMap.listener;  // don't listen to the clone operation
     ArrayCoreMap.listener = null;
     for (Class key : label.keySet()) {
@@ -102,13 +131,13 @@ public class CoreLabel extends ArrayCoreMap implements AbstractCoreLabel, HasCat
     super(0);
     if (label instanceof CoreMap) {
       CoreMap cl = (CoreMap) label;
-      setCapacity(cl.size());
+      setCapacity(numUnslottedKeys(cl));
       for (Class key : cl.keySet()) {
         set(key, cl.get(key));
       }
     } else if (label instanceof IndexedWord) {
       CoreMap cl = ((IndexedWord) label).backingLabel();
-      setCapacity(cl.size());
+      setCapacity(numUnslottedKeys(cl));
       for (Class key : cl.keySet()) {
         set(key, cl.get(key));
       }
@@ -120,6 +149,226 @@ public class CoreLabel extends ArrayCoreMap implements AbstractCoreLabel, HasCat
     }
   }
 
+  /** The number of keys of the map which are not kept in fields by a CoreLabel. */
+  private static int numUnslottedKeys(CoreMap map) {
+    int n = 0;
+    for (Class<?> key : map.keySet()) {
+      if (slotOf(key) < 0) {
+        n++;
+      }
+    }
+    return n;
+  }
+
+  /** The slot of a key which is kept in a field, or -1 if the key is kept in the arrays. */
+  private static int slotOf(Class<?> key) {
+    if (key == CoreAnnotations.TextAnnotation.class) {
+      return TEXT;
+    } else if (key == CoreAnnotations.ValueAnnotation.class) {
+      return VALUE;
+    } else if (key == CoreAnnotations.IndexAnnotation.class) {
+      return INDEX;
+    } else if (key == CoreAnnotations.CharacterOffsetBeginAnnotation.class) {
+      return BEGIN;
+    } else if (key == CoreAnnotations.CharacterOffsetEndAnnotation.class) {
+      return END;
+    } else if (key == CoreAnnotations.PartOfSpeechAnnotation.class) {
+      return TAG;
+    } else if (key == CoreAnnotations.NamedEntityTagAnnotation.class) {
+      return NER;
+    } else if (key == CoreAnnotations.LemmaAnnotation.class) {
+      return LEMMA;
+    } else if (key == CoreAnnotations.OriginalTextAnnotation.class) {
+      return ORIGINAL_TEXT;
+    }
+    return -1;
+  }
+
+  /** Whether the value can be kept in the field of the slot. */
+  private static boolean fitsSlot(int slot, Object value) {
+    switch (slot) {
+      case BEGIN:
+      case END:
+      case INDEX:
+        return value instanceof Integer;
+      default:
+        return value == null || value instanceof String;
+    }
+  }
+
+  /** Whether the field of the slot holds its value, telling the {@link ArrayCoreMap#listener} if so. */
+  private boolean inSlot(int slot) {
+    if ((present & (1 << slot)) == 0) {
+      return false;
+    }
+    if (listener != null) {
+      listener.accept(SLOT_KEYS[slot]);
+    }
+    return true;
+  }
+
+  private Object slotValue(int slot) {
+    switch (slot) {
+      case VALUE: return valueField;
+      case TEXT: return word;
+      case ORIGINAL_TEXT: return originalText;
+      case BEGIN: return beginPosition;
+      case END: return endPosition;
+      case INDEX: return index;
+      case TAG: return tag;
+      case LEMMA: return lemma;
+      case NER: return ner;
+      default: throw new IllegalArgumentException("No such slot: " + slot);
+    }
+  }
+
+  /** Store the value in the field of the slot, or clear the field if value is null. */
+  private void setSlotValue(int slot, Object value) {
+    switch (slot) {
+      case VALUE: valueField = (String) value; break;
+      case TEXT: word = (String) value; break;
+      case ORIGINAL_TEXT: originalText = (String) value; break;
+      case BEGIN: beginPosition = value == null ? 0 : (Integer) value; break;
+      case END: endPosition = value == null ? 0 : (Integer) value; break;
+      case INDEX: index = value == null ? 0 : (Integer) value; break;
+      case TAG: tag = (String) value; break;
+      case LEMMA: lemma = (String) value; break;
+      case NER: ner = (String) value; break;
+      default: throw new IllegalArgumentException("No such slot: " + slot);
+    }
+  }
+
+  /** The slot of the n-th bit which is set in present, counting from 0. */
+  private int nthPresentSlot(int n) {
+    int bits = present;
+    for (int i = 0; i < n; i++) {
+      bits &= bits - 1;
+    }
+    return Integer.numberOfTrailingZeros(bits);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <VALUE> VALUE get(Class<? extends Key<VALUE>> key) {
+    int slot = slotOf(key);
+    if (slot < 0 || (spilled & (1 << slot)) != 0) {
+      return super.get(key);
+    }
+    return inSlot(slot) ? (VALUE) slotValue(slot) : null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <VALUE> VALUE set(Class<? extends Key<VALUE>> key, VALUE value) {
+    int slot = slotOf(key);
+    if (slot < 0) {
+      return super.set(key, value);
+    }
+    int bit = 1 << slot;
+    Object old = (present & bit) != 0 ? slotValue(slot) : null;
+    if (fitsSlot(slot, value)) {
+      if ((spilled & bit) != 0) {
+        old = super.remove(key);
+        spilled &= ~bit;
+      }
+      setSlotValue(slot, value);
+      present |= bit;
+      return (VALUE) old;
+    }
+    if ((present & bit) != 0) {
+      setSlotValue(slot, null);
+      present &= ~bit;
+    }
+    spilled |= bit;
+    Object replaced = super.set(key, value);
+    return (VALUE) (old != null ? old : replaced);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <VALUE> VALUE remove(Class<? extends Key<VALUE>> key) {
+    int slot = slotOf(key);
+    if (slot < 0) {
+      return super.remove(key);
+    }
+    int bit = 1 << slot;
+    if ((present & bit) != 0) {
+      Object old = slotValue(slot);
+      setSlotValue(slot, null);
+      present &= ~bit;
+      return (VALUE) old;
+    } else if ((spilled & bit) != 0) {
+      spilled &= ~bit;
+      return super.remove(key);
+    }
+    return null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public <VALUE> boolean containsKey(Class<? extends Key<VALUE>> key) {
+    int slot = slotOf(key);
+    if (slot < 0) {
+      return super.containsKey(key);
+    }
+    return ((present | spilled) & (1 << slot)) != 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int size() {
+    return Integer.bitCount(present) + super.size();
+  }
+
+  @Override
+  protected Class<? extends Key<?>> keyAt(int i) {
+    int inSlots = Integer.bitCount(present);
+    return i < inSlots ? SLOT_KEYS[nthPresentSlot(i)] : super.keyAt(i - inSlots);
+  }
+
+  @Override
+  protected Object valueAt(int i) {
+    int inSlots = Integer.bitCount(present);
+    return i < inSlots ? slotValue(nthPresentSlot(i)) : super.valueAt(i - inSlots);
+  }
+
+  @Override
+  protected int indexOfKey(Class<?> key) {
+    int slot = slotOf(key);
+    if (slot >= 0 && (present & (1 << slot)) != 0) {
+      return Integer.bitCount(present & ((1 << slot) - 1));
+    }
+    int i = super.indexOfKey(key);
+    return i < 0 ? -1 : i + Integer.bitCount(present);
+  }
+
+  /**
+   * ArrayCoreMap serializes all of the entries in its arrays: move the ones which have a slot back to their fields.
+   */
+  @SuppressWarnings("unchecked")
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    for (Class<? extends Key<?>> key : SLOT_KEYS) {
+      Class<? extends Key<Object>> slotKey = (Class<? extends Key<Object>>) key;
+      if (super.containsKey(slotKey)) {
+        set(slotKey, super.remove(slotKey));
+      }
+    }
+  }
+
   /**
    * This constructor attempts to parse the String keys
    * into Class keys.  It's mainly useful for reading from
@@ -394,7 +643,7 @@ public class CoreLabel extends ArrayCoreMap implements AbstractCoreLabel, HasCat
    */
   @Override
   public final String value() {
-    return get(CoreAnnotations.ValueAnnotation.class);
+    return inSlot(VALUE) ? valueField : get(CoreAnnotations.ValueAnnotation.class);
   }
 
   /**
@@ -418,7 +667,7 @@ public class CoreLabel extends ArrayCoreMap implements AbstractCoreLabel, HasCat
    */
   @Override
   public String word() {
-    return get(CoreAnnotations.TextAnnotation.class);
+    return inSlot(TEXT) ? word : get(CoreAnnotations.TextAnnotation.class);
   }
 
   /**
@@ -434,7 +683,7 @@ public class CoreLabel extends ArrayCoreMap implements AbstractCoreLabel, HasCat
    */
   @Override
   public String tag() {
-    return get(CoreAnnotations.PartOfSpeechAnnotation.class);
+    return inSlot(TAG) ? tag : get(CoreAnnotations.PartOfSpeechAnnotation.class);
   }
 
   /**
@@ -523,7 +772,7 @@ public class CoreLabel extends ArrayCoreMap implements AbstractCoreLabel, HasCat
    */
   @Override
   public String ner() {
-    return get(CoreAnnotations.NamedEntityTagAnnotation.class);
+    return inSlot(NER) ? ner : get(CoreAnnotations.NamedEntityTagAnnotation.class);
   }
 
   /**
@@ -544,7 +793,7 @@ public class CoreLabel extends ArrayCoreMap implements AbstractCoreLabel, HasCat
    */
   @Override
   public String lemma() {
-    return get(CoreAnnotations.LemmaAnnotation.class);
+    return inSlot(LEMMA) ? lemma : get(CoreAnnotations.LemmaAnnotation.class);
   }
 
   /**
@@ -569,6 +818,9 @@ public class CoreLabel extends ArrayCoreMap implements AbstractCoreLabel, HasCat
    */
   @Override
   public int index() {
+    if (inSlot(INDEX)) {
+      return index;
+    }
     Integer n = get(CoreAnnotations.IndexAnnotation.class);
     if(n == null)
       return -1;
@@ -607,6 +859,9 @@ public class CoreLabel extends ArrayCoreMap implements AbstractCoreLabel, HasCat
    */
   @Override
   public int beginPosition() {
+    if (inSlot(BEGIN)) {
+      return beginPosition;
+    }
     Integer i = get(CoreAnnotations.CharacterOffsetBeginAnnotation.class);
     if(i != null) return i;
     return -1;
@@ -617,6 +872,9 @@ public class CoreLabel extends ArrayCoreMap implements AbstractCoreLabel, HasCat
    */
   @Override
   public int endPosition() {
+    if (inSlot(END)) {
+      return endPosition;
+    }
     Integer i = get(CoreAnnotations.CharacterOffsetEndAnnotation.class);
     if(i != null) return i;
     return -1;
@@ -0,0 +1,281 @@
+package edu.stanford.nlp.ling.tokensregex;
+
+import edu.stanford.nlp.io.NullOutputStream;
+import edu.stanford.nlp.pipeline.CoreMapAggregator;
+import edu.stanford.nlp.pipeline.CoreMapAttributeAggregator;
+import edu.stanford.nlp.util.logging.Redwood;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the rules compiled from TokensRegex rule files in a directory, so that
+ * {@link CoreMapExpressionExtractor#createExtractorFromFiles(Env, List)} can read them back
+ * instead of parsing the files again.
+ * <p>
+ * An entry holds the {@link SequenceMatchRules.Rule}s of each file, serialized.  It is keyed by
+ * a hash of the contents of the rule files together with what of the {@link Env} the rules were
+ * compiled in affects them (bound variables, defaults, flags and annotation keys).
+ * Objects which were already bound in the environment before the rules were compiled
+ * (the environment itself, its variables, its default aggregators and extractors) are not
+ * serialized: they are written as references, which are looked up again in the environment the
+ * entry is read into.  This is what lets rules refer to Java functions and classes which
+ * the caller binds in code, and which could not be serialized themselves.
+ * <p>
+ * If the rules can't be serialized, or an entry can't be read (a missing binding, a changed class),
+ * the rules are simply parsed from the files, as they would be without a cache.
+ */
+class CompiledRuleCache {
+
+  /** A logger for this class */
+  private static final Redwood.RedwoodChannels log = Redwood.channels(CompiledRuleCache.class);
+
+  private final File directory;
+
+  CompiledRuleCache(String directory) {
+    this.directory = new File(directory);
+  }
+
+  /**
+   * The file with the compiled rules for rule files with the given contents, in the given environment,
+   * or null if the environment can't be fingerprinted.
+   */
+  File entryFile(Env env, List<String> contents) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+    for (String content : contents) {
+      digest.update(content.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+    }
+    try {
+      updateWithEnv(digest, env);
+    } catch (IOException e) {
+      log.warn("Could not fingerprint the environment, not caching compiled rules: " + e);
+      return null;
+    }
+    StringBuilder name = new StringBuilder("rules-");
+    for (byte b : digest.digest()) {
+      name.append(String.format("%02x", b));
+    }
+    return new File(directory, name.append(".ser.gz").toString());
+  }
+
+  /**
+   * Adds the state of the environment which the compiled rules depend on to the digest.
+   * Values are digested by their contents, serialized, with the other objects of the environment
+   * they refer to standing for themselves by name, as they do in an entry.
+   * Objects which can't be serialized only contribute their class: the rules can only refer to them,
+   * and the rules read back refer to the objects bound in the environment they are read into.
+   */
+  private static void updateWithEnv(MessageDigest digest, Env env) throws IOException {
+    Map<String, Object> shared = sharedObjects(env);
+    IdentityHashMap<Object, String> references = new IdentityHashMap<>();
+    for (Map.Entry<String, Object> e : shared.entrySet()) {
+      references.putIfAbsent(e.getValue(), e.getKey());
+    }
+    try (FingerprintOutputStream out = new FingerprintOutputStream(new DigestOutputStream(new NullOutputStream(), digest), references)) {
+      for (Map.Entry<String, Object> entry : new TreeMap<>(env.getVariables()).entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeValue(entry.getValue());
+      }
+      for (Map.Entry<String, Object> entry : new TreeMap<>(env.getDefaults()).entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeValue(entry.getValue());
+      }
+      out.writeValue(env.getSequenceMatchResultExtractor());
+      out.writeValue(env.getStringMatchResultExtractor());
+      out.writeUTF(env.getDefaultStringPatternFlags() + " " + env.getDefaultStringMatchFlags() + ' ' +
+          env.getDefaultTokensAnnotationKey() + ' ' + env.getDefaultTextAnnotationKey() + ' ' +
+          env.getDefaultNestedResultsAnnotationKey() + ' ' + env.getDefaultResultAnnotationKey() + ' ' +
+          env.getDefaultTokensResultAnnotationKey() + ' ' + env.aggregateToTokens + ' ' +
+          (env.getDefaultTokensAggregators() != null));
+    }
+  }
+
+  /**
+   * The objects which are written as references, by name: everything the environment holds
+   * before any rules are compiled in it, and the standard aggregators.
+   */
+  static Map<String, Object> sharedObjects(Env env) {
+    Map<String, Object> shared = new LinkedHashMap<>();
+    shared.put("env", env);
+    if (env.parser != null) {
+      shared.put("parser", env.parser);
+    }
+    putIfNotNull(shared, "tokensAggregators", env.getDefaultTokensAggregators());
+    putIfNotNull(shared, "tokensAggregator", env.getDefaultTokensAggregator());
+    putIfNotNull(shared, "resultsAnnotationExtractor", env.getDefaultResultsAnnotationExtractor());
+    // The standard aggregators, most of which are anonymous classes
+    for (Class<?> holder : new Class<?>[] { CoreMapAttributeAggregator.class, CoreMapAggregator.class }) {
+      for (Field field : holder.getFields()) {
+        if (Modifier.isStatic(field.getModifiers()) && Modifier.isFinal(field.getModifiers())) {
+          try {
+            shared.put(holder.getSimpleName() + '.' + field.getName(), field.get(null));
+          } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+          }
+        }
+      }
+    }
+    for (Map.Entry<String, Object> entry : env.getVariables().entrySet()) {
+      shared.put("var." + entry.getKey(), entry.getValue());
+    }
+    return shared;
+  }
+
+  private static void putIfNotNull(Map<String, Object> map, String key, Object value) {
+    if (value != null) {
+      map.put(key, value);
+    }
+  }
+
+  /**
+   * Read the rules of each file from the given entry, for the environment the rules are to be added to,
+   * before any of them have been added.
+   *
+   * @return The rules, or null if the entry could not be read
+   */
+  List<List<SequenceMatchRules.Rule>> read(File entry, Env env) {
+    if ( ! entry.exists()) {
+      return null;
+    }
+    Map<String, Object> shared = sharedObjects(env);
+    try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(entry)))) {
+          { enableResolveObject(true); }
+
+          @Override
+          protected Object resolveObject(Object obj) throws IOException {
+            if (obj instanceof SharedReference) {
+              String name = ((SharedReference) obj).name;
+              if ( ! shared.containsKey(name)) {
+                throw new InvalidObjectException("Nothing bound for " + name);
+              }
+              return shared.get(name);
+            }
+            return obj;
+          }
+        }) {
+      @SuppressWarnings("unchecked")
+      List<List<SequenceMatchRules.Rule>> rules = (List<List<SequenceMatchRules.Rule>>) in.readObject();
+      return rules;
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      log.warn("Could not read compiled rules from " + entry + ", parsing the rule files instead: " + e);
+      return null;
+    }
+  }
+
+  /**
+   * Write the rules of each file to the given entry.
+   * The shared objects are the {@link #sharedObjects} of the environment the rules were compiled in,
+   * taken before they were compiled.
+   * The entry is written to a temporary file which is then renamed, so that processes sharing
+   * the cache never see a partial entry.  Rules which can't be serialized are not cached.
+   */
+  void write(File entry, Map<String, Object> shared, List<List<SequenceMatchRules.Rule>> rules) {
+    IdentityHashMap<Object, String> references = new IdentityHashMap<>();
+    for (Map.Entry<String, Object> e : shared.entrySet()) {
+      references.putIfAbsent(e.getValue(), e.getKey());
+    }
+    File tmp = null;
+    try {
+      if ( ! directory.isDirectory() && ! directory.mkdirs() && ! directory.isDirectory()) {
+        throw new IOException("Could not create " + directory);
+      }
+      tmp = File.createTempFile(entry.getName(), ".tmp", directory);
+      try (ObjectOutputStream out = new ReferencingObjectOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmp))), references)) {
+        out.writeObject(rules);
+      }
+      Files.move(tmp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      tmp = null;
+    } catch (IOException e) {
+      log.warn("Could not cache compiled rules in " + entry + ": " + e);
+    } finally {
+      if (tmp != null && ! tmp.delete()) {
+        tmp.deleteOnExit();
+      }
+    }
+  }
+
+
+  /** Writes the objects it has names for as {@link SharedReference}s. */
+  private static class ReferencingObjectOutputStream extends ObjectOutputStream {
+
+    private final IdentityHashMap<Object, String> references;
+
+    ReferencingObjectOutputStream(OutputStream out, IdentityHashMap<Object, String> references) throws IOException {
+      super(out);
+      this.references = references;
+      enableReplaceObject(true);
+    }
+
+    @Override
+    protected Object replaceObject(Object obj) {
+      String name = references.get(obj);
+      return (name != null) ? new SharedReference(name) : obj;
+    }
+  }
+
+  /**
+   * Writes the objects of the environment it has names for as {@link SharedReference}s, except for the
+   * value being written itself, and objects which can't be serialized as the name of their class.
+   */
+  private static class FingerprintOutputStream extends ReferencingObjectOutputStream {
+
+    private Object value;
+
+    FingerprintOutputStream(OutputStream out, IdentityHashMap<Object, String> references) throws IOException {
+      super(out, references);
+    }
+
+    void writeValue(Object value) throws IOException {
+      this.value = value;
+      writeObject(value);
+      this.value = null;
+    }
+
+    @Override
+    protected Object replaceObject(Object obj) {
+      if (obj == value) {
+        return (obj instanceof Serializable) ? obj : className(obj.getClass());
+      }
+      Object replaced = super.replaceObject(obj);
+      if (replaced == obj && ! (obj instanceof Serializable)) {
+        return className(obj.getClass());
+      }
+      return replaced;
+    }
+
+    /** The name of the class, or of the class a lambda is defined in, as a lambda's class name is not stable. */
+    private static String className(Class<?> c) {
+      String name = c.getName();
+      int lambda = name.indexOf("$$Lambda");
+      return (lambda >= 0) ? name.substring(0, lambda) : name;
+    }
+  }
+
+  /** Stands for an object of the environment in a serialized entry. */
+  private static class SharedReference implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final String name;
+
+    SharedReference(String name) {
+      this.name = name;
+    }
+  }
+
+}
@@ -43,8 +43,16 @@ public class ComplexNodePattern<M,K> extends NodePattern<M> {
   // TODO: make this a pattern of non special characters: [,],?,.,\,^,$,(,),*,+,{,},| ... what else?
   private static final Pattern LITERAL_PATTERN = Pattern.compile("[^\\[\\]?.\\\\^$()*+{}|]*");
   //private static final Pattern LITERAL_PATTERN = Pattern.compile("[A-Za-z0-9_\\-']*");
+  /**
+   * Whether {@link #newStringRegexPattern} matches the regex as a plain string
+   * rather than as a regular expression.
+   */
+  public static boolean isLiteral(String regex, int flags) {
+    return ((flags & Pattern.LITERAL) != 0) || LITERAL_PATTERN.matcher(regex).matches();
+  }
+
   public static NodePattern<String> newStringRegexPattern(String regex, int flags) {
-    boolean isLiteral = ((flags & Pattern.LITERAL) != 0) || LITERAL_PATTERN.matcher(regex).matches();
+    boolean isLiteral = isLiteral(regex, flags);
     if (isLiteral) {
       boolean caseInsensitive = (flags & (Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE)) != 0;
       int stringMatchFlags = (caseInsensitive)? (CASE_INSENSITIVE | UNICODE_CASE):0;
@@ -13,6 +13,7 @@ import edu.stanford.nlp.util.*;
 import edu.stanford.nlp.util.logging.Redwood;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.*;
@@ -47,6 +48,9 @@ public class CoreMapExpressionExtractor<T extends MatchedExpression>  {
 
   private static boolean verbose = false;
 
+  /** Where compiled rules are cached, or null for no cache. */
+  private static String ruleCacheDirectory = System.getProperty("tokensregex.ruleCache");
+
   // TODO: Remove templating of MatchedExpressions<?>  (keep for now until TimeExpression rules can be decoupled)
 
   private final Env env;
@@ -282,6 +286,9 @@ public class CoreMapExpressionExtractor<T extends MatchedExpression>  {
    * @throws RuntimeException
    */
   public static <M extends MatchedExpression> CoreMapExpressionExtractor<M> createExtractorFromFiles(Env env, List<String> filenames) throws RuntimeException {
+    if (ruleCacheDirectory != null) {
+      return createExtractorFromFiles(env, filenames, new CompiledRuleCache(ruleCacheDirectory));
+    }
     CoreMapExpressionExtractor<M> extractor = new CoreMapExpressionExtractor<>(env);
     for (String filename:filenames) {
       try (BufferedReader br = IOUtils.readerFromString(filename)) {
@@ -296,6 +303,52 @@ public class CoreMapExpressionExtractor<T extends MatchedExpression>  {
     return extractor;
   }
 
+  /**
+   * Creates an extractor from the rule files, reading the compiled rules from the cache if the cache has them,
+   * and otherwise parsing the files and putting the compiled rules in the cache.
+   */
+  private static <M extends MatchedExpression> CoreMapExpressionExtractor<M> createExtractorFromFiles(Env env, List<String> filenames,
+                                                                                                     CompiledRuleCache cache) {
+    List<String> contents = new ArrayList<>(filenames.size());
+    for (String filename:filenames) {
+      try (BufferedReader br = IOUtils.readerFromString(filename)) {
+        contents.add(IOUtils.slurpReader(br));
+      } catch (IOException ex) {
+        throw new RuntimeException("Error reading file: " + filename, ex);
+      }
+    }
+    CoreMapExpressionExtractor<M> extractor = new CoreMapExpressionExtractor<>(env);
+    File entry = cache.entryFile(env, contents);
+    List<List<SequenceMatchRules.Rule>> compiled = (entry != null) ? cache.read(entry, env) : null;
+    if (compiled != null) {
+      if (verbose)
+        log.info("Read compiled TokensRegex rules for " + filenames + " from " + entry);
+      for (List<SequenceMatchRules.Rule> rules : compiled) {
+        extractor.appendRules(rules);
+      }
+      return extractor;
+    }
+
+    Map<String, Object> shared = CompiledRuleCache.sharedObjects(env);
+    compiled = new ArrayList<>(filenames.size());
+    for (int i = 0; i < filenames.size(); i++) {
+      String filename = filenames.get(i);
+      try {
+        if (verbose)
+          log.info("Reading TokensRegex rules from " + filename);
+        List<SequenceMatchRules.Rule> rules = new TokenSequenceParser().parseRules(env, new StringReader(contents.get(i)));
+        extractor.appendRules(rules);
+        compiled.add(rules);
+      } catch (Exception ex) {
+        throw new RuntimeException("Error parsing file: " + filename, ex);
+      }
+    }
+    if (entry != null) {
+      cache.write(entry, shared, compiled);
+    }
+    return extractor;
+  }
+
   /**
    * Creates an extractor using the specified environment, and reading the rules from the given filename.
    * @param env
@@ -593,4 +646,14 @@ public class CoreMapExpressionExtractor<T extends MatchedExpression>  {
     verbose = v;
   }
 
+  /**
+   * Sets the directory in which {@link #createExtractorFromFiles(Env, List)} keeps the rules it compiles,
+   * so that they are read from there rather than parsed again the next time the same rule files are
+   * read into the same kind of environment, in this process or another.  Null, the default, turns
+   * the cache off.  The default can also be set with the {@code tokensregex.ruleCache} system property.
+   */
+  public static void setRuleCacheDirectory(String directory) {
+    ruleCacheDirectory = directory;
+  }
+
 }
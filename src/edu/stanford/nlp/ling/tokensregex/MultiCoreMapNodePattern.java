@@ -20,6 +20,8 @@ import java.util.*;
  */
 public class MultiCoreMapNodePattern extends MultiNodePattern<CoreMap> {
 
+  private static final long serialVersionUID = 1L;
+
   Map<Class, CoreMapAttributeAggregator> aggregators = CoreMapAttributeAggregator.getDefaultAggregators();
   NodePattern nodePattern;
 
@@ -52,6 +54,9 @@ public class MultiCoreMapNodePattern extends MultiNodePattern<CoreMap> {
   }
 
   public static class StringSequenceAnnotationPattern extends MultiNodePattern<CoreMap> {
+
+    private static final long serialVersionUID = 1L;
+
     Class textKey;
     PhraseTable phraseTable;
 
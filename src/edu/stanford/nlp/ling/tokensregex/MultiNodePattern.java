@@ -2,6 +2,7 @@ package edu.stanford.nlp.ling.tokensregex;
 
 import edu.stanford.nlp.util.Interval;
 
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.List;
 
@@ -10,7 +11,10 @@ import java.util.List;
  *
  * @author Angel Chang
  */
-public abstract class MultiNodePattern<T> {
+public abstract class MultiNodePattern<T> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
   int minNodes = 1;
   int maxNodes = -1;   // Set the max number of nodes this pattern can match 
   boolean greedyMatch = true;
@@ -48,6 +52,9 @@ public abstract class MultiNodePattern<T> {
   }
 
   protected static class IntersectMultiNodePattern<T> extends MultiNodePattern<T> {
+
+    private static final long serialVersionUID = 1L;
+
     List<MultiNodePattern<T>> nodePatterns;
 
     protected IntersectMultiNodePattern(List<MultiNodePattern<T>> nodePatterns) {
@@ -76,6 +83,9 @@ public abstract class MultiNodePattern<T> {
   }
 
   protected static class UnionMultiNodePattern<T> extends MultiNodePattern<T> {
+
+    private static final long serialVersionUID = 1L;
+
     List<MultiNodePattern<T>> nodePatterns;
 
     protected UnionMultiNodePattern(List<MultiNodePattern<T>> nodePatterns) {
@@ -170,7 +170,10 @@ public class SequenceMatchRules {
   /**
    * Rule that specifies what value to assign to a variable.
    */
-  public static class AssignmentRule implements Rule {
+  public static class AssignmentRule implements Rule, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
     final Expression expr;
 
     public AssignmentRule(AssignableExpression varExpr, Expression value) {
@@ -459,11 +462,7 @@ public class SequenceMatchRules {
       SequencePatternExtractRule<CoreMap, MatchedExpression> exprExtractRule =
         new SequencePatternExtractRule<>(pattern, exprExtractor, r.matchFindType, r.matchWithResults);
 
-      annotationExtractor.expressionToValue = matched -> {
-        if (matched != null && matched.context != null && matched.context instanceof SequenceMatchResult ) {
-          return valueExtractor.apply( (SequenceMatchResult<CoreMap>) matched.context);
-        } else return null;
-      };
+      annotationExtractor.expressionToValue = new SequenceMatchContextValueExtractor<>(valueExtractor);
       annotationExtractor.valueExtractor = new CoreMapFunctionApplier<>(env, r.annotationField, valueExtractRule);
       r.extractRule = exprExtractRule;
       r.filterRule = new AnnotationMatchedFilter(annotationExtractor);
@@ -524,11 +523,7 @@ public class SequenceMatchRules {
       SequencePatternExtractRule<CoreMap, MatchedExpression> exprExtractRule =
         new SequencePatternExtractRule<>(pattern, exprExtractor, r.matchFindType, r.matchWithResults);
 
-      annotationExtractor.expressionToValue = matched -> {
-        if (matched != null && matched.context != null && matched.context instanceof SequenceMatchResult ) {
-          return valueExtractor.apply( (SequenceMatchResult<CoreMap>) matched.context);
-        } else return null;
-      };
+      annotationExtractor.expressionToValue = new SequenceMatchContextValueExtractor<>(valueExtractor);
       if (r.annotationField != null && r.annotationField != CoreMap.class) {
         annotationExtractor.valueExtractor = new CoreMapFunctionApplier<>(env, r.annotationField, valueExtractRule);
         r.extractRule = new CoreMapExtractRule<>(env, r.annotationField, exprExtractRule);
@@ -580,11 +575,7 @@ public class SequenceMatchRules {
       MultiSequencePatternExtractRule<CoreMap, MatchedExpression> exprExtractRule =
         new MultiSequencePatternExtractRule<>(pattern, exprExtractor);
 
-      annotationExtractor.expressionToValue = matched -> {
-        if (matched != null && matched.context != null && matched.context instanceof SequenceMatchResult ) {
-          return valueExtractor.apply( (SequenceMatchResult<CoreMap>) matched.context);
-        } else return null;
-      };
+      annotationExtractor.expressionToValue = new SequenceMatchContextValueExtractor<>(valueExtractor);
       if (r.annotationField != null && r.annotationField != CoreMap.class) {
         annotationExtractor.valueExtractor = new CoreMapFunctionApplier<>(env, r.annotationField, valueExtractRule);
         r.extractRule = new CoreMapExtractRule<>(env, r.annotationField, exprExtractRule);
@@ -704,7 +695,33 @@ public class SequenceMatchRules {
   }
 
 
-  public static class StringMatchResultExtractor implements Function<MatchResult,Value> {
+  /**
+   * Gets the value of a MatchedExpression from the sequence match it came from
+   * (if it came from one), using the given value extractor.
+   */
+  public static class SequenceMatchContextValueExtractor<V> implements Function<MatchedExpression, V>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    final Function<SequenceMatchResult<CoreMap>, V> valueExtractor;
+
+    public SequenceMatchContextValueExtractor(Function<SequenceMatchResult<CoreMap>, V> valueExtractor) {
+      this.valueExtractor = valueExtractor;
+    }
+
+    @Override
+    public V apply(MatchedExpression matched) {
+      if (matched != null && matched.context != null && matched.context instanceof SequenceMatchResult ) {
+        return valueExtractor.apply( (SequenceMatchResult<CoreMap>) matched.context);
+      } else return null;
+    }
+  }
+
+
+  public static class StringMatchResultExtractor implements Function<MatchResult,Value>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
     final Env env;
     final Expression action;
     final Expression result;
@@ -733,7 +750,10 @@ public class SequenceMatchRules {
   }
 
 
-  public static class SequenceMatchResultExtractor<T> implements Function<SequenceMatchResult<T>,Value> {
+  public static class SequenceMatchResultExtractor<T> implements Function<SequenceMatchResult<T>,Value>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
     final Env env;
     final Expression action;
     final Expression result;
@@ -781,7 +801,9 @@ public class SequenceMatchRules {
    * @param <I> input type
    * @param <O> output type
    */
-  public static class FilterExtractRule<I,O> implements ExtractRule<I,O> {
+  public static class FilterExtractRule<I,O> implements ExtractRule<I,O>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     final Predicate<I> filter;
     final ExtractRule<I,O> rule;
@@ -815,7 +837,9 @@ public class SequenceMatchRules {
    * @param <I> input type
    * @param <O> output type
    */
-  public static class ListExtractRule<I,O> implements ExtractRule<I,O> {
+  public static class ListExtractRule<I,O> implements ExtractRule<I,O>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     final List<ExtractRule<I,O>> rules;
 
@@ -886,7 +910,9 @@ public class SequenceMatchRules {
    * @param <T> type of the annotation field
    * @param <O> output type
    */
-  public static class CoreMapExtractRule<T,O> implements ExtractRule<CoreMap, O> {
+  public static class CoreMapExtractRule<T,O> implements ExtractRule<CoreMap, O>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     final Env env;
     final Class annotationField;
@@ -918,7 +944,10 @@ public class SequenceMatchRules {
    *
    * @param <O> output type
    */
-  public static class CoreMapToListExtractRule<O> implements ExtractRule<CoreMap, O> {
+  public static class CoreMapToListExtractRule<O> implements ExtractRule<CoreMap, O>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
     final ExtractRule<List<? extends CoreMap>,O> extractRule;
 
     public CoreMapToListExtractRule(ExtractRule<List<? extends CoreMap>,O> extractRule) {
@@ -936,7 +965,9 @@ public class SequenceMatchRules {
    * Extraction rule.
    * Input is of type CoreMap, output is MatchedExpression.
    */
-  public static class BasicSequenceExtractRule implements ExtractRule< List<? extends CoreMap>, MatchedExpression> {
+  public static class BasicSequenceExtractRule implements ExtractRule< List<? extends CoreMap>, MatchedExpression>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     final MatchedExpression.SingleAnnotationExtractor extractor;
 
@@ -961,7 +992,9 @@ public class SequenceMatchRules {
   }
 
 
-  public static class SequencePatternExtractRule<T,O> implements ExtractRule< List<? extends T>, O>, Function<List<? extends T>, O> {
+  public static class SequencePatternExtractRule<T,O> implements ExtractRule< List<? extends T>, O>, Function<List<? extends T>, O>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     final SequencePattern<T> pattern;
     final Function<SequenceMatchResult<T>, O> extractor;
@@ -1016,7 +1049,9 @@ public class SequenceMatchRules {
   } // end static class SequencePatternExtractRule
 
 
-  public static class MultiSequencePatternExtractRule<T,O> implements ExtractRule< List<? extends T>, O>, Function<List<? extends T>, O> {
+  public static class MultiSequencePatternExtractRule<T,O> implements ExtractRule< List<? extends T>, O>, Function<List<? extends T>, O>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     final MultiPatternMatcher<T> matcher;
     final Function<SequenceMatchResult<T>, O> extractor;
@@ -1051,7 +1086,9 @@ public class SequenceMatchRules {
   }
 
 
-  public static class StringPatternExtractRule<O> implements ExtractRule<String, O>, Function<String, O> {
+  public static class StringPatternExtractRule<O> implements ExtractRule<String, O>, Function<String, O>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final Pattern pattern;
     private final Function<MatchResult, O> extractor;
@@ -1107,7 +1144,9 @@ public class SequenceMatchRules {
   } // end static class StringPatternExtractRule
 
 
-  public static class StringMatchedExpressionExtractor implements Function<MatchResult, MatchedExpression> {
+  public static class StringMatchedExpressionExtractor implements Function<MatchResult, MatchedExpression>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     final MatchedExpression.SingleAnnotationExtractor extractor;
     final int group;
@@ -1125,7 +1164,9 @@ public class SequenceMatchRules {
   }
 
 
-  public static class SequenceMatchedExpressionExtractor implements Function<SequenceMatchResult<CoreMap>, MatchedExpression> {
+  public static class SequenceMatchedExpressionExtractor implements Function<SequenceMatchResult<CoreMap>, MatchedExpression>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     final MatchedExpression.SingleAnnotationExtractor extractor;
     final int group;
@@ -1153,7 +1194,9 @@ public class SequenceMatchRules {
   }
 
 
-  public static class CoreMapFunctionApplier<T,O> implements Function<CoreMap, O> {
+  public static class CoreMapFunctionApplier<T,O> implements Function<CoreMap, O>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     final Env env;
     final Class annotationField;
@@ -1185,7 +1228,9 @@ public class SequenceMatchRules {
   }
 
 
-  public static class CoreMapToListFunctionApplier<O> implements Function<CoreMap, O> {
+  public static class CoreMapToListFunctionApplier<O> implements Function<CoreMap, O>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     final Env env;
     final Function<List<? extends CoreMap>,O> func;
@@ -0,0 +1,294 @@
+package edu.stanford.nlp.ling.tokensregex;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.FrozenStringIndex;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An Aho-Corasick automaton over tokens, which finds every occurrence of a fixed set of
+ * phrases in a sequence of tokens in one left-to-right pass.  Each phrase is a sequence of
+ * token texts which must equal the {@code TextAnnotation} of consecutive tokens, either
+ * exactly or ignoring case as {@link String#equalsIgnoreCase} does; this is what a
+ * {@link TokenSequencePattern} made up of literal {@link CoreMapNodePattern}s matches, without
+ * compiling a pattern per phrase.  Finding the matches in a sentence takes time proportional
+ * to the length of the sentence plus the number of matches, however many phrases there are.
+ * <p>
+ * The automaton is built once and then read only, so it can be shared between threads.
+ * It is kept in a few int arrays, with the distinct token texts in a {@link FrozenStringIndex},
+ * and can be serialized to avoid building it again.
+ */
+public class TokenSequenceAutomaton implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Receives the matches found by {@link TokenSequenceAutomaton#find}. */
+  @FunctionalInterface
+  public interface MatchHandler {
+    /** Phrase number {@code phrase} matches the tokens from {@code start} to {@code end} (exclusive). */
+    void matched(int phrase, int start, int end);
+  }
+
+  private final boolean ignoreCase;
+  private final int numPhrases;
+
+  /** The distinct token texts of the phrases (folded, if ignoring case); rebuilt when deserialized. */
+  private transient FrozenStringIndex words;
+
+  // The nodes of the trie are numbered breadth first, with the root as node 0.
+  // The children of node n are childNode[childStart[n] .. childStart[n+1]), sorted by childWord.
+  private final int[] childStart;
+  private final int[] childWord;
+  private final int[] childNode;
+  /** The node of the longest proper suffix of the path to a node which is also in the trie. */
+  private final int[] fail;
+  /** The nearest node along the fail links of a node which ends a phrase, or -1 if there is none. */
+  private final int[] outputLink;
+  /** The number of tokens on the path to a node. */
+  private final int[] depth;
+  /** The phrases which end at node n are outputPhrase[outputStart[n] .. outputStart[n+1]). */
+  private final int[] outputStart;
+  private final int[] outputPhrase;
+
+  /**
+   * Build an automaton for the given phrases, which are numbered in the order of the list.
+   * Empty phrases never match.
+   *
+   * @param phrases The token texts of each phrase
+   * @param ignoreCase Whether tokens match regardless of case
+   */
+  public TokenSequenceAutomaton(List<String[]> phrases, boolean ignoreCase) {
+    this.ignoreCase = ignoreCase;
+    this.numPhrases = phrases.size();
+
+    Set<String> vocabulary = new LinkedHashSet<>();
+    for (String[] phrase : phrases) {
+      for (String word : phrase) {
+        vocabulary.add(normalize(word, new StringBuilder()).toString());
+      }
+    }
+    words = new FrozenStringIndex(vocabulary);
+
+    final int[][] sequences = new int[phrases.size()][];
+    StringBuilder builder = new StringBuilder();
+    for (int p = 0; p < sequences.length; p++) {
+      String[] phrase = phrases.get(p);
+      sequences[p] = new int[phrase.length];
+      for (int i = 0; i < phrase.length; i++) {
+        sequences[p][i] = words.indexOfChars(normalize(phrase[i], builder));
+      }
+    }
+    // In lexicographic order, the phrases which share a prefix are next to each other,
+    // and the phrase which is just that prefix comes first
+    Integer[] order = new Integer[sequences.length];
+    for (int p = 0; p < order.length; p++) {
+      order[p] = p;
+    }
+    Arrays.sort(order, (p1, p2) -> {
+      int[] s1 = sequences[p1];
+      int[] s2 = sequences[p2];
+      for (int i = 0; i < s1.length && i < s2.length; i++) {
+        if (s1[i] != s2[i]) {
+          return Integer.compare(s1[i], s2[i]);
+        }
+      }
+      return s1.length != s2.length ? Integer.compare(s1.length, s2.length) : Integer.compare(p1, p2);
+    });
+
+    // Build the trie breadth first: each node covers the range of sorted phrases with its prefix
+    IntList rangeStart = new IntList();
+    IntList rangeEnd = new IntList();
+    IntList depths = new IntList();
+    IntList childStarts = new IntList();
+    IntList childWords = new IntList();
+    IntList childNodes = new IntList();
+    IntList outputStarts = new IntList();
+    IntList outputPhrases = new IntList();
+    rangeStart.add(0);
+    rangeEnd.add(order.length);
+    depths.add(0);
+    for (int node = 0; node < depths.size(); node++) {
+      int d = depths.get(node);
+      int i = rangeStart.get(node);
+      int end = rangeEnd.get(node);
+      outputStarts.add(outputPhrases.size());
+      for ( ; i < end && sequences[order[i]].length == d; i++) {
+        if (d > 0) {
+          outputPhrases.add(order[i]);
+        }
+      }
+      childStarts.add(childWords.size());
+      while (i < end) {
+        int word = sequences[order[i]][d];
+        int j = i + 1;
+        while (j < end && sequences[order[j]][d] == word) {
+          j++;
+        }
+        childWords.add(word);
+        childNodes.add(depths.size());
+        rangeStart.add(i);
+        rangeEnd.add(j);
+        depths.add(d + 1);
+        i = j;
+      }
+    }
+    int numNodes = depths.size();
+    childStarts.add(childWords.size());
+    outputStarts.add(outputPhrases.size());
+    childStart = childStarts.toArray();
+    childWord = childWords.toArray();
+    childNode = childNodes.toArray();
+    depth = depths.toArray();
+    outputStart = outputStarts.toArray();
+    outputPhrase = outputPhrases.toArray();
+
+    // Fail and output links, parents before children
+    fail = new int[numNodes];
+    outputLink = new int[numNodes];
+    outputLink[0] = -1;
+    for (int node = 0; node < numNodes; node++) {
+      for (int c = childStart[node]; c < childStart[node + 1]; c++) {
+        int word = childWord[c];
+        int child = childNode[c];
+        int target = 0;
+        if (node != 0) {
+          for (int f = fail[node]; ; f = fail[f]) {
+            int next = child(f, word);
+            if (next >= 0) {
+              target = next;
+              break;
+            }
+            if (f == 0) {
+              break;
+            }
+          }
+        }
+        fail[child] = target;
+        outputLink[child] = hasOutput(target) ? target : outputLink[target];
+      }
+    }
+  }
+
+  /** The text of a token as it is kept in the automaton, in the given builder. */
+  private StringBuilder normalize(String text, StringBuilder builder) {
+    builder.setLength(0);
+    if ( ! ignoreCase) {
+      return builder.append(text);
+    }
+    // equalsIgnoreCase compares chars after both upper and lower casing them
+    for (int i = 0; i < text.length(); i++) {
+      builder.append(Character.toLowerCase(Character.toUpperCase(text.charAt(i))));
+    }
+    return builder;
+  }
+
+  private int child(int node, int word) {
+    int lo = childStart[node];
+    int hi = childStart[node + 1] - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int w = childWord[mid];
+      if (w < word) {
+        lo = mid + 1;
+      } else if (w > word) {
+        hi = mid - 1;
+      } else {
+        return childNode[mid];
+      }
+    }
+    return -1;
+  }
+
+  private boolean hasOutput(int node) {
+    return outputStart[node + 1] > outputStart[node];
+  }
+
+  /** The number of phrases the automaton was built from. */
+  public int numPhrases() {
+    return numPhrases;
+  }
+
+  /** Whether tokens match regardless of case. */
+  public boolean ignoreCase() {
+    return ignoreCase;
+  }
+
+  /**
+   * Find every occurrence of every phrase in the tokens, including overlapping ones,
+   * matching the phrases against the {@code TextAnnotation} of each token.
+   * Matches are reported in order of their end, and longest first for the same end.
+   */
+  public void find(List<? extends CoreMap> tokens, MatchHandler handler) {
+    StringBuilder builder = new StringBuilder();
+    int state = 0;
+    for (int i = 0; i < tokens.size(); i++) {
+      String text = tokens.get(i).get(CoreAnnotations.TextAnnotation.class);
+      int word = (text == null) ? -1 : words.indexOfChars(normalize(text, builder));
+      if (word < 0) {
+        state = 0;
+        continue;
+      }
+      for ( ; ; state = fail[state]) {
+        int next = child(state, word);
+        if (next >= 0) {
+          state = next;
+          break;
+        }
+        if (state == 0) {
+          break;
+        }
+      }
+      for (int node = hasOutput(state) ? state : outputLink[state]; node > 0; node = outputLink[node]) {
+        int start = i + 1 - depth[node];
+        for (int o = outputStart[node]; o < outputStart[node + 1]; o++) {
+          handler.matched(outputPhrase[o], start, i + 1);
+        }
+      }
+    }
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    out.writeObject(words.objectsList().toArray(new String[words.size()]));
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    words = new FrozenStringIndex(Arrays.asList((String[]) in.readObject()));
+  }
+
+
+  /** A growable array of ints, for building the automaton. */
+  private static class IntList {
+    private int[] values = new int[16];
+    private int size = 0;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    int get(int i) {
+      return values[i];
+    }
+
+    int size() {
+      return size;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+
+}
@@ -27,10 +27,13 @@ public class TokenSequenceParser implements SequencePattern.Parser<CoreMap>, Tok
     }
 
     public void updateExpressionExtractor(CoreMapExpressionExtractor extractor, Reader r) throws ParseException, TokenSequenceParseException {
+        extractor.appendRules(parseRules(extractor.getEnv(), r));
+    }
+
+    public List<SequenceMatchRules.Rule> parseRules(Env env, Reader r) throws ParseException, TokenSequenceParseException {
         try{
             TokenSequenceParser p = new TokenSequenceParser(r);
-            List<SequenceMatchRules.Rule> rules = p.RuleList(extractor.getEnv());
-            extractor.appendRules(rules);
+            return p.RuleList(env);
         }catch(TokenMgrError error){
             throw new TokenSequenceParseException("Parsing failed. Error: " + error);
         }
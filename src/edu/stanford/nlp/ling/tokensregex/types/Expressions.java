@@ -207,7 +207,9 @@ public class Expressions  {
   /**
    * An expression that is a wrapper around another expression.
    */
-  public abstract static class WrappedExpression implements Expression {
+  public abstract static class WrappedExpression implements Expression, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     protected Expression expr;
 
@@ -747,6 +749,9 @@ public class Expressions  {
   }
 
   public static class CaseExpression extends Expressions.WrappedExpression {
+
+    private static final long serialVersionUID = 1L;
+
     public CaseExpression(List<Pair<Expression,Expression>> conds, Expression elseExpr) {
       if (conds.size() == 0) {
         throw new IllegalArgumentException("No conditions!");
@@ -763,6 +768,8 @@ public class Expressions  {
 
   public static class ConditionalExpression extends Expressions.WrappedExpression {
 
+    private static final long serialVersionUID = 1L;
+
     public ConditionalExpression(Expression expr) {
       this.expr = expr;
     }
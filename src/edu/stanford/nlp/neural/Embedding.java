@@ -1,21 +1,32 @@
 package edu.stanford.nlp.neural;
 
-import java.io.IOException;
-import java.io.Serializable;
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.Map;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
 import java.util.Map.Entry;
-import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.ejml.simple.SimpleMatrix;
 
 import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.util.FrozenStringIndex;
 import edu.stanford.nlp.util.Generics;
 import edu.stanford.nlp.util.logging.Redwood;
 
 /**
+ * A map from words to their vectors.
+ * <p>
+ * By default each vector is a separate {@link SimpleMatrix}. An embedding which is only
+ * read can instead be {@link #compact() compacted}, or loaded from a file written by
+ * {@link #writeMapped(String)} with {@link #loadMapped(String)}: then all the vectors are
+ * rows of a single float array (or of a memory-mapped file), and the words are kept in a
+ * {@link FrozenStringIndex}. Vectors can then be read without building a matrix per word,
+ * by looking up their row with {@link #getWordIndex(String)}; {@link #get(String)} and the
+ * other accessors still work, but return new read-only copies of the vectors.
+ *
  * @author Minh-Thang Luong {@code <lmthang@stanford.edu>}
  * @author John Bauer
  * @author Richard Socher
@@ -26,9 +37,21 @@ public class Embedding implements Serializable  {
   private static final long serialVersionUID = 4925779982530239054L;
   /** A logger for this class */
   private static final Redwood.RedwoodChannels log = Redwood.channels(Embedding.class);
+  /** The vectors, or null if the embedding is compact. */
   private Map<String, SimpleMatrix> wordVectors;
   private int embeddingSize;
 
+  /** The words of a compact embedding; word i has row i of {@link #vectors}. */
+  private transient FrozenStringIndex words;
+  /** The vectors of a compact embedding, one row of {@code embeddingSize} after another. */
+  private transient FloatBuffer vectors;
+  /** The row of {@link #UNKNOWN_WORD} in a compact embedding, or -1 if there is none. */
+  private transient int unknownRow = -1;
+
+  /** "EMBMAP01", which no Java serialization or gzip stream starts with. */
+  private static final long MAPPED_MAGIC = 0x454d424d41503031L;
+  private static final int MAPPED_VERSION = 1;
+
   static final String START_WORD = "*START*";
   static final String END_WORD = "*END*";
 
@@ -201,28 +224,292 @@ public class Embedding implements Serializable  {
   }
 
   public void writeToFile(String filename) throws IOException {
-    IOUtils.writeObjectToFile(wordVectors, filename);
+    IOUtils.writeObjectToFile(wordVectors != null ? wordVectors : new HashMap<>(getWordVectors()), filename);
+  }
+
+  /* -- Compact storage -- */
+
+  /**
+   * Move the vectors into a single float array, and the words into a compact index.
+   * This takes a fraction of the memory of a matrix per word, but the vectors can no
+   * longer be changed, and are rounded to floats.
+   * Does nothing if the embedding is already compact.
+   *
+   * @return This embedding
+   */
+  public Embedding compact() {
+    if (wordVectors == null) {
+      return this;
+    }
+    List<String> wordList = new ArrayList<>(wordVectors.keySet());
+    float[] array = new float[Math.multiplyExact(wordList.size(), embeddingSize)];
+    for (int i = 0; i < wordList.size(); i++) {
+      SimpleMatrix vector = wordVectors.get(wordList.get(i));
+      for (int j = 0; j < embeddingSize; j++) {
+        array[i * embeddingSize + j] = (float) vector.get(j);
+      }
+    }
+    setCompact(new FrozenStringIndex(wordList), FloatBuffer.wrap(array));
+    return this;
+  }
+
+  private void setCompact(FrozenStringIndex words, FloatBuffer vectors) {
+    this.words = words;
+    this.vectors = vectors;
+    this.unknownRow = words.indexOf(UNKNOWN_WORD);
+    this.wordVectors = null;
+  }
+
+  /** Whether the vectors are kept in a single array; see {@link #compact()}. */
+  public boolean isCompact() {
+    return wordVectors == null;
+  }
+
+  /**
+   * Write the embedding in a format which {@link #loadMapped(String)} maps into memory
+   * rather than reading: a header, the words, and then the vectors as floats.
+   */
+  public void writeMapped(String path) throws IOException {
+    ByteArrayOutputStream wordBytes = new ByteArrayOutputStream();
+    List<String> wordList = new ArrayList<>(keySet());
+    try (DataOutputStream out = new DataOutputStream(wordBytes)) {
+      for (String word : wordList) {
+        out.writeUTF(word);
+      }
+    }
+    int headerSize = 8 + 4 + 4 + 4;
+    long vectorsOffset = (headerSize + 8 + wordBytes.size() + 7) & ~7L;  // keep the vectors 8-byte aligned
+
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16))) {
+      out.writeLong(MAPPED_MAGIC);
+      out.writeInt(MAPPED_VERSION);
+      out.writeInt(wordList.size());
+      out.writeInt(embeddingSize);
+      out.writeLong(vectorsOffset);
+      wordBytes.writeTo(out);
+      for (long i = headerSize + 8 + wordBytes.size(); i < vectorsOffset; i++) {
+        out.writeByte(0);
+      }
+      for (String word : wordList) {
+        SimpleMatrix vector = get(word);
+        for (int j = 0; j < embeddingSize; j++) {
+          out.writeFloat((float) vector.get(j));
+        }
+      }
+    }
+  }
+
+  /** Whether the path is a local file written by {@link #writeMapped(String)}. */
+  public static boolean isMappedEmbedding(String path) {
+    File file = new File(path);
+    if ( ! file.isFile() || file.length() < 8) {
+      return false;
+    }
+    try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+      return in.readLong() == MAPPED_MAGIC;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Load an embedding written by {@link #writeMapped(String)}. The words are read into
+   * memory, but the vectors are mapped from the file, so they are paged in by the OS as
+   * they are used, and shared between processes which map the same file.
+   *
+   * @param path The local file to map
+   * @throws IOException If the file can't be read, or is not a mapped embedding
+   */
+  public static Embedding loadMapped(String path) throws IOException {
+    List<String> wordList;
+    int embeddingSize;
+    long vectorsOffset;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16))) {
+      if (in.readLong() != MAPPED_MAGIC) {
+        throw new IOException(path + " is not a mapped embedding");
+      }
+      int version = in.readInt();
+      if (version != MAPPED_VERSION) {
+        throw new IOException("Unsupported mapped embedding version " + version + " in " + path);
+      }
+      int numWords = in.readInt();
+      embeddingSize = in.readInt();
+      vectorsOffset = in.readLong();
+      wordList = new ArrayList<>(numWords);
+      for (int i = 0; i < numWords; i++) {
+        wordList.add(in.readUTF());
+      }
+    }
+    long length = (long) wordList.size() * embeddingSize * 4;
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("Mapped embedding is too large: " + length + " bytes of vectors");
+    }
+    try (FileChannel channel = FileChannel.open(new File(path).toPath(), StandardOpenOption.READ)) {
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, vectorsOffset, length);
+      // the mapping stays valid after the channel is closed
+      Embedding embedding = new Embedding(Collections.emptyMap(), embeddingSize);
+      embedding.setCompact(new FrozenStringIndex(wordList), buffer.asFloatBuffer());
+      return embedding;
+    }
+  }
+
+  private Embedding(Map<String, SimpleMatrix> wordVectors, int embeddingSize) {
+    this.wordVectors = wordVectors;
+    this.embeddingSize = embeddingSize;
+  }
+
+  /* -- Row access -- */
+
+  /**
+   * The row of the word in a compact embedding, or the row of the unknown word if the word
+   * isn't in the embedding, as with {@link #get(String)}; -1 if there is no unknown word either.
+   *
+   * @throws IllegalStateException If the embedding is not compact
+   */
+  public int getWordIndex(String word) {
+    checkCompact();
+    int row = words.indexOf(word);
+    return row >= 0 ? row : unknownRow;
+  }
+
+  /** Element {@code i} of the given row of a compact embedding. */
+  public float getValue(int row, int i) {
+    checkCompact();
+    return vectors.get(row * embeddingSize + i);
+  }
+
+  /** Add the given row of a compact embedding to {@code target}, element by element. */
+  public void addRow(int row, double[] target) {
+    checkCompact();
+    int offset = row * embeddingSize;
+    for (int j = 0; j < embeddingSize; j++) {
+      target[j] += vectors.get(offset + j);
+    }
+  }
+
+  /** Copy the given row of a compact embedding into {@code target}, starting at {@code offset}. */
+  public void copyRow(int row, double[] target, int offset) {
+    checkCompact();
+    int start = row * embeddingSize;
+    for (int j = 0; j < embeddingSize; j++) {
+      target[offset + j] = vectors.get(start + j);
+    }
+  }
+
+  private void checkCompact() {
+    if ( ! isCompact()) {
+      throw new IllegalStateException("Rows are only available once the embedding is compact");
+    }
+  }
+
+  /** A new column vector holding the given row of a compact embedding. */
+  private SimpleMatrix rowVector(int row) {
+    SimpleMatrix vector = new SimpleMatrix(embeddingSize, 1);
+    copyRow(row, vector.getMatrix().getData(), 0);
+    return vector;
+  }
+
+  /** A read-only view of a compact embedding as a map, which builds a new matrix for each vector it returns. */
+  private Map<String, SimpleMatrix> compactView() {
+    return new AbstractMap<String, SimpleMatrix>() {
+      @Override
+      public int size() {
+        return words.size();
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return key instanceof String && words.indexOf((String) key) >= 0;
+      }
+
+      @Override
+      public SimpleMatrix get(Object key) {
+        int row = key instanceof String ? words.indexOf((String) key) : -1;
+        return row >= 0 ? rowVector(row) : null;
+      }
+
+      @Override
+      public Set<String> keySet() {
+        return new AbstractSet<String>() {
+          @Override
+          public Iterator<String> iterator() {
+            return words.iterator();
+          }
+
+          @Override
+          public int size() {
+            return words.size();
+          }
+
+          @Override
+          public boolean contains(Object o) {
+            return containsKey(o);
+          }
+        };
+      }
+
+      @Override
+      public Set<Entry<String, SimpleMatrix>> entrySet() {
+        return new AbstractSet<Entry<String, SimpleMatrix>>() {
+          @Override
+          public Iterator<Entry<String, SimpleMatrix>> iterator() {
+            return new Iterator<Entry<String, SimpleMatrix>>() {
+              private int row = 0;
+
+              @Override
+              public boolean hasNext() {
+                return row < words.size();
+              }
+
+              @Override
+              public Entry<String, SimpleMatrix> next() {
+                if ( ! hasNext()) {
+                  throw new NoSuchElementException();
+                }
+                Entry<String, SimpleMatrix> entry = new SimpleImmutableEntry<>(words.get(row), rowVector(row));
+                row++;
+                return entry;
+              }
+            };
+          }
+
+          @Override
+          public int size() {
+            return words.size();
+          }
+        };
+      }
+    };
+  }
+
+  /** Serialize a compact embedding as an ordinary one, so that serialized models don't depend on the compact format. */
+  private Object writeReplace() {
+    return isCompact() ? new Embedding(new HashMap<>(getWordVectors()), embeddingSize) : this;
   }
 
   /* -- Getters and Setters -- */
 
   public int size(){
-    return wordVectors.size();
+    return getWordVectors().size();
   }
 
   public Collection<SimpleMatrix> values(){
-    return wordVectors.values();
+    return getWordVectors().values();
   }
 
   public Set<String> keySet(){
-    return wordVectors.keySet();
+    return getWordVectors().keySet();
   }
 
   public Set<Entry<String, SimpleMatrix>> entrySet(){
-    return wordVectors.entrySet();
+    return getWordVectors().entrySet();
   }
 
   public SimpleMatrix get(String word) {
+    if (isCompact()) {
+      int row = getWordIndex(word);
+      return row >= 0 ? rowVector(row) : null;
+    }
     if(wordVectors.containsKey(word)){
       return wordVectors.get(word);
     } else {
@@ -231,32 +518,40 @@ public class Embedding implements Serializable  {
   }
 
   public boolean containsWord(String word) {
-    return wordVectors.containsKey(word);
+    return isCompact() ? words.indexOf(word) >= 0 : wordVectors.containsKey(word);
   }
 
   public SimpleMatrix getStartWordVector() {
-    return wordVectors.get(START_WORD);
+    return getWordVectors().get(START_WORD);
   }
 
   public SimpleMatrix getEndWordVector() {
-    return wordVectors.get(END_WORD);
+    return getWordVectors().get(END_WORD);
   }
 
   public SimpleMatrix getUnknownWordVector() {
-    return wordVectors.get(UNKNOWN_WORD);
+    return getWordVectors().get(UNKNOWN_WORD);
   }
 
+  /**
+   * The vectors of the words. For a compact embedding, this is a read-only view
+   * which builds a new matrix for each vector it returns.
+   */
   public Map<String, SimpleMatrix> getWordVectors() {
-    return wordVectors;
+    return isCompact() ? compactView() : wordVectors;
   }
 
   public int getEmbeddingSize() {
     return embeddingSize;
   }
 
+  /** Replace the vectors. The embedding is no longer compact afterwards. */
   public void setWordVectors(Map<String, SimpleMatrix> wordVectors) {
     this.wordVectors = wordVectors;
     this.embeddingSize = getEmbeddingSize(wordVectors);
+    this.words = null;
+    this.vectors = null;
+    this.unknownRow = -1;
   }
 
   private static int getEmbeddingSize(Map<String, SimpleMatrix> wordVectors){
@@ -280,4 +575,20 @@ public class Embedding implements Serializable  {
     return wordVectors.get(UNKNOWN_WORD).getNumElements();
   }
 
+  /**
+   * Writes a serialized Embedding, such as the neural coref embeddings, in the mapped format,
+   * which {@link #loadMapped(String)} can map rather than read.
+   * <br>
+   * Usage: {@code java edu.stanford.nlp.neural.Embedding serializedEmbedding mappedFile}
+   */
+  public static void main(String[] args) throws IOException, ClassNotFoundException {
+    if (args.length != 2) {
+      log.info("Usage: java " + Embedding.class.getName() + " serializedEmbedding mappedFile");
+      System.exit(1);
+    }
+    Embedding embedding = IOUtils.readObjectFromURLOrClasspathOrFileSystem(args[0]);
+    embedding.writeMapped(args[1]);
+    log.info("Wrote " + embedding.size() + " vectors to " + args[1]);
+  }
+
 }
@@ -73,4 +73,11 @@ public interface ParserQuery {
   boolean parseUnparsable();
 
   List<? extends HasWord> originalSentence();
+
+  /**
+   * Let go of the memory held for the most recent parse, such as a parse chart,
+   * once everything needed has been taken from it.  Nothing about that parse can
+   * be asked afterwards, but the query can still parse another sentence.
+   */
+  default void release() { }
 }
@@ -0,0 +1,125 @@
+package edu.stanford.nlp.parser.lexparser;
+
+import java.util.ArrayDeque;
+
+/**
+ * A pool of the rows which the charts of an {@link ExhaustivePCFGParser} are made of.
+ * Each row holds one number per grammar state: the scores of one span in iScore
+ * and oScore, or the extents of one position.  A chart is assembled from rows for
+ * the length of the sentence being parsed, and its rows are handed back once the
+ * parse is done, so that the next parse on any thread can reuse them.  The memory
+ * held by the parser threads is then that of the sentences being parsed, plus the
+ * pool, rather than a chart for the longest sentence each thread has seen.
+ * <p>
+ * The pool keeps at most a fixed number of bytes of rows; rows released beyond
+ * that are left to the garbage collector.  Rows are handed out with whatever
+ * values they last held, so the parser has to initialize them.
+ * A pool is thread safe and can be shared by all the queries of a parser.
+ */
+class ChartPool {
+
+  private final int numStates;
+  private final int maxPooledRows;
+
+  private final ArrayDeque<float[]> floatRows = new ArrayDeque<>();
+  private final ArrayDeque<int[]> intRows = new ArrayDeque<>();
+
+  /**
+   * @param numStates The number of grammar states, which is the length of each row
+   * @param maxBytes The most memory to keep in released rows
+   */
+  ChartPool(int numStates, long maxBytes) {
+    this.numStates = numStates;
+    this.maxPooledRows = (int) Math.min(Integer.MAX_VALUE, maxBytes / (4L * Math.max(numStates, 1)));
+  }
+
+  /** The number of rows currently in the pool. */
+  synchronized int pooledRows() {
+    return floatRows.size() + intRows.size();
+  }
+
+  /** A chart of float rows for each span [start, end) with 0 &lt;= start &lt; end &lt;= length. */
+  float[][][] floatChart(int length) {
+    float[][][] chart = new float[length][length + 1][];
+    synchronized (this) {
+      for (int start = 0; start < length && ! floatRows.isEmpty(); start++) {
+        for (int end = start + 1; end <= length && ! floatRows.isEmpty(); end++) {
+          chart[start][end] = floatRows.pop();
+        }
+      }
+    }
+    for (int start = 0; start < length; start++) {
+      for (int end = start + 1; end <= length; end++) {
+        if (chart[start][end] == null) {
+          chart[start][end] = new float[numStates];
+        }
+      }
+    }
+    return chart;
+  }
+
+  /** A chart of int rows for each span [start, end) with 0 &lt;= start &lt; end &lt;= length. */
+  int[][][] intChart(int length) {
+    int[][][] chart = new int[length][][];
+    for (int start = 0; start < length; start++) {
+      chart[start] = new int[length + 1][];
+      int[][] rows = intRows(length - start);
+      System.arraycopy(rows, 0, chart[start], start + 1, rows.length);
+    }
+    return chart;
+  }
+
+  /** The given number of int rows. */
+  int[][] intRows(int count) {
+    int[][] rows = new int[count][];
+    int i = 0;
+    synchronized (this) {
+      for ( ; i < count && ! intRows.isEmpty(); i++) {
+        rows[i] = intRows.pop();
+      }
+    }
+    for ( ; i < count; i++) {
+      rows[i] = new int[numStates];
+    }
+    return rows;
+  }
+
+  /** Hand back the rows of a chart made by {@link #floatChart}. The chart may be null. */
+  void release(float[][][] chart) {
+    if (chart == null) {
+      return;
+    }
+    synchronized (this) {
+      for (float[][] starts : chart) {
+        for (float[] row : starts) {
+          if (row != null && row.length == numStates && pooledRows() < maxPooledRows) {
+            floatRows.push(row);
+          }
+        }
+      }
+    }
+  }
+
+  /** Hand back the rows of a chart made by {@link #intChart}. The chart may be null. */
+  void release(int[][][] chart) {
+    if (chart == null) {
+      return;
+    }
+    for (int[][] starts : chart) {
+      release(starts);
+    }
+  }
+
+  /** Hand back rows made by {@link #intRows}. The rows may be null. */
+  synchronized void release(int[][] rows) {
+    if (rows == null) {
+      return;
+    }
+    for (int[] row : rows) {
+      if (row != null && row.length == numStates && pooledRows() < maxPooledRows) {
+        intRows.push(row);
+      }
+    }
+  }
+
+}
@@ -627,6 +627,7 @@ public class EvaluateTreebank  {
           ParserQuery pq = wrapper.poll();
           goldTree = goldTrees.poll();
           processResults(pq, goldTree, pwErr, pwOut, pwFileOut, pwStats, treePrint);
+          pq.release();
         }
       } // for tree iterator
       wrapper.join();
@@ -634,6 +635,7 @@ public class EvaluateTreebank  {
         ParserQuery pq = wrapper.poll();
         Tree goldTree = goldTrees.poll();
         processResults(pq, goldTree, pwErr, pwOut, pwFileOut, pwStats, treePrint);
+        pq.release();
       }
     } else {
       ParserQuery pq = pqFactory.parserQuery();
@@ -646,6 +648,8 @@ public class EvaluateTreebank  {
         pq.parseAndReport(sentence, pwErr);
 
         processResults(pq, goldTree, pwErr, pwOut, pwFileOut, pwStats, treePrint);
+
+        pq.release();
       } // for tree iterator
     }
 
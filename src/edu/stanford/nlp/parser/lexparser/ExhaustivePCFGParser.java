@@ -44,6 +44,9 @@ import edu.stanford.nlp.util.PriorityQueue;
 import edu.stanford.nlp.util.logging.Redwood;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Matcher;
 
 /** An exhaustive generalized CKY PCFG parser.
@@ -107,6 +110,9 @@ public class ExhaustivePCFGParser implements Scorer, KBestViterbiParser  {
   protected final int numStates;
   protected int arraySize = 0;
 
+  /** Where the chart rows come from and go back to, or null to allocate them for each parser. */
+  private ChartPool chartPool; // = null;
+
   /**
    * When you want to force the parser to parse a particular
    * subsequence into a particular state.  Parses will only be made
@@ -837,6 +843,7 @@ oScore[split][end][br.rightChild] = totR;
    *  of length 2 or more.
    */
   void doInsideScores() {
+    final int threads = op.testOptions.insideThreads;
     for (int diff = 2; diff <= length; diff++) {
       if (Thread.interrupted()) {
         throw new RuntimeInterruptedException();
@@ -845,12 +852,67 @@ oScore[split][end][br.rightChild] = totR;
       // usually stop one short because boundary symbol only combines
       // with whole sentence span. So for 3 word sentence + boundary = 4,
       // length == 4, and do [0,2], [1,3]; [0,3]; [0,4]
-      for (int start = 0; start < ((diff == length) ? 1: length - diff); start++) {
-        doInsideChartCell(diff, start);
-      } // for start
+      int numCells = (diff == length) ? 1: length - diff;
+      if (threads > 1 && numCells >= MIN_PARALLEL_CELLS) {
+        insidePool(threads).invoke(new InsideCellsTask(diff, 0, numCells, Math.max(1, numCells / (threads * 4))));
+      } else {
+        for (int start = 0; start < numCells; start++) {
+          doInsideChartCell(diff, start);
+        } // for start
+      }
     } // for diff (i.e., span)
   } // end doInsideScores()
 
+  /** Spans with fewer cells than this are filled in on the parsing thread even with insideThreads &gt; 1. */
+  private static final int MIN_PARALLEL_CELLS = 8;
+
+  /** The pools which fill in chart cells in parallel, one per number of threads, shared by all parsers. */
+  private static final Map<Integer, ForkJoinPool> insidePools = new ConcurrentHashMap<>();
+
+  private static ForkJoinPool insidePool(int threads) {
+    return insidePools.computeIfAbsent(threads, ForkJoinPool::new);
+  }
+
+  /**
+   * Fills in the cells of one span length over a range of start positions.
+   * The cells of a span length only read the scores of shorter spans, and each
+   * only writes its own scores and the extents of its own start and end positions,
+   * which no other cell of that length touches, so they can be filled in any order
+   * and the chart is the same as when they are filled in one after another.
+   * Ranges are split in halves down to a block of neighbouring cells, which share
+   * the rows of iScore they read.
+   */
+  private class InsideCellsTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int diff;
+    private final int fromStart;
+    private final int toStart;
+    private final int blockSize;
+
+    InsideCellsTask(int diff, int fromStart, int toStart, int blockSize) {
+      this.diff = diff;
+      this.fromStart = fromStart;
+      this.toStart = toStart;
+      this.blockSize = blockSize;
+    }
+
+    @Override
+    protected void compute() {
+      if (toStart - fromStart <= blockSize) {
+        for (int start = fromStart; start < toStart; start++) {
+          doInsideChartCell(diff, start);
+        }
+      } else {
+        int mid = (fromStart + toStart) >>> 1;
+        invokeAll(new InsideCellsTask(diff, fromStart, mid, blockSize),
+                  new InsideCellsTask(diff, mid, toStart, blockSize));
+      }
+    }
+
+  } // end class InsideCellsTask
+
 
   private void doInsideChartCell(final int diff, final int start) {
     final boolean lengthNormalization = op.testOptions.lengthNormalization;
@@ -2214,27 +2276,38 @@ oScore[split][end][br.rightChild] = totR;
     // allocate just the parts of iScore and oScore used (end > start, etc.)
     // todo: with some modifications to doInsideScores, we wouldn't need to allocate iScore[i,length] for i != 0 and i != length
     //    System.out.println("initializing iScore arrays with length " + length + " and numStates " + numStates);
-    iScore = new float[length][length + 1][];
-    for (int start = 0; start < length; start++) {
-      for (int end = start + 1; end <= length; end++) {
-        iScore[start][end] = new float[numStates];
+    if (chartPool != null) {
+      iScore = chartPool.floatChart(length);
+      if (op.doDep && !op.testOptions.useFastFactored) {
+        oScore = chartPool.floatChart(length);
       }
-    }
-    //    System.out.println("finished initializing iScore arrays");
-    if (op.doDep && !op.testOptions.useFastFactored) {
-      //      System.out.println("initializing oScore arrays with length " + length + " and numStates " + numStates);
-      oScore = new float[length][length + 1][];
+      narrowRExtent = chartPool.intRows(length);
+      wideRExtent = chartPool.intRows(length);
+      narrowLExtent = chartPool.intRows(length + 1);
+      wideLExtent = chartPool.intRows(length + 1);
+    } else {
+      iScore = new float[length][length + 1][];
       for (int start = 0; start < length; start++) {
         for (int end = start + 1; end <= length; end++) {
-          oScore[start][end] = new float[numStates];
+          iScore[start][end] = new float[numStates];
+        }
+      }
+      //    System.out.println("finished initializing iScore arrays");
+      if (op.doDep && !op.testOptions.useFastFactored) {
+        //      System.out.println("initializing oScore arrays with length " + length + " and numStates " + numStates);
+        oScore = new float[length][length + 1][];
+        for (int start = 0; start < length; start++) {
+          for (int end = start + 1; end <= length; end++) {
+            oScore[start][end] = new float[numStates];
+          }
         }
+        // System.out.println("finished initializing oScore arrays");
       }
-      // System.out.println("finished initializing oScore arrays");
+      narrowRExtent = new int[length][numStates];
+      wideRExtent = new int[length][numStates];
+      narrowLExtent = new int[length + 1][numStates];
+      wideLExtent = new int[length + 1][numStates];
     }
-    narrowRExtent = new int[length][numStates];
-    wideRExtent = new int[length][numStates];
-    narrowLExtent = new int[length + 1][numStates];
-    wideLExtent = new int[length + 1][numStates];
     if (op.doDep && !op.testOptions.useFastFactored) {
       iPossibleByL = new boolean[length][numStates];
       iPossibleByR = new boolean[length + 1][numStates];
@@ -2244,10 +2317,14 @@ oScore[split][end][br.rightChild] = totR;
     tags = new boolean[length][numTags];
 
     if (op.testOptions.lengthNormalization) {
-      wordsInSpan = new int[length][length + 1][];
-      for (int start = 0; start < length; start++) {
-        for (int end = start + 1; end <= length; end++) {
-          wordsInSpan[start][end] = new int[numStates];
+      if (chartPool != null) {
+        wordsInSpan = chartPool.intChart(length);
+      } else {
+        wordsInSpan = new int[length][length + 1][];
+        for (int start = 0; start < length; start++) {
+          for (int end = start + 1; end <= length; end++) {
+            wordsInSpan[start][end] = new int[numStates];
+          }
         }
       }
     }
@@ -2255,11 +2332,41 @@ oScore[split][end][br.rightChild] = totR;
   }
 
   private void clearArrays() {
+    if (chartPool != null) {
+      chartPool.release(iScore);
+      chartPool.release(oScore);
+      chartPool.release(wordsInSpan);
+      chartPool.release(narrowRExtent);
+      chartPool.release(wideRExtent);
+      chartPool.release(narrowLExtent);
+      chartPool.release(wideLExtent);
+    }
     iScore = oScore = null;
+    wordsInSpan = null;
     iPossibleByL = iPossibleByR = oPossibleByL = oPossibleByR = null;
     oFilteredEnd = oFilteredStart = null;
     tags = null;
     narrowRExtent = wideRExtent = narrowLExtent = wideLExtent = null;
   }
 
+  /**
+   * Take the chart rows from the given pool, and hand them back to it in
+   * {@link #releaseArrays()}, instead of allocating them for this parser.
+   */
+  void setChartPool(ChartPool chartPool) {
+    clearArrays();
+    arraySize = 0;
+    this.chartPool = chartPool;
+  }
+
+  /**
+   * Let go of the chart of the last parse, handing its rows back to the chart
+   * pool if there is one.  Nothing can be asked about that parse afterwards;
+   * the next parse makes a new chart for its own length.
+   */
+  public void releaseArrays() {
+    clearArrays();
+    arraySize = 0;
+  }
+
 } // end class ExhaustivePCFGParser
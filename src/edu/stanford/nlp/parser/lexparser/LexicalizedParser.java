@@ -107,6 +107,20 @@ public class LexicalizedParser extends ParserGrammar implements Serializable  {
 
   public Reranker reranker; // = null;
 
+  /** The pool of PCFG chart rows shared by the queries of this parser; made when first needed */
+  private transient ChartPool chartPool; // = null;
+
+  /**
+   * The pool the queries of this parser take their PCFG charts from, or null if
+   * {@code testOptions.chartPoolMegabytes} is 0 and each query allocates its own.
+   */
+  synchronized ChartPool chartPool() {
+    if (chartPool == null && op.testOptions.chartPoolMegabytes > 0) {
+      chartPool = new ChartPool(stateIndex.size(), op.testOptions.chartPoolMegabytes * 1024L * 1024L);
+    }
+    return chartPool;
+  }
+
   @Override
   public TreebankLangParserParams getTLPParams() { return op.tlpParams; }
 
@@ -298,11 +312,15 @@ public class LexicalizedParser extends ParserGrammar implements Serializable  {
   public Tree parse(List<? extends HasWord> lst) {
     try {
       ParserQuery pq = parserQuery();
-      if (pq.parse(lst)) {
-        Tree bestparse = pq.getBestParse();
-        // -10000 denotes unknown words
-        bestparse.setScore(pq.getPCFGScore() % -10000.0);
-        return bestparse;
+      try {
+        if (pq.parse(lst)) {
+          Tree bestparse = pq.getBestParse();
+          // -10000 denotes unknown words
+          bestparse.setScore(pq.getPCFGScore() % -10000.0);
+          return bestparse;
+        }
+      } finally {
+        pq.release();
       }
     } catch (Exception e) {
       log.info("Following exception caught during parsing:");
@@ -364,10 +382,14 @@ public class LexicalizedParser extends ParserGrammar implements Serializable  {
    */
   public Tree parseTree(List<? extends HasWord> sentence) {
     ParserQuery pq = parserQuery();
-    if (pq.parse(sentence)) {
-      return pq.getBestParse();
-    } else {
-      return null;
+    try {
+      if (pq.parse(sentence)) {
+        return pq.getBestParse();
+      } else {
+        return null;
+      }
+    } finally {
+      pq.release();
     }
   }
 
@@ -1173,6 +1195,11 @@ public class LexicalizedParser extends ParserGrammar implements Serializable  {
    * can use multiple threads.  This option tells the parser how many
    * threads to use.  A negative number indicates to use as many
    * threads as the machine has cores.
+   * <LI>{@code -chartPoolMegabytes n} Keep up to n megabytes of PCFG chart
+   * rows between parses, shared by all the parsing threads, rather than
+   * allocating the charts of each parse afresh.  This saves on garbage
+   * collection when parsing many sentences, but the memory stays in use for
+   * as long as the parser is loaded.  The default is 0: no pool.
    * </ul>
    * See also the package documentation for more details and examples of use.
    *
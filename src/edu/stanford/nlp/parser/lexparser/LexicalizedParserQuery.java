@@ -101,6 +101,14 @@ public class LexicalizedParserQuery implements ParserQuery  {
   @Override
   public List<? extends HasWord> originalSentence() { return originalSentence; }
 
+  /** Hands the chart of the PCFG parser back to the chart pool of the parser, if it has one. */
+  @Override
+  public void release() {
+    if (pparser != null) {
+      pparser.releaseArrays();
+    }
+  }
+
   /** Keeps track of whether the sentence had punctuation added, which affects the expected length of the sentence */
   private boolean addedPunct = false;
 
@@ -132,6 +140,10 @@ public class LexicalizedParserQuery implements ParserQuery  {
       } else {
         pparser = new ExhaustivePCFGParser(bg, ug, lex, op, stateIndex, wordIndex, tagIndex);
       }
+      ChartPool chartPool = parser.chartPool();
+      if (chartPool != null) {
+        pparser.setChartPool(chartPool);
+      }
     } else {
       pparser = null;
     }
@@ -744,6 +744,12 @@ public class Options implements Serializable  {
     } else if (args[i].equalsIgnoreCase("-testingThreads")) {
       testOptions.testingThreads = Integer.parseInt(args[i + 1]);
       i += 2;
+    } else if (args[i].equalsIgnoreCase("-insideThreads")) {
+      testOptions.insideThreads = Integer.parseInt(args[i + 1]);
+      i += 2;
+    } else if (args[i].equalsIgnoreCase("-chartPoolMegabytes")) {
+      testOptions.chartPoolMegabytes = Integer.parseInt(args[i + 1]);
+      i += 2;
     } else if (args[i].equalsIgnoreCase("-evals")) {
       testOptions.evals = StringUtils.stringToProperties(args[i+1], testOptions.evals);
       i += 2;
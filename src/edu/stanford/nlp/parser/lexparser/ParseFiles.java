@@ -196,6 +196,7 @@ public class ParseFiles {
           while (wrapper.peek()) {
             ParserQuery pq = wrapper.poll();
             processResults(pq, numProcessed++, pwo);
+            pq.release();
           }
         }
 
@@ -203,6 +204,7 @@ public class ParseFiles {
         while (wrapper.peek()) {
           ParserQuery pq = wrapper.poll();
           processResults(pq, numProcessed++, pwo);
+          pq.release();
         }
       } else {
         ParserQuery pq = pqFactory.parserQuery();
@@ -214,6 +216,7 @@ public class ParseFiles {
           pwErr.println("Parsing [sent. " + num + " len. " + len + "]: " + SentenceUtils.listToString(sentence, true));
           pq.parseAndReport(sentence, pwErr);
           processResults(pq, numProcessed++, pwo);
+          pq.release();
         }
       }
 
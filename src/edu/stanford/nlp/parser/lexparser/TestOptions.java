@@ -279,6 +279,25 @@ public class TestOptions implements Serializable  {
    */
   public int testingThreads = 1;
 
+  /**
+   * Number of threads the PCFG parser uses to fill in its chart for a single
+   * sentence.  The cells of each span length are split across a shared pool
+   * of this many threads.  This helps with long sentences, and gives the same
+   * parses as filling the chart on one thread.
+   */
+  public int insideThreads = 1;
+
+  /**
+   * The most memory, in megabytes, that the PCFG parser keeps in chart rows
+   * between parses.  The queries of a parser take the rows of their charts
+   * from a pool shared by all threads, sized to the sentence being parsed, and
+   * hand them back when released, rather than each keeping a chart for the
+   * longest sentence it has seen.  The pool lives as long as the parser, so
+   * this memory stays in use while the parser is loaded.  If 0 (the default),
+   * each query allocates its own charts.  Set with {@code -chartPoolMegabytes}.
+   */
+  public int chartPoolMegabytes = 0;
+
   /**
    * When evaluating, don't print out tons of text.  Only print out the final scores
    */
@@ -310,6 +329,8 @@ public class TestOptions implements Serializable  {
             " outputFormatOptions=" + outputFormatOptions + 
             " printAllBestParses=" + printAllBestParses + 
             " testingThreads=" + testingThreads +
+            " insideThreads=" + insideThreads +
+            " chartPoolMegabytes=" + chartPoolMegabytes +
             " quietEvaluation=" + quietEvaluation);
   }
 
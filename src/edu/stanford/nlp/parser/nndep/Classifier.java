@@ -44,9 +44,17 @@ public class Classifier  {
   // b1: hiddenSize
   // W2: numLabels x hiddenSize
 
-  // Weight matrices
-  private final double[][] W1, W2, E;
-  private final double[] b1;
+  // Weight matrices; null once the classifier is compacted
+  private double[][] W1, W2, E;
+  private double[] b1;
+
+  /**
+   * The weights in a reduced precision, used in place of the weight
+   * matrices for parsing once the classifier is compacted.
+   *
+   * @see #compact(WeightPrecision)
+   */
+  private CompactNetwork compact;
 
   // Global gradSaved
   private double[][] gradSaved;
@@ -138,7 +146,9 @@ public class Classifier  {
     this.b1 = b1;
     this.W2 = W2;
 
-    initGradientHistories();
+    // gradient histories are only needed for training
+    if (dataset != null)
+      initGradientHistories();
 
     numLabels = W2.length;
 
@@ -652,6 +662,7 @@ public class Classifier  {
    *                     activations should be precomputed
    */
   public void preCompute(Set<Integer> toPreCompute) {
+    validateNotCompacted();
     long startTime = System.currentTimeMillis();
 
     // NB: It'd make sense to just make the first dimension of this
@@ -674,33 +685,121 @@ public class Classifier  {
   }
 
 
+  /**
+   * Convert the weights of a trained classifier to the given precision
+   * for parsing. The double weights and precomputed activations are
+   * dropped afterwards, so a compacted classifier can't be trained or
+   * saved, and can't be compacted again. Compacting to
+   * {@link WeightPrecision#DOUBLE} does nothing.
+   *
+   * @throws java.lang.IllegalStateException If training, or already compacted
+   */
+  public void compact(WeightPrecision precision) {
+    if (precision == WeightPrecision.DOUBLE)
+      return;
+    if (isTraining)
+      throw new IllegalStateException("Can't compact a classifier while training");
+    if (compact != null)
+      throw new IllegalStateException("Classifier was already compacted to " + compact.precision());
+
+    compact = CompactNetwork.build(precision, config, E, W1, b1, W2, saved, preMap);
+    log.info("Compacted classifier weights to " + precision + ": " + compact.sizeInBytes() / (1024 * 1024) + " MB");
+    E = null;
+    W1 = null;
+    b1 = null;
+    W2 = null;
+    saved = null;
+  }
+
+  /**
+   * The precision the weights are kept in.
+   */
+  public WeightPrecision getWeightPrecision() {
+    return compact == null ? WeightPrecision.DOUBLE : compact.precision();
+  }
+
   double[] computeScores(int[] feature) {
+    if (compact != null)
+      return compact.computeScores(feature);
     return computeScores(feature, preMap);
   }
 
+  /**
+   * Feed a batch of feature vectors forward through the network, as
+   * {@link #computeScores(int[])} does for each of them. Both layers are
+   * computed for the whole batch at once (see {@link #computeHidden(int[][])}),
+   * so that each block of weights is read from memory once per batch rather
+   * than once per vector.
+   * The scores are exactly the same as those computed one vector at a time.
+   *
+   * @param features One feature vector per configuration
+   * @return The values of the output layer for each feature vector
+   */
+  double[][] computeScores(int[][] features) {
+    if (compact != null)
+      return compact.computeScores(features);
+    final int batchSize = features.length;
+    final double[][] hidden = computeHidden(features);
+    final double[][] scores = new double[batchSize][W2.length];
+    for (int i = 0; i < W2.length; i++) {
+      final double[] row = W2[i];
+      for (int b = 0; b < batchSize; b++) {
+        scores[b][i] = ArrayMath.dotProduct(row, hidden[b]);
+      }
+    }
+    return scores;
+  }
+
   /**
    * Feed a feature vector forward through the network. Returns the
    * values of the output layer.
    */
   private double[] computeScores(int[] feature, Map<Integer, Integer> preMap) {
-    final double[] hidden = new double[config.hiddenSize];
+    return matrixMultiply(W2, computeHidden(new int[][] { feature })[0]);
+  }
+
+  /**
+   * Compute the activations of the hidden layer for a batch of feature vectors,
+   * as one blocked product of the batch's embeddings with {@code W1}.
+   * The blocks are the columns of {@code W1} for one feature position: each
+   * block is read once for all the vectors of the batch whose feature in that
+   * position has no precomputed activation, rather than once per vector.
+   * Each activation sums the same terms in the same order as it would for a
+   * single vector, so the result doesn't depend on the batch.
+   */
+  private double[][] computeHidden(int[][] features) {
+    final int batchSize = features.length;
     final int numTokens = config.numTokens;
     final int embeddingSize = config.embeddingSize;
+    final double[][] hidden = new double[batchSize][config.hiddenSize];
+    // the vectors of the batch which need the current block, and their embeddings
+    final double[][] sums = new double[batchSize][];
+    final double[][] embeddings = new double[batchSize][];
 
     int offset = 0;
-    for (int j = 0; j < feature.length; j++) {
-      int tok = feature[j];
-      int index = tok * numTokens + j;
-      Integer idInteger = preMap.get(index);
-      if (idInteger != null) {
-        ArrayMath.pairwiseAddInPlace(hidden, saved[idInteger]);
-      } else {
-        matrixMultiplySliceSum(hidden, W1, E[tok], offset);
+    for (int j = 0; j < numTokens; j++) {
+      int n = 0;
+      for (int b = 0; b < batchSize; b++) {
+        int tok = features[b][j];
+        int index = tok * numTokens + j;
+        Integer idInteger = preMap.get(index);
+        if (idInteger != null) {
+          ArrayMath.pairwiseAddInPlace(hidden[b], saved[idInteger]);
+        } else {
+          sums[n] = hidden[b];
+          embeddings[n] = E[tok];
+          n++;
+        }
+      }
+      if (n > 0) {
+        matrixMultiplySliceSum(sums, n, W1, embeddings, offset);
       }
       offset += embeddingSize;
     }
-    addCubeInPlace(hidden, b1);
-    return matrixMultiply(W2, hidden);
+    for (double[] vector : hidden) {
+      addCubeInPlace(vector, b1);
+    }
+    return hidden;
   }
 
   // extracting these small methods makes things faster; hotspot likes them
@@ -721,6 +820,21 @@ public class Classifier  {
     }
   }
 
+  /** As {@link #matrixMultiplySliceSum(double[], double[][], double[], int)} for the first n sums and vectors, reading each row slice once. */
+  private static void matrixMultiplySliceSum(double[][] sums, int n, double[][] matrix, double[][] vectors, int leftColumnOffset) {
+    for (int i = 0; i < matrix.length; i++) {
+      final double[] row = matrix[i];
+      for (int b = 0; b < n; b++) {
+        final double[] vector = vectors[b];
+        double sum = sums[b][i];
+        for (int j = 0; j < vector.length; j++) {
+          sum += row[leftColumnOffset + j] * vector[j];
+        }
+        sums[b][i] = sum;
+      }
+    }
+  }
+
   private static void addCubeInPlace(double[] vector, double [] bias) {
     for (int i = 0; i < vector.length; i++) {
       vector[i] += bias[i]; // add bias
@@ -730,19 +844,28 @@ public class Classifier  {
 
 
   public double[][] getW1() {
+    validateNotCompacted();
     return W1;
   }
 
   public double[] getb1() {
+    validateNotCompacted();
     return b1;
   }
 
   public double[][] getW2() {
+    validateNotCompacted();
     return W2;
   }
 
   public double[][] getE() {
+    validateNotCompacted();
     return E;
   }
 
+  private void validateNotCompacted() {
+    if (compact != null)
+      throw new IllegalStateException("The double weights were dropped when the classifier was compacted to " + compact.precision());
+  }
+
 }
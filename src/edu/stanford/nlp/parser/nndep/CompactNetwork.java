@@ -0,0 +1,319 @@
+package edu.stanford.nlp.parser.nndep;
+
+import java.util.Map;
+
+/**
+ * The weights of a trained {@link Classifier} in a reduced precision, along with the
+ * kernels which feed feature vectors forward through them. This is only used for parsing;
+ * training always works on the double weights.
+ * <p>
+ * Each matrix is stored row after row in a single flat array.
+ * With {@link WeightPrecision#INT8}, every row of a matrix is scaled so that its largest
+ * absolute value becomes 127 and then rounded to bytes, and the scale is kept as a float.
+ * The embedding and hidden layer weights are then multiplied in integers, and the result
+ * scaled back once per row.
+ *
+ * @see Classifier#compact(WeightPrecision)
+ */
+abstract class CompactNetwork {
+
+  final int hiddenSize;
+  final int embeddingSize;
+  final int numTokens;
+  final int numLabels;
+  /** The number of columns of the hidden layer weights: one embedding per token. */
+  final int inputSize;
+
+  /** Maps a feature ID to its row in the precomputed hidden layer activations. */
+  final Map<Integer, Integer> preMap;
+
+  /** The hidden layer bias, in floats for both precisions. */
+  final float[] b1;
+
+  private CompactNetwork(Config config, int numLabels, Map<Integer, Integer> preMap, double[] b1) {
+    this.hiddenSize = config.hiddenSize;
+    this.embeddingSize = config.embeddingSize;
+    this.numTokens = Config.numTokens;
+    this.numLabels = numLabels;
+    this.inputSize = numTokens * embeddingSize;
+    this.preMap = preMap;
+    this.b1 = toFloats(b1);
+  }
+
+  /**
+   * Build a compact copy of the given weights.
+   *
+   * @param precision Either {@link WeightPrecision#FLOAT} or {@link WeightPrecision#INT8}
+   * @param saved The precomputed hidden layer activations, or null if there are none
+   */
+  static CompactNetwork build(WeightPrecision precision, Config config, double[][] E, double[][] W1, double[] b1,
+                              double[][] W2, double[][] saved, Map<Integer, Integer> preMap) {
+    switch (precision) {
+      case FLOAT:
+        return new FloatNetwork(config, E, W1, b1, W2, saved, preMap);
+      case INT8:
+        return new Int8Network(config, E, W1, b1, W2, saved, preMap);
+      default:
+        throw new IllegalArgumentException("No compact network for precision " + precision);
+    }
+  }
+
+  /** The precision the weights are stored in. */
+  abstract WeightPrecision precision();
+
+  /** The approximate number of bytes the weights take up. */
+  abstract long sizeInBytes();
+
+  /** Add the precomputed hidden layer activations with the given ID to hidden. */
+  abstract void addSaved(float[] hidden, int id);
+
+  /**
+   * Add the product of the hidden layer weights for the feature position starting at column {@code offset}
+   * with the embeddings of the first n tokens to the first n sums.
+   * This is one block of the product computed by {@link #computeHidden(int[][])}.
+   */
+  abstract void addEmbeddingProducts(float[][] sums, int[] tokens, int n, int offset);
+
+  /** Multiply row i of the output layer weights with the hidden layer activations. */
+  abstract double outputScore(int i, float[] hidden);
+
+  /**
+   * Compute the activations of the hidden layer for a batch of feature vectors. As with
+   * {@link Classifier#computeScores(int[][])}, this is one blocked product of the embeddings
+   * with the hidden layer weights, whose columns for each feature position are read once
+   * for the whole batch.
+   */
+  float[][] computeHidden(int[][] features) {
+    final int batchSize = features.length;
+    final float[][] hidden = new float[batchSize][hiddenSize];
+    // the vectors of the batch which need the current block, and their tokens
+    final float[][] sums = new float[batchSize][];
+    final int[] tokens = new int[batchSize];
+    int offset = 0;
+    for (int j = 0; j < numTokens; j++) {
+      int n = 0;
+      for (int b = 0; b < batchSize; b++) {
+        int tok = features[b][j];
+        Integer id = preMap.get(tok * numTokens + j);
+        if (id != null) {
+          addSaved(hidden[b], id);
+        } else {
+          sums[n] = hidden[b];
+          tokens[n] = tok;
+          n++;
+        }
+      }
+      if (n > 0) {
+        addEmbeddingProducts(sums, tokens, n, offset);
+      }
+      offset += embeddingSize;
+    }
+    for (float[] vector : hidden) {
+      addCubeInPlace(vector, b1);
+    }
+    return hidden;
+  }
+
+  /**
+   * Feed a batch of feature vectors forward through the network. As with
+   * {@link Classifier#computeScores(int[][])}, the output layer is computed one
+   * row at a time for the whole batch.
+   */
+  double[][] computeScores(int[][] features) {
+    final int batchSize = features.length;
+    final float[][] hidden = computeHidden(features);
+    final double[][] scores = new double[batchSize][numLabels];
+    for (int i = 0; i < numLabels; i++) {
+      for (int b = 0; b < batchSize; b++) {
+        scores[b][i] = outputScore(i, hidden[b]);
+      }
+    }
+    return scores;
+  }
+
+  double[] computeScores(int[] feature) {
+    return computeScores(new int[][] { feature })[0];
+  }
+
+  static int flatSize(int rows, int columns) {
+    long size = (long) rows * columns;
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Matrix of " + rows + " x " + columns + " is too large to compact");
+    }
+    return (int) size;
+  }
+
+  static void addCubeInPlace(float[] vector, float[] bias) {
+    for (int i = 0; i < vector.length; i++) {
+      float x = vector[i] + bias[i];
+      vector[i] = x * x * x;
+    }
+  }
+
+  static float[] toFloats(double[] vector) {
+    float[] result = new float[vector.length];
+    for (int i = 0; i < vector.length; i++) {
+      result[i] = (float) vector[i];
+    }
+    return result;
+  }
+
+
+  /** Weights in floats. */
+  private static class FloatNetwork extends CompactNetwork {
+
+    private final float[] E, W1, W2, saved;
+
+    private FloatNetwork(Config config, double[][] E, double[][] W1, double[] b1, double[][] W2,
+                         double[][] saved, Map<Integer, Integer> preMap) {
+      super(config, W2.length, preMap, b1);
+      this.E = flatten(E, embeddingSize);
+      this.W1 = flatten(W1, inputSize);
+      this.W2 = flatten(W2, hiddenSize);
+      this.saved = saved == null ? new float[0] : flatten(saved, hiddenSize);
+    }
+
+    private static float[] flatten(double[][] matrix, int columns) {
+      float[] flat = new float[flatSize(matrix.length, columns)];
+      for (int i = 0; i < matrix.length; i++) {
+        for (int j = 0; j < columns; j++) {
+          flat[i * columns + j] = (float) matrix[i][j];
+        }
+      }
+      return flat;
+    }
+
+    @Override
+    WeightPrecision precision() {
+      return WeightPrecision.FLOAT;
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 4L * (E.length + W1.length + b1.length + W2.length + saved.length);
+    }
+
+    @Override
+    void addSaved(float[] hidden, int id) {
+      final int row = id * hiddenSize;
+      for (int i = 0; i < hiddenSize; i++) {
+        hidden[i] += saved[row + i];
+      }
+    }
+
+    @Override
+    void addEmbeddingProducts(float[][] sums, int[] tokens, int n, int offset) {
+      for (int i = 0; i < hiddenSize; i++) {
+        final int row = i * inputSize + offset;
+        for (int b = 0; b < n; b++) {
+          final int embedding = tokens[b] * embeddingSize;
+          float sum = 0;
+          for (int k = 0; k < embeddingSize; k++) {
+            sum += W1[row + k] * E[embedding + k];
+          }
+          sums[b][i] += sum;
+        }
+      }
+    }
+
+    @Override
+    double outputScore(int i, float[] hidden) {
+      final int row = i * hiddenSize;
+      float sum = 0;
+      for (int j = 0; j < hiddenSize; j++) {
+        sum += W2[row + j] * hidden[j];
+      }
+      return sum;
+    }
+  }
+
+
+  /** Weights in bytes, with a float scale per row. */
+  private static class Int8Network extends CompactNetwork {
+
+    private final byte[] E, W1, W2, saved;
+    private final float[] scaleE, scaleW1, scaleW2, scaleSaved;
+
+    private Int8Network(Config config, double[][] E, double[][] W1, double[] b1, double[][] W2,
+                        double[][] saved, Map<Integer, Integer> preMap) {
+      super(config, W2.length, preMap, b1);
+      this.scaleE = new float[E.length];
+      this.E = quantize(E, embeddingSize, scaleE);
+      this.scaleW1 = new float[W1.length];
+      this.W1 = quantize(W1, inputSize, scaleW1);
+      this.scaleW2 = new float[W2.length];
+      this.W2 = quantize(W2, hiddenSize, scaleW2);
+      if (saved == null) {
+        saved = new double[0][];
+      }
+      this.scaleSaved = new float[saved.length];
+      this.saved = quantize(saved, hiddenSize, scaleSaved);
+    }
+
+    /** Quantize each row of the matrix to bytes, and store the scale which maps them back in scales. */
+    static byte[] quantize(double[][] matrix, int columns, float[] scales) {
+      byte[] flat = new byte[flatSize(matrix.length, columns)];
+      for (int i = 0; i < matrix.length; i++) {
+        double max = 0;
+        for (int j = 0; j < columns; j++) {
+          max = Math.max(max, Math.abs(matrix[i][j]));
+        }
+        if (max == 0) {
+          continue;
+        }
+        double scale = max / 127;
+        scales[i] = (float) scale;
+        for (int j = 0; j < columns; j++) {
+          flat[i * columns + j] = (byte) Math.round(matrix[i][j] / scale);
+        }
+      }
+      return flat;
+    }
+
+    @Override
+    WeightPrecision precision() {
+      return WeightPrecision.INT8;
+    }
+
+    @Override
+    long sizeInBytes() {
+      return E.length + W1.length + W2.length + saved.length +
+          4L * (scaleE.length + scaleW1.length + scaleW2.length + scaleSaved.length + b1.length);
+    }
+
+    @Override
+    void addSaved(float[] hidden, int id) {
+      final int row = id * hiddenSize;
+      final float scale = scaleSaved[id];
+      for (int i = 0; i < hiddenSize; i++) {
+        hidden[i] += scale * saved[row + i];
+      }
+    }
+
+    @Override
+    void addEmbeddingProducts(float[][] sums, int[] tokens, int n, int offset) {
+      for (int i = 0; i < hiddenSize; i++) {
+        final int row = i * inputSize + offset;
+        for (int b = 0; b < n; b++) {
+          final int embedding = tokens[b] * embeddingSize;
+          int sum = 0;
+          for (int k = 0; k < embeddingSize; k++) {
+            sum += W1[row + k] * E[embedding + k];
+          }
+          sums[b][i] += sum * scaleW1[i] * scaleE[tokens[b]];
+        }
+      }
+    }
+
+    @Override
+    double outputScore(int i, float[] hidden) {
+      final int row = i * hiddenSize;
+      float sum = 0;
+      for (int j = 0; j < hiddenSize; j++) {
+        sum += W2[row + j] * hidden[j];
+      }
+      return sum * scaleW2[i];
+    }
+  }
+
+}
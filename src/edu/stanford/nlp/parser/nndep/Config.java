@@ -208,6 +208,14 @@ public class Config {
    */
   public String tagger = MaxentTagger.DEFAULT_JAR_PATH;
 
+  /**
+   * The precision to keep the weights of a loaded model in for parsing:
+   * double, float, or int8 (bytes with one scale per matrix row).
+   * Reduced precisions take up less memory, at a small cost in accuracy;
+   * see {@link DependencyParser#testWeightPrecision(String, WeightPrecision)}.
+   */
+  public WeightPrecision weightPrecision = WeightPrecision.DOUBLE;
+
   public Config(Properties properties) {
     setProperties(properties);
   }
@@ -236,6 +244,9 @@ public class Config {
     // Runtime parsing options
     sentenceDelimiter = PropertiesUtils.getString(props, "sentenceDelimiter", sentenceDelimiter);
     tagger = PropertiesUtils.getString(props, "tagger.model", tagger);
+    weightPrecision = props.containsKey("weightPrecision")
+                      ? WeightPrecision.fromString(props.getProperty("weightPrecision"))
+                      : weightPrecision;
 
     String escaperClass = props.getProperty("escaper");
     escaper = escaperClass != null ? ReflectionLoading.loadByReflection(escaperClass) : null;
@@ -294,6 +305,7 @@ public class Config {
     System.err.printf("cPOS = %b%n", cPOS);
     System.err.printf("noPunc = %b%n", noPunc);
     System.err.printf("doWordEmbeddingGradUpdate = %b%n", doWordEmbeddingGradUpdate);
+    System.err.printf("weightPrecision = %s%n", weightPrecision);
   }
 
 }
@@ -77,6 +77,16 @@ public class DependencyParser  {
   private static final Redwood.RedwoodChannels log = Redwood.channels(DependencyParser.class);
   public static final String DEFAULT_MODEL = "edu/stanford/nlp/models/parser/nndep/english_UD.gz";
 
+  /**
+   * The properties which change the parser returned by {@link #loadFromModelFile(String, Properties)}:
+   * the language and its {@link edu.stanford.nlp.trees.TreebankLanguagePack}, how many activations
+   * are precomputed, and the precision the weights are kept in.
+   * The other properties of {@link Config} only matter for training, evaluation, or parsing text files,
+   * so parsers loaded with the same model file and the same values of these can be shared.
+   */
+  public static final List<String> LOADING_OPTIONS =
+      Collections.unmodifiableList(Arrays.asList("language", "tlp", "numPreComputed", "weightPrecision"));
+
   /**
    * Words, parts of speech, and dependency relation labels which were
    * observed in our corpus / stored in the model
@@ -935,30 +945,71 @@ public class DependencyParser  {
    * for general parsing purposes.
    */
   private DependencyTree predictInner(CoreMap sentence) {
-    int numTrans = system.numTransitions();
-
     Configuration c = system.initialConfiguration(sentence);
     while (!system.isTerminal(c)) {
       if (Thread.interrupted()) {  // Allow interrupting
         throw new RuntimeInterruptedException();
       }
       double[] scores = classifier.computeScores(getFeatureArray(c));
+      system.apply(c, bestTransition(c, scores));
+    }
+    return c.tree;
+  }
 
-      double optScore = Double.NEGATIVE_INFINITY;
-      String optTrans = null;
+  /**
+   * Determine the dependency parses of several sentences at once. The configurations of all the
+   * sentences advance in lockstep, so that each step scores all the unfinished sentences as one
+   * batch (see {@link Classifier#computeScores(int[][])}). The parses are the same as those
+   * {@link #predictInner(CoreMap)} finds.
+   */
+  private List<DependencyTree> predictInner(List<? extends CoreMap> sentences) {
+    List<Configuration> configurations = new ArrayList<>(sentences.size());
+    List<Configuration> active = new ArrayList<>(sentences.size());
+    for (CoreMap sentence : sentences) {
+      Configuration c = system.initialConfiguration(sentence);
+      configurations.add(c);
+      if ( ! system.isTerminal(c)) {
+        active.add(c);
+      }
+    }
+    while ( ! active.isEmpty()) {
+      if (Thread.interrupted()) {  // Allow interrupting
+        throw new RuntimeInterruptedException();
+      }
+      int[][] features = new int[active.size()][];
+      for (int i = 0; i < features.length; ++i) {
+        features[i] = getFeatureArray(active.get(i));
+      }
+      double[][] scores = classifier.computeScores(features);
+      List<Configuration> stillActive = new ArrayList<>(active.size());
+      for (int i = 0; i < features.length; ++i) {
+        Configuration c = active.get(i);
+        system.apply(c, bestTransition(c, scores[i]));
+        if ( ! system.isTerminal(c)) {
+          stillActive.add(c);
+        }
+      }
+      active = stillActive;
+    }
+    return configurations.stream().map(c -> c.tree).collect(toList());
+  }
 
-      for (int j = 0; j < numTrans; ++j) {
-        if (scores[j] > optScore) {
-          String tr = system.transitions.get(j);
-          if (system.canApply(c, tr)) {
-            optScore = scores[j];
-            optTrans = tr;
-          }
+  /** The highest scoring transition which can be applied to the configuration. */
+  private String bestTransition(Configuration c, double[] scores) {
+    int numTrans = system.numTransitions();
+    double optScore = Double.NEGATIVE_INFINITY;
+    String optTrans = null;
+
+    for (int j = 0; j < numTrans; ++j) {
+      if (scores[j] > optScore) {
+        String tr = system.transitions.get(j);
+        if (system.canApply(c, tr)) {
+          optScore = scores[j];
+          optTrans = tr;
         }
       }
-      system.apply(c, optTrans);
     }
-    return c.tree;
+    return optTrans;
   }
 
   /**
@@ -973,8 +1024,32 @@ public class DependencyParser  {
       throw new IllegalStateException("Parser has not been  " +
           "loaded and initialized; first load a model.");
 
-    DependencyTree result = predictInner(sentence);
+    return toGrammaticalStructure(sentence, predictInner(sentence));
+  }
 
+  /**
+   * Determine the dependency parses of several sentences using the loaded model.
+   * The sentences are parsed together in one batch, which is faster than
+   * parsing them one at a time with {@link #predict(edu.stanford.nlp.util.CoreMap)},
+   * and gives the same parses.
+   *
+   * @throws java.lang.IllegalStateException If parser has not yet been loaded and initialized
+   *         (see {@link #initialize(boolean)}
+   */
+  public List<GrammaticalStructure> predictBatch(List<? extends CoreMap> sentences) {
+    if (system == null)
+      throw new IllegalStateException("Parser has not been  " +
+          "loaded and initialized; first load a model.");
+
+    List<DependencyTree> results = predictInner(sentences);
+    List<GrammaticalStructure> structures = new ArrayList<>(results.size());
+    for (int i = 0; i < results.size(); ++i) {
+      structures.add(toGrammaticalStructure(sentences.get(i), results.get(i)));
+    }
+    return structures;
+  }
+
+  private GrammaticalStructure toGrammaticalStructure(CoreMap sentence, DependencyTree result) {
     // The rest of this method is just busy-work to convert the
     // package-local representation into a CoreNLP-standard
     // GrammaticalStructure.
@@ -1133,6 +1208,50 @@ public class DependencyParser  {
     return las;
   }
 
+  /**
+   * Parse a test file twice, first with the double weights of the loaded model and then
+   * with the weights converted to the given precision, and report the differences in
+   * accuracy and speed. Afterwards the parser keeps the weights in the given precision.
+   *
+   * @param testFile File to parse. In CoNLL-X format. Assumed to have gold answers included.
+   * @param precision The precision to compare against double precision
+   * @return The change in LAS from double precision to the given precision
+   * @throws IllegalStateException If the model was not loaded in double precision
+   */
+  public double testWeightPrecision(String testFile, WeightPrecision precision) {
+    if (classifier.getWeightPrecision() != WeightPrecision.DOUBLE)
+      throw new IllegalStateException("Comparing precisions needs a model loaded in double precision, not " +
+              classifier.getWeightPrecision());
+
+    log.info("Test File: " + testFile);
+    List<CoreMap> testSents = new ArrayList<>();
+    List<DependencyTree> testTrees = new ArrayList<>();
+    Util.loadConllFile(testFile, testSents, testTrees, config.unlabeled, config.cPOS);
+
+    String uasKey = config.noPunc ? "UASnoPunc" : "UAS";
+    String lasKey = config.noPunc ? "LASnoPunc" : "LAS";
+
+    Timing timer = new Timing();
+    List<DependencyTree> predicted = testSents.stream().map(this::predictInner).collect(toList());
+    long doubleMillis = timer.stop();
+    Map<String, Double> doubleResult = system.evaluate(testSents, predicted, testTrees);
+
+    classifier.compact(precision);
+    timer.start();
+    predicted = testSents.stream().map(this::predictInner).collect(toList());
+    long compactMillis = timer.stop();
+    Map<String, Double> compactResult = system.evaluate(testSents, predicted, testTrees);
+
+    for (String key : Arrays.asList(uasKey, lasKey)) {
+      log.info(String.format("%s: %s = %.4f, %s = %.4f, delta = %+.4f%n", key,
+              WeightPrecision.DOUBLE, doubleResult.get(key), precision, compactResult.get(key),
+              compactResult.get(key) - doubleResult.get(key)));
+    }
+    log.info(String.format("Parsing time: %s = %.1fs, %s = %.1fs%n",
+            WeightPrecision.DOUBLE, doubleMillis / 1000.0, precision, compactMillis / 1000.0));
+    return compactResult.get(lasKey) - doubleResult.get(lasKey);
+  }
+
   private void parseTextFile(BufferedReader input, PrintWriter output) {
     DocumentPreprocessor preprocessor = new DocumentPreprocessor(input);
     preprocessor.setSentenceFinalPuncWords(config.tlp.sentenceFinalPunctuationWords());
@@ -1188,6 +1307,8 @@ public class DependencyParser  {
     if (config.numPreComputed > 0) {
       classifier.preCompute();
     }
+
+    classifier.compact(config.weightPrecision);
   }
 
   /**
@@ -1198,6 +1319,7 @@ public class DependencyParser  {
   static {
     numArgs.put("textFile", 1);
     numArgs.put("outFile", 1);
+    numArgs.put("testWeightPrecision", 1);
   }
 
   /**
@@ -1219,6 +1341,10 @@ public class DependencyParser  {
    *     {@code java edu.stanford.nlp.parser.nndep.DependencyParser -model modelOutputFile.txt.gz -textFile rawTextToParse -outFile dependenciesOutputFile.txt}
    *   </li>
    *   <li>
+   *     <strong>Compare the accuracy of int8 weights against double weights on a dev set:</strong>
+   *     {@code java edu.stanford.nlp.parser.nndep.DependencyParser -model modelOutputFile.txt.gz -weightPrecision int8 -testWeightPrecision devPath}
+   *   </li>
+   *   <li>
    *     <strong>Parse raw text from standard input, writing to standard output:</strong>
    *     {@code java edu.stanford.nlp.parser.nndep.DependencyParser -model modelOutputFile.txt.gz -textFile - -outFile -}
    *   </li>
@@ -1235,6 +1361,7 @@ public class DependencyParser  {
    *   <tr><td><tt>-embedFile</tt></td><td>Optional (highly recommended!)</td><td>No</td><td>A word embedding file, containing distributed representations of English words. Each line of the provided file should contain a single word followed by the elements of the corresponding word embedding (space-delimited). It is not absolutely necessary that all words in the treebank be covered by this embedding file, though the parser's performance will generally improve if you are able to provide better embeddings for more words.</td></tr>
    *   <tr><td><tt>-model</tt></td><td>Yes</td><td>Yes</td><td>Path to a model file. If the path ends in <tt>.gz</tt>, the model will be read as a Gzipped model file. During training, we write to this path; at test time we read a pre-trained model from this path.</td></tr>
    *   <tr><td><tt>-textFile</tt></td><td>No</td><td>Yes (or <tt>testFile</tt>)</td><td>Path to a plaintext file containing sentences to be parsed.</td></tr>
+   *   <tr><td><tt>-testWeightPrecision</tt></td><td>No</td><td>No</td><td>Path to a treebank in <a href="http://ilk.uvt.nl/conll/#dataformat">CoNLL-X format</a>, which is parsed with double weights and with weights in the precision given by <tt>-weightPrecision</tt>, to report the difference in accuracy.</td></tr>
    *   <tr><td><tt>-testFile</tt></td><td>No</td><td>Yes (or <tt>textFile</tt>)</td><td>Path to a test-set treebank in <a href="http://ilk.uvt.nl/conll/#dataformat">CoNLL-X format</a> for final evaluation of the parser.</td></tr>
    *   <tr><td><tt>-trainFile</tt></td><td>Yes</td><td>No</td><td>Path to a training treebank in <a href="http://ilk.uvt.nl/conll/#dataformat">CoNLL-X format.</a></td></tr>
    * </table>
@@ -1265,6 +1392,7 @@ public class DependencyParser  {
    *   <tr><td><tt>-escaper</tt></td><td>N/A</td><td>Only applicable for testing with <tt>-textFile</tt>. If provided, use this word-escaper when parsing raw sentences. Should be a fully-qualified class name like <tt>edu.stanford.nlp.trees.international.arabic.ATBEscaper</tt>.</td></tr>
    *   <tr><td><tt>-numPreComputed</tt></td><td>100000</td><td>The parser pre-computes hidden-layer unit activations for particular inputs words at both training and testing time in order to speed up feedforward computation in the neural network. This parameter determines how many words for which we should compute hidden-layer activations.</td></tr>
    *   <tr><td><tt>-sentenceDelimiter</tt></td><td>N/A</td><td>Only applicable for testing with <tt>-textFile</tt>.  If provided, assume that the given <tt>textFile</tt> has already been sentence-split, and that sentences are separated by this delimiter.</td></tr>
+   *   <tr><td><tt>-weightPrecision</tt></td><td><tt>double</tt></td><td>The precision to keep the weights of a loaded model in: <tt>double</tt>, <tt>float</tt>, or <tt>int8</tt> (bytes with one scale per matrix row). Reduced precisions take up less memory, at a small cost in accuracy.</td></tr>
    *   <tr><td><tt>-tagger.model</tt></td><td>edu/stanford/nlp/models/pos-tagger/english-left3words/english-left3words-distsim.tagger</td><td>Only applicable for testing with <tt>-textFile</tt>. Path to a part-of-speech tagger to use to pre-tag the raw sentences before parsing.</td></tr>
    * </table>
    */
@@ -1278,6 +1406,15 @@ public class DependencyParser  {
               props.getProperty("embedFile"), props.getProperty("preModel"));
     }
 
+    // Compare reduced-precision weights against double weights
+    if (props.containsKey("testWeightPrecision")) {
+      WeightPrecision precision = parser.config.weightPrecision;
+      parser.config.weightPrecision = WeightPrecision.DOUBLE;
+      parser.loadModelFile(props.getProperty("model"));
+      parser.testWeightPrecision(props.getProperty("testWeightPrecision"), precision);
+      parser.config.weightPrecision = precision;
+    }
+
     boolean loaded = false;
     // Test with CoNLL-X data
     if (props.containsKey("testFile")) {
@@ -0,0 +1,37 @@
+package edu.stanford.nlp.parser.nndep;
+
+/**
+ * The precision the weights of a loaded {@link Classifier} are kept in for parsing.
+ * Training always uses double precision.
+ *
+ * @see Classifier#compact(WeightPrecision)
+ */
+public enum WeightPrecision {
+
+  /** Keep the weights as they were trained, in doubles. */
+  DOUBLE,
+
+  /** Keep the weights in floats, which halves the memory they take up. */
+  FLOAT,
+
+  /**
+   * Keep the weights in bytes, with one float scale per row of each matrix,
+   * which takes up about an eighth of the memory of doubles.
+   */
+  INT8;
+
+  /**
+   * Get the precision with the given name, ignoring case.
+   *
+   * @throws IllegalArgumentException If no precision has that name
+   */
+  public static WeightPrecision fromString(String name) {
+    for (WeightPrecision precision : values()) {
+      if (precision.name().equalsIgnoreCase(name)) {
+        return precision;
+      }
+    }
+    throw new IllegalArgumentException("Unknown weight precision " + name + "; expected one of double, float, int8");
+  }
+
+}
@@ -0,0 +1,350 @@
+package edu.stanford.nlp.pipeline;
+
+import edu.stanford.nlp.util.logging.Redwood;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gathers concurrently submitted documents that share a pipeline into micro-batches,
+ * and runs each batch through {@link AnnotationPipeline#annotateBatch(List)} on one thread of the executor.
+ * Each annotator then sees the whole batch at once, so that annotators which can share work between documents
+ * do so: e.g., the dependency parser (with {@code depparse.sentenceBatchSize}) parses the sentences of
+ * several documents together, and sentence annotators with several threads spread all the batch's sentences
+ * over the shared worker pool.
+ * A batch is dispatched as soon as it holds {@code maxBatchSize} documents, or once its
+ * first document has waited {@code maxWaitMillis} milliseconds, whichever comes first.
+ * Larger batches and longer waits trade per-request latency for throughput;
+ * {@link #latencyPercentile(double)} and {@link #throughput()} show where on that curve a setting puts the server.
+ *
+ * <p>
+ * This is used by {@link StanfordCoreNLPServer} when the {@code -batch_size} option is greater than 1.
+ * </p>
+ */
+public class AnnotationBatcher {
+
+  /** A logger for this class */
+  private static final Redwood.RedwoodChannels log = Redwood.channels(AnnotationBatcher.class);
+
+  /** How many batches go by between logging the batcher's statistics. */
+  private static final int STATISTICS_INTERVAL = 1000;
+
+  /** How many of the most recent latencies to keep for {@link #latencyPercentile(double)}. */
+  private static final int LATENCY_WINDOW = 8192;
+
+  /** A document waiting to be annotated, along with the future to complete once it has been. */
+  private static class Request {
+    public final Annotation document;
+    public final CompletableFuture<Annotation> future = new CompletableFuture<>();
+    public final long submitNanos = System.nanoTime();
+
+    private Request(Annotation document) {
+      this.document = document;
+    }
+  }
+
+  /** The documents gathered so far for a single pipeline. */
+  private static class Batch {
+    public final AnnotationPipeline pipeline;
+    public final List<Request> requests = new ArrayList<>();
+
+    /** The thread annotating the batch, or null if it is not being annotated. */
+    private Thread runner;  // = null
+    /** The requests that thread is annotating: all of them, or the one being retried on its own. */
+    private List<Request> running;  // = null
+
+    private Batch(AnnotationPipeline pipeline) {
+      this.pipeline = pipeline;
+    }
+
+    /** Note that the current thread starts annotating the given requests. */
+    private synchronized void start(List<Request> requests) {
+      runner = Thread.currentThread();
+      running = requests;
+    }
+
+    /** Note that the current thread is done annotating, and clear any interrupt meant for it. */
+    private synchronized void stop() {
+      runner = null;
+      running = null;
+      Thread.interrupted();
+    }
+
+    /** Interrupt the thread annotating the batch if nobody is waiting for what it is annotating anymore. */
+    private synchronized void cancelled() {
+      if (runner != null && running.stream().allMatch(request -> request.future.isDone())) {
+        runner.interrupt();
+      }
+    }
+  }
+
+  /** The largest number of documents to put into a single batch. */
+  public final int maxBatchSize;
+
+  /** The longest time, in milliseconds, that a document waits for its batch to fill up. */
+  public final long maxWaitMillis;
+
+  /** The executor batches are run on. */
+  private final ExecutorService executor;
+
+  /** The timer used to flush batches that did not fill up in time. */
+  private final ScheduledExecutorService timer;
+
+  /**
+   * The open batches, one per pipeline.
+   * Pipelines are compared by identity, since a batch can only ever run through a single pipeline.
+   */
+  private final Map<AnnotationPipeline, Batch> pending = new IdentityHashMap<>();
+
+  /** The number of batches dispatched so far. */
+  private final AtomicLong batchCount = new AtomicLong(0);
+
+  /** The number of documents dispatched so far. */
+  private final AtomicLong documentCount = new AtomicLong(0);
+
+  /** The number of documents annotated so far, whether or not their annotation succeeded. */
+  private final AtomicLong completedCount = new AtomicLong(0);
+
+  /** When the first document was submitted, or 0 if none has been yet. */
+  private final AtomicLong firstSubmitNanos = new AtomicLong(0);
+
+  /** The latencies, in nanoseconds, of the most recent documents, from submission to completion; a ring buffer. */
+  private final long[] recentLatencies = new long[LATENCY_WINDOW];
+
+
+  /**
+   * Create a new batcher.
+   *
+   * @param executor The executor to run batches on. This is usually the server's CoreNLP executor.
+   * @param maxBatchSize The largest number of documents to annotate in one batch.
+   * @param maxWaitMillis The longest time, in milliseconds, a document should wait for its batch to fill.
+   */
+  public AnnotationBatcher(ExecutorService executor, int maxBatchSize, long maxWaitMillis) {
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be positive: " + maxBatchSize);
+    }
+    this.executor = executor;
+    this.maxBatchSize = maxBatchSize;
+    this.maxWaitMillis = Math.max(0, maxWaitMillis);
+    this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "AnnotationBatcher-timer");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+
+  /**
+   * Queue a document for annotation with the given pipeline.
+   *
+   * @param pipeline The pipeline to annotate the document with.
+   * @param document The document to annotate. It is annotated in place.
+   *
+   * @return A future which completes with the annotated document.
+   *         Cancelling the future before its batch starts means the document is never annotated.
+   *         Once the batch is running, its thread is interrupted when the futures of all the documents
+   *         it is annotating have been cancelled.
+   */
+  public Future<Annotation> submit(AnnotationPipeline pipeline, Annotation document) {
+    Request request = new Request(document);
+    firstSubmitNanos.compareAndSet(0, request.submitNanos);
+    Batch batch;
+    Batch full = null;
+    Batch created = null;
+    synchronized (pending) {
+      batch = pending.get(pipeline);
+      if (batch == null) {
+        batch = new Batch(pipeline);
+        pending.put(pipeline, batch);
+        created = batch;
+      }
+      batch.requests.add(request);
+      if (batch.requests.size() >= maxBatchSize) {
+        pending.remove(pipeline);
+        full = batch;
+      }
+    }
+    if (full != null) {
+      dispatch(full);
+    } else if (created != null) {
+      final Batch toFlush = created;
+      timer.schedule(() -> flush(toFlush), maxWaitMillis, TimeUnit.MILLISECONDS);
+    }
+    final Batch owner = batch;
+    request.future.whenComplete((annotated, failure) -> {
+      if (request.future.isCancelled()) {
+        owner.cancelled();
+      }
+    });
+    return request.future;
+  }
+
+
+  /**
+   * Dispatch a batch which has waited long enough, if it has not already been dispatched.
+   */
+  private void flush(Batch batch) {
+    synchronized (pending) {
+      if (pending.get(batch.pipeline) != batch) {
+        return;  // already dispatched because it filled up
+      }
+      pending.remove(batch.pipeline);
+    }
+    dispatch(batch);
+  }
+
+
+  /**
+   * Run a batch on the executor, completing the future of each of its documents.
+   * If the batch as a whole fails, each of its documents is annotated again on its own,
+   * starting from a copy of the document as it was submitted, so that a single bad document
+   * does not fail its neighbors. Documents whose futures are done (i.e., cancelled) by then are skipped.
+   */
+  private void dispatch(Batch batch) {
+    long batches = batchCount.incrementAndGet();
+    documentCount.addAndGet(batch.requests.size());
+    try {
+      executor.submit(() -> {
+        List<Request> requests = new ArrayList<>();
+        List<Annotation> documents = new ArrayList<>();
+        List<Annotation> unannotated = new ArrayList<>();
+        for (Request request : batch.requests) {
+          if ( ! request.future.isDone()) {  // skip cancelled requests
+            requests.add(request);
+            documents.add(request.document);
+            // a shallow copy is enough: the annotators add keys to a document rather than change its text
+            unannotated.add(request.document.copy());
+          }
+        }
+        if (requests.isEmpty()) {
+          return;
+        }
+        boolean batchFailed = false;
+        batch.start(requests);
+        try {
+          batch.cancelled();  // in case they were all cancelled since they were checked above
+          batch.pipeline.annotateBatch(documents);
+        } catch (Throwable t) {
+          log.warn("Batch of " + documents.size() + " documents failed; retrying one at a time: " + t);
+          batchFailed = true;
+        } finally {
+          batch.stop();
+        }
+        for (int i = 0; i < requests.size(); i++) {
+          Request request = requests.get(i);
+          if ( ! batchFailed) {
+            complete(request, documents.get(i), null);
+          } else if ( ! request.future.isDone()) {  // skip cancelled requests
+            Annotation document = unannotated.get(i);
+            batch.start(Collections.singletonList(request));
+            try {
+              batch.cancelled();
+              batch.pipeline.annotate(document);
+              complete(request, document, null);
+            } catch (Throwable t) {
+              complete(request, null, t);
+            } finally {
+              batch.stop();
+            }
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      for (Request request : batch.requests) {
+        complete(request, null, e);
+      }
+    }
+    if (batches % STATISTICS_INTERVAL == 0) {
+      log.info(statistics());
+    }
+  }
+
+
+  /** Complete a request, either with its annotated document or with its failure, and record its latency. */
+  private void complete(Request request, Annotation document, Throwable failure) {
+    long latency = System.nanoTime() - request.submitNanos;
+    long completed = completedCount.incrementAndGet();
+    synchronized (recentLatencies) {
+      recentLatencies[(int) ((completed - 1) % LATENCY_WINDOW)] = latency;
+    }
+    if (failure == null) {
+      request.future.complete(document);
+    } else {
+      request.future.completeExceptionally(failure);
+    }
+  }
+
+
+  /**
+   * The given percentile (e.g., 99 for the p99) of the latency of recent documents, in milliseconds,
+   * from when the document was submitted to when its annotation was done.
+   * Only the most recent few thousand documents count. This is 0 if no document is done yet.
+   */
+  public double latencyPercentile(double percentile) {
+    long[] latencies;
+    synchronized (recentLatencies) {
+      int n = (int) Math.min(completedCount.get(), LATENCY_WINDOW);
+      latencies = Arrays.copyOf(recentLatencies, n);
+    }
+    if (latencies.length == 0) {
+      return 0.0;
+    }
+    Arrays.sort(latencies);
+    int rank = (int) Math.ceil(percentile / 100.0 * latencies.length) - 1;
+    rank = Math.max(0, Math.min(latencies.length - 1, rank));
+    return latencies[rank] / 1e6;
+  }
+
+
+  /**
+   * The number of documents annotated per second, since the first document was submitted.
+   */
+  public double throughput() {
+    long start = firstSubmitNanos.get();
+    if (start == 0) {
+      return 0.0;
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    return seconds <= 0.0 ? 0.0 : completedCount.get() / seconds;
+  }
+
+
+  /**
+   * A one line summary of how the batcher is doing: batch sizes, latencies, and throughput.
+   */
+  public String statistics() {
+    return String.format("Batches: %d (average size %.1f, max %d, max wait %d ms); documents done: %d; " +
+                         "latency p50 %.1f ms, p99 %.1f ms; throughput %.1f documents/sec",
+                         batchCount.get(), averageBatchSize(), maxBatchSize, maxWaitMillis, completedCount.get(),
+                         latencyPercentile(50), latencyPercentile(99), throughput());
+  }
+
+
+  /**
+   * The average number of documents in a dispatched batch.
+   */
+  public double averageBatchSize() {
+    long batches = batchCount.get();
+    return batches == 0 ? 0.0 : ((double) documentCount.get()) / ((double) batches);
+  }
+
+
+  /**
+   * Stop the timer thread. Batches which are still waiting are dispatched immediately.
+   * The batcher's statistics are logged.
+   */
+  public void shutdown() {
+    List<Batch> remaining;
+    synchronized (pending) {
+      remaining = new ArrayList<>(pending.values());
+      pending.clear();
+    }
+    remaining.forEach(this::dispatch);
+    timer.shutdownNow();
+    if (batchCount.get() > 0) {
+      log.info(statistics());
+    }
+  }
+
+}
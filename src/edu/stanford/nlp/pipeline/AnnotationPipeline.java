@@ -82,6 +82,123 @@ public class AnnotationPipeline implements Annotator {
     }
   }
 
+  /**
+   * Run the pipeline on several input annotations at once.
+   * Each annotator is run on all of the documents before the next annotator starts, through
+   * {@link Annotator#annotateBatch(List)}, so that annotators which can share work between documents
+   * (e.g., the batched dependency parser, or sentence annotators with several threads) see all of their sentences.
+   * The annotations are modified in place.
+   *
+   * @param documents The input annotations, usually raw documents
+   */
+  @Override
+  public void annotateBatch(List<Annotation> documents) {
+    Timing t = new Timing();
+    for (int i = 0; i < annotators.size(); ++i) {
+      if (Thread.interrupted()) {  // Allow interrupting
+        throw new RuntimeInterruptedException();
+      }
+      if (TIME) {
+        t.start();
+      }
+      annotators.get(i).annotateBatch(documents);
+      if (TIME) {
+        accumulatedTime.get(i).incValue(t.stop());
+      }
+    }
+  }
+
+  /**
+   * Run the pipeline on an input annotation, handing each sentence to a callback as soon as
+   * the sentence-level annotators have finished with it.
+   * The pipeline is split into three stages:
+   * the document-level annotators up to the last run of sentence-level annotators
+   * (see {@link SentenceAnnotator#isSentenceLocal()}) are run over the whole document;
+   * that run of sentence-level annotators is then run one sentence at a time, calling the
+   * callback after each sentence; finally, the remaining document-level annotators
+   * (e.g., coref or quotes) are run over the whole document.
+   * Note that in the streaming stage sentences are annotated on the calling thread,
+   * so the annotators' own thread counts and timeouts do not apply.
+   *
+   * @param annotation The input annotation, usually a raw document. The annotation is modified in place.
+   * @param sentenceCallback A function to be called on each sentence, in order, once it has been annotated.
+   *
+   * @return True if document-level annotators ran after the sentences were handed to the callback.
+   *         In that case, they may have added more sentence-level information.
+   */
+  public boolean annotateStreaming(Annotation annotation, Consumer<CoreMap> sentenceCallback) {
+    int last = -1;
+    for (int i = 0; i < annotators.size(); ++i) {
+      if (isSentenceLocal(annotators.get(i))) {
+        last = i;
+      }
+    }
+    if (last < 0) {
+      // case: nothing to stream
+      annotate(annotation);
+      List<CoreMap> sentences = annotation.get(CoreAnnotations.SentencesAnnotation.class);
+      if (sentences != null) {
+        sentences.forEach(sentenceCallback);
+      }
+      return false;
+    }
+    int first = last;
+    while (first > 0 && isSentenceLocal(annotators.get(first - 1))) {
+      first -= 1;
+    }
+
+    // Stage 1: document-level annotators
+    Timing t = new Timing();
+    for (int i = 0; i < first; ++i) {
+      annotateWith(i, annotation, t);
+    }
+
+    // Stage 2: sentence-level annotators, one sentence at a time
+    List<CoreMap> sentences = annotation.get(CoreAnnotations.SentencesAnnotation.class);
+    if (sentences == null) {
+      throw new IllegalArgumentException("unable to find sentences in: " + annotation);
+    }
+    for (CoreMap sentence : sentences) {
+      for (int i = first; i <= last; ++i) {
+        if (Thread.interrupted()) {  // Allow interrupting
+          throw new RuntimeInterruptedException();
+        }
+        if (TIME) {
+          t.start();
+        }
+        ((SentenceAnnotator) annotators.get(i)).doOneSentence(annotation, sentence);
+        if (TIME) {
+          accumulatedTime.get(i).incValue(t.stop());
+        }
+      }
+      sentenceCallback.accept(sentence);
+    }
+
+    // Stage 3: the remaining document-level annotators
+    for (int i = last + 1; i < annotators.size(); ++i) {
+      annotateWith(i, annotation, t);
+    }
+    return last + 1 < annotators.size();
+  }
+
+  /** Run the i'th annotator over the whole document, keeping track of its running time. */
+  private void annotateWith(int i, Annotation annotation, Timing t) {
+    if (Thread.interrupted()) {  // Allow interrupting
+      throw new RuntimeInterruptedException();
+    }
+    if (TIME) {
+      t.start();
+    }
+    annotators.get(i).annotate(annotation);
+    if (TIME) {
+      accumulatedTime.get(i).incValue(t.stop());
+    }
+  }
+
+  private static boolean isSentenceLocal(Annotator annotator) {
+    return annotator instanceof SentenceAnnotator && ((SentenceAnnotator) annotator).isSentenceLocal();
+  }
+
   /**
    * Annotate a collection of input annotations IN PARALLEL, making use of
    * all available cores.
@@ -130,6 +247,7 @@ public class AnnotationPipeline implements Annotator {
         annotate(ann);
         callback.accept(ann);
       }
+      return;
     }
     // Java's equivalent to ".map{ lambda(annotation) => annotate(annotation) }
     Iterable<Runnable> threads = () -> {
@@ -167,6 +285,33 @@ public class AnnotationPipeline implements Annotator {
     Redwood.Util.threadAndRun(this.getClass().getSimpleName(), threads, numThreads );
   }
 
+  /**
+   * Make a staged version of this pipeline, where each annotator is a stage with its own threads
+   * and queue of documents; see {@link StagedAnnotationPipeline}.
+   * The annotators are shared with this pipeline, but their timing is not added to this pipeline's.
+   *
+   * @param threadsPerAnnotator The number of threads of each annotator, in order.
+   *                            Annotators past the end of this array get one thread.
+   */
+  public StagedAnnotationPipeline staged(int... threadsPerAnnotator) {
+    List<StagedAnnotationPipeline.Stage> stages = new ArrayList<>();
+    for (int i = 0; i < annotators.size(); i++) {
+      int numThreads = i < threadsPerAnnotator.length ? threadsPerAnnotator[i] : 1;
+      stages.add(new StagedAnnotationPipeline.Stage(annotators.get(i), numThreads));
+    }
+    return new StagedAnnotationPipeline(stages);
+  }
+
+  /**
+   * Make an incremental version of this pipeline, which updates documents annotated by this pipeline after
+   * edits to their text, running the annotators again only where the edit requires it;
+   * see {@link IncrementalAnnotationPipeline}.
+   * The annotators are shared with this pipeline, but their timing is not added to this pipeline's.
+   */
+  public IncrementalAnnotationPipeline incremental() {
+    return new IncrementalAnnotationPipeline(annotators);
+  }
+
   /** Return the total pipeline annotation time in milliseconds.
    *
    *  @return The total pipeline annotation time in milliseconds
@@ -58,6 +58,17 @@ public interface Annotator {
    */
   void annotate(Annotation annotation);
 
+  /**
+   * Annotate several documents at once, in place.
+   * Annotators which can share work between documents (e.g., by running the sentences of all of them
+   * through a model together) override this; by default, the documents are annotated one at a time.
+   */
+  default void annotateBatch(List<Annotation> documents) {
+    for (Annotation document : documents) {
+      annotate(document);
+    }
+  }
+
   /**
    * A block of code called when this annotator unmounts from the
    * {@link AnnotatorPool}.
@@ -0,0 +1,613 @@
+package edu.stanford.nlp.pipeline;
+
+import com.google.protobuf.CodedInputStream;
+
+import edu.stanford.nlp.io.RuntimeIOException;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations;
+import edu.stanford.nlp.stats.ClassicCounter;
+import edu.stanford.nlp.stats.Counter;
+import edu.stanford.nlp.trees.GrammaticalRelation;
+import edu.stanford.nlp.util.ArrayCoreMap;
+import edu.stanford.nlp.util.CoreMap;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * <p>
+ *   Reads the columnar annotation files written by {@link ColumnarAnnotationWriter}.
+ *   Such a file holds the tokens, lemmas, part of speech and NER tags, character offsets, basic dependencies,
+ *   sentence boundaries and entity mentions of a corpus, one {@link Column} at a time, in row groups of
+ *   some tens of thousands of tokens.
+ * </p>
+ *
+ * <p>
+ *   Only the columns which are asked for are read from disk and decompressed, so statistics over a corpus
+ *   (e.g., {@link #countValues(Column)}, or the entity mentions of some type with a given lemma) never
+ *   touch the rest of the data. The documents themselves can be rebuilt as {@link CoreDocument}s with
+ *   {@link #documents()} or {@link RowGroup#document(int)}, in which case each document is only built
+ *   when it is reached.
+ * </p>
+ *
+ * <p>
+ *   This class is not threadsafe; use one reader per thread.
+ * </p>
+ */
+public class ColumnarAnnotationReader implements Closeable, Iterable<ColumnarAnnotationReader.RowGroup> {
+
+  /** The granularity at which a column has one value. */
+  public enum Level { DOCUMENT, SENTENCE, TOKEN, MENTION }
+
+  /**
+   * The columns of a columnar annotation file.
+   * String columns are dictionary encoded in each row group, and a missing value is read back as null.
+   * The values of the int columns are documented on each column.
+   */
+  public enum Column {
+    /** The document id. */
+    DOC_ID(Level.DOCUMENT, true),
+    /** The text of the document. */
+    DOC_TEXT(Level.DOCUMENT, true),
+    /** The number of sentences in the document. */
+    DOC_SENTENCES(Level.DOCUMENT, false),
+    /** The number of tokens in the sentence. */
+    SENTENCE_TOKENS(Level.SENTENCE, false),
+    /** The number of entity mentions in the sentence. */
+    SENTENCE_MENTIONS(Level.SENTENCE, false),
+    WORD(Level.TOKEN, true),
+    LEMMA(Level.TOKEN, true),
+    POS(Level.TOKEN, true),
+    NER(Level.TOKEN, true),
+    /** The character offset at which the token begins, in its document. */
+    BEGIN(Level.TOKEN, false, true),
+    /** The character offset at which the token ends, in its document. */
+    END(Level.TOKEN, false, true),
+    /** The index (counting from 1) in its sentence of the governor of the token in the basic dependencies, 0 for a root, and -1 for none. */
+    HEAD(Level.TOKEN, false),
+    /** The relation of the token to its governor in the basic dependencies. */
+    DEPREL(Level.TOKEN, true),
+    /** The index of the first token of the entity mention, in its row group. */
+    MENTION_BEGIN(Level.MENTION, false, true),
+    /** The index of the token after the last token of the entity mention, in its row group. */
+    MENTION_END(Level.MENTION, false, true),
+    /** The entity type of the entity mention. */
+    MENTION_TYPE(Level.MENTION, true);
+
+    public final Level level;
+    public final boolean isString;
+    /** If true, each value is stored as its difference from the previous row, as offsets mostly grow slowly. */
+    public final boolean isDelta;
+
+    Column(Level level, boolean isString) {
+      this(level, isString, false);
+    }
+
+    Column(Level level, boolean isString, boolean isDelta) {
+      this.level = level;
+      this.isString = isString;
+      this.isDelta = isDelta;
+    }
+  }
+
+  /** The magic bytes at the start and end of a columnar annotation file. */
+  static final byte[] MAGIC = {'C', 'N', 'L', 'P', 'C', 'O', 'L', '1'};
+
+
+  /**
+   * A dictionary encoded column of strings: the value of row i is {@code dictionary()[ids()[i]]}.
+   * Counting or filtering on the ids avoids looking at the strings at all.
+   */
+  public static class StringColumn {
+
+    private final String[] dictionary;
+    private final int[] ids;
+
+    StringColumn(String[] dictionary, int[] ids) {
+      this.dictionary = dictionary;
+      this.ids = ids;
+    }
+
+    /** The distinct values of this column in the row group. The value with id 0 is always null. */
+    public String[] dictionary() {
+      return dictionary;
+    }
+
+    /** The id in the dictionary of the value of each row. */
+    public int[] ids() {
+      return ids;
+    }
+
+    /** The id of the given value, or -1 if it does not appear in this column. */
+    public int idOf(String value) {
+      for (int id = 1; id < dictionary.length; id++) {
+        if (dictionary[id].equals(value)) {
+          return id;
+        }
+      }
+      return value == null ? 0 : -1;
+    }
+
+    public String get(int row) {
+      return dictionary[ids[row]];
+    }
+
+    public int size() {
+      return ids.length;
+    }
+  }
+
+
+  /** The size of a row group, and the location of each of its columns. */
+  private static class Header {
+    final int numDocuments;
+    final int numSentences;
+    final int numTokens;
+    final int numMentions;
+    final Chunk[] chunks;
+
+    Header(int numDocuments, int numSentences, int numTokens, int numMentions, Chunk[] chunks) {
+      this.numDocuments = numDocuments;
+      this.numSentences = numSentences;
+      this.numTokens = numTokens;
+      this.numMentions = numMentions;
+      this.chunks = chunks;
+    }
+  }
+
+  /** The location of a column in a row group. */
+  private static class Chunk {
+    final long offset;
+    final int compressedLength;
+    final int length;
+
+    Chunk(long offset, int compressedLength, int length) {
+      this.offset = offset;
+      this.compressedLength = compressedLength;
+      this.length = length;
+    }
+  }
+
+
+  /**
+   * A group of consecutive documents in the file.
+   * The columns of the row group are read from disk when they are first asked for, and then kept
+   * for as long as the row group is.
+   */
+  public class RowGroup {
+
+    private final Header header;
+    private final Object[] columns = new Object[Column.values().length];
+
+    /** The first sentence, token and mention of each document, and one past the end. */
+    private int[] documentSentences;
+    private int[] sentenceTokens;
+    private int[] sentenceMentions;
+
+    private RowGroup(Header header) {
+      this.header = header;
+    }
+
+    public int numDocuments() { return header.numDocuments; }
+
+    public int numSentences() { return header.numSentences; }
+
+    public int numTokens() { return header.numTokens; }
+
+    public int numMentions() { return header.numMentions; }
+
+    /** The number of rows of a column at the given level. */
+    public int size(Level level) {
+      switch (level) {
+        case DOCUMENT: return header.numDocuments;
+        case SENTENCE: return header.numSentences;
+        case TOKEN: return header.numTokens;
+        case MENTION: return header.numMentions;
+        default: throw new IllegalArgumentException("Unknown level " + level);
+      }
+    }
+
+    /** The values of a string column in this row group. */
+    public StringColumn strings(Column column) {
+      if ( ! column.isString) {
+        throw new IllegalArgumentException("Not a string column: " + column);
+      }
+      return (StringColumn) column(column);
+    }
+
+    /** The values of an int column in this row group. */
+    public int[] ints(Column column) {
+      if (column.isString) {
+        throw new IllegalArgumentException("Not an int column: " + column);
+      }
+      return (int[]) column(column);
+    }
+
+    private Object column(Column column) {
+      Object values = columns[column.ordinal()];
+      if (values == null) {
+        try {
+          values = decode(column, size(column.level), readChunk(header.chunks[column.ordinal()]));
+        } catch (IOException e) {
+          throw new RuntimeIOException(e);
+        }
+        columns[column.ordinal()] = values;
+      }
+      return values;
+    }
+
+    /** Turns counts into the start of each run, with one more entry for the end of the last run. */
+    private int[] starts(int[] counts) {
+      int[] starts = new int[counts.length + 1];
+      for (int i = 0; i < counts.length; i++) {
+        starts[i + 1] = starts[i] + counts[i];
+      }
+      return starts;
+    }
+
+    /** The index in this row group of the first sentence of each document, and one past the last sentence. */
+    public int[] documentSentences() {
+      if (documentSentences == null) {
+        documentSentences = starts(ints(Column.DOC_SENTENCES));
+      }
+      return documentSentences;
+    }
+
+    /** The index in this row group of the first token of each sentence, and one past the last token. */
+    public int[] sentenceTokens() {
+      if (sentenceTokens == null) {
+        sentenceTokens = starts(ints(Column.SENTENCE_TOKENS));
+      }
+      return sentenceTokens;
+    }
+
+    /** The index in this row group of the first entity mention of each sentence, and one past the last mention. */
+    public int[] sentenceMentions() {
+      if (sentenceMentions == null) {
+        sentenceMentions = starts(ints(Column.SENTENCE_MENTIONS));
+      }
+      return sentenceMentions;
+    }
+
+    /**
+     * Rebuild a document of this row group.
+     * The document has its text, id, sentences and tokens, with the token annotations stored in the file,
+     * as well as the basic dependencies and entity mentions of each sentence when they were present.
+     * Note that only the basic dependencies are stored, so {@link CoreSentence#dependencyParse()},
+     * which returns the enhanced++ dependencies, is null.
+     *
+     * @param index The index of the document in this row group.
+     */
+    public CoreDocument document(int index) {
+      String text = strings(Column.DOC_TEXT).get(index);
+      String docID = strings(Column.DOC_ID).get(index);
+      StringColumn words = strings(Column.WORD);
+      StringColumn lemmas = strings(Column.LEMMA);
+      StringColumn tags = strings(Column.POS);
+      StringColumn ners = strings(Column.NER);
+      int[] begins = ints(Column.BEGIN);
+      int[] ends = ints(Column.END);
+      int[] heads = ints(Column.HEAD);
+      StringColumn deprels = strings(Column.DEPREL);
+      int[] mentionBegins = ints(Column.MENTION_BEGIN);
+      int[] mentionEnds = ints(Column.MENTION_END);
+      StringColumn mentionTypes = strings(Column.MENTION_TYPE);
+      int[] sentenceStarts = documentSentences();
+      int[] tokenStarts = sentenceTokens();
+      int[] mentionStarts = sentenceMentions();
+
+      Annotation document = new Annotation(text);
+      if (docID != null) {
+        document.set(CoreAnnotations.DocIDAnnotation.class, docID);
+      }
+      int firstToken = tokenStarts[sentenceStarts[index]];
+      int lastToken = tokenStarts[sentenceStarts[index + 1]];
+      List<CoreLabel> tokens = new ArrayList<>(lastToken - firstToken);
+      List<CoreMap> sentences = new ArrayList<>();
+      List<CoreMap> mentions = new ArrayList<>();
+      for (int s = sentenceStarts[index]; s < sentenceStarts[index + 1]; s++) {
+        int sentenceIndex = s - sentenceStarts[index];
+        List<CoreLabel> sentenceTokens = new ArrayList<>(tokenStarts[s + 1] - tokenStarts[s]);
+        for (int t = tokenStarts[s]; t < tokenStarts[s + 1]; t++) {
+          CoreLabel token = new CoreLabel();
+          token.setWord(words.get(t));
+          token.setValue(words.get(t));
+          token.setLemma(lemmas.get(t));
+          token.setTag(tags.get(t));
+          token.setNER(ners.get(t));
+          token.setBeginPosition(begins[t]);
+          token.setEndPosition(ends[t]);
+          if (ends[t] <= text.length()) {
+            token.setOriginalText(text.substring(begins[t], ends[t]));
+            token.setBefore(text.substring(t == firstToken ? 0 : Math.min(ends[t - 1], begins[t]), begins[t]));
+            token.setAfter(text.substring(ends[t], t + 1 == lastToken ? text.length() : Math.max(ends[t], begins[t + 1])));
+          }
+          token.setIndex(t - tokenStarts[s] + 1);
+          token.setSentIndex(sentenceIndex);
+          if (docID != null) {
+            token.setDocID(docID);
+          }
+          sentenceTokens.add(token);
+          tokens.add(token);
+        }
+
+        CoreMap sentence = new ArrayCoreMap();
+        sentence.set(CoreAnnotations.TokensAnnotation.class, sentenceTokens);
+        sentence.set(CoreAnnotations.SentenceIndexAnnotation.class, sentenceIndex);
+        sentence.set(CoreAnnotations.TokenBeginAnnotation.class, tokenStarts[s] - firstToken);
+        sentence.set(CoreAnnotations.TokenEndAnnotation.class, tokenStarts[s + 1] - firstToken);
+        if ( ! sentenceTokens.isEmpty()) {
+          int begin = sentenceTokens.get(0).beginPosition();
+          int end = sentenceTokens.get(sentenceTokens.size() - 1).endPosition();
+          sentence.set(CoreAnnotations.CharacterOffsetBeginAnnotation.class, begin);
+          sentence.set(CoreAnnotations.CharacterOffsetEndAnnotation.class, end);
+          if (end <= text.length()) {
+            sentence.set(CoreAnnotations.TextAnnotation.class, text.substring(begin, end));
+          }
+        }
+        SemanticGraph dependencies = dependencies(sentenceTokens, heads, deprels, tokenStarts[s]);
+        if (dependencies != null) {
+          sentence.set(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class, dependencies);
+        }
+
+        List<CoreMap> sentenceMentions = new ArrayList<>(mentionStarts[s + 1] - mentionStarts[s]);
+        for (int m = mentionStarts[s]; m < mentionStarts[s + 1]; m++) {
+          List<CoreLabel> mentionTokens = sentenceTokens.subList(mentionBegins[m] - tokenStarts[s], mentionEnds[m] - tokenStarts[s]);
+          CoreMap mention = new ArrayCoreMap();
+          mention.set(CoreAnnotations.TokensAnnotation.class, mentionTokens);
+          mention.set(CoreAnnotations.TokenBeginAnnotation.class, mentionBegins[m] - firstToken);
+          mention.set(CoreAnnotations.TokenEndAnnotation.class, mentionEnds[m] - firstToken);
+          mention.set(CoreAnnotations.SentenceIndexAnnotation.class, sentenceIndex);
+          mention.set(CoreAnnotations.EntityTypeAnnotation.class, mentionTypes.get(m));
+          mention.set(CoreAnnotations.NamedEntityTagAnnotation.class, mentionTypes.get(m));
+          if ( ! mentionTokens.isEmpty()) {
+            int begin = mentionTokens.get(0).beginPosition();
+            int end = mentionTokens.get(mentionTokens.size() - 1).endPosition();
+            mention.set(CoreAnnotations.CharacterOffsetBeginAnnotation.class, begin);
+            mention.set(CoreAnnotations.CharacterOffsetEndAnnotation.class, end);
+            if (end <= text.length()) {
+              mention.set(CoreAnnotations.TextAnnotation.class, text.substring(begin, end));
+            }
+          }
+          sentenceMentions.add(mention);
+          mentions.add(mention);
+        }
+        sentence.set(CoreAnnotations.MentionsAnnotation.class, sentenceMentions);
+        sentences.add(sentence);
+      }
+      document.set(CoreAnnotations.TokensAnnotation.class, tokens);
+      document.set(CoreAnnotations.SentencesAnnotation.class, sentences);
+      document.set(CoreAnnotations.MentionsAnnotation.class, mentions);
+      return new CoreDocument(document);
+    }
+  }
+
+  /**
+   * Rebuild the basic dependencies of a sentence, or return null if the sentence had none.
+   */
+  private static SemanticGraph dependencies(List<CoreLabel> tokens, int[] heads, StringColumn deprels, int firstToken) {
+    boolean hasDependencies = false;
+    for (int i = 0; i < tokens.size(); i++) {
+      if (heads[firstToken + i] >= 0) {
+        hasDependencies = true;
+        break;
+      }
+    }
+    if ( ! hasDependencies) {
+      return null;
+    }
+    SemanticGraph graph = new SemanticGraph();
+    IndexedWord[] nodes = new IndexedWord[tokens.size()];
+    for (int i = 0; i < tokens.size(); i++) {
+      if (heads[firstToken + i] >= 0) {
+        nodes[i] = new IndexedWord(tokens.get(i));
+        graph.addVertex(nodes[i]);
+      }
+    }
+    for (int i = 0; i < tokens.size(); i++) {
+      int head = heads[firstToken + i];
+      if (head == 0) {
+        graph.addRoot(nodes[i]);
+      } else if (head > 0) {
+        String relation = deprels.get(firstToken + i);
+        graph.addEdge(nodes[head - 1], nodes[i], GrammaticalRelation.valueOf(relation == null ? "dep" : relation), 1.0, false);
+      }
+    }
+    return graph;
+  }
+
+
+  private final RandomAccessFile file;
+
+  private final List<Header> rowGroups = new ArrayList<>();
+
+  private final Inflater inflater = new Inflater();
+
+  /**
+   * Open a columnar annotation file. Only the footer, which locates the row groups and their columns, is read.
+   *
+   * @param path The file written by a {@link ColumnarAnnotationWriter}.
+   * @throws IOException If the file cannot be read, or is not a columnar annotation file.
+   */
+  public ColumnarAnnotationReader(File path) throws IOException {
+    this.file = new RandomAccessFile(path, "r");
+    long length = file.length();
+    byte[] magic = new byte[MAGIC.length];
+    if (length < MAGIC.length * 2 + Long.BYTES) {
+      file.close();
+      throw new IOException("Not a columnar annotation file: " + path);
+    }
+    file.seek(length - MAGIC.length);
+    file.readFully(magic);
+    if ( ! Arrays.equals(MAGIC, magic)) {
+      file.close();
+      throw new IOException("Not a columnar annotation file: " + path);
+    }
+    file.seek(length - MAGIC.length - Long.BYTES);
+    long footer = file.readLong();
+    file.seek(footer);
+    int numRowGroups = file.readInt();
+    int numColumns = file.readInt();
+    if (numColumns != Column.values().length) {
+      file.close();
+      throw new IOException("Expected " + Column.values().length + " columns but found " + numColumns + " in " + path);
+    }
+    for (int i = 0; i < numRowGroups; i++) {
+      int numDocuments = file.readInt();
+      int numSentences = file.readInt();
+      int numTokens = file.readInt();
+      int numMentions = file.readInt();
+      Chunk[] chunks = new Chunk[numColumns];
+      for (int c = 0; c < numColumns; c++) {
+        chunks[c] = new Chunk(file.readLong(), file.readInt(), file.readInt());
+      }
+      rowGroups.add(new Header(numDocuments, numSentences, numTokens, numMentions, chunks));
+    }
+  }
+
+  public int numRowGroups() {
+    return rowGroups.size();
+  }
+
+  /**
+   * A row group of the file. Each call returns a new row group, which has not read any of its columns yet.
+   */
+  public RowGroup rowGroup(int index) {
+    return new RowGroup(rowGroups.get(index));
+  }
+
+  /** Iterate over the row groups, for scanning columns. */
+  @Override
+  public Iterator<RowGroup> iterator() {
+    return rowGroups.stream().map(RowGroup::new).iterator();
+  }
+
+  public long numDocuments() {
+    return rowGroups.stream().mapToLong(header -> header.numDocuments).sum();
+  }
+
+  public long numTokens() {
+    return rowGroups.stream().mapToLong(header -> header.numTokens).sum();
+  }
+
+  /**
+   * Count the values of a string column over the whole file.
+   * This only reads the given column, and only looks at each distinct value once per row group.
+   * Missing values are not counted.
+   */
+  public Counter<String> countValues(Column column) {
+    Counter<String> counts = new ClassicCounter<>();
+    for (RowGroup rowGroup : this) {
+      StringColumn values = rowGroup.strings(column);
+      int[] idCounts = new int[values.dictionary().length];
+      for (int id : values.ids()) {
+        idCounts[id] += 1;
+      }
+      for (int id = 1; id < idCounts.length; id++) {
+        counts.incrementCount(values.dictionary()[id], idCounts[id]);
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * The documents of the file, each one rebuilt when the iteration reaches it.
+   * The columns of a row group are only kept while its documents are being iterated over.
+   */
+  public Iterable<CoreDocument> documents() {
+    return () -> new Iterator<CoreDocument>() {
+      private int groupIndex = 0;
+      private int document = 0;
+      private RowGroup current;
+
+      @Override
+      public boolean hasNext() {
+        while (groupIndex < rowGroups.size() && document >= rowGroups.get(groupIndex).numDocuments) {
+          groupIndex += 1;
+          document = 0;
+          current = null;
+        }
+        return groupIndex < rowGroups.size();
+      }
+
+      @Override
+      public CoreDocument next() {
+        if ( ! hasNext()) {
+          throw new NoSuchElementException();
+        }
+        if (current == null) {
+          current = rowGroup(groupIndex);
+        }
+        return current.document(document++);
+      }
+    };
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void close() throws IOException {
+    inflater.end();
+    file.close();
+  }
+
+
+  /** Read and decompress a column of a row group. */
+  private byte[] readChunk(Chunk chunk) throws IOException {
+    byte[] compressed = new byte[chunk.compressedLength];
+    file.seek(chunk.offset);
+    file.readFully(compressed);
+    byte[] bytes = new byte[chunk.length];
+    inflater.reset();
+    inflater.setInput(compressed);
+    try {
+      int read = 0;
+      while (read < bytes.length) {
+        int n = inflater.inflate(bytes, read, bytes.length - read);
+        if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+          throw new IOException("Truncated column at offset " + chunk.offset);
+        }
+        read += n;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt column at offset " + chunk.offset, e);
+    }
+    return bytes;
+  }
+
+  /**
+   * Decode the values of a column. This is the inverse of {@link ColumnarAnnotationWriter}'s encoding:
+   * string columns are a dictionary followed by one id per row, and int columns are zigzag varints,
+   * which for the {@link Column#isDelta} columns are the difference from the previous row.
+   */
+  private static Object decode(Column column, int size, byte[] bytes) throws IOException {
+    CodedInputStream in = CodedInputStream.newInstance(bytes);
+    in.setSizeLimit(Integer.MAX_VALUE);
+    if (column.isString) {
+      String[] dictionary = new String[in.readUInt32() + 1];
+      for (int id = 1; id < dictionary.length; id++) {
+        dictionary[id] = in.readString();
+      }
+      int[] ids = new int[size];
+      for (int i = 0; i < size; i++) {
+        ids[i] = in.readUInt32();
+      }
+      return new StringColumn(dictionary, ids);
+    }
+    int[] values = new int[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = in.readSInt32();
+    }
+    if (column.isDelta) {
+      for (int i = 1; i < size; i++) {
+        values[i] += values[i - 1];
+      }
+    }
+    return values;
+  }
+
+}
@@ -0,0 +1,330 @@
+package edu.stanford.nlp.pipeline;
+
+import com.google.protobuf.CodedOutputStream;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.pipeline.ColumnarAnnotationReader.Column;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations;
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+import edu.stanford.nlp.util.CoreMap;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.Deflater;
+
+/**
+ * <p>
+ *   Writes annotated documents in a columnar format, for statistics over large corpora.
+ *   Rather than storing each document as a whole (as {@link ProtobufAnnotationSerializer} does),
+ *   the documents are split into row groups of about {@link #DEFAULT_ROW_GROUP_TOKENS} tokens, and each row group
+ *   stores the values of each {@link Column} together: all of the words, then all of the lemmas, and so on.
+ *   String columns are dictionary encoded, int columns are varint encoded, and each column is compressed on its own,
+ *   so that a scan over one column reads and decompresses only that column.
+ * </p>
+ *
+ * <p>
+ *   Only the annotations listed in {@link Column} are stored: the text and id of each document,
+ *   sentence boundaries, the word, lemma, part of speech, NER tag and character offsets of each token,
+ *   the basic dependencies, and the entity mentions. The files are read back with {@link ColumnarAnnotationReader}.
+ * </p>
+ *
+ * <p>
+ *   The layout of a file is the magic bytes, the compressed columns of each row group, and a footer with
+ *   the size of each row group and the location of each of its columns, followed by the offset of the footer
+ *   and the magic bytes again.
+ * </p>
+ */
+public class ColumnarAnnotationWriter implements Closeable {
+
+  /** The default number of tokens after which a row group is written out. */
+  public static final int DEFAULT_ROW_GROUP_TOKENS = 1 << 16;
+
+  /** A growable array of ints. */
+  private static class IntList {
+    private int[] values = new int[1024];
+    private int size = 0;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+  }
+
+  /** The values of a column in the current row group, not yet encoded. */
+  private static class ColumnBuffer {
+    private final Column column;
+    private final IntList values = new IntList();
+    /** The dictionary of a string column. The ids start at 1, as 0 stands for a missing value. */
+    private final Map<String, Integer> dictionary = new LinkedHashMap<>();
+
+    ColumnBuffer(Column column) {
+      this.column = column;
+    }
+
+    void add(int value) {
+      values.add(value);
+    }
+
+    void add(String value) {
+      values.add(value == null ? 0 : dictionary.computeIfAbsent(value, k -> dictionary.size() + 1));
+    }
+
+    void encode(CodedOutputStream out) throws IOException {
+      if (column.isString) {
+        out.writeUInt32NoTag(dictionary.size());
+        for (String value : dictionary.keySet()) {
+          out.writeStringNoTag(value);
+        }
+        for (int i = 0; i < values.size; i++) {
+          out.writeUInt32NoTag(values.values[i]);
+        }
+      } else {
+        int previous = 0;
+        for (int i = 0; i < values.size; i++) {
+          int value = values.values[i];
+          out.writeSInt32NoTag(column.isDelta ? value - previous : value);
+          previous = value;
+        }
+      }
+    }
+
+    void clear() {
+      values.size = 0;
+      dictionary.clear();
+    }
+  }
+
+
+  private final OutputStream out;
+
+  /** The number of bytes written to {@link #out} so far. */
+  private long position = 0;
+
+  private final int rowGroupTokens;
+
+  private final ColumnBuffer[] columns = new ColumnBuffer[Column.values().length];
+
+  private int numDocuments = 0;
+  private int numSentences = 0;
+  private int numTokens = 0;
+  private int numMentions = 0;
+
+  /** The footer entries of the row groups written so far. */
+  private final ByteArrayOutputStream footer = new ByteArrayOutputStream();
+  private final DataOutputStream footerOut = new DataOutputStream(footer);
+  private int numRowGroups = 0;
+
+  private final Deflater deflater = new Deflater();
+
+  private boolean finished = false;
+
+
+  /**
+   * Write a columnar annotation file to the given stream.
+   * The file is only complete once {@link #finish()} or {@link #close()} is called.
+   */
+  public ColumnarAnnotationWriter(OutputStream out) throws IOException {
+    this(out, DEFAULT_ROW_GROUP_TOKENS);
+  }
+
+  /**
+   * Write a columnar annotation file to the given stream.
+   * The file is only complete once {@link #finish()} or {@link #close()} is called.
+   *
+   * @param out The stream to write to.
+   * @param rowGroupTokens The number of tokens after which a row group is written out.
+   *                       Larger row groups compress better, but need more memory to write and read.
+   */
+  public ColumnarAnnotationWriter(OutputStream out, int rowGroupTokens) throws IOException {
+    this.out = out;
+    this.rowGroupTokens = rowGroupTokens;
+    for (Column column : Column.values()) {
+      columns[column.ordinal()] = new ColumnBuffer(column);
+    }
+    write(ColumnarAnnotationReader.MAGIC);
+  }
+
+  /** Write a columnar annotation file. */
+  public ColumnarAnnotationWriter(File file) throws IOException {
+    this(new BufferedOutputStream(new FileOutputStream(file)));
+  }
+
+  private ColumnBuffer column(Column column) {
+    return columns[column.ordinal()];
+  }
+
+  /**
+   * Add a document. Documents are never split across row groups.
+   *
+   * @param document An annotated document, with at least its sentences and tokens.
+   */
+  public void add(Annotation document) throws IOException {
+    if (finished) {
+      throw new IllegalStateException("Cannot add documents to a finished writer");
+    }
+    List<CoreMap> sentences = document.get(CoreAnnotations.SentencesAnnotation.class);
+    if (sentences == null) {
+      sentences = Collections.emptyList();
+    }
+    column(Column.DOC_ID).add(document.get(CoreAnnotations.DocIDAnnotation.class));
+    column(Column.DOC_TEXT).add(document.get(CoreAnnotations.TextAnnotation.class));
+    column(Column.DOC_SENTENCES).add(sentences.size());
+    numDocuments += 1;
+
+    for (CoreMap sentence : sentences) {
+      List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
+      if (tokens == null) {
+        tokens = Collections.emptyList();
+      }
+      int[] heads = new int[tokens.size()];
+      String[] relations = new String[tokens.size()];
+      Arrays.fill(heads, -1);
+      SemanticGraph dependencies = sentence.get(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class);
+      if (dependencies != null) {
+        for (IndexedWord root : dependencies.getRoots()) {
+          if (root.index() > 0 && root.index() <= tokens.size() && root.copyCount() == 0) {
+            heads[root.index() - 1] = 0;
+          }
+        }
+        for (SemanticGraphEdge edge : dependencies.edgeIterable()) {
+          IndexedWord dependent = edge.getDependent();
+          if (dependent.index() > 0 && dependent.index() <= tokens.size() && dependent.copyCount() == 0) {
+            heads[dependent.index() - 1] = edge.getGovernor().index();
+            relations[dependent.index() - 1] = edge.getRelation().toString();
+          }
+        }
+      }
+
+      column(Column.SENTENCE_TOKENS).add(tokens.size());
+      for (int i = 0; i < tokens.size(); i++) {
+        CoreLabel token = tokens.get(i);
+        column(Column.WORD).add(token.word());
+        column(Column.LEMMA).add(token.lemma());
+        column(Column.POS).add(token.tag());
+        column(Column.NER).add(token.ner());
+        column(Column.BEGIN).add(token.beginPosition());
+        column(Column.END).add(token.endPosition());
+        column(Column.HEAD).add(heads[i]);
+        column(Column.DEPREL).add(relations[i]);
+      }
+
+      List<CoreMap> mentions = sentence.get(CoreAnnotations.MentionsAnnotation.class);
+      int sentenceMentions = 0;
+      if (mentions != null) {
+        for (CoreMap mention : mentions) {
+          List<CoreLabel> mentionTokens = mention.get(CoreAnnotations.TokensAnnotation.class);
+          if (mentionTokens == null || mentionTokens.isEmpty()) {
+            continue;
+          }
+          String type = mention.get(CoreAnnotations.EntityTypeAnnotation.class);
+          if (type == null) {
+            type = mention.get(CoreAnnotations.NamedEntityTagAnnotation.class);
+          }
+          column(Column.MENTION_BEGIN).add(numTokens + mentionTokens.get(0).index() - 1);
+          column(Column.MENTION_END).add(numTokens + mentionTokens.get(mentionTokens.size() - 1).index());
+          column(Column.MENTION_TYPE).add(type);
+          sentenceMentions += 1;
+        }
+      }
+      column(Column.SENTENCE_MENTIONS).add(sentenceMentions);
+
+      numSentences += 1;
+      numTokens += tokens.size();
+      numMentions += sentenceMentions;
+    }
+
+    if (numTokens >= rowGroupTokens) {
+      flush();
+    }
+  }
+
+  /** Add a document. */
+  public void add(CoreDocument document) throws IOException {
+    add(document.annotation());
+  }
+
+  /**
+   * Write out the documents added since the last row group as a row group of their own, if there are any.
+   */
+  public void flush() throws IOException {
+    if (numDocuments == 0) {
+      return;
+    }
+    footerOut.writeInt(numDocuments);
+    footerOut.writeInt(numSentences);
+    footerOut.writeInt(numTokens);
+    footerOut.writeInt(numMentions);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    for (ColumnBuffer column : columns) {
+      bytes.reset();
+      CodedOutputStream encoder = CodedOutputStream.newInstance(bytes);
+      column.encode(encoder);
+      encoder.flush();
+      byte[] compressed = compress(bytes.toByteArray());
+      footerOut.writeLong(position);
+      footerOut.writeInt(compressed.length);
+      footerOut.writeInt(bytes.size());
+      write(compressed);
+      column.clear();
+    }
+    numRowGroups += 1;
+    numDocuments = 0;
+    numSentences = 0;
+    numTokens = 0;
+    numMentions = 0;
+  }
+
+  /**
+   * Write out the last row group and the footer, completing the file.
+   * The underlying stream is flushed, but not closed.
+   */
+  public void finish() throws IOException {
+    if (finished) {
+      return;
+    }
+    flush();
+    long footerPosition = position;
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(numRowGroups);
+    data.writeInt(Column.values().length);
+    footerOut.flush();
+    footer.writeTo(data);
+    data.writeLong(footerPosition);
+    data.write(ColumnarAnnotationReader.MAGIC);
+    data.flush();
+    deflater.end();
+    finished = true;
+  }
+
+  /** Finish the file, and close the underlying stream. */
+  @Override
+  public void close() throws IOException {
+    finish();
+    out.close();
+  }
+
+
+  private void write(byte[] bytes) throws IOException {
+    out.write(bytes);
+    position += bytes.length;
+  }
+
+  private byte[] compress(byte[] bytes) {
+    deflater.reset();
+    deflater.setInput(bytes);
+    deflater.finish();
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+    byte[] buffer = new byte[8192];
+    while ( ! deflater.finished()) {
+      int n = deflater.deflate(buffer);
+      compressed.write(buffer, 0, n);
+    }
+    return compressed.toByteArray();
+  }
+
+}
@@ -0,0 +1,32 @@
+package edu.stanford.nlp.pipeline;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * Write an Annotation as a columnar annotation file of a single row group, which can be read back with
+ * {@link ColumnarAnnotationReader}. To write many documents to one file, as is usually wanted for
+ * corpus statistics, use a {@link ColumnarAnnotationWriter} directly.
+ * From the command line, this outputter is chosen with {@code -outputFormat custom -customOutputter
+ * edu.stanford.nlp.pipeline.ColumnarOutputter}.
+ *
+ * @see ColumnarAnnotationWriter
+ */
+public class ColumnarOutputter extends AnnotationOutputter {
+
+  public ColumnarOutputter() {}
+
+  /** {@inheritDoc} */
+  @Override
+  public void print(Annotation doc, OutputStream target, Options options) throws IOException {
+    ColumnarAnnotationWriter writer = new ColumnarAnnotationWriter(target);
+    writer.add(doc);
+    writer.finish();
+  }
+
+  public static void columnarPrint(Annotation annotation, OutputStream os) throws IOException {
+    new ColumnarOutputter().print(annotation, os);
+  }
+
+}
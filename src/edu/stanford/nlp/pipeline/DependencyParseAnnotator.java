@@ -12,7 +12,9 @@ import edu.stanford.nlp.trees.GrammaticalStructure;
 import edu.stanford.nlp.util.ArraySet;
 import edu.stanford.nlp.util.CoreMap;
 import edu.stanford.nlp.util.MetaClass;
+import edu.stanford.nlp.util.ModelRegistry;
 import edu.stanford.nlp.util.PropertiesUtils;
+import edu.stanford.nlp.util.RuntimeInterruptedException;
 
 import java.util.*;
 
@@ -48,17 +50,47 @@ public class DependencyParseAnnotator extends SentenceAnnotator  {
    */
   private final GrammaticalStructure.Extras extraDependencies;
 
+  /**
+   * The number of sentences to parse together in one batch (see {@link DependencyParser#predictBatch}).
+   */
+  private final int batchSize;
+  private static final int DEFAULT_BATCH_SIZE = 1;
+
+  /**
+   * If true, store the dependency graphs in their compact, array-backed form (see {@link SemanticGraph#compact()}).
+   * Their vertices and edges are then listed in index order. Off by default.
+   */
+  private final boolean compactGraphs;
+
   public DependencyParseAnnotator() {
     this(new Properties());
   }
 
   public DependencyParseAnnotator(Properties properties) {
     String modelPath = PropertiesUtils.getString(properties, "model", DependencyParser.DEFAULT_MODEL);
-    parser = DependencyParser.loadFromModelFile(modelPath, properties);
+    // only the options which change the loaded parser are part of its key, so that, e.g., annotators
+    // with different numbers of threads or batch sizes share one parser
+    Properties loadingOptions = new Properties();
+    for (String option : DependencyParser.LOADING_OPTIONS) {
+      String value = properties.getProperty(option);
+      if (value != null) {
+        loadingOptions.setProperty(option, value);
+      }
+    }
+    parser = ModelRegistry.acquire(this, DependencyParser.class, modelPath, loadingOptions,
+        () -> DependencyParser.loadFromModelFile(modelPath, loadingOptions));
 
     nThreads = PropertiesUtils.getInt(properties, "nthreads", DEFAULT_NTHREADS);
     maxTime = PropertiesUtils.getLong(properties, "sentenceTimeout", DEFAULT_MAXTIME);
     extraDependencies = MetaClass.cast(properties.getProperty("extradependencies", "NONE"), GrammaticalStructure.Extras.class);
+    batchSize = PropertiesUtils.getInt(properties, "sentenceBatchSize", DEFAULT_BATCH_SIZE);
+    compactGraphs = PropertiesUtils.getBool(properties, "compactGraphs", false);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void unmount() {
+    ModelRegistry.release(this);
   }
 
   @Override
@@ -71,16 +103,90 @@ public class DependencyParseAnnotator extends SentenceAnnotator  {
     return maxTime;
   }
 
+  /**
+   * If {@code sentenceBatchSize} is greater than 1, parse the sentences of the document in batches,
+   * spreading the batches over {@code nthreads} threads of the {@link #workerPool()}.
+   * A batch may then take {@code sentenceTimeout} milliseconds for each of its sentences;
+   * the sentences of a batch which times out get the annotations of a failed sentence.
+   * Otherwise, parse one sentence at a time, as other sentence annotators do.
+   */
+  @Override
+  public void annotate(Annotation annotation) {
+    if (batchSize <= 1 || ! annotation.containsKey(CoreAnnotations.SentencesAnnotation.class)) {
+      super.annotate(annotation);
+      return;
+    }
+    parseInBatches(Collections.singletonList(annotation));
+  }
+
+  /**
+   * If {@code sentenceBatchSize} is greater than 1, the sentences of all the documents are parsed together,
+   * so that a batch of sentences may hold sentences of several (e.g., short) documents.
+   */
+  @Override
+  public void annotateBatch(List<Annotation> documents) {
+    if (batchSize <= 1) {
+      super.annotateBatch(documents);
+      return;
+    }
+    parseInBatches(documents);
+  }
+
+  private void parseInBatches(List<Annotation> documents) {
+    List<CoreMap> sentences = new ArrayList<>();
+    Map<CoreMap, Annotation> documentOf = new IdentityHashMap<>();
+    for (Annotation document : documents) {
+      if ( ! document.containsKey(CoreAnnotations.SentencesAnnotation.class)) {
+        throw new IllegalArgumentException("unable to find sentences in: " + document);
+      }
+      for (CoreMap sentence : document.get(CoreAnnotations.SentencesAnnotation.class)) {
+        sentences.add(sentence);
+        documentOf.put(sentence, document);
+      }
+    }
+    List<List<CoreMap>> batches = new ArrayList<>();
+    for (int start = 0; start < sentences.size(); start += batchSize) {
+      batches.add(sentences.subList(start, Math.min(sentences.size(), start + batchSize)));
+    }
+    if (nThreads != 1 || maxTime > 0) {
+      workerPool().run(batches, nThreads, maxTime > 0 ? maxTime * batchSize : maxTime,
+                       this::doBatch,
+                       batch -> batch.forEach(sentence -> doOneFailedSentence(documentOf.get(sentence), sentence)));
+    } else {
+      for (List<CoreMap> batch : batches) {
+        if (Thread.interrupted()) {
+          throw new RuntimeInterruptedException();
+        }
+        doBatch(batch);
+      }
+    }
+  }
+
+  private void doBatch(List<CoreMap> batch) {
+    List<GrammaticalStructure> structures = parser.predictBatch(batch);
+    for (int i = 0; i < batch.size(); ++i) {
+      setDependencies(batch.get(i), structures.get(i));
+    }
+  }
+
   @Override
   protected void doOneSentence(Annotation annotation, CoreMap sentence) {
-    GrammaticalStructure gs = parser.predict(sentence);
+    setDependencies(sentence, parser.predict(sentence));
+  }
+
+  private void setDependencies(CoreMap sentence, GrammaticalStructure gs) {
 
     SemanticGraph deps = SemanticGraphFactory.makeFromTree(gs, Mode.COLLAPSED, extraDependencies, null),
                   uncollapsedDeps = SemanticGraphFactory.makeFromTree(gs, Mode.BASIC, extraDependencies, null),
                   ccDeps = SemanticGraphFactory.makeFromTree(gs, Mode.CCPROCESSED, extraDependencies, null),
                   enhancedDeps = SemanticGraphFactory.makeFromTree(gs, Mode.ENHANCED, extraDependencies, null),
                   enhancedPlusPlusDeps = SemanticGraphFactory.makeFromTree(gs, Mode.ENHANCED_PLUS_PLUS, extraDependencies, null);
-
+    if (compactGraphs) {
+      // the graphs are done being built, so store them in their compact form
+      for (SemanticGraph graph : Arrays.asList(deps, uncollapsedDeps, ccDeps, enhancedDeps, enhancedPlusPlusDeps)) {
+        graph.compact();
+      }
+    }
 
     sentence.set(SemanticGraphCoreAnnotations.CollapsedDependenciesAnnotation.class, deps);
     sentence.set(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class, uncollapsedDeps);
@@ -0,0 +1,494 @@
+package edu.stanford.nlp.pipeline;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.TreeCoreAnnotations;
+import edu.stanford.nlp.trees.Trees;
+import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.Generics;
+import edu.stanford.nlp.util.RuntimeInterruptedException;
+
+import java.util.*;
+
+
+/**
+ * Brings an annotated document up to date after an edit to its text, redoing only the work that the edit affects,
+ * e.g., for an editor which annotates a long document as it is being typed.
+ * <br>
+ * The annotators of the pipeline fall into three groups:
+ * <ul>
+ *   <li>the tokenizing annotators, up to and including the one which splits sentences.
+ *       These are run again on the sentences around the edit only;</li>
+ *   <li>the sentence-level annotators which follow them (e.g., pos, lemma, ner, parse, depparse, sentiment).
+ *       These are run again on the sentences whose tokens changed only;</li>
+ *   <li>the document-level annotators, from the first annotator which is not sentence-level on (e.g., coref, quote).
+ *       These are run again over the whole document, but only if some sentence changed. An edit which only moves
+ *       tokens (e.g., one which adds or removes whitespace) only runs those which keep character offsets again.</li>
+ * </ul>
+ * The sentences which the edit leaves alone keep their annotations, and their character offsets, token indices,
+ * sentence indices and line numbers are shifted to where they are in the edited text.
+ * <br>
+ * An annotator is sentence-level if it is a {@link SentenceAnnotator} or one of a few annotators which look at one
+ * sentence at a time (see {@link #isSentenceLevel(Annotator)}). Note that the NER annotator is sentence-level here,
+ * though it also sets the document's list of entity mentions: that list is rebuilt from the sentences' mentions.
+ * The results are the same as annotating the edited text from scratch, as long as each sentence-level annotator
+ * only looks at the sentence it annotates.
+ */
+public class IncrementalAnnotationPipeline {
+
+  /**
+   * An edit of the text of a document: the characters from {@code begin} up to {@code end} are replaced by
+   * {@code text}. An insertion has {@code begin == end}, and a deletion has an empty {@code text}.
+   */
+  public static class TextEdit {
+
+    public final int begin;
+    public final int end;
+    public final String text;
+
+    public TextEdit(int begin, int end, String text) {
+      if (begin < 0 || end < begin) {
+        throw new IllegalArgumentException("Invalid range for an edit: " + begin + " to " + end);
+      }
+      this.begin = begin;
+      this.end = end;
+      this.text = text;
+    }
+
+    /** The smallest edit which turns oldText into newText: everything but their common prefix and suffix. */
+    public static TextEdit between(String oldText, String newText) {
+      int prefix = 0;
+      int maxPrefix = Math.min(oldText.length(), newText.length());
+      while (prefix < maxPrefix && oldText.charAt(prefix) == newText.charAt(prefix)) {
+        prefix++;
+      }
+      int suffix = 0;
+      int maxSuffix = maxPrefix - prefix;
+      while (suffix < maxSuffix && oldText.charAt(oldText.length() - 1 - suffix) == newText.charAt(newText.length() - 1 - suffix)) {
+        suffix++;
+      }
+      return new TextEdit(prefix, oldText.length() - suffix, newText.substring(prefix, newText.length() - suffix));
+    }
+
+    /** How much longer the text is after the edit. */
+    public int lengthChange() {
+      return text.length() - (end - begin);
+    }
+
+    public String applyTo(String documentText) {
+      if (end > documentText.length()) {
+        throw new IllegalArgumentException("Edit from " + begin + " to " + end + " is past the end of a text of length " + documentText.length());
+      }
+      return documentText.substring(0, begin) + text + documentText.substring(end);
+    }
+
+    @Override
+    public String toString() {
+      return "TextEdit[" + begin + ", " + end + ") -> \"" + text + '"';
+    }
+  }
+
+
+  /** Annotators which aren't {@link SentenceAnnotator}s but only ever look at one sentence at a time. */
+  private static final Set<Class<? extends Annotator>> SENTENCE_LEVEL_ANNOTATORS = Generics.newHashSet(Arrays.asList(
+      MorphaAnnotator.class, RegexNERAnnotator.class, TokensRegexNERAnnotator.class, TokensRegexAnnotator.class,
+      TrueCaseAnnotator.class, GenderAnnotator.class, NumberAnnotator.class, QuantifiableEntityNormalizingAnnotator.class,
+      EntityMentionsAnnotator.class, BinarizerAnnotator.class));
+
+  /** Document-level annotators whose results hold character offsets, and so have to be run again when tokens move. */
+  private static final Set<Class<? extends Annotator>> OFFSET_ANNOTATORS = Generics.newHashSet(Arrays.asList(
+      QuoteAnnotator.class));
+
+  private final List<Annotator> tokenizers;
+  private final List<Annotator> sentenceAnnotators;
+  private final List<Annotator> documentAnnotators;
+
+  /**
+   * @param annotators The annotators of the pipeline, in order. One of them has to split the text into sentences.
+   */
+  public IncrementalAnnotationPipeline(List<Annotator> annotators) {
+    int splitter = 0;
+    while (splitter < annotators.size() &&
+           ! annotators.get(splitter).requirementsSatisfied().contains(CoreAnnotations.SentencesAnnotation.class)) {
+      splitter++;
+    }
+    if (splitter == annotators.size()) {
+      throw new IllegalArgumentException("Incremental annotation needs a pipeline which splits sentences, e.g., with ssplit");
+    }
+    int firstDocumentAnnotator = splitter + 1;
+    while (firstDocumentAnnotator < annotators.size() && isSentenceLevel(annotators.get(firstDocumentAnnotator))) {
+      firstDocumentAnnotator++;
+    }
+    tokenizers = new ArrayList<>(annotators.subList(0, splitter + 1));
+    sentenceAnnotators = new ArrayList<>(annotators.subList(splitter + 1, firstDocumentAnnotator));
+    documentAnnotators = new ArrayList<>(annotators.subList(firstDocumentAnnotator, annotators.size()));
+  }
+
+  /** Whether the annotator can be run on some of the sentences of a document without the others. */
+  public static boolean isSentenceLevel(Annotator annotator) {
+    return annotator instanceof SentenceAnnotator || SENTENCE_LEVEL_ANNOTATORS.contains(annotator.getClass());
+  }
+
+  /** The annotators which are only run again on the sentences which changed. */
+  public List<Annotator> sentenceAnnotators() {
+    return Collections.unmodifiableList(sentenceAnnotators);
+  }
+
+  /** The annotators which are run again over the whole document, when needed. */
+  public List<Annotator> documentAnnotators() {
+    return Collections.unmodifiableList(documentAnnotators);
+  }
+
+  /**
+   * Like {@link #reannotate(Annotation, TextEdit)}, for an editor which hands over the whole edited text:
+   * the edit is everything but the text's common prefix and suffix with the annotation's text.
+   */
+  public List<CoreMap> reannotate(Annotation annotation, String newText) {
+    return reannotate(annotation, TextEdit.between(annotation.get(CoreAnnotations.TextAnnotation.class), newText));
+  }
+
+  /**
+   * Updates an annotation for an edit of its text. The annotation is modified in place.
+   *
+   * @param annotation A document annotated by the annotators of this pipeline
+   * @param edit The edit of the annotation's text
+   *
+   * @return The sentences which were annotated again, in order. The other sentences are the same objects as before.
+   */
+  public List<CoreMap> reannotate(Annotation annotation, TextEdit edit) {
+    String oldText = annotation.get(CoreAnnotations.TextAnnotation.class);
+    List<CoreMap> oldSentences = annotation.get(CoreAnnotations.SentencesAnnotation.class);
+    if (oldText == null || oldSentences == null) {
+      throw new IllegalArgumentException("Can only reannotate an annotation with text and sentences");
+    }
+    String newText = edit.applyTo(oldText);
+    int charDelta = edit.lengthChange();
+
+    // The old sentences the edit might change: those it touches, and one more on each side,
+    // as the edit may move the boundary between a sentence and its neighbor.
+    int n = oldSentences.size();
+    int first = 0;
+    while (first < n && oldSentences.get(first).get(CoreAnnotations.CharacterOffsetEndAnnotation.class) < edit.begin) {
+      first++;
+    }
+    first = Math.max(0, first - 1);
+    int last = n - 1;
+    while (last >= 0 && oldSentences.get(last).get(CoreAnnotations.CharacterOffsetBeginAnnotation.class) > edit.end) {
+      last--;
+    }
+    last = Math.min(n - 1, last + 1);
+    int regionBegin = first == 0 ? 0 :
+        Math.min(edit.begin, oldSentences.get(first).get(CoreAnnotations.CharacterOffsetBeginAnnotation.class));
+    int regionEnd = last == n - 1 ? oldText.length() :
+        Math.max(edit.end, oldSentences.get(last).get(CoreAnnotations.CharacterOffsetEndAnnotation.class));
+    List<CoreMap> oldRegion = oldSentences.subList(first, last + 1);
+    int tokensBefore = 0;
+    for (CoreMap sentence : oldSentences.subList(0, first)) {
+      tokensBefore += sentence.get(CoreAnnotations.TokensAnnotation.class).size();
+    }
+
+    // Tokenize and split the edited text of those sentences, and move the new sentences to where they are in the document
+    Annotation region = new Annotation(newText.substring(regionBegin, regionEnd + charDelta));
+    copyDocumentInformation(annotation, region);
+    for (Annotator annotator : tokenizers) {
+      annotateWith(annotator, region);
+    }
+    List<CoreMap> newRegion = region.get(CoreAnnotations.SentencesAnnotation.class);
+    int linesBefore = countNewlines(newText, 0, regionBegin);
+    for (int i = 0; i < newRegion.size(); i++) {
+      shift(newRegion.get(i), regionBegin, tokensBefore, first + i, linesBefore);
+    }
+
+    // The sentences at either end which are the same as before keep their annotations
+    int same = Math.min(oldRegion.size(), newRegion.size());
+    int sameBefore = 0;
+    while (sameBefore < same && sameTokens(oldRegion.get(sameBefore), newRegion.get(sameBefore))) {
+      sameBefore++;
+    }
+    int sameAfter = 0;
+    while (sameAfter < same - sameBefore &&
+           sameTokens(oldRegion.get(oldRegion.size() - 1 - sameAfter), newRegion.get(newRegion.size() - 1 - sameAfter))) {
+      sameAfter++;
+    }
+    List<CoreMap> changed = new ArrayList<>(newRegion.subList(sameBefore, newRegion.size() - sameAfter));
+    boolean sentencesChanged = ! changed.isEmpty() || oldRegion.size() != newRegion.size();
+
+    List<CoreMap> sentences = new ArrayList<>(n - oldRegion.size() + newRegion.size());
+    sentences.addAll(oldSentences.subList(0, first));
+    for (int i = 0; i < newRegion.size(); i++) {
+      if (i < sameBefore) {
+        sentences.add(moveTo(oldRegion.get(i), newRegion.get(i)));
+      } else if (i >= newRegion.size() - sameAfter) {
+        sentences.add(moveTo(oldRegion.get(oldRegion.size() - newRegion.size() + i), newRegion.get(i)));
+      } else {
+        sentences.add(newRegion.get(i));
+      }
+    }
+    int tokenDelta = region.get(CoreAnnotations.TokensAnnotation.class).size();
+    for (CoreMap sentence : oldRegion) {
+      tokenDelta -= sentence.get(CoreAnnotations.TokensAnnotation.class).size();
+    }
+    int lineDelta = countNewlines(edit.text, 0, edit.text.length()) - countNewlines(oldText, edit.begin, edit.end);
+    for (CoreMap sentence : oldSentences.subList(last + 1, n)) {
+      shift(sentence, charDelta, tokenDelta, sentences.size(), lineDelta);
+      sentences.add(sentence);
+    }
+
+    // Run the sentence-level annotators on the sentences which changed
+    if ( ! changed.isEmpty() && ! sentenceAnnotators.isEmpty()) {
+      // the sentences' offsets are already into the edited text
+      Annotation changedSentences = new Annotation(newText);
+      copyDocumentInformation(annotation, changedSentences);
+      List<CoreLabel> changedTokens = new ArrayList<>();
+      for (CoreMap sentence : changed) {
+        changedTokens.addAll(sentence.get(CoreAnnotations.TokensAnnotation.class));
+      }
+      changedSentences.set(CoreAnnotations.TokensAnnotation.class, changedTokens);
+      changedSentences.set(CoreAnnotations.SentencesAnnotation.class, changed);
+      for (Annotator annotator : sentenceAnnotators) {
+        annotateWith(annotator, changedSentences);
+      }
+    }
+
+    // Put the document back together
+    List<CoreLabel> tokens = new ArrayList<>();
+    for (CoreMap sentence : sentences) {
+      tokens.addAll(sentence.get(CoreAnnotations.TokensAnnotation.class));
+    }
+    fixWhitespaceAround(newText, tokens, tokensBefore);
+    fixWhitespaceAround(newText, tokens, tokensBefore + region.get(CoreAnnotations.TokensAnnotation.class).size());
+    annotation.set(CoreAnnotations.TextAnnotation.class, newText);
+    annotation.set(CoreAnnotations.TokensAnnotation.class, tokens);
+    annotation.set(CoreAnnotations.SentencesAnnotation.class, sentences);
+    if (annotation.containsKey(CoreAnnotations.MentionsAnnotation.class)) {
+      annotation.set(CoreAnnotations.MentionsAnnotation.class, collectMentions(sentences));
+    }
+
+    // Run the document-level annotators again, if the edit changed anything they depend on
+    boolean rerun = false;
+    for (Annotator annotator : documentAnnotators) {
+      rerun = rerun || sentencesChanged || (charDelta != 0 && OFFSET_ANNOTATORS.contains(annotator.getClass()));
+      if (rerun) {
+        annotateWith(annotator, annotation);
+      }
+    }
+    return changed;
+  }
+
+  private static void annotateWith(Annotator annotator, Annotation annotation) {
+    if (Thread.interrupted()) {  // Allow interrupting
+      throw new RuntimeInterruptedException();
+    }
+    annotator.annotate(annotation);
+  }
+
+  /** Copies the document-level information which annotators of single sentences may use, e.g., the date for SUTime. */
+  private static void copyDocumentInformation(Annotation from, Annotation to) {
+    to.set(CoreAnnotations.DocIDAnnotation.class, from.get(CoreAnnotations.DocIDAnnotation.class));
+    to.set(CoreAnnotations.DocDateAnnotation.class, from.get(CoreAnnotations.DocDateAnnotation.class));
+  }
+
+  private static int countNewlines(String text, int begin, int end) {
+    int count = 0;
+    for (int i = begin; i < end; i++) {
+      if (text.charAt(i) == '\n') {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Whether the two sentences have the same text and the same tokens, wherever they are in the document. */
+  private static boolean sameTokens(CoreMap sentence, CoreMap other) {
+    if ( ! Objects.equals(sentence.get(CoreAnnotations.TextAnnotation.class), other.get(CoreAnnotations.TextAnnotation.class))) {
+      return false;
+    }
+    List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
+    List<CoreLabel> otherTokens = other.get(CoreAnnotations.TokensAnnotation.class);
+    if (tokens.size() != otherTokens.size()) {
+      return false;
+    }
+    int offset = sentence.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class);
+    int otherOffset = other.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class);
+    for (int i = 0; i < tokens.size(); i++) {
+      CoreLabel token = tokens.get(i);
+      CoreLabel otherToken = otherTokens.get(i);
+      if ( ! Objects.equals(token.word(), otherToken.word()) ||
+           token.beginPosition() - offset != otherToken.beginPosition() - otherOffset ||
+           token.endPosition() - offset != otherToken.endPosition() - otherOffset) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Moves an old sentence, and everything in it, to where the same new sentence is. */
+  private static CoreMap moveTo(CoreMap sentence, CoreMap newSentence) {
+    Integer line = sentence.get(CoreAnnotations.LineNumberAnnotation.class);
+    Integer newLine = newSentence.get(CoreAnnotations.LineNumberAnnotation.class);
+    shift(sentence,
+          newSentence.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class) - sentence.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class),
+          newSentence.get(CoreAnnotations.TokenBeginAnnotation.class) - sentence.get(CoreAnnotations.TokenBeginAnnotation.class),
+          newSentence.get(CoreAnnotations.SentenceIndexAnnotation.class),
+          line != null && newLine != null ? newLine - line : 0);
+    // the whitespace between sentences may have changed
+    List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
+    List<CoreLabel> newTokens = newSentence.get(CoreAnnotations.TokensAnnotation.class);
+    for (int i = 0; i < tokens.size(); i++) {
+      tokens.get(i).set(CoreAnnotations.BeforeAnnotation.class, newTokens.get(i).get(CoreAnnotations.BeforeAnnotation.class));
+      tokens.get(i).set(CoreAnnotations.AfterAnnotation.class, newTokens.get(i).get(CoreAnnotations.AfterAnnotation.class));
+    }
+    return sentence;
+  }
+
+  /**
+   * Moves a sentence by the given number of characters, tokens and lines, and gives it the given index.
+   * Its tokens and entity mentions are moved along with it. If its index changes, its trees and dependency
+   * graphs are updated too, as the vertices of a graph are hashed by their sentence index.
+   */
+  private static void shift(CoreMap sentence, int charDelta, int tokenDelta, int sentenceIndex, int lineDelta) {
+    Integer oldIndex = sentence.get(CoreAnnotations.SentenceIndexAnnotation.class);
+    shiftSpan(sentence, charDelta, tokenDelta);
+    sentence.set(CoreAnnotations.SentenceIndexAnnotation.class, sentenceIndex);
+    Integer line = sentence.get(CoreAnnotations.LineNumberAnnotation.class);
+    if (line != null) {
+      sentence.set(CoreAnnotations.LineNumberAnnotation.class, line + lineDelta);
+    }
+    for (CoreLabel token : sentence.get(CoreAnnotations.TokensAnnotation.class)) {
+      shiftSpan(token, charDelta, tokenDelta);
+      token.setSentIndex(sentenceIndex);
+    }
+    List<CoreMap> mentions = sentence.get(CoreAnnotations.MentionsAnnotation.class);
+    if (mentions != null) {
+      for (CoreMap mention : mentions) {
+        shiftSpan(mention, charDelta, tokenDelta);
+        if (mention.containsKey(CoreAnnotations.SentenceIndexAnnotation.class)) {
+          mention.set(CoreAnnotations.SentenceIndexAnnotation.class, sentenceIndex);
+        }
+      }
+    }
+    if (oldIndex == null || oldIndex != sentenceIndex) {
+      reindex(sentence, sentenceIndex);
+    }
+  }
+
+  private static void shiftSpan(CoreMap map, int charDelta, int tokenDelta) {
+    Integer begin = map.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class);
+    if (begin != null) {
+      map.set(CoreAnnotations.CharacterOffsetBeginAnnotation.class, begin + charDelta);
+    }
+    Integer end = map.get(CoreAnnotations.CharacterOffsetEndAnnotation.class);
+    if (end != null) {
+      map.set(CoreAnnotations.CharacterOffsetEndAnnotation.class, end + charDelta);
+    }
+    Integer tokenBegin = map.get(CoreAnnotations.TokenBeginAnnotation.class);
+    if (tokenBegin != null) {
+      map.set(CoreAnnotations.TokenBeginAnnotation.class, tokenBegin + tokenDelta);
+    }
+    Integer tokenEnd = map.get(CoreAnnotations.TokenEndAnnotation.class);
+    if (tokenEnd != null) {
+      map.set(CoreAnnotations.TokenEndAnnotation.class, tokenEnd + tokenDelta);
+    }
+  }
+
+  /** Gives the leaves of a sentence's trees its new index, and rebuilds its dependency graphs with rehashed vertices. */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static void reindex(CoreMap sentence, int sentenceIndex) {
+    for (Class key : new ArrayList<>(sentence.keySet())) {
+      Object value = sentence.get(key);
+      if (value instanceof SemanticGraph) {
+        sentence.set(key, rehash((SemanticGraph) value));
+      }
+    }
+    Tree tree = sentence.get(TreeCoreAnnotations.TreeAnnotation.class);
+    if (tree != null) {
+      Trees.setSentIndex(tree, sentenceIndex);
+    }
+    Tree binarized = sentence.get(TreeCoreAnnotations.BinarizedTreeAnnotation.class);
+    if (binarized != null) {
+      Trees.setSentIndex(binarized, sentenceIndex);
+    }
+    List<Tree> kBest = sentence.get(TreeCoreAnnotations.KBestTreesAnnotation.class);
+    if (kBest != null) {
+      for (Tree t : kBest) {
+        Trees.setSentIndex(t, sentenceIndex);
+      }
+    }
+  }
+
+  /**
+   * A copy of the graph with new vertices for the same tokens. An {@link IndexedWord} caches its hash code,
+   * so the old vertices would no longer be found by a new {@link IndexedWord} of the same token.
+   */
+  private static SemanticGraph rehash(SemanticGraph graph) {
+    Map<IndexedWord, IndexedWord> vertices = new IdentityHashMap<>();
+    SemanticGraph copy = new SemanticGraph();
+    for (IndexedWord vertex : graph.vertexSet()) {
+      IndexedWord newVertex = new IndexedWord(vertex.backingLabel());
+      newVertex.setCopyCount(vertex.copyCount());
+      vertices.put(vertex, newVertex);
+      copy.addVertex(newVertex);
+    }
+    for (SemanticGraphEdge edge : graph.edgeIterable()) {
+      copy.addEdge(vertices.get(edge.getGovernor()), vertices.get(edge.getDependent()),
+                   edge.getRelation(), edge.getWeight(), edge.isExtra());
+    }
+    List<IndexedWord> roots = new ArrayList<>();
+    for (IndexedWord root : graph.getRoots()) {
+      roots.add(vertices.get(root));
+    }
+    copy.setRoots(roots);
+    for (String comment : graph.getComments()) {
+      copy.addComment(comment);
+    }
+    if (graph.isCompact()) {
+      copy.compact();
+    }
+    return copy;
+  }
+
+  /** Recomputes the whitespace between tokens.get(i - 1) and tokens.get(i), either of which may be missing. */
+  private static void fixWhitespaceAround(String text, List<CoreLabel> tokens, int i) {
+    int begin = i > 0 ? tokens.get(i - 1).endPosition() : 0;
+    int end = i < tokens.size() ? tokens.get(i).beginPosition() : text.length();
+    if (begin < 0 || end < begin || end > text.length()) {
+      return;
+    }
+    String whitespace = text.substring(begin, end);
+    if (i > 0) {
+      tokens.get(i - 1).set(CoreAnnotations.AfterAnnotation.class, whitespace);
+    }
+    if (i < tokens.size()) {
+      tokens.get(i).set(CoreAnnotations.BeforeAnnotation.class, whitespace);
+    }
+  }
+
+  /** The document's entity mentions, numbered in order, as the entity mentions annotator does. */
+  private static List<CoreMap> collectMentions(List<CoreMap> sentences) {
+    List<CoreMap> mentions = new ArrayList<>();
+    for (CoreMap sentence : sentences) {
+      List<CoreMap> sentenceMentions = sentence.get(CoreAnnotations.MentionsAnnotation.class);
+      if (sentenceMentions == null) {
+        continue;
+      }
+      for (CoreMap mention : sentenceMentions) {
+        int index = mentions.size();
+        mention.set(CoreAnnotations.EntityMentionIndexAnnotation.class, index);
+        mention.set(CoreAnnotations.CanonicalEntityMentionIndexAnnotation.class, index);
+        List<CoreLabel> mentionTokens = mention.get(CoreAnnotations.TokensAnnotation.class);
+        if (mentionTokens != null) {
+          for (CoreLabel token : mentionTokens) {
+            token.set(CoreAnnotations.EntityMentionIndexAnnotation.class, index);
+          }
+        }
+        mentions.add(mention);
+      }
+    }
+    return mentions;
+  }
+
+}
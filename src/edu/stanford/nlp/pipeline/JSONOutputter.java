@@ -54,122 +54,13 @@ public class JSONOutputter extends AnnotationOutputter {
     JSONWriter l0 = new JSONWriter(writer, options);
 
     l0.object(l1 -> {
-
       // Add annotations attached to a Document
-      l1.set("docId", doc.get(CoreAnnotations.DocIDAnnotation.class));
-      l1.set("docDate", doc.get(CoreAnnotations.DocDateAnnotation.class));
-      l1.set("docSourceType", doc.get(CoreAnnotations.DocSourceTypeAnnotation.class));
-      l1.set("docType", doc.get(CoreAnnotations.DocTypeAnnotation.class));
-      l1.set("author", doc.get(CoreAnnotations.AuthorAnnotation.class));
-      l1.set("location", doc.get(CoreAnnotations.LocationAnnotation.class));
-      if (options.includeText) {
-        l1.set("text", doc.get(CoreAnnotations.TextAnnotation.class));
-      }
+      writeDocumentHeader(l1, doc, options);
 
       // Add sentences
       if (doc.get(CoreAnnotations.SentencesAnnotation.class) != null) {
-        l1.set("sentences", doc.get(CoreAnnotations.SentencesAnnotation.class).stream().map(sentence -> (Consumer<Writer>) (Writer l2) -> {
-          // Add a single sentence
-          // (metadata)
-          l2.set("id", sentence.get(CoreAnnotations.SentenceIDAnnotation.class));
-          l2.set("index", sentence.get(CoreAnnotations.SentenceIndexAnnotation.class));
-          l2.set("line", sentence.get(CoreAnnotations.LineNumberAnnotation.class));
-          // (constituency tree)
-          StringWriter treeStrWriter = new StringWriter();
-          TreePrint treePrinter = options.constituencyTreePrinter;
-          if (treePrinter == AnnotationOutputter.DEFAULT_CONSTITUENCY_TREE_PRINTER) {
-            // note the '==' -- we're overwriting the default, but only if it was not explicitly set otherwise
-            treePrinter = new TreePrint("oneline");
-          }
-          treePrinter.printTree(sentence.get(TreeCoreAnnotations.TreeAnnotation.class), new PrintWriter(treeStrWriter, true));
-          String treeStr = treeStrWriter.toString().trim();  // strip the trailing newline
-          if (!"SENTENCE_SKIPPED_OR_UNPARSABLE".equals(treeStr)) {
-            l2.set("parse", treeStr);
-          }
-          // (dependency trees)
-          l2.set("basicDependencies", buildDependencyTree(sentence.get(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class)));
-          l2.set("enhancedDependencies", buildDependencyTree(sentence.get(SemanticGraphCoreAnnotations.EnhancedDependenciesAnnotation.class)));
-          l2.set("enhancedPlusPlusDependencies", buildDependencyTree(sentence.get(SemanticGraphCoreAnnotations.EnhancedPlusPlusDependenciesAnnotation.class)));
-          // (sentiment)
-          Tree sentimentTree = sentence.get(SentimentCoreAnnotations.SentimentAnnotatedTree.class);
-          if (sentimentTree != null) {
-            int sentiment = RNNCoreAnnotations.getPredictedClass(sentimentTree);
-            List<Double> sentimentPredictions =
-                RNNCoreAnnotations.getPredictionsAsStringList(sentimentTree);
-            String sentimentClass = sentence.get(SentimentCoreAnnotations.SentimentClass.class);
-            l2.set("sentimentValue", Integer.toString(sentiment));
-            l2.set("sentiment", sentimentClass.replaceAll(" ", ""));
-            l2.set("sentimentDistribution", sentimentPredictions);
-            StringWriter sentimentTreeStringWriter = new StringWriter();
-            sentimentTree.pennPrint(new PrintWriter(sentimentTreeStringWriter),
-                label -> (label.value() == null) ? "" :
-                    (RNNCoreAnnotations.getPredictedClass(label) != -1) ?
-                        (label.value() + "|sentiment=" + RNNCoreAnnotations.getPredictedClass(label) + "|prob=" +
-                            (String.format("%.3f", RNNCoreAnnotations.getPredictedClassProb(label)))) : label.value());
-            String treeString = sentimentTreeStringWriter.toString();
-            l2.set("sentimentTree", treeString.trim());
-          }
-          // (openie)
-          Collection<RelationTriple> openIETriples = sentence.get(NaturalLogicAnnotations.RelationTriplesAnnotation.class);
-          writeTriples(l2, "openie", openIETriples);
-          // (kbp)
-          Collection<RelationTriple> kbpTriples = sentence.get(CoreAnnotations.KBPTriplesAnnotation.class);
-          writeTriples(l2, "kbp", kbpTriples);
-
-          // (entity mentions)
-          if (sentence.get(CoreAnnotations.MentionsAnnotation.class) != null) {
-            Integer sentTokenBegin = sentence.get(CoreAnnotations.TokenBeginAnnotation.class);
-            l2.set("entitymentions", sentence.get(CoreAnnotations.MentionsAnnotation.class).stream().map(m -> (Consumer<Writer>) (Writer l3) -> {
-              Integer tokenBegin = m.get(CoreAnnotations.TokenBeginAnnotation.class);
-              Integer tokenEnd = m.get(CoreAnnotations.TokenEndAnnotation.class);
-              l3.set("docTokenBegin", tokenBegin);
-              l3.set("docTokenEnd", tokenEnd);
-              if (tokenBegin != null && sentTokenBegin != null) {
-                l3.set("tokenBegin", tokenBegin - sentTokenBegin);
-              }
-              if (tokenEnd != null && sentTokenBegin != null) {
-                l3.set("tokenEnd", tokenEnd - sentTokenBegin);
-              }
-              l3.set("text", m.get(CoreAnnotations.TextAnnotation.class));
-              //l3.set("originalText", m.get(CoreAnnotations.OriginalTextAnnotation.class));
-              //l3.set("lemma", m.get(CoreAnnotations.LemmaAnnotation.class));
-              l3.set("characterOffsetBegin", m.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class));
-              l3.set("characterOffsetEnd", m.get(CoreAnnotations.CharacterOffsetEndAnnotation.class));
-              //l3.set("pos", m.get(CoreAnnotations.PartOfSpeechAnnotation.class));
-              l3.set("ner", m.get(CoreAnnotations.NamedEntityTagAnnotation.class));
-              l3.set("normalizedNER", m.get(CoreAnnotations.NormalizedNamedEntityTagAnnotation.class));
-              l3.set("entitylink", m.get(CoreAnnotations.WikipediaEntityAnnotation.class));
-              // Timex
-              Timex time = m.get(TimeAnnotations.TimexAnnotation.class);
-              writeTime(l3, time);
-            }));
-          }
-
-          // (add tokens)
-          if (sentence.get(CoreAnnotations.TokensAnnotation.class) != null) {
-            l2.set("tokens", sentence.get(CoreAnnotations.TokensAnnotation.class).stream().map(token -> (Consumer<Writer>) (Writer l3) -> {
-              // Add a single token
-              l3.set("index", token.index());
-              l3.set("word", token.word());
-              l3.set("originalText", token.originalText());
-              l3.set("lemma", token.lemma());
-              l3.set("characterOffsetBegin", token.beginPosition());
-              l3.set("characterOffsetEnd", token.endPosition());
-              l3.set("pos", token.tag());
-              l3.set("ner", token.ner());
-              l3.set("normalizedNER", token.get(CoreAnnotations.NormalizedNamedEntityTagAnnotation.class));
-              l3.set("speaker", token.get(CoreAnnotations.SpeakerAnnotation.class));
-              l3.set("truecase", token.get(CoreAnnotations.TrueCaseAnnotation.class));
-              l3.set("truecaseText", token.get(CoreAnnotations.TrueCaseTextAnnotation.class));
-              l3.set("before", token.get(CoreAnnotations.BeforeAnnotation.class));
-              l3.set("after", token.get(CoreAnnotations.AfterAnnotation.class));
-              l3.set("entitylink", token.get(CoreAnnotations.WikipediaEntityAnnotation.class));
-              // Timex
-              Timex time = token.get(TimeAnnotations.TimexAnnotation.class);
-              writeTime(l3, time);
-            }));
-          }
-        }));
+        l1.set("sentences", doc.get(CoreAnnotations.SentencesAnnotation.class).stream().map(sentence ->
+            (Consumer<Writer>) (Writer l2) -> writeSentence(l2, sentence, options)));
       } else {
         if (doc.get(CoreAnnotations.TokensAnnotation.class) != null) {
           l1.set("tokens", doc.get(CoreAnnotations.TokensAnnotation.class).stream().map(token ->
@@ -183,85 +74,263 @@ public class JSONOutputter extends AnnotationOutputter {
         }
       }
 
-      // Add coref values
-      if (doc.get(CorefCoreAnnotations.CorefChainAnnotation.class) != null) {
-        Map<Integer, CorefChain> corefChains =
-            doc.get(CorefCoreAnnotations.CorefChainAnnotation.class);
-        if (corefChains != null) {
-          l1.set("corefs", (Consumer<Writer>) chainWriter -> {
-            for (CorefChain chain : corefChains.values()) {
-              CorefChain.CorefMention representative = chain.getRepresentativeMention();
-              chainWriter.set(Integer.toString(chain.getChainID()), chain.getMentionsInTextualOrder().stream().map(mention -> (Consumer<Writer>) (Writer mentionWriter) -> {
-                mentionWriter.set("id", mention.mentionID);
-                mentionWriter.set("text", mention.mentionSpan);
-                mentionWriter.set("type", mention.mentionType);
-                mentionWriter.set("number", mention.number);
-                mentionWriter.set("gender", mention.gender);
-                mentionWriter.set("animacy", mention.animacy);
-                mentionWriter.set("startIndex", mention.startIndex);
-                mentionWriter.set("endIndex", mention.endIndex);
-                mentionWriter.set("headIndex", mention.headIndex);
-                mentionWriter.set("sentNum", mention.sentNum);
-                mentionWriter.set("position", Arrays.stream(mention.position.elems()).boxed().collect(Collectors.toList()));
-                mentionWriter.set("isRepresentativeMention", mention == representative);
-              }));
-            }
-          });
-        }
-      }
+      // Add coref values, quotes, and sections
+      writeDocumentLevel(l1, doc);
+    });
+
+    l0.newline();
+    l0.flush();  // flush
+  }
 
-      // quotes
-      if (doc.get(CoreAnnotations.QuotationsAnnotation.class) != null) {
-        List<CoreMap> quotes = QuoteAnnotator.gatherQuotes(doc);
-        l1.set("quotes", quotes.stream().map(quote -> (Consumer<Writer>) (Writer l2) -> {
-          l2.set("id", quote.get(CoreAnnotations.QuotationIndexAnnotation.class));
-          l2.set("text", quote.get(CoreAnnotations.TextAnnotation.class));
-          l2.set("beginIndex", quote.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class));
-          l2.set("endIndex", quote.get(CoreAnnotations.CharacterOffsetEndAnnotation.class));
-          l2.set("beginToken", quote.get(CoreAnnotations.TokenBeginAnnotation.class));
-          l2.set("endToken", quote.get(CoreAnnotations.TokenEndAnnotation.class));
-          l2.set("beginSentence", quote.get(CoreAnnotations.SentenceBeginAnnotation.class));
-          l2.set("endSentence", quote.get(CoreAnnotations.SentenceEndAnnotation.class));
-          l2.set("speaker",
-              quote.get(QuoteAttributionAnnotator.SpeakerAnnotation.class) != null ?
-                  quote.get(QuoteAttributionAnnotator.SpeakerAnnotation.class) :
-                  "Unknown");
-          l2.set("canonicalSpeaker",
-              quote.get(QuoteAttributionAnnotator.CanonicalMentionAnnotation.class) != null ?
-                  quote.get(QuoteAttributionAnnotator.CanonicalMentionAnnotation.class) :
-                  "Unknown");
+  /**
+   * Print a single sentence as one line of JSON, formatted the same way as an element of the
+   * {@code sentences} list in {@link JSONOutputter#print(Annotation, OutputStream, Options)}.
+   * This is used to stream newline-delimited JSON, one sentence at a time;
+   * the options should therefore not ask for pretty printing.
+   *
+   * @param sentence The sentence to print.
+   * @param target The stream to print to. This is flushed, but not closed.
+   * @param options The output options.
+   */
+  public void printSentence(CoreMap sentence, OutputStream target, Options options) throws IOException {
+    PrintWriter writer = new PrintWriter(IOUtils.encodedOutputStreamWriter(target, options.encoding));
+    JSONWriter l0 = new JSONWriter(writer, options);
+    l0.object(l2 -> writeSentence(l2, sentence, options));
+    writer.write("\n");  // always end the frame with a newline, even if not pretty printing
+    l0.flush();
+  }
 
+  /**
+   * Print the document-level parts of an annotation (coreference, quotes, sections, and the document metadata)
+   * as one line of JSON. This is the trailing frame after a document has been streamed
+   * sentence by sentence with {@link JSONOutputter#printSentence(CoreMap, OutputStream, Options)}.
+   *
+   * @param doc The document to print.
+   * @param includeSentenceResults If true, also print the sentence-level results that document-level annotators
+   *                               attach to sentences (entity mentions, OpenIE and KBP triples), keyed by sentence index.
+   * @param target The stream to print to. This is flushed, but not closed.
+   * @param options The output options.
+   */
+  public void printDocumentTrailer(Annotation doc, boolean includeSentenceResults, OutputStream target, Options options) throws IOException {
+    PrintWriter writer = new PrintWriter(IOUtils.encodedOutputStreamWriter(target, options.encoding));
+    JSONWriter l0 = new JSONWriter(writer, options);
+    l0.object(l1 -> {
+      writeDocumentHeader(l1, doc, options);
+      if (includeSentenceResults && doc.get(CoreAnnotations.SentencesAnnotation.class) != null) {
+        l1.set("sentences", doc.get(CoreAnnotations.SentencesAnnotation.class).stream().map(sentence -> (Consumer<Writer>) (Writer l2) -> {
+          l2.set("index", sentence.get(CoreAnnotations.SentenceIndexAnnotation.class));
+          writeEntityMentions(l2, sentence);
+          writeTriples(l2, "openie", sentence.get(NaturalLogicAnnotations.RelationTriplesAnnotation.class));
+          writeTriples(l2, "kbp", sentence.get(CoreAnnotations.KBPTriplesAnnotation.class));
         }));
       }
+      writeDocumentLevel(l1, doc);
+    });
+    writer.write("\n");  // always end the frame with a newline, even if not pretty printing
+    l0.flush();
+  }
 
-      // sections
-      if (doc.get(CoreAnnotations.SectionsAnnotation.class) != null) {
-        List<CoreMap> sections = doc.get(CoreAnnotations.SectionsAnnotation.class);
-        l1.set("sections", sections.stream().map(section -> (Consumer<Writer>) (Writer l2) -> {
-          // Set char start
-          l2.set("charBegin", section.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class));
-          // Set char end
-          l2.set("charEnd", section.get(CoreAnnotations.CharacterOffsetEndAnnotation.class));
-          // Set author
-          if (section.get(CoreAnnotations.AuthorAnnotation.class) != null) {
-            l2.set("author", section.get(CoreAnnotations.AuthorAnnotation.class));
-          }
-          // Set date time
-          if (section.get(CoreAnnotations.SectionDateAnnotation.class) != null) {
-            l2.set("dateTime", section.get(CoreAnnotations.SectionDateAnnotation.class));
+  /** Write the metadata attached to a document. */
+  private static void writeDocumentHeader(Writer l1, Annotation doc, Options options) {
+    l1.set("docId", doc.get(CoreAnnotations.DocIDAnnotation.class));
+    l1.set("docDate", doc.get(CoreAnnotations.DocDateAnnotation.class));
+    l1.set("docSourceType", doc.get(CoreAnnotations.DocSourceTypeAnnotation.class));
+    l1.set("docType", doc.get(CoreAnnotations.DocTypeAnnotation.class));
+    l1.set("author", doc.get(CoreAnnotations.AuthorAnnotation.class));
+    l1.set("location", doc.get(CoreAnnotations.LocationAnnotation.class));
+    if (options.includeText) {
+      l1.set("text", doc.get(CoreAnnotations.TextAnnotation.class));
+    }
+  }
+
+  /** Write a single sentence, including its tokens. */
+  @SuppressWarnings("RedundantCast")  // It's lying; we need the "redundant" casts (as of 2014-09-08)
+  private static void writeSentence(Writer l2, CoreMap sentence, Options options) {
+    // Add a single sentence
+    // (metadata)
+    l2.set("id", sentence.get(CoreAnnotations.SentenceIDAnnotation.class));
+    l2.set("index", sentence.get(CoreAnnotations.SentenceIndexAnnotation.class));
+    l2.set("line", sentence.get(CoreAnnotations.LineNumberAnnotation.class));
+    // (constituency tree)
+    StringWriter treeStrWriter = new StringWriter();
+    TreePrint treePrinter = options.constituencyTreePrinter;
+    if (treePrinter == AnnotationOutputter.DEFAULT_CONSTITUENCY_TREE_PRINTER) {
+      // note the '==' -- we're overwriting the default, but only if it was not explicitly set otherwise
+      treePrinter = new TreePrint("oneline");
+    }
+    treePrinter.printTree(sentence.get(TreeCoreAnnotations.TreeAnnotation.class), new PrintWriter(treeStrWriter, true));
+    String treeStr = treeStrWriter.toString().trim();  // strip the trailing newline
+    if (!"SENTENCE_SKIPPED_OR_UNPARSABLE".equals(treeStr)) {
+      l2.set("parse", treeStr);
+    }
+    // (dependency trees)
+    l2.set("basicDependencies", buildDependencyTree(sentence.get(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class)));
+    l2.set("enhancedDependencies", buildDependencyTree(sentence.get(SemanticGraphCoreAnnotations.EnhancedDependenciesAnnotation.class)));
+    l2.set("enhancedPlusPlusDependencies", buildDependencyTree(sentence.get(SemanticGraphCoreAnnotations.EnhancedPlusPlusDependenciesAnnotation.class)));
+    // (sentiment)
+    Tree sentimentTree = sentence.get(SentimentCoreAnnotations.SentimentAnnotatedTree.class);
+    if (sentimentTree != null) {
+      int sentiment = RNNCoreAnnotations.getPredictedClass(sentimentTree);
+      List<Double> sentimentPredictions =
+          RNNCoreAnnotations.getPredictionsAsStringList(sentimentTree);
+      String sentimentClass = sentence.get(SentimentCoreAnnotations.SentimentClass.class);
+      l2.set("sentimentValue", Integer.toString(sentiment));
+      l2.set("sentiment", sentimentClass.replaceAll(" ", ""));
+      l2.set("sentimentDistribution", sentimentPredictions);
+      StringWriter sentimentTreeStringWriter = new StringWriter();
+      sentimentTree.pennPrint(new PrintWriter(sentimentTreeStringWriter),
+          label -> (label.value() == null) ? "" :
+              (RNNCoreAnnotations.getPredictedClass(label) != -1) ?
+                  (label.value() + "|sentiment=" + RNNCoreAnnotations.getPredictedClass(label) + "|prob=" +
+                      (String.format("%.3f", RNNCoreAnnotations.getPredictedClassProb(label)))) : label.value());
+      String treeString = sentimentTreeStringWriter.toString();
+      l2.set("sentimentTree", treeString.trim());
+    }
+    // (openie)
+    Collection<RelationTriple> openIETriples = sentence.get(NaturalLogicAnnotations.RelationTriplesAnnotation.class);
+    writeTriples(l2, "openie", openIETriples);
+    // (kbp)
+    Collection<RelationTriple> kbpTriples = sentence.get(CoreAnnotations.KBPTriplesAnnotation.class);
+    writeTriples(l2, "kbp", kbpTriples);
+
+    // (entity mentions)
+    writeEntityMentions(l2, sentence);
+
+    // (add tokens)
+    if (sentence.get(CoreAnnotations.TokensAnnotation.class) != null) {
+      l2.set("tokens", sentence.get(CoreAnnotations.TokensAnnotation.class).stream().map(token -> (Consumer<Writer>) (Writer l3) -> {
+        // Add a single token
+        l3.set("index", token.index());
+        l3.set("word", token.word());
+        l3.set("originalText", token.originalText());
+        l3.set("lemma", token.lemma());
+        l3.set("characterOffsetBegin", token.beginPosition());
+        l3.set("characterOffsetEnd", token.endPosition());
+        l3.set("pos", token.tag());
+        l3.set("ner", token.ner());
+        l3.set("normalizedNER", token.get(CoreAnnotations.NormalizedNamedEntityTagAnnotation.class));
+        l3.set("speaker", token.get(CoreAnnotations.SpeakerAnnotation.class));
+        l3.set("truecase", token.get(CoreAnnotations.TrueCaseAnnotation.class));
+        l3.set("truecaseText", token.get(CoreAnnotations.TrueCaseTextAnnotation.class));
+        l3.set("before", token.get(CoreAnnotations.BeforeAnnotation.class));
+        l3.set("after", token.get(CoreAnnotations.AfterAnnotation.class));
+        l3.set("entitylink", token.get(CoreAnnotations.WikipediaEntityAnnotation.class));
+        // Timex
+        Timex time = token.get(TimeAnnotations.TimexAnnotation.class);
+        writeTime(l3, time);
+      }));
+    }
+  }
+
+  /** Write the entity mentions of a sentence, if there are any. */
+  private static void writeEntityMentions(Writer l2, CoreMap sentence) {
+    if (sentence.get(CoreAnnotations.MentionsAnnotation.class) != null) {
+      Integer sentTokenBegin = sentence.get(CoreAnnotations.TokenBeginAnnotation.class);
+      l2.set("entitymentions", sentence.get(CoreAnnotations.MentionsAnnotation.class).stream().map(m -> (Consumer<Writer>) (Writer l3) -> {
+        Integer tokenBegin = m.get(CoreAnnotations.TokenBeginAnnotation.class);
+        Integer tokenEnd = m.get(CoreAnnotations.TokenEndAnnotation.class);
+        l3.set("docTokenBegin", tokenBegin);
+        l3.set("docTokenEnd", tokenEnd);
+        if (tokenBegin != null && sentTokenBegin != null) {
+          l3.set("tokenBegin", tokenBegin - sentTokenBegin);
+        }
+        if (tokenEnd != null && sentTokenBegin != null) {
+          l3.set("tokenEnd", tokenEnd - sentTokenBegin);
+        }
+        l3.set("text", m.get(CoreAnnotations.TextAnnotation.class));
+        //l3.set("originalText", m.get(CoreAnnotations.OriginalTextAnnotation.class));
+        //l3.set("lemma", m.get(CoreAnnotations.LemmaAnnotation.class));
+        l3.set("characterOffsetBegin", m.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class));
+        l3.set("characterOffsetEnd", m.get(CoreAnnotations.CharacterOffsetEndAnnotation.class));
+        //l3.set("pos", m.get(CoreAnnotations.PartOfSpeechAnnotation.class));
+        l3.set("ner", m.get(CoreAnnotations.NamedEntityTagAnnotation.class));
+        l3.set("normalizedNER", m.get(CoreAnnotations.NormalizedNamedEntityTagAnnotation.class));
+        l3.set("entitylink", m.get(CoreAnnotations.WikipediaEntityAnnotation.class));
+        // Timex
+        Timex time = m.get(TimeAnnotations.TimexAnnotation.class);
+        writeTime(l3, time);
+      }));
+    }
+  }
+
+  /** Write the document-level annotations: coreference chains, quotes, and sections. */
+  @SuppressWarnings("RedundantCast")  // It's lying; we need the "redundant" casts (as of 2014-09-08)
+  private static void writeDocumentLevel(Writer l1, Annotation doc) {
+    // Add coref values
+    if (doc.get(CorefCoreAnnotations.CorefChainAnnotation.class) != null) {
+      Map<Integer, CorefChain> corefChains =
+          doc.get(CorefCoreAnnotations.CorefChainAnnotation.class);
+      if (corefChains != null) {
+        l1.set("corefs", (Consumer<Writer>) chainWriter -> {
+          for (CorefChain chain : corefChains.values()) {
+            CorefChain.CorefMention representative = chain.getRepresentativeMention();
+            chainWriter.set(Integer.toString(chain.getChainID()), chain.getMentionsInTextualOrder().stream().map(mention -> (Consumer<Writer>) (Writer mentionWriter) -> {
+              mentionWriter.set("id", mention.mentionID);
+              mentionWriter.set("text", mention.mentionSpan);
+              mentionWriter.set("type", mention.mentionType);
+              mentionWriter.set("number", mention.number);
+              mentionWriter.set("gender", mention.gender);
+              mentionWriter.set("animacy", mention.animacy);
+              mentionWriter.set("startIndex", mention.startIndex);
+              mentionWriter.set("endIndex", mention.endIndex);
+              mentionWriter.set("headIndex", mention.headIndex);
+              mentionWriter.set("sentNum", mention.sentNum);
+              mentionWriter.set("position", Arrays.stream(mention.position.elems()).boxed().collect(Collectors.toList()));
+              mentionWriter.set("isRepresentativeMention", mention == representative);
+            }));
           }
-          // add the sentence indexes for the sentences in this section
-          List<CoreMap> sentences = section.get(CoreAnnotations.SentencesAnnotation.class);
-          l2.set("sentenceIndexes", sentences.stream().map(sentence -> (Consumer<Writer>) (Writer l3) -> {
-            int sentenceIndex = sentence.get(CoreAnnotations.SentenceIndexAnnotation.class);
-            l3.set("index", sentenceIndex);
-          }));
-        }));
+        });
       }
-    });
+    }
 
-    l0.newline();
-    l0.flush();  // flush
+    // quotes
+    if (doc.get(CoreAnnotations.QuotationsAnnotation.class) != null) {
+      List<CoreMap> quotes = QuoteAnnotator.gatherQuotes(doc);
+      l1.set("quotes", quotes.stream().map(quote -> (Consumer<Writer>) (Writer l2) -> {
+        l2.set("id", quote.get(CoreAnnotations.QuotationIndexAnnotation.class));
+        l2.set("text", quote.get(CoreAnnotations.TextAnnotation.class));
+        l2.set("beginIndex", quote.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class));
+        l2.set("endIndex", quote.get(CoreAnnotations.CharacterOffsetEndAnnotation.class));
+        l2.set("beginToken", quote.get(CoreAnnotations.TokenBeginAnnotation.class));
+        l2.set("endToken", quote.get(CoreAnnotations.TokenEndAnnotation.class));
+        l2.set("beginSentence", quote.get(CoreAnnotations.SentenceBeginAnnotation.class));
+        l2.set("endSentence", quote.get(CoreAnnotations.SentenceEndAnnotation.class));
+        l2.set("speaker",
+            quote.get(QuoteAttributionAnnotator.SpeakerAnnotation.class) != null ?
+                quote.get(QuoteAttributionAnnotator.SpeakerAnnotation.class) :
+                "Unknown");
+        l2.set("canonicalSpeaker",
+            quote.get(QuoteAttributionAnnotator.CanonicalMentionAnnotation.class) != null ?
+                quote.get(QuoteAttributionAnnotator.CanonicalMentionAnnotation.class) :
+                "Unknown");
+
+      }));
+    }
+
+    // sections
+    if (doc.get(CoreAnnotations.SectionsAnnotation.class) != null) {
+      List<CoreMap> sections = doc.get(CoreAnnotations.SectionsAnnotation.class);
+      l1.set("sections", sections.stream().map(section -> (Consumer<Writer>) (Writer l2) -> {
+        // Set char start
+        l2.set("charBegin", section.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class));
+        // Set char end
+        l2.set("charEnd", section.get(CoreAnnotations.CharacterOffsetEndAnnotation.class));
+        // Set author
+        if (section.get(CoreAnnotations.AuthorAnnotation.class) != null) {
+          l2.set("author", section.get(CoreAnnotations.AuthorAnnotation.class));
+        }
+        // Set date time
+        if (section.get(CoreAnnotations.SectionDateAnnotation.class) != null) {
+          l2.set("dateTime", section.get(CoreAnnotations.SectionDateAnnotation.class));
+        }
+        // add the sentence indexes for the sentences in this section
+        List<CoreMap> sentences = section.get(CoreAnnotations.SentencesAnnotation.class);
+        l2.set("sentenceIndexes", sentences.stream().map(sentence -> (Consumer<Writer>) (Writer l3) -> {
+          int sentenceIndex = sentence.get(CoreAnnotations.SentenceIndexAnnotation.class);
+          l3.set("index", sentenceIndex);
+        }));
+      }));
+    }
   }
 
   private static void writeTriples(Writer l2, String key, Collection<RelationTriple> triples) {
@@ -9,6 +9,7 @@ import edu.stanford.nlp.ling.tokensregex.types.Tags;
 import edu.stanford.nlp.time.TimeAnnotations;
 import edu.stanford.nlp.time.TimeExpression;
 import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.ModelRegistry;
 import edu.stanford.nlp.util.PropertiesUtils;
 import edu.stanford.nlp.util.RuntimeInterruptedException;
 import edu.stanford.nlp.util.logging.Redwood;
@@ -294,6 +295,18 @@ public class NERCombinerAnnotator extends SentenceAnnotator  {
     return maxTime;
   }
 
+  /** The NER annotator sets the document date and builds entity mentions over the whole document. */
+  @Override
+  public boolean isSentenceLocal() {
+    return false;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void unmount() {
+    ModelRegistry.release(ner);
+  }
+
   @Override
   public void annotate(Annotation annotation) {
     if (VERBOSE) {
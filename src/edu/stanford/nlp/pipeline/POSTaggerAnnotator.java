@@ -6,15 +6,13 @@ import java.util.*;
 import edu.stanford.nlp.ling.*;
 import edu.stanford.nlp.tagger.maxent.MaxentTagger;
 import edu.stanford.nlp.util.*;
-import edu.stanford.nlp.util.concurrent.MulticoreWrapper;
-import edu.stanford.nlp.util.concurrent.ThreadsafeProcessor;
 
 /**
  * Wrapper for the maxent part of speech tagger.
  *
  * @author Anna Rafferty
  */
-public class POSTaggerAnnotator implements Annotator  {
+public class POSTaggerAnnotator extends SentenceAnnotator  {
 
   /** A logger for this class */
   private static Redwood.RedwoodChannels log = Redwood.channels(POSTaggerAnnotator.class);
@@ -70,12 +68,19 @@ public class POSTaggerAnnotator implements Annotator  {
       posLoc = DefaultPaths.DEFAULT_POS_MODEL;
     }
     boolean verbose = PropertiesUtils.getBool(props, annotatorName + ".verbose", false);
-    this.pos = loadModel(posLoc, verbose);
+    String modelLoc = posLoc;
+    this.pos = ModelRegistry.acquire(this, MaxentTagger.class, modelLoc, null, () -> loadModel(modelLoc, verbose));
     this.maxSentenceLength = PropertiesUtils.getInt(props, annotatorName + ".maxlen", Integer.MAX_VALUE);
     this.nThreads = PropertiesUtils.getInt(props, annotatorName + ".nthreads", PropertiesUtils.getInt(props, "nthreads", 1));
     this.reuseTags = PropertiesUtils.getBool(props, annotatorName + ".reuseTags", false);
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public void unmount() {
+    ModelRegistry.release(this);
+  }
+
   private static MaxentTagger loadModel(String loc, boolean verbose) {
     Timing timer = null;
     if (verbose) {
@@ -90,40 +95,26 @@ public class POSTaggerAnnotator implements Annotator  {
   }
 
   @Override
-  public void annotate(Annotation annotation) {
-    // turn the annotation into a sentence
-    if (annotation.containsKey(CoreAnnotations.SentencesAnnotation.class)) {
-      if (nThreads == 1) {
-        for (CoreMap sentence : annotation.get(CoreAnnotations.SentencesAnnotation.class)) {
-          doOneSentence(sentence);
-        }
-      } else {
-        MulticoreWrapper<CoreMap, CoreMap> wrapper = new MulticoreWrapper<>(nThreads, new POSTaggerProcessor());
-        for (CoreMap sentence : annotation.get(CoreAnnotations.SentencesAnnotation.class)) {
-          wrapper.put(sentence);
-          while (wrapper.peek()) {
-            wrapper.poll();
-          }
-        }
-        wrapper.join();
-        while (wrapper.peek()) {
-          wrapper.poll();
-        }
-      }
-    } else {
-      throw new RuntimeException("unable to find words/tokens in: " + annotation);
-    }
+  protected int nThreads() {
+    return nThreads;
   }
 
-  private class POSTaggerProcessor implements ThreadsafeProcessor<CoreMap, CoreMap> {
-    @Override
-    public CoreMap process(CoreMap sentence) {
-      return doOneSentence(sentence);
-    }
+  @Override
+  protected long maxTime() {
+    return 0;
+  }
+
+  @Override
+  protected void doOneSentence(Annotation annotation, CoreMap sentence) {
+    doOneSentence(sentence);
+  }
 
-    @Override
-    public ThreadsafeProcessor<CoreMap, CoreMap> newInstance() {
-      return this;
+  @Override
+  protected void doOneFailedSentence(Annotation annotation, CoreMap sentence) {
+    for (CoreLabel token : sentence.get(CoreAnnotations.TokensAnnotation.class)) {
+      if (token.tag() == null) {
+        token.set(CoreAnnotations.PartOfSpeechAnnotation.class, "X");
+      }
     }
   }
 
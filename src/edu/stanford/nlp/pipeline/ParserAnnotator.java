@@ -72,6 +72,12 @@ public class ParserAnnotator extends SentenceAnnotator  {
   private final boolean noSquash;
   private final GrammaticalStructure.Extras extraDependencies;
 
+  /**
+   * If true, store the dependency graphs in their compact, array-backed form (see {@link SemanticGraph#compact()}).
+   * Their vertices and edges are then listed in index order. Off by default.
+   */
+  private final boolean compactGraphs;
+
   public ParserAnnotator(boolean verbose, int maxSent) {
     this(System.getProperty("parse.model", LexicalizedParser.DEFAULT_PARSER_LOC), verbose, maxSent, StringUtils.EMPTY_STRING_ARRAY);
   }
@@ -107,6 +113,7 @@ public class ParserAnnotator extends SentenceAnnotator  {
     this.saveBinaryTrees = false;
     this.noSquash = false;
     this.extraDependencies = GrammaticalStructure.Extras.NONE;
+    this.compactGraphs = false;
   }
 
 
@@ -118,7 +125,11 @@ public class ParserAnnotator extends SentenceAnnotator  {
     this.VERBOSE = PropertiesUtils.getBool(props, annotatorName + ".debug", false);
 
     String[] flags = convertFlagsToArray(props.getProperty(annotatorName + ".flags"));
-    this.parser = loadModel(model, VERBOSE, flags);
+    // the flags and the dependency style are set on the model itself, so models loaded with different ones can't be shared
+    Properties modelOptions = new Properties();
+    modelOptions.setProperty("flags", String.join(" ", flags));
+    modelOptions.setProperty("originalDependencies", props.getProperty(annotatorName + ".originalDependencies", "false"));
+    this.parser = ModelRegistry.acquire(this, ParserGrammar.class, model, modelOptions, () -> loadModel(model, VERBOSE, flags));
     this.maxSentenceLength = PropertiesUtils.getInt(props, annotatorName + ".maxlen", -1);
 
     String treeMapClass = props.getProperty(annotatorName + ".treemap");
@@ -160,6 +171,13 @@ public class ParserAnnotator extends SentenceAnnotator  {
     this.saveBinaryTrees = PropertiesUtils.getBool(props, annotatorName + ".binaryTrees", usesBinary);
     this.noSquash = PropertiesUtils.getBool(props, annotatorName + ".nosquash", false);
     this.extraDependencies = MetaClass.cast(props.getProperty(annotatorName + ".extradependencies", "NONE"), GrammaticalStructure.Extras.class);
+    this.compactGraphs = PropertiesUtils.getBool(props, annotatorName + ".compactGraphs", false);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void unmount() {
+    ModelRegistry.release(this);
   }
 
   @SuppressWarnings("StringConcatenationInsideStringBufferAppend")
@@ -190,6 +208,8 @@ public class ParserAnnotator extends SentenceAnnotator  {
       props.getProperty(annotatorName + ".keepPunct", "true"));
     os.append(annotatorName + ".extradependencies:" +
         props.getProperty(annotatorName + ".extradependencies", "NONE").toLowerCase());
+    os.append(annotatorName + ".compactGraphs:" +
+        props.getProperty(annotatorName + ".compactGraphs", "false"));
     boolean usesBinary = StanfordCoreNLP.usesBinaryTrees(props);
     boolean saveBinaryTrees = PropertiesUtils.getBool(props, annotatorName + ".binaryTrees", usesBinary);
     os.append(annotatorName + ".binaryTrees:" + saveBinaryTrees);
@@ -294,7 +314,7 @@ public class ParserAnnotator extends SentenceAnnotator  {
       trees = mappedTrees;
     }
 
-    ParserAnnotatorUtils.fillInParseAnnotations(VERBOSE, BUILD_GRAPHS, gsf, sentence, trees, extraDependencies);
+    ParserAnnotatorUtils.fillInParseAnnotations(VERBOSE, BUILD_GRAPHS, gsf, sentence, trees, extraDependencies, compactGraphs);
 
     if (saveBinaryTrees) {
       TreeBinarizer binarizer = TreeBinarizer.simpleTreeBinarizer(parser.getTLPParams().headFinder(), parser.treebankLanguagePack());
@@ -358,6 +378,8 @@ public class ParserAnnotator extends SentenceAnnotator  {
       log.warn("Parsing of sentence failed, possibly because of out of memory.  " +
               "Will ignore and continue: " +
               SentenceUtils.listToString(words));
+    } finally {
+      pq.release();
     }
     return trees;
   }
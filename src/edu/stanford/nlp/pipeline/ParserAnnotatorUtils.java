@@ -1,5 +1,6 @@
 package edu.stanford.nlp.pipeline; 
 
+import java.util.Arrays;
 import java.util.List;
 
 import edu.stanford.nlp.ling.CoreAnnotations;
@@ -34,6 +35,16 @@ public class ParserAnnotatorUtils  {
   public static void fillInParseAnnotations(boolean verbose, boolean buildGraphs,
                                             GrammaticalStructureFactory gsf, CoreMap sentence,
                                             List<Tree> trees, GrammaticalStructure.Extras extras) {
+    fillInParseAnnotations(verbose, buildGraphs, gsf, sentence, trees, extras, false);
+  }
+
+  /** As above, but if compactGraphs is true, the dependency graphs are stored in
+   *  their compact form (see {@link SemanticGraph#compact()}).
+   */
+  public static void fillInParseAnnotations(boolean verbose, boolean buildGraphs,
+                                            GrammaticalStructureFactory gsf, CoreMap sentence,
+                                            List<Tree> trees, GrammaticalStructure.Extras extras,
+                                            boolean compactGraphs) {
 
     boolean first = true;
     for (Tree tree : trees) {
@@ -65,7 +76,12 @@ public class ParserAnnotatorUtils  {
           SemanticGraph ccDeps = SemanticGraphFactory.generateCCProcessedDependencies(gsf.newGrammaticalStructure(tree), extras);
           SemanticGraph enhancedDeps = SemanticGraphFactory.generateEnhancedDependencies(gsf.newGrammaticalStructure(tree));
           SemanticGraph enhancedPlusPlusDeps = SemanticGraphFactory.generateEnhancedPlusPlusDependencies(gsf.newGrammaticalStructure(tree));
-
+          if (compactGraphs) {
+            // the graphs are done being built, so store them in their compact form
+            for (SemanticGraph graph : Arrays.asList(deps, uncollapsedDeps, ccDeps, enhancedDeps, enhancedPlusPlusDeps)) {
+              graph.compact();
+            }
+          }
 
           if (verbose) {
             log.info("SDs:");
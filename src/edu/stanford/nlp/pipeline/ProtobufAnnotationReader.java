@@ -0,0 +1,473 @@
+package edu.stanford.nlp.pipeline;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import edu.stanford.nlp.io.RuntimeIOException;
+import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.logging.Redwood;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * <p>
+ *   A streaming reader for files of length-delimited {@link CoreNLPProtos.Document}s, as written by
+ *   {@link ProtobufAnnotationSerializer#write(Annotation, OutputStream)}.
+ *   Only one document is held in memory at a time, and only as its serialized bytes until it is asked for:
+ *   {@link #document()} materializes the whole {@link Annotation}, while {@link #sentences()} decodes the
+ *   sentences one at a time as they are iterated over.
+ * </p>
+ *
+ * <p>
+ *   The caller picks which {@link Part}s of the documents it does not need. These are dropped at the wire
+ *   level, before the protocol buffer is parsed, so that neither the proto objects nor the trees, graphs and
+ *   mentions built from them are ever created. For example, a caller which only wants tokens and
+ *   NER tags can skip {@link Part#PARSE_TREES}, {@link Part#DEPENDENCIES} and {@link Part#COREF}.
+ * </p>
+ *
+ * <p>
+ *   When reading from an (uncompressed) file, {@link #seek(int)} jumps to a document by its index in the file.
+ *   This uses a sidecar file of document offsets next to the archive (see {@link #offsetsFile(File)}),
+ *   which is written by {@link #writeOffsets(File)}, or on the first call to {@link #seek(int)} if it does not exist yet.
+ * </p>
+ *
+ * Usage:
+ * <pre>
+ *   try (ProtobufAnnotationReader reader = new ProtobufAnnotationReader(new File("docs.pb"),
+ *       EnumSet.of(ProtobufAnnotationReader.Part.PARSE_TREES, ProtobufAnnotationReader.Part.COREF))) {
+ *     while (reader.next()) {
+ *       for (CoreMap sentence : reader.sentences()) { ... }
+ *     }
+ *   }
+ * </pre>
+ */
+public class ProtobufAnnotationReader implements Closeable {
+
+  /** A logger for this class */
+  private static final Redwood.RedwoodChannels log = Redwood.channels(ProtobufAnnotationReader.class);
+
+  /** The field number of the sentences in a {@link CoreNLPProtos.Document}. */
+  private static final int SENTENCE_FIELD = CoreNLPProtos.Document.SENTENCE_FIELD_NUMBER;
+
+  /** The field number of the flag which tells the deserializer whether to recompute the numerized tokens. */
+  private static final int NUMERIZED_TOKENS_FIELD = CoreNLPProtos.Sentence.HASNUMERIZEDTOKENSANNOTATION_FIELD_NUMBER;
+
+  /**
+   * The parts of a serialized document which can be skipped when reading it.
+   * Each part lists the fields it covers in the {@link CoreNLPProtos.Sentence} and {@link CoreNLPProtos.Document}
+   * messages, along with the fields which cannot be deserialized without it.
+   */
+  public enum Part {
+    /** The constituency trees: the parse tree, binarized and sentiment trees, and the k-best trees. */
+    PARSE_TREES(new int[]{7, 31, 32, 34}, new int[0]),
+    /**
+     * All of the dependency graphs.
+     * This also drops the entailed sentences and clauses, which are stored relative to the graphs.
+     */
+    DEPENDENCIES(new int[]{8, 9, 10, 13, 17, 18, 15, 35}, new int[0]),
+    /** The entailed sentences and clauses from natural logic. */
+    ENTAILMENTS(new int[]{15, 35}, new int[0]),
+    /** The OpenIE and KBP relation triples. */
+    RELATION_TRIPLES(new int[]{14, 16, 68, 69}, new int[0]),
+    /** The machine reading entities and relations. */
+    RELATIONS(new int[]{51, 52, 53}, new int[0]),
+    /** The entity mentions of the sentences and the document. */
+    ENTITY_MENTIONS(new int[]{55, 65}, new int[]{9, 13}),
+    /** The coref chains and coref mentions, and the mappings between coref mentions and entity mentions. */
+    COREF(new int[]{56, 57}, new int[]{3, 14, 15, 16, 17, 18}),
+    /** The quotes of the document. */
+    QUOTES(new int[0], new int[]{6}),
+    /** The sections of an xml document. */
+    SECTIONS(new int[0], new int[]{11, 12}),
+    /** The characters used by the Chinese segmenter. */
+    CHARACTERS(new int[]{19}, new int[]{10}),
+    /**
+     * The numerized tokens. These are not stored, but recomputed with the {@link edu.stanford.nlp.ie.NumberNormalizer}
+     * when the document is read, which is rather slow.
+     */
+    NUMERIZED_TOKENS(new int[]{NUMERIZED_TOKENS_FIELD}, new int[0]);
+
+    private final int[] sentenceFields;
+    private final int[] documentFields;
+
+    Part(int[] sentenceFields, int[] documentFields) {
+      this.sentenceFields = sentenceFields;
+      this.documentFields = documentFields;
+    }
+  }
+
+
+  /** The serializer used to turn the (filtered) protos into annotations. */
+  private final ProtobufAnnotationSerializer serializer;
+
+  /** The fields dropped from each sentence. */
+  private final Set<Integer> skippedSentenceFields = new HashSet<>();
+
+  /** The fields dropped from each document. */
+  private final Set<Integer> skippedDocumentFields = new HashSet<>();
+
+  /** If true, the sentences are told not to recompute their numerized tokens. */
+  private final boolean skipNumerizedTokens;
+
+  /** The archive we are reading from, or null if we are reading from an arbitrary stream. */
+  private final File archive;
+
+  /** The channel of the archive, used to reposition the input on {@link #seek(int)}. Null if {@link #archive} is null. */
+  private final FileChannel channel;
+
+  /** The stream the documents are read from. */
+  private InputStream input;
+
+  /** The serialized bytes of the current document, or null if there is no current document. */
+  private byte[] current;
+
+  /** The index of the current document, or -1 before the first call to {@link #next()}. */
+  private int documentIndex = -1;
+
+
+  /**
+   * Read documents from a stream, for example a gzipped archive.
+   * The stream is closed when this reader is closed.
+   *
+   * @param input The stream to read the delimited documents from.
+   * @param skipped The parts of the documents to not deserialize.
+   */
+  public ProtobufAnnotationReader(InputStream input, Set<Part> skipped) {
+    this(input, new ProtobufAnnotationSerializer(), skipped);
+  }
+
+  /**
+   * Read documents from a stream, for example a gzipped archive, with a custom serializer.
+   * The stream is closed when this reader is closed.
+   *
+   * @param input The stream to read the delimited documents from.
+   * @param serializer The serializer used to deserialize the documents, after the skipped parts are removed.
+   * @param skipped The parts of the documents to not deserialize.
+   */
+  public ProtobufAnnotationReader(InputStream input, ProtobufAnnotationSerializer serializer, Set<Part> skipped) {
+    this(null, null, input, serializer, skipped);
+  }
+
+  /**
+   * Read documents from an uncompressed file.
+   * Unlike reading from a stream, this allows for random access with {@link #seek(int)}.
+   *
+   * @param archive The file of delimited documents.
+   * @param skipped The parts of the documents to not deserialize.
+   * @throws IOException If the file cannot be opened.
+   */
+  public ProtobufAnnotationReader(File archive, Set<Part> skipped) throws IOException {
+    this(archive, new FileInputStream(archive).getChannel(), skipped);
+  }
+
+  private ProtobufAnnotationReader(File archive, FileChannel channel, Set<Part> skipped) {
+    this(archive, channel, new BufferedInputStream(Channels.newInputStream(channel)), new ProtobufAnnotationSerializer(), skipped);
+  }
+
+  private ProtobufAnnotationReader(File archive, FileChannel channel, InputStream input,
+                                   ProtobufAnnotationSerializer serializer, Set<Part> skipped) {
+    this.archive = archive;
+    this.channel = channel;
+    this.input = input;
+    this.serializer = serializer;
+    for (Part part : skipped) {
+      for (int field : part.sentenceFields) {
+        skippedSentenceFields.add(field);
+      }
+      for (int field : part.documentFields) {
+        skippedDocumentFields.add(field);
+      }
+    }
+    this.skipNumerizedTokens = skipped.contains(Part.NUMERIZED_TOKENS);
+  }
+
+
+  /**
+   * Advance to the next document.
+   * This only reads the bytes of the document; nothing is deserialized until
+   * {@link #document()} or {@link #sentences()} is called, so skipping over a document is cheap.
+   *
+   * @return False if there are no more documents.
+   * @throws IOException If the input cannot be read, or ends in the middle of a document.
+   */
+  public boolean next() throws IOException {
+    current = readDelimited(input);
+    documentIndex += 1;
+    return current != null;
+  }
+
+  /**
+   * The index of the current document in the input, counting from 0.
+   */
+  public int documentIndex() {
+    return documentIndex;
+  }
+
+  /**
+   * Position this reader such that the next call to {@link #next()} reads the document with the given index.
+   * If the offsets file of the archive does not exist yet, it is created first.
+   *
+   * @param documentIndex The index of the document to jump to.
+   * @throws IOException If the archive or its offsets file cannot be read.
+   * @throws IllegalStateException If this reader is not reading from a file.
+   * @throws IndexOutOfBoundsException If there are not that many documents in the archive.
+   */
+  public void seek(int documentIndex) throws IOException {
+    if (archive == null) {
+      throw new IllegalStateException("Can only seek in a reader over a file");
+    }
+    File offsets = offsetsFile(archive);
+    if ( ! offsets.exists() || offsets.lastModified() < archive.lastModified()) {
+      writeOffsets(archive);
+    }
+    try (RandomAccessFile offsetsInput = new RandomAccessFile(offsets, "r")) {
+      long numDocuments = offsetsInput.length() / Long.BYTES;
+      if (documentIndex < 0 || documentIndex >= numDocuments) {
+        throw new IndexOutOfBoundsException("No document " + documentIndex + " in an archive of " + numDocuments + " documents");
+      }
+      offsetsInput.seek((long) documentIndex * Long.BYTES);
+      channel.position(offsetsInput.readLong());
+    }
+    input = new BufferedInputStream(Channels.newInputStream(channel));
+    current = null;
+    this.documentIndex = documentIndex - 1;
+  }
+
+  /**
+   * The current document, without the skipped parts, as a protocol buffer.
+   */
+  public CoreNLPProtos.Document documentProto() throws IOException {
+    if (current == null) {
+      throw new NoSuchElementException("No current document");
+    }
+    if (skippedDocumentFields.isEmpty() && skippedSentenceFields.isEmpty()) {
+      return CoreNLPProtos.Document.parseFrom(current);
+    }
+    return CoreNLPProtos.Document.parseFrom(filterDocument(current));
+  }
+
+  /**
+   * Deserialize the current document, without the skipped parts.
+   */
+  public Annotation document() throws IOException {
+    return serializer.fromProto(documentProto());
+  }
+
+  /**
+   * The sentences of the current document, decoded one at a time as they are iterated over.
+   * As with {@link ProtobufAnnotationSerializer#fromProto(CoreNLPProtos.Sentence)}, the sentences are
+   * read without the context of their document: each has its own tokens, and the relation triples
+   * (which can refer to tokens of other sentences) are always skipped.
+   */
+  public Iterable<CoreMap> sentences() {
+    if (current == null) {
+      throw new NoSuchElementException("No current document");
+    }
+    byte[] document = current;
+    return () -> new SentenceIterator(document);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void close() throws IOException {
+    input.close();
+    if (channel != null) {
+      channel.close();
+    }
+  }
+
+
+  /**
+   * Reads one length-delimited message from the stream.
+   *
+   * @return The bytes of the message, or null if the stream is at its end.
+   */
+  private static byte[] readDelimited(InputStream input) throws IOException {
+    int firstByte = input.read();
+    if (firstByte == -1) {
+      return null;
+    }
+    int length = CodedInputStream.readRawVarint32(firstByte, input);
+    byte[] message = new byte[length];
+    int read = 0;
+    while (read < length) {
+      int n = input.read(message, read, length - read);
+      if (n == -1) {
+        throw new EOFException("Truncated document: expected " + length + " bytes but got " + read);
+      }
+      read += n;
+    }
+    return message;
+  }
+
+  /**
+   * Copies a document, dropping the skipped fields of the document and of each of its sentences.
+   */
+  private byte[] filterDocument(byte[] document) throws IOException {
+    CodedInputStream in = CodedInputStream.newInstance(document);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(document.length);
+    CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+    while (true) {
+      int start = in.getTotalBytesRead();
+      int tag = in.readTag();
+      if (tag == 0) {
+        break;
+      }
+      int field = WireFormat.getTagFieldNumber(tag);
+      if (field == SENTENCE_FIELD) {
+        out.writeByteArray(SENTENCE_FIELD, filterSentence(in.readByteArray(), false));
+      } else if (skippedDocumentFields.contains(field)) {
+        in.skipField(tag);
+      } else {
+        // copy the field as it is
+        in.skipField(tag);
+        out.writeRawBytes(document, start, in.getTotalBytesRead() - start);
+      }
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Copies a sentence, dropping its skipped fields.
+   *
+   * @param skipTriples If true, also drop the relation triples, which cannot be read without the document.
+   */
+  private byte[] filterSentence(byte[] sentence, boolean skipTriples) throws IOException {
+    if (skippedSentenceFields.isEmpty() && ! skipTriples) {
+      return sentence;
+    }
+    CodedInputStream in = CodedInputStream.newInstance(sentence);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(sentence.length);
+    CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+    while (true) {
+      int start = in.getTotalBytesRead();
+      int tag = in.readTag();
+      if (tag == 0) {
+        break;
+      }
+      int field = WireFormat.getTagFieldNumber(tag);
+      if (skippedSentenceFields.contains(field) ||
+          (skipTriples && (field == CoreNLPProtos.Sentence.OPENIETRIPLE_FIELD_NUMBER || field == CoreNLPProtos.Sentence.KBPTRIPLE_FIELD_NUMBER))) {
+        in.skipField(tag);
+      } else {
+        // copy the field as it is
+        in.skipField(tag);
+        out.writeRawBytes(sentence, start, in.getTotalBytesRead() - start);
+      }
+    }
+    if (skipNumerizedTokens) {
+      // an explicit false, rather than a missing field, keeps the deserializer from recomputing them
+      out.writeBool(NUMERIZED_TOKENS_FIELD, false);
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+
+  /**
+   * Walks over the sentence fields of a serialized document, skipping everything else,
+   * and deserializes each sentence when it is reached.
+   */
+  private class SentenceIterator implements Iterator<CoreMap> {
+
+    private final CodedInputStream in;
+
+    /** The bytes of the next sentence, or null if there are no more sentences. */
+    private byte[] nextSentence;
+
+    private SentenceIterator(byte[] document) {
+      this.in = CodedInputStream.newInstance(document);
+      advance();
+    }
+
+    private void advance() {
+      try {
+        nextSentence = null;
+        while (true) {
+          int tag = in.readTag();
+          if (tag == 0) {
+            return;
+          }
+          if (WireFormat.getTagFieldNumber(tag) == SENTENCE_FIELD) {
+            nextSentence = in.readByteArray();
+            return;
+          }
+          in.skipField(tag);
+        }
+      } catch (IOException e) {
+        throw new RuntimeIOException(e);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextSentence != null;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public CoreMap next() {
+      if (nextSentence == null) {
+        throw new NoSuchElementException();
+      }
+      try {
+        CoreNLPProtos.Sentence proto = CoreNLPProtos.Sentence.parseFrom(filterSentence(nextSentence, true));
+        advance();
+        return serializer.fromProto(proto);
+      } catch (IOException e) {
+        throw new RuntimeIOException(e);
+      }
+    }
+  }
+
+
+  /**
+   * The sidecar file holding the byte offset of each document in the given archive.
+   */
+  public static File offsetsFile(File archive) {
+    return new File(archive.getPath() + ".offsets");
+  }
+
+  /**
+   * Write the offsets file for an archive of delimited documents: the byte offset at which each
+   * document starts, as a sequence of big-endian longs.
+   * Only the length prefixes of the documents are read; the documents themselves are skipped over.
+   *
+   * @param archive The (uncompressed) file of delimited documents.
+   * @return The number of documents in the archive.
+   * @throws IOException If the archive cannot be read, or the offsets file cannot be written.
+   */
+  public static int writeOffsets(File archive) throws IOException {
+    int numDocuments = 0;
+    try (InputStream in = new BufferedInputStream(new FileInputStream(archive));
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(offsetsFile(archive))))) {
+      long offset = 0;
+      while (true) {
+        int firstByte = in.read();
+        if (firstByte == -1) {
+          break;
+        }
+        int length = CodedInputStream.readRawVarint32(firstByte, in);
+        out.writeLong(offset);
+        numDocuments += 1;
+        offset += CodedOutputStream.computeUInt32SizeNoTag(length) + length;
+        long toSkip = length;
+        while (toSkip > 0) {
+          long skipped = in.skip(toSkip);
+          if (skipped <= 0) {
+            throw new EOFException("Truncated document " + numDocuments + " in " + archive);
+          }
+          toSkip -= skipped;
+        }
+      }
+    }
+    log.info("Wrote the offsets of " + numDocuments + " documents to " + offsetsFile(archive));
+    return numDocuments;
+  }
+
+}
@@ -1,99 +1,30 @@
 package edu.stanford.nlp.pipeline;
 
-import java.util.List;
-import java.util.concurrent.RejectedExecutionException;
-
 import edu.stanford.nlp.ling.CoreAnnotations;
 import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.Pair;
 import edu.stanford.nlp.util.RuntimeInterruptedException;
-import edu.stanford.nlp.util.concurrent.InterruptibleMulticoreWrapper;
-import edu.stanford.nlp.util.concurrent.ThreadsafeProcessor;
+import edu.stanford.nlp.util.concurrent.SharedWorkerPool;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A parent class for annotators which might want to analyze one
  * sentence at a time, possibly in a multithreaded manner.
  *
- * TODO: also factor out the POS
- *
  * @author John Bauer
  */
 public abstract class SentenceAnnotator implements Annotator {
-  protected class AnnotatorProcessor implements ThreadsafeProcessor<CoreMap, CoreMap> {
-
-    final Annotation annotation;
-
-    AnnotatorProcessor(Annotation annotation) {
-      this.annotation = annotation;
-    }
-
-    @Override
-    public CoreMap process(CoreMap sentence) {
-      doOneSentence(annotation, sentence);
-      return sentence;
-    }
-
-    @Override
-    public ThreadsafeProcessor<CoreMap, CoreMap> newInstance() {
-      return this;
-    }
-  }
-
-  private InterruptibleMulticoreWrapper<CoreMap, CoreMap> buildWrapper(Annotation annotation) {
-    InterruptibleMulticoreWrapper<CoreMap, CoreMap> wrapper = new InterruptibleMulticoreWrapper<>(nThreads(), new AnnotatorProcessor(annotation), true, maxTime());
-    return wrapper;
-  }
-
   @Override
   public void annotate(Annotation annotation) {
     if (annotation.containsKey(CoreAnnotations.SentencesAnnotation.class)) {
       if (nThreads() != 1 || maxTime() > 0) {
-        InterruptibleMulticoreWrapper<CoreMap, CoreMap> wrapper = buildWrapper(annotation);
-        for (CoreMap sentence : annotation.get(CoreAnnotations.SentencesAnnotation.class)) {
-          boolean success = false;
-          // We iterate twice for each sentence so that if we fail for
-          // a sentence once, we start a new queue and try again.
-          // If the sentence fails a second time we give up.
-          for (int attempt = 0; attempt < 2; ++attempt) {
-            try {
-              wrapper.put(sentence);
-              success = true;
-              break;
-            } catch (RejectedExecutionException e) {
-              // If we time out, for now, we just throw away all jobs which were running at the time.
-              // Note that in order for this to be useful, the underlying job needs to handle Thread.interrupted()
-              List<CoreMap> failedSentences = wrapper.joinWithTimeout();
-              if (failedSentences != null) {
-                for (CoreMap failed : failedSentences) {
-                  doOneFailedSentence(annotation, failed);
-                }
-              }
-              // We don't wait for termination here, and perhaps this
-              // is a mistake.  If the processor used does not respect
-              // interruption, we could easily create many threads
-              // which are all doing useless work.  However, there is
-              // no clean way to interrupt the thread and then
-              // guarantee it finishes without running the risk of
-              // waiting forever for the thread to finish, which is
-              // exactly what we don't want with the timeout.
-              wrapper = buildWrapper(annotation);
-            }
-          }
-          if (!success) {
-            doOneFailedSentence(annotation, sentence);
-          }
-          while (wrapper.peek()) {
-            wrapper.poll();
-          }
-        }
-        List<CoreMap> failedSentences = wrapper.joinWithTimeout();
-        while (wrapper.peek()) {
-          wrapper.poll();
-        }
-        if (failedSentences != null) {
-          for (CoreMap failed : failedSentences) {
-            doOneFailedSentence(annotation, failed);
-          }
-        }
+        // Sentences which time out (or otherwise fail) get the empty annotations of doOneFailedSentence.
+        // Note that in order for the timeout to be useful, the underlying annotator needs to handle Thread.interrupted()
+        workerPool().run(annotation.get(CoreAnnotations.SentencesAnnotation.class), nThreads(), maxTime(),
+                         sentence -> doOneSentence(annotation, sentence),
+                         sentence -> doOneFailedSentence(annotation, sentence));
       } else {
         for (CoreMap sentence : annotation.get(CoreAnnotations.SentencesAnnotation.class)) {
           if (Thread.interrupted()) {
@@ -107,10 +38,68 @@ public abstract class SentenceAnnotator implements Annotator {
     }
   }
 
+  /**
+   * Annotates the sentences of all the documents together, so that with more than one thread,
+   * sentences of different documents are annotated at once.
+   * Annotators which are not {@link #isSentenceLocal()} annotate the documents one at a time.
+   */
+  @Override
+  public void annotateBatch(List<Annotation> documents) {
+    if ( ! isSentenceLocal()) {
+      Annotator.super.annotateBatch(documents);
+      return;
+    }
+    List<Pair<Annotation, CoreMap>> sentences = new ArrayList<>();
+    for (Annotation document : documents) {
+      if ( ! document.containsKey(CoreAnnotations.SentencesAnnotation.class)) {
+        throw new IllegalArgumentException("unable to find sentences in: " + document);
+      }
+      for (CoreMap sentence : document.get(CoreAnnotations.SentencesAnnotation.class)) {
+        sentences.add(Pair.makePair(document, sentence));
+      }
+    }
+    if (nThreads() != 1 || maxTime() > 0) {
+      workerPool().run(sentences, nThreads(), maxTime(),
+                       sentence -> doOneSentence(sentence.first, sentence.second),
+                       sentence -> doOneFailedSentence(sentence.first, sentence.second));
+    } else {
+      for (Pair<Annotation, CoreMap> sentence : sentences) {
+        if (Thread.interrupted()) {
+          throw new RuntimeInterruptedException();
+        }
+        doOneSentence(sentence.first, sentence.second);
+      }
+    }
+  }
+
+  /**
+   * The pool of threads which annotates the sentences when {@link #nThreads()} is not 1 or there is a
+   * {@link #maxTime()}. By default, this is the pool shared by the whole JVM, so the sentence threads of all
+   * annotators and of all documents being annotated at once, in all pipelines, together never use more than
+   * one thread per core, and no threads are created per document. Annotators in different pipelines therefore
+   * compete for the same threads. If {@link #nThreads()} is more than there are cores, the sentences instead
+   * run on a pool of exactly that many threads (see {@link SharedWorkerPool#withThreads(int)}), so that an
+   * explicit {@code nthreads} setting is honored.
+   */
+  protected SharedWorkerPool workerPool() {
+    return SharedWorkerPool.withThreads(nThreads());
+  }
+
+  /**
+   * Returns true if {@link SentenceAnnotator#annotate(Annotation)} does nothing beyond
+   * calling {@link SentenceAnnotator#doOneSentence(Annotation, CoreMap)} on every sentence.
+   * Such annotators can just as well be run one sentence at a time, e.g., to stream results
+   * with {@link AnnotationPipeline#annotateStreaming(Annotation, java.util.function.Consumer)}.
+   * Subclasses which also do document-level work in {@code annotate} must return false.
+   */
+  public boolean isSentenceLocal() {
+    return true;
+  }
+
   protected abstract int nThreads();
 
   /**
-   * The maximum time to run this annotator for, in milliseconds.
+   * The maximum time to run this annotator for on one sentence, in milliseconds.
    */
   protected abstract long maxTime();
 
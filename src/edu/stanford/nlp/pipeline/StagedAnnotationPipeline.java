@@ -0,0 +1,319 @@
+package edu.stanford.nlp.pipeline;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.util.RuntimeInterruptedException;
+import edu.stanford.nlp.util.StringUtils;
+import edu.stanford.nlp.util.Timing;
+import edu.stanford.nlp.util.logging.Redwood;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+
+/**
+ * Runs a pipeline of annotators over many documents as an assembly line.
+ * Unlike {@link AnnotationPipeline#annotate(Iterable, int, Consumer)}, where each thread runs every annotator
+ * on its own documents, here each {@link Stage} (one annotator, or a group of them) has its own threads,
+ * which only run that stage, and a bounded queue of documents waiting for it.
+ * A document moves on to the queue of the next stage once a stage is done with it, and a stage whose
+ * queue is full blocks the stage before it, so a slow stage never has an unbounded backlog.
+ * <br>
+ * This keeps the working set of each thread to one model, and lets the threads be spread according to how
+ * expensive each stage is (e.g., one thread for the tokenizer, but twelve for the parser).
+ * After a run, {@link #stageInformation()} shows how busy each stage was, and so which one was the bottleneck.
+ * <br>
+ * Each annotator must be threadsafe if its stage has more than one thread, as for the other multithreaded
+ * ways of running a pipeline. A pipeline can be run any number of times, but not by two threads at once.
+ */
+public class StagedAnnotationPipeline {
+
+  /** A logger for this class */
+  private static final Redwood.RedwoodChannels log = Redwood.channels(StagedAnnotationPipeline.class);
+
+  /**
+   * One stage of the assembly line: the annotators it runs, in order, its number of threads,
+   * and the capacity of the queue of documents waiting for it.
+   * A stage also keeps track of how it fared in the last run.
+   */
+  public static class Stage {
+
+    public final String name;
+    public final List<Annotator> annotators;
+    public final int numThreads;
+    public final int queueCapacity;
+
+    private final AtomicLong documents = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicLong waitingNanos = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private BlockingQueue<Annotation> queue;
+
+    /**
+     * @param name The name of the stage, used for its threads and in {@link StagedAnnotationPipeline#stageInformation()}.
+     * @param annotators The annotators run by this stage, in order.
+     * @param numThreads The number of threads of this stage.
+     * @param queueCapacity The number of documents which can wait for this stage before the stage before it is blocked.
+     */
+    public Stage(String name, List<Annotator> annotators, int numThreads, int queueCapacity) {
+      if (numThreads < 1 || queueCapacity < 1) {
+        throw new IllegalArgumentException("A stage needs at least one thread and a queue of at least one document: " + name);
+      }
+      this.name = name;
+      this.annotators = Collections.unmodifiableList(new ArrayList<>(annotators));
+      this.numThreads = numThreads;
+      this.queueCapacity = queueCapacity;
+    }
+
+    /** A stage with a queue of twice as many documents as it has threads. */
+    public Stage(String name, List<Annotator> annotators, int numThreads) {
+      this(name, annotators, numThreads, 2 * numThreads);
+    }
+
+    /** A stage which runs a single annotator. */
+    public Stage(Annotator annotator, int numThreads) {
+      this(StringUtils.getShortClassName(annotator), Collections.singletonList(annotator), numThreads);
+    }
+
+    /** The number of documents this stage finished in the last run. */
+    public long documents() { return documents.get(); }
+
+    /** The time the threads of this stage spent annotating in the last run, summed over the threads, in milliseconds. */
+    public long busyMillis() { return busyNanos.get() / 1000000; }
+
+    /** The time the threads of this stage spent waiting for documents in the last run, in milliseconds. */
+    public long waitingMillis() { return waitingNanos.get() / 1000000; }
+
+    /** The time the threads of this stage spent waiting for room in the queue of the next stage in the last run, in milliseconds. */
+    public long blockedMillis() { return blockedNanos.get() / 1000000; }
+
+    /** The number of documents waiting for this stage right now. */
+    public int queueDepth() {
+      BlockingQueue<Annotation> queue = this.queue;
+      return queue == null ? 0 : queue.size();
+    }
+
+    /** The most documents which waited for this stage at once in the last run. */
+    public int maxQueueDepth() { return maxQueueDepth.get(); }
+
+    private void reset() {
+      documents.set(0);
+      busyNanos.set(0);
+      waitingNanos.set(0);
+      blockedNanos.set(0);
+      maxQueueDepth.set(0);
+      queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @Override
+    public String toString() {
+      return name + " (" + numThreads + (numThreads == 1 ? " thread)" : " threads)");
+    }
+  }
+
+
+  /** Marks the end of the input in a queue. Every thread of a stage takes one, and so passes it on once. */
+  private static final Annotation END = new Annotation("");
+
+  private final List<Stage> stages;
+
+  /** The time the last run took, in milliseconds. */
+  private long elapsedMillis = 0;
+
+  public StagedAnnotationPipeline(List<Stage> stages) {
+    if (stages.isEmpty()) {
+      throw new IllegalArgumentException("A staged pipeline needs at least one stage");
+    }
+    this.stages = Collections.unmodifiableList(new ArrayList<>(stages));
+  }
+
+  public List<Stage> stages() {
+    return stages;
+  }
+
+  /**
+   * Annotate the documents, passing each one through all of the stages.
+   * The documents are read from the iterable on the calling thread, which blocks while the first stage is full,
+   * and this returns once every document has gone through every stage.
+   *
+   * @param annotations The documents to annotate. Each is modified in place.
+   * @param callback Called on each document once the last stage is done with it, from the threads of the
+   *                 last stage; the documents may therefore finish out of order, and the callback
+   *                 must be threadsafe if the last stage has more than one thread.
+   * @throws RuntimeException If an annotator or the callback throws an exception. The first such exception is rethrown
+   *                          once the stages have stopped, and the documents not yet annotated are dropped.
+   */
+  public void annotate(Iterable<Annotation> annotations, Consumer<Annotation> callback) {
+    Timing timing = new Timing();
+    for (Stage stage : stages) {
+      stage.reset();
+    }
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int s = 0; s < stages.size(); s++) {
+      Stage stage = stages.get(s);
+      Stage next = s + 1 < stages.size() ? stages.get(s + 1) : null;
+      AtomicInteger running = new AtomicInteger(stage.numThreads);
+      for (int i = 0; i < stage.numThreads; i++) {
+        Thread thread = new Thread(() -> runStage(stage, next, running, callback, failure), stage.name + '-' + i);
+        thread.setDaemon(true);
+        threads.add(thread);
+      }
+    }
+    threads.forEach(Thread::start);
+
+    Stage first = stages.get(0);
+    try {
+      for (Annotation annotation : annotations) {
+        if (failure.get() != null) {
+          break;
+        }
+        put(first, annotation, null);
+      }
+      for (int i = 0; i < first.numThreads; i++) {
+        put(first, END, null);
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    } catch (InterruptedException e) {
+      threads.forEach(Thread::interrupt);
+      throw new RuntimeInterruptedException(e);
+    } finally {
+      elapsedMillis = timing.report();
+    }
+
+    Throwable e = failure.get();
+    if (e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    } else if (e instanceof Error) {
+      throw (Error) e;
+    } else if (e != null) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Annotate the documents, passing each one through all of the stages. */
+  public void annotate(Iterable<Annotation> annotations) {
+    annotate(annotations, annotation -> {});
+  }
+
+  /** Put a document on the queue of a stage, charging the time spent blocked to the stage putting it there, if any. */
+  private static void put(Stage stage, Annotation annotation, Stage from) throws InterruptedException {
+    long start = System.nanoTime();
+    stage.queue.put(annotation);
+    if (from != null) {
+      from.blockedNanos.addAndGet(System.nanoTime() - start);
+    }
+    stage.maxQueueDepth.accumulateAndGet(stage.queue.size(), Math::max);
+  }
+
+  /** The loop run by each thread of a stage. */
+  private static void runStage(Stage stage, Stage next, AtomicInteger running,
+                               Consumer<Annotation> callback, AtomicReference<Throwable> failure) {
+    try {
+      while (true) {
+        long start = System.nanoTime();
+        Annotation annotation = stage.queue.take();
+        long taken = System.nanoTime();
+        stage.waitingNanos.addAndGet(taken - start);
+        if (annotation == END) {
+          break;
+        }
+        // after a failure, keep draining the queues so that every stage gets to the end of the input
+        if (failure.get() != null) {
+          continue;
+        }
+        try {
+          for (Annotator annotator : stage.annotators) {
+            annotator.annotate(annotation);
+          }
+        } catch (RuntimeException | Error e) {
+          log.warn("Stage " + stage.name + " failed: " + e);
+          failure.compareAndSet(null, e);
+          continue;
+        }
+        stage.busyNanos.addAndGet(System.nanoTime() - taken);
+        stage.documents.incrementAndGet();
+        if (next != null) {
+          put(next, annotation, stage);
+        } else {
+          // a failing callback must not stop this thread, or the stages before it would block on its full queue
+          try {
+            callback.accept(annotation);
+          } catch (RuntimeException | Error e) {
+            log.warn("Callback failed: " + e);
+            failure.compareAndSet(null, e);
+          }
+        }
+      }
+      // the last thread of this stage to finish tells the next stage that the input is over
+      if (running.decrementAndGet() == 0 && next != null) {
+        for (int i = 0; i < next.numThreads; i++) {
+          next.queue.put(END);
+        }
+      }
+    } catch (InterruptedException e) {
+      failure.compareAndSet(null, new RuntimeInterruptedException(e));
+    } catch (RuntimeException | Error e) {
+      // shouldn't happen, since failures of the annotators and the callback are caught above
+      failure.compareAndSet(null, e);
+      if (running.decrementAndGet() == 0 && next != null) {
+        for (int i = 0; i < next.numThreads; i++) {
+          next.queue.offer(END);
+        }
+      }
+    }
+  }
+
+  /**
+   * The stage which was the bottleneck of the last run: the one whose threads were the busiest.
+   */
+  public Stage bottleneck() {
+    Stage bottleneck = stages.get(0);
+    for (Stage stage : stages) {
+      if (stage.busyNanos.get() / stage.numThreads > bottleneck.busyNanos.get() / bottleneck.numThreads) {
+        bottleneck = stage;
+      }
+    }
+    return bottleneck;
+  }
+
+  /**
+   * Return a String with how each stage fared in the last run: the documents it annotated, how busy its threads were,
+   * how long they waited for documents or for room in the next stage, and how deep its queue got.
+   * A stage whose threads are busy all of the time, while the stages before it are blocked and the
+   * stages after it are waiting, is the bottleneck; giving it more threads should speed up the pipeline.
+   * This String includes newline characters but does not end with one.
+   */
+  public String stageInformation() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("Staged pipeline information:");
+    Stage bottleneck = bottleneck();
+    double elapsed = Math.max(elapsedMillis, 1);
+    for (Stage stage : stages) {
+      sb.append(IOUtils.eolChar);
+      sb.append(stage).append(": ").append(stage.documents()).append(" docs, ");
+      sb.append(String.format("%.1f docs/sec, ", stage.documents() * 1000.0 / elapsed));
+      sb.append(String.format("busy %.0f%%, ", 100.0 * stage.busyMillis() / stage.numThreads / elapsed));
+      sb.append("waiting ").append(Timing.toSecondsString(stage.waitingMillis())).append(" sec., ");
+      sb.append("blocked ").append(Timing.toSecondsString(stage.blockedMillis())).append(" sec., ");
+      sb.append("queue ").append(stage.queueDepth()).append('/').append(stage.queueCapacity);
+      sb.append(" (max ").append(stage.maxQueueDepth()).append(')');
+      if (stage == bottleneck && stages.size() > 1) {
+        sb.append(" <- bottleneck");
+      }
+    }
+    sb.append(IOUtils.eolChar);
+    sb.append("TOTAL: ").append(Timing.toSecondsString(elapsedMillis)).append(" sec.");
+    return sb.toString();
+  }
+
+}
@@ -23,6 +23,7 @@ import edu.stanford.nlp.util.logging.Redwood;
 import javax.net.ssl.*;
 import java.io.*;
 import java.lang.ref.SoftReference;
+import java.lang.reflect.Method;
 import java.math.BigInteger;
 import java.net.*;
 import java.nio.ByteBuffer;
@@ -32,6 +33,7 @@ import java.security.cert.CertificateException;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -85,6 +87,18 @@ public class StanfordCoreNLPServer implements Runnable {
   protected static String blacklist = null;
   @ArgumentParser.Option(name="stanford", gloss="If true, do special options (blacklist, timeout modifications) for public Stanford server")
   protected boolean stanford = false;
+  @ArgumentParser.Option(name="batch_size", gloss="If greater than 1, gather concurrent annotation requests with the same properties into batches of at most this many documents")
+  protected int batchSize = 1;
+  @ArgumentParser.Option(name="batch_wait", gloss="The longest time, in milliseconds, that a request waits for its batch to fill up, if -batch_size is greater than 1")
+  protected int batchWaitMilliseconds = 10;
+  @ArgumentParser.Option(name="virtual_threads", gloss="If true, run the HTTP request handlers on virtual threads (Java 21+; an unbounded pool of daemon threads on older JVMs). Annotation still runs on the bounded -threads pool")
+  protected boolean virtualThreads = false;
+  @ArgumentParser.Option(name="max_in_flight", gloss="If positive, respond with 503 (Service Unavailable) when this many annotation requests are already in flight, counting both those being annotated on the -threads annotation threads and those waiting for one")
+  protected int maxInFlight = 0;
+  @ArgumentParser.Option(name="retry_after", gloss="The number of seconds to send in the Retry-After header when a request is rejected because -max_in_flight requests are already in flight")
+  protected int retryAfterSeconds = 1;
+  @ArgumentParser.Option(name="model_budget", gloss="If positive, the number of megabytes of unused models (estimated from their file sizes) to keep loaded for reuse by later pipelines")
+  protected int modelBudgetMegabytes = -1;
 
 
 
@@ -95,7 +109,7 @@ public class StanfordCoreNLPServer implements Runnable {
   /**
    * The thread pool for the HTTP server.
    */
-  private final ExecutorService serverExecutor;
+  private ExecutorService serverExecutor;
 
   /**
    * To prevent grossly wasteful over-creation of pipeline objects, cache the last
@@ -108,6 +122,18 @@ public class StanfordCoreNLPServer implements Runnable {
    */
   private final ExecutorService corenlpExecutor;
 
+  /**
+   * If batching is enabled, the batcher that groups annotation requests before they
+   * are run on the {@link StanfordCoreNLPServer#corenlpExecutor}.
+   */
+  private AnnotationBatcher batcher = null;
+
+  /**
+   * The number of annotation requests which have been accepted, but have not finished yet.
+   * This is used for admission control; see {@link StanfordCoreNLPServer#maxInFlight}.
+   */
+  private final AtomicInteger inFlightRequests = new AtomicInteger(0);
+
 
   /**
    * A list of blacklisted subnets -- these cannot call the server.
@@ -197,7 +223,7 @@ public class StanfordCoreNLPServer implements Runnable {
       PropertiesUtils.overWriteProperties(this.defaultProps, serverProperties);
     }
 
-    this.serverExecutor = Executors.newFixedThreadPool(ArgumentParser.threads);
+    this.serverExecutor = mkHandlerExecutor(false, ArgumentParser.threads);
     this.corenlpExecutor = Executors.newFixedThreadPool(ArgumentParser.threads);
 
     // Generate and write a shutdown key, get optional server_id from passed in properties
@@ -502,6 +528,81 @@ public class StanfordCoreNLPServer implements Runnable {
     httpExchange.close();
   }
 
+  /**
+   * A helper function to respond to a request with an error stating that the server is overloaded,
+   * and that the request should be retried after {@link StanfordCoreNLPServer#retryAfterSeconds} seconds.
+   *
+   * @param httpExchange The exchange to send the error over.
+   *
+   * @throws IOException Thrown if the HttpExchange cannot communicate the error.
+   */
+  private void respondUnavailable(HttpExchange httpExchange) throws IOException {
+    if ( ! quiet) {
+      log("Responding unavailable to " + httpExchange.getRemoteAddress() + "; requests in flight: " + inFlightRequests.get());
+    }
+    httpExchange.getResponseHeaders().add("Content-type", "text/plain");
+    httpExchange.getResponseHeaders().add("Retry-After", Integer.toString(retryAfterSeconds));
+    byte[] content = "CoreNLP server is overloaded; please retry later.\n".getBytes("utf-8");
+    httpExchange.sendResponseHeaders(HTTP_UNAVAILABLE, content.length);
+    httpExchange.getResponseBody().write(content);
+    httpExchange.close();
+  }
+
+  /**
+   * Admission control for annotation requests.
+   * If {@link StanfordCoreNLPServer#maxInFlight} requests are already in flight, whether being annotated or
+   * waiting for an annotation thread, respond with 503 and reject the request. Otherwise, count the request
+   * as in flight; the caller must then call {@link StanfordCoreNLPServer#release()} once the request is done.
+   * Since each request (or batch of requests) takes one of the {@code -threads} annotation threads, a limit
+   * of {@code threads + n} lets at most about {@code n} requests wait for a thread.
+   *
+   * @param httpExchange The exchange to reject, if the server is overloaded.
+   *
+   * @return True if the request was admitted.
+   *
+   * @throws IOException Thrown if the HttpExchange cannot communicate the error.
+   */
+  private boolean admit(HttpExchange httpExchange) throws IOException {
+    // Count the request first, and back out if that took it over the limit, so that
+    // concurrent requests can't all pass the check before any of them is counted.
+    int inFlight = inFlightRequests.incrementAndGet();
+    if (maxInFlight > 0 && inFlight > maxInFlight) {
+      inFlightRequests.decrementAndGet();
+      respondUnavailable(httpExchange);
+      return false;
+    }
+    return true;
+  }
+
+  /** Mark an admitted request as done. @see StanfordCoreNLPServer#admit(HttpExchange) */
+  private void release() {
+    inFlightRequests.decrementAndGet();
+  }
+
+  /**
+   * Create the executor the HTTP handlers run on.
+   * If virtual threads are requested, this uses {@code Executors.newVirtualThreadPerTaskExecutor()} when the
+   * JVM provides it (Java 21+), and an unbounded pool of daemon threads otherwise.
+   * Either way, the annotation work itself stays on the bounded {@link StanfordCoreNLPServer#corenlpExecutor}.
+   */
+  private static ExecutorService mkHandlerExecutor(boolean virtualThreads, int threads) {
+    if ( ! virtualThreads) {
+      return Executors.newFixedThreadPool(threads);
+    }
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      log("Running HTTP handlers on virtual threads");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      warn("Virtual threads are not supported by this JVM (Java 21+ is required); running HTTP handlers on a cached thread pool instead");
+      return Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "corenlp-handler");
+        t.setDaemon(true);
+        return t;
+      });
+    }
+  }
+
   private static void setHttpExchangeResponseHeaders(HttpExchange httpExchange) {
     // Set common response headers
     httpExchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
@@ -849,14 +950,21 @@ public class StanfordCoreNLPServer implements Runnable {
         return;
       }
 
+      if ( ! admit(httpExchange)) {
+        return;
+      }
       Future<Annotation> completedAnnotationFuture = null;
       try {
         // Annotate
         StanfordCoreNLP pipeline = mkStanfordCoreNLP(props);
-        completedAnnotationFuture = corenlpExecutor.submit(() -> {
-          pipeline.annotate(ann);
-          return ann;
-        });
+        if (batcher != null) {
+          completedAnnotationFuture = batcher.submit(pipeline, ann);
+        } else {
+          completedAnnotationFuture = corenlpExecutor.submit(() -> {
+            pipeline.annotate(ann);
+            return ann;
+          });
+        }
         Annotation completedAnnotation;
         int timeoutMilliseconds;
         try {
@@ -909,6 +1017,8 @@ public class StanfordCoreNLPServer implements Runnable {
         if (completedAnnotationFuture != null) {  // just in case...
           completedAnnotationFuture.cancel(true);
         }
+      } finally {
+        release();
       }
     }
 
@@ -938,6 +1048,153 @@ public class StanfordCoreNLPServer implements Runnable {
 
 
 
+  /**
+   * A handler for annotation requests which streams the result back as newline-delimited JSON
+   * (chunked transfer encoding), rather than buffering the whole response.
+   * Each sentence is written as its own line as soon as the sentence-level annotators have finished with it
+   * (see {@link AnnotationPipeline#annotateStreaming(Annotation, Consumer)}), followed by a trailing line with
+   * the document-level results (e.g., coref chains and quotes).
+   * If the request fails part way through, the last line is an object with a single {@code error} key.
+   */
+  protected class StreamingHandler implements HttpHandler {
+
+    /**
+     * An authenticator to determine if we can perform this API request.
+     */
+    private final Predicate<Properties> authenticator;
+
+    /**
+     * A callback to call when an annotation job has finished.
+     */
+    private final Consumer<FinishedRequest> callback;
+
+    /**
+     * Create a handler for streaming annotation requests.
+     */
+    public StreamingHandler(Predicate<Properties> authenticator, Consumer<FinishedRequest> callback) {
+      this.authenticator = authenticator;
+      this.callback = callback;
+    }
+
+    @Override
+    public void handle(HttpExchange httpExchange) throws IOException {
+      if (onBlacklist(httpExchange)) {
+        respondUnauthorized(httpExchange);
+        return;
+      }
+      setHttpExchangeResponseHeaders(httpExchange);
+
+      // Get the document
+      Properties props;
+      Annotation ann;
+      try {
+        props = getProperties(httpExchange);
+        if (authenticator != null && ! authenticator.test(props)) {
+          respondUnauthorized(httpExchange);
+          return;
+        }
+        if ( ! quiet) {
+          log("[" + httpExchange.getRemoteAddress() + "] Streaming API call w/annotators " + props.getProperty("annotators", "<unknown>"));
+        }
+        ann = getDocument(props, httpExchange);
+        String text = ann.get(CoreAnnotations.TextAnnotation.class);
+        if (maxCharLength > 0 && text.length() > maxCharLength) {
+          respondBadInput("Request is too long to be handled by server: " + text.length() + " characters. Max length is " + maxCharLength + " characters.", httpExchange);
+          return;
+        }
+      } catch (Exception e) {
+        e.printStackTrace();
+        respondError("Could not handle incoming annotation", httpExchange);
+        return;
+      }
+
+      if ( ! admit(httpExchange)) {
+        return;
+      }
+      Future<Annotation> completedAnnotationFuture = null;
+      OutputStream body = null;
+      // The annotation thread and this one both write to the response: every write happens while holding
+      // writeLock, and once closed is set (by this thread, on an error), the annotation thread writes nothing more.
+      final Object writeLock = new Object();
+      final AtomicBoolean closed = new AtomicBoolean(false);
+      try {
+        StanfordCoreNLP pipeline = mkStanfordCoreNLP(props);
+        // Every frame must fit on one line
+        Properties outputProps = new Properties();
+        pipeline.getProperties().forEach((key, value) -> outputProps.setProperty(key.toString(), value.toString()));
+        outputProps.setProperty("output.prettyPrint", "false");
+        AnnotationOutputter.Options options = AnnotationOutputter.getOptions(outputProps);
+        JSONOutputter outputter = new JSONOutputter();
+
+        httpExchange.getResponseHeaders().add("Content-type", "application/x-ndjson;charset=" + options.encoding);
+        httpExchange.sendResponseHeaders(HTTP_OK, 0);  // 0 means chunked
+        final OutputStream os = httpExchange.getResponseBody();
+        body = os;
+        completedAnnotationFuture = corenlpExecutor.submit(() -> {
+          boolean moreResults = pipeline.annotateStreaming(ann, sentence -> {
+            synchronized (writeLock) {
+              if (closed.get()) {
+                // the response has already been ended with an error; stop annotating
+                throw new RuntimeInterruptedException();
+              }
+              try {
+                outputter.printSentence(sentence, os, options);
+              } catch (IOException e) {
+                throw new RuntimeIOException(e);
+              }
+            }
+          });
+          synchronized (writeLock) {
+            if ( ! closed.get()) {
+              outputter.printDocumentTrailer(ann, moreResults, os, options);
+            }
+          }
+          return ann;
+        });
+
+        int timeoutMilliseconds;
+        try {
+          timeoutMilliseconds = Integer.parseInt(props.getProperty("timeout",
+              Integer.toString(StanfordCoreNLPServer.this.timeoutMilliseconds)));
+        } catch (NumberFormatException e) {
+          timeoutMilliseconds = StanfordCoreNLPServer.this.timeoutMilliseconds;
+        }
+        Annotation completedAnnotation = completedAnnotationFuture.get(timeoutMilliseconds, TimeUnit.MILLISECONDS);
+        completedAnnotationFuture = null;  // No longer any need for the future
+        httpExchange.close();
+        if ( ! StringUtils.isNullOrEmpty(props.getProperty("annotators"))) {
+          callback.accept(new FinishedRequest(props, completedAnnotation));
+        }
+      } catch (Exception e) {
+        e.printStackTrace();
+        if (completedAnnotationFuture != null) {
+          completedAnnotationFuture.cancel(true);
+        }
+        if (body == null) {
+          // case: we have not started the response yet
+          respondError(e.getClass().getName() + ": " + e.getMessage(), httpExchange);
+        } else {
+          // case: the status has already been sent; signal the error in a final frame
+          String message = e instanceof TimeoutException ? "CoreNLP request timed out. Your document may be too long." : e.getClass().getName() + ": " + e.getMessage();
+          synchronized (writeLock) {
+            // waits for a frame being written to be finished, and keeps the annotation thread from writing more
+            closed.set(true);
+            try {
+              body.write(("{\"error\":\"" + StringUtils.escapeJsonString(message) + "\"}\n").getBytes("utf-8"));
+            } catch (IOException ignored) {
+              // the client has likely gone away
+            }
+            httpExchange.close();
+          }
+        }
+      } finally {
+        release();
+      }
+    }
+  } // end class StreamingHandler
+
+
+
   /**
    * A handler for matching TokensRegex patterns against text.
    */
@@ -977,6 +1234,9 @@ public class StanfordCoreNLPServer implements Runnable {
         return;
       }
       Map<String, String> params = getURLParams(httpExchange.getRequestURI());
+      if ( ! admit(httpExchange)) {
+        return;
+      }
 
       Future<Pair<String, Annotation>> future = corenlpExecutor.submit(() -> {
         try {
@@ -1057,6 +1317,8 @@ public class StanfordCoreNLPServer implements Runnable {
         }
       } catch (InterruptedException | ExecutionException | TimeoutException e) {
         respondError("Timeout when executing TokensRegex query", httpExchange);
+      } finally {
+        release();
       }
     }
   }
@@ -1102,6 +1364,9 @@ public class StanfordCoreNLPServer implements Runnable {
         return;
       }
       Map<String, String> params = getURLParams(httpExchange.getRequestURI());
+      if ( ! admit(httpExchange)) {
+        return;
+      }
 
       Future<Pair<String, Annotation>> response = corenlpExecutor.submit(() -> {
         try {
@@ -1184,6 +1449,8 @@ public class StanfordCoreNLPServer implements Runnable {
         }
       } catch (InterruptedException | ExecutionException | TimeoutException e) {
         respondError("Timeout when executing Semgrex query", httpExchange);
+      } finally {
+        release();
       }
     }
   }
@@ -1227,6 +1494,9 @@ public class StanfordCoreNLPServer implements Runnable {
         return;
       }
       Map<String, String> params = getURLParams(httpExchange.getRequestURI());
+      if ( ! admit(httpExchange)) {
+        return;
+      }
 
       Future<Pair<String, Annotation>> response = corenlpExecutor.submit(() -> {
         try {
@@ -1289,6 +1559,8 @@ public class StanfordCoreNLPServer implements Runnable {
         }
       } catch (InterruptedException | ExecutionException | TimeoutException e) {
         respondError("Timeout when executing Tregex query", httpExchange);
+      } finally {
+        release();
       }
     }
   }
@@ -1431,6 +1703,7 @@ public class StanfordCoreNLPServer implements Runnable {
         contextRoot = "/";
       }
       withAuth(server.createContext(contextRoot, new CoreNLPHandler(defaultProps, authenticator, callback, homepage)), basicAuth);
+      withAuth(server.createContext(uriContext+"/stream", new StreamingHandler(authenticator, callback)), basicAuth);
       withAuth(server.createContext(uriContext+"/tokensregex", new TokensRegexHandler(authenticator, callback)), basicAuth);
       withAuth(server.createContext(uriContext+"/semgrex", new SemgrexHandler(authenticator, callback)), basicAuth);
       withAuth(server.createContext(uriContext+"/tregex", new TregexHandler(authenticator, callback)), basicAuth);
@@ -1444,6 +1717,17 @@ public class StanfordCoreNLPServer implements Runnable {
         withAuth(server.createContext(uriContext+"/ready", new ReadyHandler(live)), Optional.empty());
 
       }
+      if (virtualThreads) {
+        serverExecutor.shutdown();
+        serverExecutor = mkHandlerExecutor(true, ArgumentParser.threads);
+      }
+      if (batchSize > 1 && batcher == null) {
+        batcher = new AnnotationBatcher(corenlpExecutor, batchSize, batchWaitMilliseconds);
+        log("Batching annotation requests: batch_size=" + batchSize + " batch_wait=" + batchWaitMilliseconds + "ms");
+      }
+      if (modelBudgetMegabytes > 0) {
+        ModelRegistry.setMemoryBudget(modelBudgetMegabytes * 1024L * 1024L);
+      }
       server.setExecutor(serverExecutor);
       server.start();
       live.set(true);
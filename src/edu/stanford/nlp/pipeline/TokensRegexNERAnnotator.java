@@ -1,6 +1,7 @@
 package edu.stanford.nlp.pipeline;
 
 import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.io.NullOutputStream;
 import edu.stanford.nlp.io.RuntimeIOException;
 import edu.stanford.nlp.ling.CoreAnnotation;
 import edu.stanford.nlp.ling.CoreAnnotations;
@@ -12,7 +13,13 @@ import edu.stanford.nlp.util.*;
 import edu.stanford.nlp.util.logging.Redwood;
 
 import java.io.BufferedReader;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.regex.Pattern;
 
@@ -117,6 +124,17 @@ import java.util.regex.Pattern;
  *      <td>{@code}</td></tr>
  *   <tr><td>{@code ignoreCase}</td><td>If true, case is ignored</td></td>
  *      <td>{@code false}</td></tr>
+ *   <tr><td>{@code literalAutomaton}</td>
+ *      <td>If true, entries whose tokens are all plain strings (no regex syntax) are matched with a
+ *          {@link TokenSequenceAutomaton} rather than compiled to a TokensRegex pattern each.  Only the
+ *          other entries are compiled.  Matching then takes time linear in the sentence length however
+ *          many literal entries there are, and the priority, overwrite and {@code validpospattern}
+ *          rules apply as before.</td>
+ *      <td>{@code true}</td></tr>
+ *   <tr><td>{@code literalAutomaton.cache}</td>
+ *      <td>A file to serialize the automaton to.  If the file holds an automaton for the same
+ *          literal entries, it is loaded instead of building one.</td>
+ *      <td>{@code}</td></tr>
  *   <tr><td>{@code verbose}</td><td>If true, turns on extra debugging messages.</td>
  *      <td>{@code false}</td></tr>
  * </table>
@@ -158,6 +176,8 @@ public class TokensRegexNERAnnotator implements Annotator  {
   private final List<Entry> entries;
   private final Map<SequencePattern<CoreMap>,Entry> patternToEntry;
   private final MultiPatternMatcher<CoreMap>  multiPatternMatcher;
+  private final LiteralMatcher literalMatcher; // matches the literal entries, if not done by multiPatternMatcher
+  private final Map<Entry, Integer> entryIndex; // the position of each entry in entries
   private final List<Class> annotationFields; // list of fields to annotate (default to just NamedEntityTag)
 
   private final Set<String> myLabels;  // set of labels to always overwrite
@@ -194,6 +214,8 @@ public class TokensRegexNERAnnotator implements Annotator  {
                   " For these types, only if the matched expression has NER type matching the\n" +
                   " specified overwriteableType for the regex will the NER type be overwritten."),
           new PropertiesUtils.Property("backgroundSymbol", DEFAULT_BACKGROUND_SYMBOL, "Comma separated list of NER labels to always replace."),
+          new PropertiesUtils.Property("literalAutomaton", "true", "Whether to match entries made up only of literal tokens with a token automaton instead of TokensRegex patterns."),
+          new PropertiesUtils.Property("literalAutomaton.cache", "", "File to save the token automaton to, and to load it from when the mapping files haven't changed."),
           new PropertiesUtils.Property("verbose", "false", ""),
   };
 
@@ -313,8 +335,24 @@ public class TokensRegexNERAnnotator implements Annotator  {
     entryToMappingFileNumber = new HashMap<>();
     annotationFieldnames = processPerFileOptions(name, mappings, ignoreCaseList, validPosPatternList, headerList, ignoreCase, validPosPattern, headerFields, annotationFieldnames, annotationFields);
     entries = Collections.unmodifiableList(readEntries(name, noDefaultOverwriteLabels, ignoreCaseList, headerList, entryToMappingFileNumber, verbose, annotationFieldnames, mappings));
+    entryIndex = new IdentityHashMap<>();
+    for (Entry entry : entries) {
+      entryIndex.put(entry, entryIndex.size());
+    }
+    List<Entry> patternEntries = entries;
+    if (PropertiesUtils.getBool(properties, prefix + "literalAutomaton", true)) {
+      List<Entry> literalEntries = new ArrayList<>();
+      patternEntries = new ArrayList<>();
+      for (Entry entry : entries) {
+        (isLiteral(entry) ? literalEntries : patternEntries).add(entry);
+      }
+      literalMatcher = literalEntries.isEmpty() ? null :
+          createLiteralMatcher(name, literalEntries, properties.getProperty(prefix + "literalAutomaton.cache"));
+    } else {
+      literalMatcher = null;
+    }
     IdentityHashMap<SequencePattern<CoreMap>, Entry> patternToEntry = new IdentityHashMap<>();
-    multiPatternMatcher = createPatternMatcher(patternToEntry);
+    multiPatternMatcher = createPatternMatcher(patternEntries, patternToEntry);
     this.patternToEntry = Collections.unmodifiableMap(patternToEntry);
     Set<String> myLabels = Generics.newHashSet();
     // Can always override background or none.
@@ -352,7 +390,7 @@ public class TokensRegexNERAnnotator implements Annotator  {
       logger.info("done.");
   }
 
-  private MultiPatternMatcher<CoreMap> createPatternMatcher(Map<SequencePattern<CoreMap>, Entry> patternToEntry) {
+  private MultiPatternMatcher<CoreMap> createPatternMatcher(List<Entry> entries, Map<SequencePattern<CoreMap>, Entry> patternToEntry) {
     // Convert to tokensregex pattern
 
     List<TokenSequencePattern> patterns = new ArrayList<>(entries.size());
@@ -393,21 +431,183 @@ public class TokensRegexNERAnnotator implements Annotator  {
     return TokenSequencePattern.getMultiPatternMatcher(patterns);
   }
 
+  /** Whether the entry is a sequence of plain strings, which literalMatcher can match. */
+  private static boolean isLiteral(Entry entry) {
+    if (entry.tokensRegex != null || entry.annotateGroup != 0) {
+      return false;
+    }
+    for (String regex : entry.regex) {
+      if ( ! ComplexNodePattern.isLiteral(regex, 0)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Build the automata for the literal entries, or load them from the cache file
+   * if it was written for the same entries.
+   */
+  private LiteralMatcher createLiteralMatcher(String name, List<Entry> literalEntries, String cacheFile) {
+    byte[] fingerprint = literalEntriesDigest(literalEntries);
+    if ( ! StringUtils.isNullOrEmpty(cacheFile) && IOUtils.existsInClasspathOrFileSystem(cacheFile)) {
+      try {
+        LiteralMatcher cached = IOUtils.readObjectFromURLOrClasspathOrFileSystem(cacheFile);
+        if (Arrays.equals(cached.fingerprint, fingerprint)) {
+          logger.info(name + ": Loaded the automaton for " + literalEntries.size() + " literal entries from " + cacheFile);
+          return cached;
+        }
+        logger.info(name + ": The automaton in " + cacheFile + " is for other entries; rebuilding it");
+      } catch (IOException | ClassNotFoundException | ClassCastException e) {
+        logger.warn(name + ": Couldn't load the automaton from " + cacheFile + "; rebuilding it", e);
+      }
+    }
+    List<String[]> caseSensitive = new ArrayList<>();
+    List<String[]> caseInsensitive = new ArrayList<>();
+    List<Integer> caseSensitiveEntries = new ArrayList<>();
+    List<Integer> caseInsensitiveEntries = new ArrayList<>();
+    for (Entry entry : literalEntries) {
+      if (ignoreCaseList.get(entryToMappingFileNumber.get(entry))) {
+        caseInsensitive.add(entry.regex);
+        caseInsensitiveEntries.add(entryIndex.get(entry));
+      } else {
+        caseSensitive.add(entry.regex);
+        caseSensitiveEntries.add(entryIndex.get(entry));
+      }
+    }
+    LiteralMatcher matcher = new LiteralMatcher(fingerprint,
+        caseSensitive.isEmpty() ? null : new TokenSequenceAutomaton(caseSensitive, false),
+        ArrayUtils.asPrimitiveIntArray(caseSensitiveEntries),
+        caseInsensitive.isEmpty() ? null : new TokenSequenceAutomaton(caseInsensitive, true),
+        ArrayUtils.asPrimitiveIntArray(caseInsensitiveEntries));
+    logger.info(name + ": Built the automaton for " + literalEntries.size() + " literal entries");
+    if ( ! StringUtils.isNullOrEmpty(cacheFile)) {
+      try {
+        IOUtils.writeObjectToFile(matcher, cacheFile);
+      } catch (IOException e) {
+        logger.warn(name + ": Couldn't save the automaton to " + cacheFile, e);
+      }
+    }
+    return matcher;
+  }
+
+  /**
+   * A SHA-256 digest of what the automata are built from: the number, case sensitivity and
+   * tokens of each literal entry, each of them written with its length.
+   */
+  private byte[] literalEntriesDigest(List<Entry> literalEntries) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+    try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(new NullOutputStream(), digest))) {
+      out.writeInt(literalEntries.size());
+      for (Entry entry : literalEntries) {
+        out.writeInt(entryIndex.get(entry));
+        out.writeBoolean(ignoreCaseList.get(entryToMappingFileNumber.get(entry)));
+        out.writeInt(entry.regex.length);
+        for (String token : entry.regex) {
+          byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+          out.writeInt(bytes.length);
+          out.write(bytes);
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeIOException(e);
+    }
+    return digest.digest();
+  }
+
+  /**
+   * Find the matches of all entries in the tokens, and choose among overlapping ones the way
+   * {@link MultiPatternMatcher#findNonOverlapping} does.
+   */
+  private List<EntryMatch> findMatches(List<CoreLabel> tokens) {
+    List<EntryMatch> literalMatches = (literalMatcher == null) ? Collections.emptyList() : findLiteralMatches(tokens);
+    List<EntryMatch> matches = new ArrayList<>();
+    if (literalMatches.isEmpty()) {
+      for (SequenceMatchResult<CoreMap> m : multiPatternMatcher.findNonOverlapping(tokens)) {
+        matches.add(new EntryMatch(patternToEntry.get(m.pattern()), 0, m));
+      }
+      return matches;
+    }
+
+    // All the matches of each pattern, as findNonOverlapping collects them.  When there are
+    // literal matches too, ties are broken by the order of the entries in the mapping files
+    matches.addAll(literalMatches);
+    for (SequencePattern<CoreMap> p : multiPatternMatcher.getTriggeredPatterns(tokens)) {
+      if (Thread.interrupted()) {  // Allow interrupting
+        throw new RuntimeInterruptedException();
+      }
+      Entry entry = patternToEntry.get(p);
+      SequenceMatcher<CoreMap> m = p.getMatcher(tokens);
+      m.setMatchWithResult(multiPatternMatcher.isMatchWithResult());
+      while (m.find()) {
+        matches.add(new EntryMatch(entry, entryIndex.get(entry), m.toBasicSequenceMatchResult()));
+      }
+    }
+    List<EntryMatch> nonOverlapping = IntervalTree.getNonOverlapping(matches,
+        m -> Interval.toInterval(m.start, m.end, Interval.INTERVAL_OPEN_END), ENTRY_MATCH_COMPARATOR);
+    nonOverlapping.sort(ENTRY_MATCH_OFFSET_COMPARATOR);
+    return nonOverlapping;
+  }
+
+  /** All the matches of the literal entries, with the overlapping matches of an entry removed as a pattern's matcher would. */
+  private List<EntryMatch> findLiteralMatches(List<CoreLabel> tokens) {
+    List<EntryMatch> matches = new ArrayList<>();
+    Map<Integer, Integer> lastEnds = new HashMap<>();
+    TokenSequenceAutomaton.MatchHandler handler = (phrase, start, end) -> {
+      // the phrase numbers of the case insensitive automaton follow those of the case sensitive one
+      int index = phrase < literalMatcher.caseSensitiveEntries.length ? literalMatcher.caseSensitiveEntries[phrase] :
+          literalMatcher.caseInsensitiveEntries[phrase - literalMatcher.caseSensitiveEntries.length];
+      Entry entry = entries.get(index);
+      Integer lastEnd = lastEnds.get(index);
+      if ((lastEnd == null || start >= lastEnd) && checkAllPosTags(entry, tokens, start, end)) {
+        lastEnds.put(index, end);
+        matches.add(new EntryMatch(entry, index, tokens, start, end));
+      }
+    };
+    if (literalMatcher.caseSensitive != null) {
+      literalMatcher.caseSensitive.find(tokens, handler);
+    }
+    if (literalMatcher.caseInsensitive != null) {
+      int offset = literalMatcher.caseSensitiveEntries.length;
+      literalMatcher.caseInsensitive.find(tokens, (phrase, start, end) -> handler.matched(phrase + offset, start, end));
+    }
+    return matches;
+  }
+
+  /** With {@code MATCH_ALL_TOKENS}, the POS pattern of the entry's file is part of its pattern, and has to match every token. */
+  private boolean checkAllPosTags(Entry entry, List<CoreLabel> tokens, int start, int end) {
+    Pattern posPattern = validPosPatternList.get(entryToMappingFileNumber.get(entry));
+    if (posPattern == null || ! PosMatchType.MATCH_ALL_TOKENS.equals(posMatchType)) {
+      return true;
+    }
+    for (int i = start; i < end; i++) {
+      String pos = tokens.get(i).get(CoreAnnotations.PartOfSpeechAnnotation.class);
+      if (pos == null || ! posPattern.matcher(pos).matches()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private void annotateMatched(List<CoreLabel> tokens) {
-    List<SequenceMatchResult<CoreMap>> matched = multiPatternMatcher.findNonOverlapping(tokens);
-    for (SequenceMatchResult<CoreMap> m:matched) {
-      Entry entry = patternToEntry.get(m.pattern());
+    List<EntryMatch> matched = findMatches(tokens);
+    for (EntryMatch m:matched) {
+      Entry entry = m.entry;
 
       // Check if we will overwrite the existing annotation with this annotation
-      int g = entry.annotateGroup;
-      int start = m.start(g);
-      int end = m.end(g);
+      int start = m.groupStart;
+      int end = m.groupEnd;
 
-      String str = m.group(g);
+      String str = m.text();
       if (commonWords.contains(str)) {
         if (verbose) {
           logger.info("Not annotating (common word) '" + str + "': " +
-              StringUtils.joinFields(m.groupNodes(g), CoreAnnotations.NamedEntityTagAnnotation.class)
+              StringUtils.joinFields(tokens.subList(start, end), CoreAnnotations.NamedEntityTagAnnotation.class)
               + " with " + entry.getTypeDescription() + ", sentence is '" + StringUtils.joinWords(tokens, " ") + "'");
         }
         continue;
@@ -427,8 +627,8 @@ public class TokensRegexNERAnnotator implements Annotator  {
         }
       } else {
         if (verbose) {
-          logger.info("Not annotating  '" + m.group(g) + "': " +
-                  StringUtils.joinFields(m.groupNodes(g), CoreAnnotations.NamedEntityTagAnnotation.class)
+          logger.info("Not annotating  '" + str + "': " +
+                  StringUtils.joinFields(tokens.subList(start, end), CoreAnnotations.NamedEntityTagAnnotation.class)
                   + " with " + entry.getTypeDescription() + ", sentence is '" + StringUtils.joinWords(tokens, " ") + "'");
         }
       }
@@ -588,6 +788,100 @@ public class TokensRegexNERAnnotator implements Annotator  {
   } // end static class Entry
 
 
+  /** A match of an entry in a sentence, before overlapping matches are removed. */
+  private static class EntryMatch {
+    final Entry entry;
+    final int order;
+    /** The tokens the entry matched */
+    final int start, end;
+    /** The tokens to annotate: those of the entry's annotate group */
+    final int groupStart, groupEnd;
+    /** The result of a TokensRegex pattern, or null for a literal match */
+    final SequenceMatchResult<CoreMap> result;
+    final List<CoreLabel> tokens;
+
+    EntryMatch(Entry entry, int order, SequenceMatchResult<CoreMap> result) {
+      this.entry = entry;
+      this.order = order;
+      this.start = result.start();
+      this.end = result.end();
+      this.groupStart = result.start(entry.annotateGroup);
+      this.groupEnd = result.end(entry.annotateGroup);
+      this.result = result;
+      this.tokens = null;
+    }
+
+    EntryMatch(Entry entry, int order, List<CoreLabel> tokens, int start, int end) {
+      this.entry = entry;
+      this.order = order;
+      this.start = this.groupStart = start;
+      this.end = this.groupEnd = end;
+      this.result = null;
+      this.tokens = tokens;
+    }
+
+    /** The text of the annotated tokens. */
+    String text() {
+      if (result != null) {
+        return result.group(entry.annotateGroup);
+      }
+      return ChunkAnnotationUtils.getTokenText(tokens.subList(start, end), CoreAnnotations.TextAnnotation.class);
+    }
+  } // end static class EntryMatch
+
+  /** Orders matches by their first token, then their last. */
+  private static final Comparator<EntryMatch> ENTRY_MATCH_OFFSET_COMPARATOR = (m1, m2) ->
+      (m1.start != m2.start) ? Integer.compare(m1.start, m2.start) : Integer.compare(m1.end, m2.end);
+
+  /**
+   * Orders matches as {@link SequenceMatchResult#DEFAULT_COMPARATOR} does: by priority, then weight (the
+   * score of a pattern), then length, then order, then offset.
+   */
+  private static final Comparator<EntryMatch> ENTRY_MATCH_COMPARATOR = (m1, m2) -> {
+    if (m1.entry.priority != m2.entry.priority) {
+      return (m1.entry.priority > m2.entry.priority) ? -1 : 1;
+    }
+    if (m1.entry.weight != m2.entry.weight) {
+      return (m1.entry.weight > m2.entry.weight) ? -1 : 1;
+    }
+    int length1 = m1.end - m1.start;
+    int length2 = m2.end - m2.start;
+    if (length1 != length2) {
+      return (length1 > length2) ? -1 : 1;
+    }
+    if (m1.order != m2.order) {
+      return (m1.order < m2.order) ? -1 : 1;
+    }
+    return ENTRY_MATCH_OFFSET_COMPARATOR.compare(m1, m2);
+  };
+
+  /**
+   * The automata which match the literal entries: one for the entries of case sensitive
+   * mapping files and one for the case insensitive ones.  This is what the cache file holds.
+   */
+  private static class LiteralMatcher implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    /** Identifies the literal entries the automata were built from: see {@link #literalEntriesDigest}. */
+    final byte[] fingerprint;
+    /** Either automaton is null if it would have no phrases. */
+    final TokenSequenceAutomaton caseSensitive;
+    final TokenSequenceAutomaton caseInsensitive;
+    /** The number of the entry of each phrase of the automata. */
+    final int[] caseSensitiveEntries;
+    final int[] caseInsensitiveEntries;
+
+    LiteralMatcher(byte[] fingerprint, TokenSequenceAutomaton caseSensitive, int[] caseSensitiveEntries,
+                   TokenSequenceAutomaton caseInsensitive, int[] caseInsensitiveEntries) {
+      this.fingerprint = fingerprint;
+      this.caseSensitive = caseSensitive;
+      this.caseSensitiveEntries = caseSensitiveEntries;
+      this.caseInsensitive = caseInsensitive;
+      this.caseInsensitiveEntries = caseInsensitiveEntries;
+    }
+  } // end static class LiteralMatcher
+
+
   /**
    *  Creates a combined list of Entries using the provided mapping files.
    *
@@ -0,0 +1,572 @@
+package edu.stanford.nlp.semgraph;
+
+import edu.stanford.nlp.graph.ConnectedComponents;
+import edu.stanford.nlp.graph.DirectedMultiGraph;
+import edu.stanford.nlp.graph.Graph;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.util.MapFactory;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+
+/**
+ * An immutable graph of {@link IndexedWord}s and {@link SemanticGraphEdge}s, stored as arrays rather than as the
+ * maps of maps of a {@link DirectedMultiGraph}: a {@link SemanticGraph} switches to one with {@link SemanticGraph#compact()}.
+ * <br>
+ * The vertices are numbered in order of their index in the sentence, and a vertex is found by its
+ * index rather than by hashing it. The edges are in compressed sparse row form: the edges out of vertex {@code v}
+ * are {@code outEdges[outStart[v]]} to {@code outEdges[outStart[v+1] - 1]}, ordered by target, and likewise for the
+ * edges into a vertex. So walking the children or parents of a vertex walks an array, and a graph is a handful of
+ * arrays rather than two maps per vertex and a list per pair of connected vertices.
+ * <br>
+ * Vertices which can't be found by their index (copy nodes, or vertices of several sentences with the same index)
+ * are looked up in a map instead.
+ * <br>
+ * The {@link Graph} methods which would change the graph throw an {@link UnsupportedOperationException};
+ * {@link SemanticGraph} goes back to a {@link DirectedMultiGraph} before changing a compact graph.
+ */
+final class CompactGraph implements Graph<IndexedWord, SemanticGraphEdge> {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Don't look up vertices by index if the indices are much more spread out than this, relative to the number of vertices */
+  private static final int MAX_INDEX_SPREAD = 4;
+
+  private static final int AMBIGUOUS = -2;
+
+  private final IndexedWord[] vertices;
+  /** The id of the vertex of each index, or -1 if there is none, or AMBIGUOUS if it has to be looked up in byVertex */
+  private final int[] idByIndex;
+  /** The ids of the vertices which can't be found through idByIndex, or null if there are none */
+  private final Map<IndexedWord, Integer> byVertex;
+
+  private final int[] outStart;
+  private final int[] outTarget;
+  private final SemanticGraphEdge[] outEdges;
+  private final int[] inStart;
+  private final int[] inSource;
+  private final SemanticGraphEdge[] inEdges;
+
+  private final Set<IndexedWord> vertexSet = new VertexSet();
+
+  CompactGraph(Collection<IndexedWord> vertexCollection, Iterable<SemanticGraphEdge> edges) {
+    vertices = vertexCollection.toArray(new IndexedWord[vertexCollection.size()]);
+    Arrays.sort(vertices, Comparator.comparingInt(IndexedWord::index).thenComparingInt(IndexedWord::copyCount));
+    int n = vertices.length;
+
+    int maxIndex = -1;
+    boolean indexable = true;
+    for (IndexedWord vertex : vertices) {
+      indexable &= vertex.index() >= 0;
+      maxIndex = Math.max(maxIndex, vertex.index());
+    }
+    indexable &= maxIndex < MAX_INDEX_SPREAD * n + 16;
+    Map<IndexedWord, Integer> byVertex = null;
+    if (indexable) {
+      idByIndex = new int[maxIndex + 1];
+      Arrays.fill(idByIndex, -1);
+      for (int id = 0; id < n; id++) {
+        int index = vertices[id].index();
+        if (idByIndex[index] == -1) {
+          idByIndex[index] = id;
+        } else {
+          if (idByIndex[index] != AMBIGUOUS) {
+            if (byVertex == null) {
+              byVertex = MapFactory.<IndexedWord, Integer>hashMapFactory().newMap();
+            }
+            byVertex.put(vertices[idByIndex[index]], idByIndex[index]);
+            idByIndex[index] = AMBIGUOUS;
+          }
+          byVertex.put(vertices[id], id);
+        }
+      }
+    } else {
+      idByIndex = new int[0];
+      byVertex = MapFactory.<IndexedWord, Integer>hashMapFactory().newMap();
+      for (int id = 0; id < n; id++) {
+        byVertex.put(vertices[id], id);
+      }
+    }
+    this.byVertex = byVertex;
+
+    List<SemanticGraphEdge> edgeList = new ArrayList<>();
+    for (SemanticGraphEdge edge : edges) {
+      edgeList.add(edge);
+    }
+    int m = edgeList.size();
+    int[] sources = new int[m];
+    int[] targets = new int[m];
+    for (int e = 0; e < m; e++) {
+      sources[e] = idOf(edgeList.get(e).getSource());
+      targets[e] = idOf(edgeList.get(e).getTarget());
+      if (sources[e] < 0 || targets[e] < 0) {
+        throw new IllegalArgumentException("Edge with a vertex which is not in the graph: " + edgeList.get(e));
+      }
+    }
+
+    // edges ordered by source then target, and by target then source; the sorts are stable
+    Integer[] order = new Integer[m];
+    for (int e = 0; e < m; e++) {
+      order[e] = e;
+    }
+    Arrays.sort(order, (a, b) -> sources[a] != sources[b] ? Integer.compare(sources[a], sources[b]) : Integer.compare(targets[a], targets[b]));
+    outStart = new int[n + 1];
+    outTarget = new int[m];
+    outEdges = new SemanticGraphEdge[m];
+    for (int i = 0; i < m; i++) {
+      outEdges[i] = edgeList.get(order[i]);
+      outTarget[i] = targets[order[i]];
+      outStart[sources[order[i]] + 1]++;
+    }
+    Arrays.sort(order, (a, b) -> targets[a] != targets[b] ? Integer.compare(targets[a], targets[b]) : Integer.compare(sources[a], sources[b]));
+    inStart = new int[n + 1];
+    inSource = new int[m];
+    inEdges = new SemanticGraphEdge[m];
+    for (int i = 0; i < m; i++) {
+      inEdges[i] = edgeList.get(order[i]);
+      inSource[i] = sources[order[i]];
+      inStart[targets[order[i]] + 1]++;
+    }
+    for (int v = 0; v < n; v++) {
+      outStart[v + 1] += outStart[v];
+      inStart[v + 1] += inStart[v];
+    }
+  }
+
+  /** The id of the vertex, or -1 if it is not in this graph. */
+  int idOf(Object vertex) {
+    if ( ! (vertex instanceof IndexedWord)) {
+      return -1;
+    }
+    IndexedWord word = (IndexedWord) vertex;
+    int index = word.index();
+    if (index >= 0 && index < idByIndex.length) {
+      int id = idByIndex[index];
+      if (id >= 0) {
+        IndexedWord candidate = vertices[id];
+        return candidate == word || candidate.equals(word) ? id : -1;
+      } else if (id == -1) {
+        return -1;
+      }
+    }
+    if (byVertex == null) {
+      return -1;
+    }
+    Integer id = byVertex.get(word);
+    return id == null ? -1 : id;
+  }
+
+  /** A copy of this graph which can be changed. */
+  DirectedMultiGraph<IndexedWord, SemanticGraphEdge> toDirectedMultiGraph(MapFactory<IndexedWord, Map<IndexedWord, List<SemanticGraphEdge>>> outerMapFactory,
+                                                                         MapFactory<IndexedWord, List<SemanticGraphEdge>> innerMapFactory) {
+    DirectedMultiGraph<IndexedWord, SemanticGraphEdge> graph = new DirectedMultiGraph<>(outerMapFactory, innerMapFactory);
+    for (IndexedWord vertex : vertices) {
+      graph.addVertex(vertex);
+    }
+    for (SemanticGraphEdge edge : outEdges) {
+      graph.add(edge.getSource(), edge.getTarget(), edge);
+    }
+    return graph;
+  }
+
+
+  /** The same as the hash code of a {@link DirectedMultiGraph} with the same vertices and edges. */
+  int multiGraphHashCode() {
+    int hashCode = 0;
+    for (int v = 0; v < vertices.length; v++) {
+      int childrenHashCode = 0;
+      for (int i = outStart[v]; i < outStart[v + 1]; ) {
+        int target = outTarget[i];
+        int edgesHashCode = 1;
+        for ( ; i < outStart[v + 1] && outTarget[i] == target; i++) {
+          edgesHashCode = 31 * edgesHashCode + outEdges[i].hashCode();
+        }
+        childrenHashCode += vertices[target].hashCode() ^ edgesHashCode;
+      }
+      hashCode += vertices[v].hashCode() ^ childrenHashCode;
+    }
+    return hashCode;
+  }
+
+  /**
+   * Whether the two graphs have the same vertices, and the same edges in the same order between each pair of them,
+   * which is when two {@link DirectedMultiGraph}s are equal.
+   */
+  static boolean sameEdges(Graph<IndexedWord, SemanticGraphEdge> graph, Graph<IndexedWord, SemanticGraphEdge> other) {
+    if ( ! graph.getAllVertices().equals(other.getAllVertices())) {
+      return false;
+    }
+    for (IndexedWord vertex : graph.getAllVertices()) {
+      Set<IndexedWord> children = graph.getChildren(vertex);
+      if ( ! children.equals(other.getChildren(vertex))) {
+        return false;
+      }
+      for (IndexedWord child : children) {
+        if ( ! graph.getEdges(vertex, child).equals(other.getEdges(vertex, child))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /** As {@link DirectedMultiGraph#topologicalSort()}. */
+  List<IndexedWord> topologicalSort() {
+    List<IndexedWord> result = new ArrayList<>(vertices.length);
+    boolean[] temporary = new boolean[vertices.length];
+    boolean[] permanent = new boolean[vertices.length];
+    for (int v = 0; v < vertices.length; v++) {
+      if ( ! temporary[v]) {
+        topologicalSortHelper(v, temporary, permanent, result);
+      }
+    }
+    Collections.reverse(result);
+    return result;
+  }
+
+  private void topologicalSortHelper(int vertex, boolean[] temporary, boolean[] permanent, List<IndexedWord> result) {
+    temporary[vertex] = true;
+    for (int i = outStart[vertex]; i < outStart[vertex + 1]; i++) {
+      int neighbor = outTarget[i];
+      if (permanent[neighbor]) {
+        continue;
+      }
+      if (temporary[neighbor]) {
+        throw new IllegalStateException("This graph has cycles. Topological sort not possible: " + Arrays.toString(outEdges));
+      }
+      topologicalSortHelper(neighbor, temporary, permanent, result);
+    }
+    result.add(vertices[vertex]);
+    permanent[vertex] = true;
+  }
+
+  /** As {@link DirectedMultiGraph#convertPath(List, boolean)}. */
+  List<SemanticGraphEdge> convertPath(List<IndexedWord> nodes, boolean directionSensitive) {
+    if (nodes == null) {
+      return null;
+    }
+    List<SemanticGraphEdge> path = new ArrayList<>();
+    for (int i = 1; i < nodes.size(); i++) {
+      List<SemanticGraphEdge> edges = getEdges(nodes.get(i - 1), nodes.get(i));
+      if (edges.isEmpty() && ! directionSensitive) {
+        edges = getEdges(nodes.get(i), nodes.get(i - 1));
+      }
+      if (edges.isEmpty()) {
+        throw new IllegalArgumentException("Path given with missing edge connection");
+      }
+      path.add(edges.get(0));
+    }
+    return path;
+  }
+
+
+  /** Iterates over a range of an edge array, calling remover to remove the last edge returned. */
+  private static class EdgeIterator implements Iterator<SemanticGraphEdge> {
+    private final SemanticGraphEdge[] edges;
+    private final int end;
+    private final Consumer<SemanticGraphEdge> remover;
+    private int next;
+
+    EdgeIterator(SemanticGraphEdge[] edges, int start, int end, Consumer<SemanticGraphEdge> remover) {
+      this.edges = edges;
+      this.next = start;
+      this.end = end;
+      this.remover = remover;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < end;
+    }
+
+    @Override
+    public SemanticGraphEdge next() {
+      if (next >= end) {
+        throw new NoSuchElementException("Graph edge iterator exhausted.");
+      }
+      return edges[next++];
+    }
+
+    @Override
+    public void remove() {
+      if (remover == null) {
+        throw new UnsupportedOperationException();
+      }
+      // the arrays don't change, so this iterator goes on over the edges the graph had when it was created
+      remover.accept(edges[next - 1]);
+    }
+  }
+
+  /** The edges out of the vertex, calling remover on the edges removed through the iterator. */
+  Iterator<SemanticGraphEdge> outgoingEdgeIterator(IndexedWord vertex, Consumer<SemanticGraphEdge> remover) {
+    int id = idOf(vertex);
+    return id < 0 ? Collections.emptyIterator() : new EdgeIterator(outEdges, outStart[id], outStart[id + 1], remover);
+  }
+
+  /** The edges into the vertex, calling remover on the edges removed through the iterator. */
+  Iterator<SemanticGraphEdge> incomingEdgeIterator(IndexedWord vertex, Consumer<SemanticGraphEdge> remover) {
+    int id = idOf(vertex);
+    return id < 0 ? Collections.emptyIterator() : new EdgeIterator(inEdges, inStart[id], inStart[id + 1], remover);
+  }
+
+  /** All of the edges, calling remover on the edges removed through the iterator. */
+  Iterator<SemanticGraphEdge> edgeIterator(Consumer<SemanticGraphEdge> remover) {
+    return new EdgeIterator(outEdges, 0, outEdges.length, remover);
+  }
+
+
+  /** The distinct vertices in a range of the targets or sources of edges, which is sorted by vertex id. */
+  private class Neighbors extends AbstractSet<IndexedWord> {
+    private final int[] ids;
+    private final int start;
+    private final int end;
+
+    Neighbors(int[] ids, int start, int end) {
+      this.ids = ids;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public Iterator<IndexedWord> iterator() {
+      return new Iterator<IndexedWord>() {
+        private int next = start;
+
+        @Override
+        public boolean hasNext() {
+          return next < end;
+        }
+
+        @Override
+        public IndexedWord next() {
+          if (next >= end) {
+            throw new NoSuchElementException();
+          }
+          int id = ids[next];
+          while (next < end && ids[next] == id) {
+            next++;
+          }
+          return vertices[id];
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      int size = 0;
+      for (int i = start; i < end; i++) {
+        if (i == start || ids[i] != ids[i - 1]) {
+          size++;
+        }
+      }
+      return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return start == end;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      int id = idOf(o);
+      if (id < 0) {
+        return false;
+      }
+      for (int i = start; i < end; i++) {
+        if (ids[i] == id) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private class VertexSet extends AbstractSet<IndexedWord> {
+    @Override
+    public Iterator<IndexedWord> iterator() {
+      return Collections.unmodifiableList(Arrays.asList(vertices)).iterator();
+    }
+
+    @Override
+    public int size() {
+      return vertices.length;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return idOf(o) >= 0;
+    }
+  }
+
+
+  // Graph methods which read the graph
+
+  @Override
+  public int getNumVertices() {
+    return vertices.length;
+  }
+
+  @Override
+  public List<SemanticGraphEdge> getOutgoingEdges(IndexedWord v) {
+    int id = idOf(v);
+    return id < 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(outEdges).subList(outStart[id], outStart[id + 1]));
+  }
+
+  @Override
+  public List<SemanticGraphEdge> getIncomingEdges(IndexedWord v) {
+    int id = idOf(v);
+    return id < 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(inEdges).subList(inStart[id], inStart[id + 1]));
+  }
+
+  @Override
+  public int getNumEdges() {
+    return outEdges.length;
+  }
+
+  /** As for a {@link DirectedMultiGraph}, this is null if the vertex is not in the graph. */
+  @Override
+  public Set<IndexedWord> getParents(IndexedWord vertex) {
+    int id = idOf(vertex);
+    return id < 0 ? null : new Neighbors(inSource, inStart[id], inStart[id + 1]);
+  }
+
+  /** As for a {@link DirectedMultiGraph}, this is null if the vertex is not in the graph. */
+  @Override
+  public Set<IndexedWord> getChildren(IndexedWord vertex) {
+    int id = idOf(vertex);
+    return id < 0 ? null : new Neighbors(outTarget, outStart[id], outStart[id + 1]);
+  }
+
+  @Override
+  public Set<IndexedWord> getNeighbors(IndexedWord v) {
+    int id = idOf(v);
+    if (id < 0) {
+      return null;
+    }
+    Set<IndexedWord> neighbors = MapFactory.<IndexedWord, Boolean>hashMapFactory().newSet();
+    neighbors.addAll(getChildren(v));
+    neighbors.addAll(getParents(v));
+    return neighbors;
+  }
+
+  @Override
+  public boolean containsVertex(IndexedWord v) {
+    return idOf(v) >= 0;
+  }
+
+  @Override
+  public boolean isEdge(IndexedWord source, IndexedWord dest) {
+    int id = idOf(source);
+    int target = idOf(dest);
+    if (id < 0 || target < 0) {
+      return false;
+    }
+    for (int i = outStart[id]; i < outStart[id + 1]; i++) {
+      if (outTarget[i] == target) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean isNeighbor(IndexedWord source, IndexedWord dest) {
+    return isEdge(source, dest) || isEdge(dest, source);
+  }
+
+  @Override
+  public Set<IndexedWord> getAllVertices() {
+    return vertexSet;
+  }
+
+  @Override
+  public List<SemanticGraphEdge> getAllEdges() {
+    return new ArrayList<>(Arrays.asList(outEdges));
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return vertices.length == 0;
+  }
+
+  @Override
+  public List<SemanticGraphEdge> getEdges(IndexedWord source, IndexedWord dest) {
+    int id = idOf(source);
+    int target = idOf(dest);
+    if (id < 0 || target < 0) {
+      return Collections.emptyList();
+    }
+    int start = outStart[id];
+    while (start < outStart[id + 1] && outTarget[start] < target) {
+      start++;
+    }
+    int end = start;
+    while (end < outStart[id + 1] && outTarget[end] == target) {
+      end++;
+    }
+    return start == end ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(outEdges).subList(start, end));
+  }
+
+  @Override
+  public int getInDegree(IndexedWord vertex) {
+    int id = idOf(vertex);
+    return id < 0 ? 0 : inStart[id + 1] - inStart[id];
+  }
+
+  @Override
+  public int getOutDegree(IndexedWord vertex) {
+    int id = idOf(vertex);
+    return id < 0 ? 0 : outStart[id + 1] - outStart[id];
+  }
+
+  @Override
+  public List<Set<IndexedWord>> getConnectedComponents() {
+    return ConnectedComponents.getConnectedComponents(this);
+  }
+
+
+  // Graph methods which would change the graph
+
+  @Override
+  public void add(IndexedWord source, IndexedWord dest, SemanticGraphEdge data) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean addVertex(IndexedWord v) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean removeEdges(IndexedWord source, IndexedWord dest) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean removeEdge(IndexedWord source, IndexedWord dest, SemanticGraphEdge data) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean removeVertex(IndexedWord vertex) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean removeVertices(Collection<IndexedWord> vertices) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeZeroDegreeNodes() {
+    throw new UnsupportedOperationException();
+  }
+
+}
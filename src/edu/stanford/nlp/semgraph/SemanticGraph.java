@@ -1,11 +1,15 @@
 package edu.stanford.nlp.semgraph;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import edu.stanford.nlp.graph.DijkstraShortestPath;
 import edu.stanford.nlp.graph.DirectedMultiGraph;
+import edu.stanford.nlp.graph.Graph;
 import edu.stanford.nlp.international.Language;
 import edu.stanford.nlp.ling.CoreAnnotations;
 import edu.stanford.nlp.ling.CoreLabel;
@@ -69,7 +73,11 @@ public class SemanticGraph implements Serializable  {
    */
   private final Collection<IndexedWord> roots;
 
-  private final DirectedMultiGraph<IndexedWord, SemanticGraphEdge> graph;
+  /** The vertices and edges, unless the graph is compact; then this is null. */
+  private DirectedMultiGraph<IndexedWord, SemanticGraphEdge> graph;
+
+  /** The vertices and edges while the graph is compact, otherwise null. See {@link #compact()}. */
+  private transient CompactGraph compact;
 
   private static final MapFactory<IndexedWord, Map<IndexedWord, List<SemanticGraphEdge>>> outerMapFactory = MapFactory.hashMapFactory();
   private static final MapFactory<IndexedWord, List<SemanticGraphEdge>> innerMapFactory = MapFactory.hashMapFactory();
@@ -77,21 +85,57 @@ public class SemanticGraph implements Serializable  {
 
   private LinkedList<String> comments = new LinkedList<>();
 
+  /**
+   * Stores the graph in a compact, read-only form: the vertices in arrays ordered by their index, and the edges
+   * in adjacency arrays, rather than in maps of maps of lists. Such a graph takes much less memory, and looking up
+   * the children, parents or edges of a vertex walks arrays rather than hashing {@link IndexedWord}s.
+   * <br>
+   * The graph can still be changed: changing it first puts it back in its usual form, which costs about as much as
+   * copying it. So this is worth calling on graphs which are done being built, as the parse and depparse
+   * annotators do if their {@code compactGraphs} option is set.
+   * The lists and sets returned by a compact graph can't be changed, list the vertices in index order rather than
+   * in hash order, and are not updated by later changes to the graph.
+   */
+  public void compact() {
+    if (compact == null) {
+      compact = new CompactGraph(graph.getAllVertices(), graph.edgeIterable());
+      graph = null;
+    }
+  }
+
+  /** Whether the graph is stored in the form made by {@link #compact()}. */
+  public boolean isCompact() {
+    return compact != null;
+  }
+
+  /** Puts a compact graph back in a form which can be changed. */
+  private void thaw() {
+    if (compact != null) {
+      graph = compact.toDirectedMultiGraph(outerMapFactory, innerMapFactory);
+      compact = null;
+    }
+  }
+
+  /** The graph, whichever form it is in, for reading it. */
+  private Graph<IndexedWord, SemanticGraphEdge> readGraph() {
+    return compact != null ? compact : graph;
+  }
+
   public int edgeCount() {
-    return graph.getNumEdges();
+    return readGraph().getNumEdges();
   }
 
   public int outDegree(IndexedWord vertex) {
-    return graph.getOutDegree(vertex);
+    return readGraph().getOutDegree(vertex);
   }
 
   public int inDegree(IndexedWord vertex) {
-    return graph.getInDegree(vertex);
+    return readGraph().getInDegree(vertex);
   }
 
   public List<SemanticGraphEdge> getAllEdges(IndexedWord gov,
                                              IndexedWord dep) {
-    return graph.getEdges(gov, dep);
+    return readGraph().getEdges(gov, dep);
   }
 
   // TODO: this is a bad method to use because there can be multiple
@@ -99,22 +143,23 @@ public class SemanticGraph implements Serializable  {
   // over getAllEdges.  This has already been done for all uses
   // outside RTE.
   public SemanticGraphEdge getEdge(IndexedWord gov, IndexedWord dep) {
-    List<SemanticGraphEdge> edges = graph.getEdges(gov, dep);
+    List<SemanticGraphEdge> edges = readGraph().getEdges(gov, dep);
     if (edges == null || edges.isEmpty())
       return null;
     return edges.get(0);
   }
 
   public void addVertex(IndexedWord vertex) {
+    thaw();
     graph.addVertex(vertex);
   }
 
   public boolean containsVertex(IndexedWord vertex) {
-    return graph.containsVertex(vertex);
+    return readGraph().containsVertex(vertex);
   }
 
   public boolean containsEdge(IndexedWord source, IndexedWord target) {
-    return graph.isEdge(source, target);
+    return readGraph().isEdge(source, target);
   }
 
   public boolean containsEdge(SemanticGraphEdge edge) {
@@ -122,14 +167,16 @@ public class SemanticGraph implements Serializable  {
   }
 
   public Set<IndexedWord> vertexSet() {
-    return graph.getAllVertices();
+    return readGraph().getAllVertices();
   }
 
   public boolean removeEdge(SemanticGraphEdge e) {
+    thaw();
     return graph.removeEdge(e.getSource(), e.getTarget(), e);
   }
 
   public boolean removeVertex(IndexedWord vertex) {
+    thaw();
     return graph.removeVertex(vertex);
   }
 
@@ -163,23 +210,23 @@ public class SemanticGraph implements Serializable  {
   }
 
   public Iterable<SemanticGraphEdge> edgeIterable() {
-    return graph.edgeIterable();
+    return () -> compact != null ? compact.edgeIterator(this::removeEdge) : graph.edgeIterator();
   }
 
   public Iterator<SemanticGraphEdge> outgoingEdgeIterator(IndexedWord v) {
-    return graph.outgoingEdgeIterator(v);
+    return compact != null ? compact.outgoingEdgeIterator(v, this::removeEdge) : graph.outgoingEdgeIterator(v);
   }
 
   public Iterable<SemanticGraphEdge> outgoingEdgeIterable(IndexedWord v) {
-    return graph.outgoingEdgeIterable(v);
+    return () -> outgoingEdgeIterator(v);
   }
 
   public Iterator<SemanticGraphEdge> incomingEdgeIterator(IndexedWord v) {
-    return graph.incomingEdgeIterator(v);
+    return compact != null ? compact.incomingEdgeIterator(v, this::removeEdge) : graph.incomingEdgeIterator(v);
   }
 
   public Iterable<SemanticGraphEdge> incomingEdgeIterable(IndexedWord v) {
-    return graph.incomingEdgeIterable(v);
+    return () -> incomingEdgeIterator(v);
   }
 
   public List<SemanticGraphEdge> outgoingEdgeList(IndexedWord v) {
@@ -191,7 +238,7 @@ public class SemanticGraph implements Serializable  {
   }
 
   public boolean isEmpty() {
-    return graph.isEmpty();
+    return readGraph().isEmpty();
   }
 
   /**
@@ -469,7 +516,7 @@ public class SemanticGraph implements Serializable  {
     if (!containsVertex(vertex)) {
       throw new IllegalArgumentException();
     }
-    return graph.getChildren(vertex);
+    return readGraph().getChildren(vertex);
   }
 
   public boolean hasChildren(IndexedWord vertex) {
@@ -501,7 +548,7 @@ public class SemanticGraph implements Serializable  {
     if (!containsVertex(vertex)) {
       throw new IllegalArgumentException();
     }
-    return graph.getParents(vertex);
+    return readGraph().getParents(vertex);
   }
 
   /**
@@ -902,7 +949,7 @@ public class SemanticGraph implements Serializable  {
    * @throws IllegalStateException if this graph is not a DAG
    */
   public List<IndexedWord> topologicalSort() {
-    return graph.topologicalSort();
+    return compact != null ? compact.topologicalSort() : graph.topologicalSort();
   }
 
   /**
@@ -1635,12 +1682,12 @@ public class SemanticGraph implements Serializable  {
   public String toDotFormat(String graphname, CoreLabel.OutputFormat indexedWordFormat) {
     StringBuilder output = new StringBuilder();
     output.append("digraph " + graphname + " {\n");
-    for (IndexedWord word : graph.getAllVertices()) {
+    for (IndexedWord word : vertexSet()) {
       output.append("  N_" + word.index() + " [label=\"" +
                     word.toString(indexedWordFormat) +
                     "\"];\n");
     }
-    for (SemanticGraphEdge edge : graph.edgeIterable()) {
+    for (SemanticGraphEdge edge : edgeIterable()) {
       output.append("  N_" + edge.getSource().index() +
                     " -> N_" + edge.getTarget().index() +
                     " [label=\"" + edge.getRelation() + "\"];\n");
@@ -1651,6 +1698,7 @@ public class SemanticGraph implements Serializable  {
 
   public SemanticGraphEdge addEdge(IndexedWord s, IndexedWord d, GrammaticalRelation reln, double weight, boolean isExtra) {
     SemanticGraphEdge newEdge = new SemanticGraphEdge(s, d, reln, weight, isExtra);
+    thaw();
     graph.add(s, d, newEdge);
     return newEdge;
   }
@@ -1658,6 +1706,7 @@ public class SemanticGraph implements Serializable  {
   public SemanticGraphEdge addEdge(SemanticGraphEdge edge) {
     SemanticGraphEdge newEdge = new SemanticGraphEdge(edge.getGovernor(), edge.getDependent(),
         edge.getRelation(), edge.getWeight(), edge.isExtra());
+    thaw();
     graph.add(edge.getGovernor(), edge.getDependent(), newEdge);
     return newEdge;
   }
@@ -1698,7 +1747,12 @@ public class SemanticGraph implements Serializable  {
    * are copied.
    */
   public SemanticGraph(SemanticGraph g) {
-    graph = new DirectedMultiGraph<>(g.graph);
+    if (g.compact != null) {
+      // a compact graph can't be changed, so the copies can share it
+      compact = g.compact;
+    } else {
+      graph = new DirectedMultiGraph<>(g.graph);
+    }
     roots = wordMapFactory.newSet(g.roots);
   }
 
@@ -1775,11 +1829,11 @@ public class SemanticGraph implements Serializable  {
    *         order
    */
   public List<IndexedWord> getShortestUndirectedPathNodes(IndexedWord source, IndexedWord target) {
-    return graph.getShortestPath(source, target, false);
+    return getShortestPath(source, target, false);
   }
 
   public List<SemanticGraphEdge> getShortestUndirectedPathEdges(IndexedWord source, IndexedWord target) {
-    return graph.getShortestPathEdges(source, target, false);
+    return getShortestPathEdges(source, target, false);
   }
 
   /**
@@ -1790,11 +1844,28 @@ public class SemanticGraph implements Serializable  {
    * @return shortest directed path from source to target
    */
   public List<IndexedWord> getShortestDirectedPathNodes(IndexedWord source, IndexedWord target) {
-    return graph.getShortestPath(source, target, true);
+    return getShortestPath(source, target, true);
   }
 
   public List<SemanticGraphEdge> getShortestDirectedPathEdges(IndexedWord source, IndexedWord target) {
-    return graph.getShortestPathEdges(source, target, true);
+    return getShortestPathEdges(source, target, true);
+  }
+
+  private List<IndexedWord> getShortestPath(IndexedWord source, IndexedWord target, boolean directionSensitive) {
+    if (compact == null) {
+      return graph.getShortestPath(source, target, directionSensitive);
+    }
+    if ( ! compact.containsVertex(source) || ! compact.containsVertex(target)) {
+      return null;
+    }
+    return DijkstraShortestPath.getShortestPath(compact, source, target, directionSensitive);
+  }
+
+  private List<SemanticGraphEdge> getShortestPathEdges(IndexedWord source, IndexedWord target, boolean directionSensitive) {
+    if (compact == null) {
+      return graph.getShortestPathEdges(source, target, directionSensitive);
+    }
+    return compact.convertPath(getShortestPath(source, target, directionSensitive), directionSensitive);
   }
 
   public SemanticGraph makeSoftCopy() {
@@ -1973,12 +2044,16 @@ public class SemanticGraph implements Serializable  {
       return false;
     }
     SemanticGraph g = (SemanticGraph) o;
-    return graph.equals(g.graph) && roots.equals(g.roots);
+    if (compact == null && g.compact == null) {
+      return graph.equals(g.graph) && roots.equals(g.roots);
+    }
+    return CompactGraph.sameEdges(readGraph(), g.readGraph()) && roots.equals(g.roots);
   }
 
   @Override
   public int hashCode() {
-    return graph.hashCode();
+    // the same whether or not the graph is compact
+    return compact != null ? compact.multiGraphHashCode() : graph.hashCode();
   }
 
   /**
@@ -2002,6 +2077,7 @@ public class SemanticGraph implements Serializable  {
    *
    */
   public void deleteDuplicateEdges() {
+    thaw();
     graph.deleteDuplicateEdges();
   }
 
@@ -2077,6 +2153,15 @@ public class SemanticGraph implements Serializable  {
     return this.comments;
   }
 
+  /** A compact graph is written in its usual form, so that it can be read by any version. */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("roots", roots);
+    fields.put("graph", compact != null ? compact.toDirectedMultiGraph(outerMapFactory, innerMapFactory) : graph);
+    fields.put("comments", comments);
+    out.writeFields();
+  }
+
   private static final long serialVersionUID = 1L;
 
 }
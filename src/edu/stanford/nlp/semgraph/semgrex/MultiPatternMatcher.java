@@ -0,0 +1,352 @@
+package edu.stanford.nlp.semgraph.semgrex;
+
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.util.Generics;
+import edu.stanford.nlp.util.Pair;
+import edu.stanford.nlp.util.RuntimeInterruptedException;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * Matches many {@link SemgrexPattern}s against the same {@link SemanticGraph}.
+ * <p>
+ * When the patterns are added, the node descriptions each of them requires to be present in a graph
+ * (the descriptions which are not negated or optional, or under a negated or optional relation)
+ * are compiled into a trigger.  The attribute constraints of these descriptions are shared:
+ * a constraint such as {@code word:/bought|sold/} which appears in many patterns
+ * is evaluated once per graph, over all of its nodes.  Patterns whose trigger can't be satisfied
+ * by the graph are not run at all, and the others are only started from the nodes which match the
+ * description of their top node.  The matches found are the same, and in the same order,
+ * as those found by running the patterns one by one with {@link SemgrexMatcher#find()}.
+ * <p>
+ * A {@code MultiPatternMatcher} may be used from several threads at once.
+ */
+public class MultiPatternMatcher {
+
+  private final List<SemgrexPattern> patterns;
+  private final List<Trigger> triggers;
+  /** The constraints on the top node of each pattern, or null if any node may start a match */
+  private final List<Constraint[]> startConstraints;
+  private final boolean ignoreCase;
+
+  public MultiPatternMatcher(Collection<? extends SemgrexPattern> patterns) {
+    this(patterns, false);
+  }
+
+  /**
+   * @param patterns The patterns to match
+   * @param ignoreCase Whether to ignore case when matching node attributes, as in {@link SemgrexPattern#matcher(SemanticGraph, boolean)}
+   */
+  public MultiPatternMatcher(Collection<? extends SemgrexPattern> patterns, boolean ignoreCase) {
+    this.patterns = new ArrayList<>(patterns);
+    this.ignoreCase = ignoreCase;
+    this.triggers = new ArrayList<>(patterns.size());
+    this.startConstraints = new ArrayList<>(patterns.size());
+    Map<String, Constraint> constraints = Generics.newHashMap();
+    for (SemgrexPattern pattern : this.patterns) {
+      triggers.add(compileTrigger(pattern, constraints));
+      Constraint[] start = null;
+      if (pattern instanceof NodePattern && requiresNode((NodePattern) pattern)) {
+        start = compileConstraints((NodePattern) pattern, constraints);
+      }
+      startConstraints.add(start);
+    }
+  }
+
+  public List<SemgrexPattern> getPatterns() {
+    return Collections.unmodifiableList(patterns);
+  }
+
+  /**
+   * Returns the patterns which may match the given graph, in their original order.
+   * This is conservative: every pattern which matches is returned, but not every pattern returned matches.
+   */
+  public List<SemgrexPattern> getTriggeredPatterns(SemanticGraph sg) {
+    GraphIndex index = new GraphIndex(sg, ignoreCase);
+    List<SemgrexPattern> triggered = new ArrayList<>();
+    for (int i = 0; i < patterns.size(); i++) {
+      if (triggers.get(i).test(index)) {
+        triggered.add(patterns.get(i));
+      }
+    }
+    return triggered;
+  }
+
+  /**
+   * Finds every match of every pattern in the graph.
+   *
+   * @return The matches, ordered by pattern and then as {@link SemgrexMatcher#find()} would return them
+   */
+  public List<Match> findAll(SemanticGraph sg) {
+    List<Match> matches = new ArrayList<>();
+    find(sg, (pattern, matcher) -> {
+      matches.add(new Match(pattern, matcher));
+      return false;
+    });
+    return matches;
+  }
+
+  /**
+   * Goes through the matches of the patterns in the graph, in the order of {@link #findAll(SemanticGraph)},
+   * until one satisfies the given condition.
+   * The matcher passed to the condition is positioned on the match; it should not be advanced.
+   *
+   * @return Whether some match satisfied the condition
+   */
+  public boolean anyMatch(SemanticGraph sg, BiPredicate<SemgrexPattern, SemgrexMatcher> condition) {
+    return find(sg, condition);
+  }
+
+  private boolean find(SemanticGraph sg, BiPredicate<SemgrexPattern, SemgrexMatcher> condition) {
+    GraphIndex index = new GraphIndex(sg, ignoreCase);
+    for (int i = 0; i < patterns.size(); i++) {
+      if (Thread.interrupted()) {  // Allow interrupting
+        throw new RuntimeInterruptedException();
+      }
+      if ( ! triggers.get(i).test(index)) {
+        continue;
+      }
+      SemgrexPattern pattern = patterns.get(i);
+      SemgrexMatcher matcher = pattern.matcher(sg, ignoreCase);
+      Constraint[] start = startConstraints.get(i);
+      if (start == null) {
+        while (matcher.find()) {
+          if (condition.test(pattern, matcher)) {
+            return true;
+          }
+        }
+      } else {
+        // The same as find(), skipping the nodes the top node of the pattern can't match
+        BitSet candidates = index.candidates(start);
+        List<IndexedWord> order = index.order;
+        for (int node = candidates.nextSetBit(0); node >= 0; node = candidates.nextSetBit(node + 1)) {
+          if (matcher.matchesAt(order.get(node))) {
+            do {
+              if (condition.test(pattern, matcher)) {
+                return true;
+              }
+            } while (matcher.matches());
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /** Whether a node pattern can only match a node whose attributes match its description. */
+  private static boolean requiresNode(NodePattern node) {
+    return ! node.isNegatedDescription() && ! node.isRoot() && ! node.isNull() && ! node.getAttributes().isEmpty();
+  }
+
+  private static boolean isAligned(NodePattern node) {
+    return node.getRelation() instanceof GraphRelation.ALIGNMENT || node.getRelation() == GraphRelation.ALIGNED_ROOT;
+  }
+
+  private Trigger compileTrigger(SemgrexPattern pattern, Map<String, Constraint> constraints) {
+    if (pattern.isNegated() || pattern.isOptional()) {
+      return Trigger.ALWAYS;
+    }
+    List<Trigger> required = new ArrayList<>();
+    if (pattern instanceof NodePattern) {
+      NodePattern node = (NodePattern) pattern;
+      if (isAligned(node)) {
+        // matched against the other graph
+        return Trigger.ALWAYS;
+      }
+      if (requiresNode(node)) {
+        Constraint[] nodeConstraints = compileConstraints(node, constraints);
+        required.add(index -> ! index.candidates(nodeConstraints).isEmpty());
+      }
+      for (SemgrexPattern child : node.getChildren()) {
+        required.add(compileTrigger(child, constraints));
+      }
+      return and(required);
+    } else if (pattern instanceof CoordinationPattern && ! ((CoordinationPattern) pattern).isConj()) {
+      List<Trigger> alternatives = new ArrayList<>();
+      for (SemgrexPattern child : pattern.getChildren()) {
+        Trigger trigger = compileTrigger(child, constraints);
+        if (trigger == Trigger.ALWAYS) {
+          return Trigger.ALWAYS;
+        }
+        alternatives.add(trigger);
+      }
+      return index -> {
+        for (Trigger trigger : alternatives) {
+          if (trigger.test(index)) {
+            return true;
+          }
+        }
+        return false;
+      };
+    } else {
+      for (SemgrexPattern child : pattern.getChildren()) {
+        required.add(compileTrigger(child, constraints));
+      }
+      return and(required);
+    }
+  }
+
+  private static Trigger and(List<Trigger> triggers) {
+    triggers.removeIf(trigger -> trigger == Trigger.ALWAYS);
+    if (triggers.isEmpty()) {
+      return Trigger.ALWAYS;
+    } else if (triggers.size() == 1) {
+      return triggers.get(0);
+    }
+    return index -> {
+      for (Trigger trigger : triggers) {
+        if ( ! trigger.test(index)) {
+          return false;
+        }
+      }
+      return true;
+    };
+  }
+
+  /** The constraints of a node's attributes, sharing those already compiled for other nodes. */
+  private Constraint[] compileConstraints(NodePattern node, Map<String, Constraint> constraints) {
+    Constraint[] result = new Constraint[node.getAttributes().size()];
+    int i = 0;
+    for (Map.Entry<String, Pair<Object, Object>> attr : node.getAttributes().entrySet()) {
+      Class<?> key = Env.lookupAnnotationKey(node.env, attr.getKey());
+      Object toMatch = ignoreCase ? attr.getValue().second : attr.getValue().first;
+      Constraint constraint = new Constraint(key, toMatch);
+      result[i++] = constraints.computeIfAbsent(constraint.id, id -> constraint);
+    }
+    return result;
+  }
+
+
+  /** A condition which a graph must satisfy for a pattern to match it. */
+  private interface Trigger {
+    Trigger ALWAYS = index -> true;
+
+    boolean test(GraphIndex index);
+  }
+
+  /** What an attribute of a node must match, as in {@link NodePattern#attributeMatches}. */
+  private static class Constraint {
+    final Class<?> key;
+    final Object toMatch;
+    final String id;
+
+    Constraint(Class<?> key, Object toMatch) {
+      this.key = key;
+      this.toMatch = toMatch;
+      String keyName = (key == null) ? "null" : key.getName();
+      if (toMatch instanceof Pattern) {
+        id = keyName + " /" + ((Pattern) toMatch).pattern() + '/' + ((Pattern) toMatch).flags();
+      } else {
+        id = keyName + ' ' + toMatch.getClass().getSimpleName() + ' ' + toMatch;
+      }
+    }
+  }
+
+  /**
+   * The nodes of a graph, in the order {@link SemgrexMatcher#find()} tries them,
+   * with the nodes satisfying each constraint computed as they are needed.
+   */
+  private static class GraphIndex {
+    final List<IndexedWord> order;
+    private final boolean ignoreCase;
+    private final Map<Constraint, BitSet> satisfying = new IdentityHashMap<>();
+    /** For each attribute, the nodes with each value, for exact matches */
+    private final Map<Class<?>, Map<String, BitSet>> byValue = Generics.newHashMap();
+
+    GraphIndex(SemanticGraph sg, boolean ignoreCase) {
+      this.order = SemgrexMatcher.findOrder(sg);
+      this.ignoreCase = ignoreCase;
+    }
+
+    private String value(int node, Class<?> key) {
+      @SuppressWarnings("unchecked")
+      Object value = order.get(node).get((Class) key);
+      return (value == null) ? null : value.toString();
+    }
+
+    BitSet satisfying(Constraint constraint) {
+      BitSet nodes = satisfying.get(constraint);
+      if (nodes == null) {
+        if (constraint.toMatch instanceof String && ! ignoreCase) {
+          Map<String, BitSet> values = byValue.get(constraint.key);
+          if (values == null) {
+            values = Generics.newHashMap();
+            for (int i = 0; i < order.size(); i++) {
+              String value = value(i, constraint.key);
+              if (value != null) {
+                values.computeIfAbsent(value, v -> new BitSet()).set(i);
+              }
+            }
+            byValue.put(constraint.key, values);
+          }
+          nodes = values.getOrDefault((String) constraint.toMatch, new BitSet());
+        } else {
+          nodes = new BitSet(order.size());
+          for (int i = 0; i < order.size(); i++) {
+            String value = value(i, constraint.key);
+            if (value != null && NodePattern.attributeMatches(constraint.toMatch, value, ignoreCase)) {
+              nodes.set(i);
+            }
+          }
+        }
+        satisfying.put(constraint, nodes);
+      }
+      return nodes;
+    }
+
+    /** The nodes satisfying all of the given constraints. */
+    BitSet candidates(Constraint[] constraints) {
+      BitSet nodes = (BitSet) satisfying(constraints[0]).clone();
+      for (int i = 1; i < constraints.length && ! nodes.isEmpty(); i++) {
+        nodes.and(satisfying(constraints[i]));
+      }
+      return nodes;
+    }
+  }
+
+
+  /** A match of one of the patterns, with the nodes and relations it named. */
+  public static class Match {
+    private final SemgrexPattern pattern;
+    private final IndexedWord match;
+    private final Map<String, IndexedWord> namesToNodes;
+    private final Map<String, String> namesToRelations;
+
+    Match(SemgrexPattern pattern, SemgrexMatcher matcher) {
+      this.pattern = pattern;
+      this.match = matcher.getMatch();
+      this.namesToNodes = new HashMap<>(matcher.namesToNodes);
+      this.namesToRelations = new HashMap<>(matcher.namesToRelations);
+    }
+
+    public SemgrexPattern getPattern() {
+      return pattern;
+    }
+
+    /** The node matching the top node of the pattern. */
+    public IndexedWord getMatch() {
+      return match;
+    }
+
+    public IndexedWord getNode(String name) {
+      return namesToNodes.get(name);
+    }
+
+    public String getRelnString(String name) {
+      return namesToRelations.get(name);
+    }
+
+    public Set<String> getNodeNames() {
+      return namesToNodes.keySet();
+    }
+
+    @Override
+    public String toString() {
+      return pattern + " at " + match + ' ' + namesToNodes;
+    }
+  }
+
+}
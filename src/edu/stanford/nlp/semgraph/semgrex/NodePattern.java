@@ -152,20 +152,7 @@ public class NodePattern extends SemgrexPattern  {
 
       // Get the node pattern
       Object toMatch = ignoreCase ? attr.getValue().second : attr.getValue().first;
-      boolean matches;
-      if (toMatch instanceof Boolean) {
-        matches = ((Boolean) toMatch);
-      } else if (toMatch instanceof String) {
-        if (ignoreCase) {
-          matches = nodeValue.equalsIgnoreCase(toMatch.toString());
-        } else {
-          matches = nodeValue.equals(toMatch.toString());
-        }
-      } else if (toMatch instanceof Pattern) {
-        matches = ((Pattern) toMatch).matcher(nodeValue).matches();
-      } else {
-        throw new IllegalStateException("Unknown matcher type: " + toMatch + " (of class + " + toMatch.getClass() + ")");
-      }
+      boolean matches = attributeMatches(toMatch, nodeValue, ignoreCase);
 
       if (!matches) {
         // System.out.println("doesn't match");
@@ -178,6 +165,40 @@ public class NodePattern extends SemgrexPattern  {
     return !negDesc;
   }
 
+  /**
+   * Whether a (non-null) attribute value of a node matches one of the values of {@link #attributes}:
+   * a Boolean, a String or a Pattern.
+   */
+  static boolean attributeMatches(Object toMatch, String nodeValue, boolean ignoreCase) {
+    if (toMatch instanceof Boolean) {
+      return ((Boolean) toMatch);
+    } else if (toMatch instanceof String) {
+      if (ignoreCase) {
+        return nodeValue.equalsIgnoreCase(toMatch.toString());
+      } else {
+        return nodeValue.equals(toMatch.toString());
+      }
+    } else if (toMatch instanceof Pattern) {
+      return ((Pattern) toMatch).matcher(nodeValue).matches();
+    } else {
+      throw new IllegalStateException("Unknown matcher type: " + toMatch + " (of class + " + toMatch.getClass() + ")");
+    }
+  }
+
+  /** The attributes of this node, as (case sensitive, case insensitive) pairs of what their values must match. */
+  Map<String, Pair<Object, Object>> getAttributes() {
+    return attributes;
+  }
+
+  GraphRelation getRelation() {
+    return reln;
+  }
+
+  /** Whether it is the description of this node which is negated, as in {@code !{word:foo}}. */
+  boolean isNegatedDescription() {
+    return negDesc;
+  }
+
   public void makeLink() {
     isLink = true;
   }
@@ -128,37 +128,30 @@ public abstract class SemgrexMatcher  {
    */
   private static final WeakHashMap<Integer, List<IndexedWord>> topologicalSortCache = new WeakHashMap<>();
 
-  private void setupFindIterator() {
+  /**
+   * The order in which {@link #find()} tries the nodes of a graph: topologically sorted
+   * if the graph can be sorted, in the order of its vertex set otherwise.
+   */
+  static List<IndexedWord> findOrder(SemanticGraph graph) {
     try {
-      if (hyp) {
-        synchronized (topologicalSortCache) {
-          List<IndexedWord> topoSort = topologicalSortCache.get(System.identityHashCode(sg));
-          if (topoSort == null || topoSort.size() != sg.size()) {  // size check to mitigate a stale cache
-            topoSort = sg.topologicalSort();
-            topologicalSortCache.put(System.identityHashCode(sg), topoSort);
-          }
-          findIterator = topoSort.iterator();
-        }
-      } else if (sg_aligned == null) {
-        return;
-      } else {
-        synchronized (topologicalSortCache) {
-          List<IndexedWord> topoSort = topologicalSortCache.get(System.identityHashCode(sg_aligned));
-          if (topoSort == null || topoSort.size() != sg_aligned.size()) {  // size check to mitigate a stale cache
-            topoSort = sg_aligned.topologicalSort();
-            topologicalSortCache.put(System.identityHashCode(sg_aligned), topoSort);
-          }
-          findIterator = topoSort.iterator();
+      synchronized (topologicalSortCache) {
+        List<IndexedWord> topoSort = topologicalSortCache.get(System.identityHashCode(graph));
+        if (topoSort == null || topoSort.size() != graph.size()) {  // size check to mitigate a stale cache
+          topoSort = graph.topologicalSort();
+          topologicalSortCache.put(System.identityHashCode(graph), topoSort);
         }
+        return topoSort;
       }
     } catch (Exception ex) {
-      if (hyp) {
-        findIterator = sg.vertexSet().iterator();
-      } else if (sg_aligned == null) {
-        return;
-      } else {
-        findIterator = sg_aligned.vertexSet().iterator();
-      }
+      return new ArrayList<>(graph.vertexSet());
+    }
+  }
+
+  private void setupFindIterator() {
+    if (hyp) {
+      findIterator = findOrder(sg).iterator();
+    } else if (sg_aligned != null) {
+      findIterator = findOrder(sg_aligned).iterator();
     }
   }
 
@@ -301,6 +301,17 @@ public abstract class SemgrexPattern implements Serializable  {
     return compile(semgrex, new Env());
   }
 
+  /**
+   * Creates a matcher which runs the given patterns over the same graph, evaluating
+   * the node descriptions they share once and skipping patterns which can't match.
+   *
+   * @param patterns The patterns to match
+   * @return A MultiPatternMatcher for the patterns
+   */
+  public static MultiPatternMatcher getMultiPatternMatcher(Collection<? extends SemgrexPattern> patterns) {
+    return new MultiPatternMatcher(patterns);
+  }
+
   public String pattern() {
     return patternString;
   }
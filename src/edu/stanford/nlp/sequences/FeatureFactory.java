@@ -80,6 +80,26 @@ public abstract class FeatureFactory<IN> implements Serializable {
    */
   public abstract Collection<String> getCliqueFeatures(PaddedList<IN> info, int position, Clique clique);
 
+  /**
+   * Adds the numbers of the features for the word at the specified position
+   * in info for the specified {@link Clique} to a {@link FeatureIdBuffer}, as one group.
+   * The buffer gets the same features as {@link #getCliqueFeatures} returns, less those
+   * which aren't in the classifier's index.
+   * This default implementation just looks up each feature {@code getCliqueFeatures}
+   * returns; subclasses can override it to avoid building the feature Strings.
+   *
+   * @param info A PaddedList of the feature-value pairs
+   * @param position The current position to extract features at
+   * @param clique The particular clique for which to extract features
+   * @param ids The buffer to add the feature numbers to
+   */
+  public void getCliqueFeatureIds(PaddedList<IN> info, int position, Clique clique, FeatureIdBuffer ids) {
+    ids.startGroup();
+    for (String feature : getCliqueFeatures(info, position, clique)) {
+      ids.add(feature);
+    }
+  }
+
 
   /** Makes more complete feature names out of partial feature names, by
    *  adding a suffix to the String feature name, adding results to an
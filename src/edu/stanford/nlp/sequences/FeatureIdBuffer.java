@@ -0,0 +1,189 @@
+package edu.stanford.nlp.sequences;
+
+import edu.stanford.nlp.util.CharSequenceIndex;
+import edu.stanford.nlp.util.Index;
+
+import java.util.Arrays;
+
+/**
+ * A reusable buffer of feature numbers, which feature factories fill in through
+ * {@link FeatureFactory#getCliqueFeatureIds} instead of returning feature Strings.
+ * Each feature is assembled in a reused StringBuilder from its parts (for instance, a value,
+ * the template naming what the value is, and the clique suffix) and looked up in the classifier's
+ * feature index straight away; features which aren't in the index are dropped, as they would have
+ * been later anyway.  The String hash code of the feature is combined from the hash codes of its
+ * parts, which Strings cache, as it is built.  When the index is a {@link CharSequenceIndex},
+ * this neither allocates a String per feature nor hashes its chars again.
+ * <p>
+ * Features are added in groups, and a feature is only kept once per group, matching the
+ * Set of features which {@link FeatureFactory#getCliqueFeatures} returns.
+ * A buffer is not thread safe; use one per thread.
+ */
+public class FeatureIdBuffer {
+
+  /** Powers of 31, for combining the hash codes of Strings which are appended. */
+  private static final int[] POWERS_OF_31 = new int[64];
+  static {
+    POWERS_OF_31[0] = 1;
+    for (int i = 1; i < POWERS_OF_31.length; ++i) {
+      POWERS_OF_31[i] = POWERS_OF_31[i - 1] * 31;
+    }
+  }
+
+  private final Index<String> index;
+  private final CharSequenceIndex charIndex;
+
+  private final StringBuilder builder = new StringBuilder();
+
+  private int[] ids = new int[64];
+  private int size = 0;
+
+  /** The open-addressing set of the features in the current group, stamped with the group they belong to. */
+  private int[] seen = new int[128];
+  private int[] seenGroup = new int[128];
+  private int group = 1;
+  private int groupSize = 0;
+
+
+  /**
+   * Create a buffer which looks features up in the given index.
+   */
+  public FeatureIdBuffer(Index<String> index) {
+    this.index = index;
+    this.charIndex = (index instanceof CharSequenceIndex) ? (CharSequenceIndex) index : null;
+  }
+
+  /** Empty the buffer, and start a new group. */
+  public void clear() {
+    size = 0;
+    startGroup();
+  }
+
+  /** Start a new group of features; a feature is kept only once within a group. */
+  public void startGroup() {
+    ++group;
+    groupSize = 0;
+    if (group == Integer.MAX_VALUE) {
+      Arrays.fill(seenGroup, 0);
+      group = 1;
+    }
+  }
+
+  /** Add a feature which is already complete. */
+  public void add(CharSequence feature) {
+    builder.setLength(0);
+    builder.append(feature);
+    addBuilt(hash(feature));
+  }
+
+  /**
+   * Add a feature followed by a clique suffix, as
+   * {@link FeatureFactory#addAllInterningAndSuffixing} would name it.
+   */
+  public void add(CharSequence feature, String suffix) {
+    builder.setLength(0);
+    builder.append(feature);
+    addBuilt(appendSuffix(hash(feature), suffix));
+  }
+
+  /**
+   * Add the feature {@code value + template}, followed by a clique suffix.
+   * The value is appended as String concatenation would append it.
+   */
+  public void add(Object value, String template, String suffix) {
+    String string = String.valueOf(value);
+    builder.setLength(0);
+    builder.append(string).append(template);
+    addBuilt(appendSuffix(append(string.hashCode(), template), suffix));
+  }
+
+  private int appendSuffix(int hash, String suffix) {
+    if (suffix != null && ! suffix.isEmpty()) {
+      builder.append('|').append(suffix);
+      hash = append(31 * hash + '|', suffix);
+    }
+    return hash;
+  }
+
+  /** The String hash code of a String whose hash code is {@code hash}, followed by {@code s}. */
+  private static int append(int hash, String s) {
+    int length = s.length();
+    int power = 1;
+    if (length < POWERS_OF_31.length) {
+      power = POWERS_OF_31[length];
+    } else {
+      for (int i = 0; i < length; ++i) {
+        power *= 31;
+      }
+    }
+    return hash * power + s.hashCode();
+  }
+
+  /** The same hash code as {@link String#hashCode()}, for any CharSequence. */
+  private static int hash(CharSequence chars) {
+    if (chars instanceof String) {
+      return chars.hashCode();  // cached by String
+    }
+    int hash = 0;
+    for (int j = 0, length = chars.length(); j < length; ++j) {
+      hash = 31 * hash + chars.charAt(j);
+    }
+    return hash;
+  }
+
+  /** Look up the feature in the builder, whose String hash code is given, and add it if it's new to the group. */
+  private void addBuilt(int hash) {
+    int id = (charIndex != null) ? charIndex.indexOfChars(builder, hash) : index.indexOf(builder.toString());
+    if (id < 0 || ! markSeen(id)) {
+      return;
+    }
+    if (size == ids.length) {
+      ids = Arrays.copyOf(ids, size * 2);
+    }
+    ids[size++] = id;
+  }
+
+  /** Record the feature in the current group, and return whether it was new to the group. */
+  private boolean markSeen(int id) {
+    if (groupSize * 2 >= seen.length) {
+      growSeen();
+    }
+    int mask = seen.length - 1;
+    for (int slot = (id * 0x9E3779B9) >>> 7 & mask; ; slot = (slot + 1) & mask) {
+      if (seenGroup[slot] != group) {
+        seenGroup[slot] = group;
+        seen[slot] = id;
+        ++groupSize;
+        return true;
+      }
+      if (seen[slot] == id) {
+        return false;
+      }
+    }
+  }
+
+  /** Double the size of the seen set, keeping the features of the current group. */
+  private void growSeen() {
+    int[] oldSeen = seen;
+    int[] oldGroup = seenGroup;
+    seen = new int[oldSeen.length * 2];
+    seenGroup = new int[oldSeen.length * 2];
+    groupSize = 0;
+    for (int i = 0; i < oldSeen.length; ++i) {
+      if (oldGroup[i] == group) {
+        markSeen(oldSeen[i]);
+      }
+    }
+  }
+
+  /** The number of features in the buffer. */
+  public int size() {
+    return size;
+  }
+
+  /** A copy of the features in the buffer, in the order they were added. */
+  public int[] toArray() {
+    return Arrays.copyOf(ids, size);
+  }
+
+}
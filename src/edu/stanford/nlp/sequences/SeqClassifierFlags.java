@@ -444,6 +444,8 @@ public class SeqClassifierFlags implements Serializable  {
   public transient String loadAuxClassifier = null;
   public transient String serializeTo = null;
   public transient String serializeToText = null;
+  /** If set, also write the classifier in the memory-mapped format read by {@code CRFClassifier}. */
+  public transient String serializeToMapped = null;
   public transient int interimOutputFreq = 0;
   public transient String initialWeights = null;
   public transient List<String> gazettes = new ArrayList<>();
@@ -986,6 +988,18 @@ public class SeqClassifierFlags implements Serializable  {
   public boolean lazyUpdate = false;
   public int featureCountThresh = 0;
   public transient String serializeWeightsTo = null;
+  /**
+   * If true, a loaded CRFClassifier has its feature factories add feature numbers to a reused
+   * buffer when tagging, rather than building a list of feature Strings.  Features are looked up
+   * without making Strings only with a frozen feature index: see {@link #freezeFeatureIndex}.
+   */
+  public transient boolean extractFeatureIds = false;
+  /**
+   * If true, a loaded CRFClassifier keeps its feature index in a {@link edu.stanford.nlp.util.FrozenStringIndex},
+   * which takes much less memory than a HashIndex and can look features up without making Strings,
+   * but which costs a copy of the index when loading.
+   */
+  public transient boolean freezeFeatureIndex = false;
   public boolean geDebug = false;
   public boolean doFeatureDiscovery = false;
   public transient String loadWeightsFrom = null;
@@ -1584,6 +1598,8 @@ public class SeqClassifierFlags implements Serializable  {
         serializeTo = val;
       } else if (key.equalsIgnoreCase("serializeToText")) {
         serializeToText = val;
+      } else if (key.equalsIgnoreCase("serializeToMapped")) {
+        serializeToMapped = val;
       } else if (key.equalsIgnoreCase("serializeDatasetsDir")) {
         serializeDatasetsDir = val;
       } else if (key.equalsIgnoreCase("loadDatasetsDir")) {
@@ -2341,6 +2357,10 @@ public class SeqClassifierFlags implements Serializable  {
         multiThreadGibbs = Integer.parseInt(val);
       } else if (key.equalsIgnoreCase("matchNERIncentive")) {
         matchNERIncentive = Boolean.parseBoolean(val);
+      } else if (key.equalsIgnoreCase("extractFeatureIds")) {
+        extractFeatureIds = Boolean.parseBoolean(val);
+      } else if (key.equalsIgnoreCase("freezeFeatureIndex")) {
+        freezeFeatureIndex = Boolean.parseBoolean(val);
       } else if (key.equalsIgnoreCase("useEmbedding")) {
         useEmbedding = Boolean.parseBoolean(val);
       } else if (key.equalsIgnoreCase("prependEmbedding")) {
@@ -12,6 +12,11 @@ import edu.stanford.nlp.util.Generics;
 import org.joda.time.*;
 import org.joda.time.format.*;
 
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -30,7 +35,9 @@ public class TimeFormatter {
 
 
   public static class JavaDateFormatExtractor implements
-          Function<CoreMap, Value> {
+          Function<CoreMap, Value>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private static final Class<CoreAnnotations.TextAnnotation> textAnnotationField = CoreAnnotations.TextAnnotation.class;
     private final SimpleDateFormat format;
@@ -55,19 +62,37 @@ public class TimeFormatter {
 
 
   public static class JodaDateTimeFormatExtractor implements
-          Function<CoreMap, Value> {
+          Function<CoreMap, Value>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private static final Class<CoreAnnotations.TextAnnotation> textAnnotationField = CoreAnnotations.TextAnnotation.class;
-    private final DateTimeFormatter formatter;
+    /** The pattern of the formatter, if it was made from one: formatters themselves can't be serialized */
+    private final String pattern;
+    private transient DateTimeFormatter formatter;
 
     public JodaDateTimeFormatExtractor(DateTimeFormatter formatter) {
+      this.pattern = null;
       this.formatter = formatter;
     }
 
     public JodaDateTimeFormatExtractor(String pattern) {
+      this.pattern = pattern;
       this.formatter = DateTimeFormat.forPattern(pattern);
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+      if (pattern == null) {
+        throw new NotSerializableException("JodaDateTimeFormatExtractor without a pattern");
+      }
+      out.defaultWriteObject();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      formatter = DateTimeFormat.forPattern(pattern);
+    }
+
     @Override
     public Value apply(CoreMap m) {
       try {
@@ -82,7 +107,9 @@ public class TimeFormatter {
   }
 
 
-  static class ApplyActionWrapper<I,O> implements Function<I,O> {
+  static class ApplyActionWrapper<I,O> implements Function<I,O>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final Env env;
     private final Function<I,O> base;
@@ -191,7 +218,9 @@ public class TimeFormatter {
   /**
    * Converts time string pattern to text pattern.
    */
-  public static class CustomDateFormatExtractor implements Function<String, Value> {
+  public static class CustomDateFormatExtractor implements Function<String, Value>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final FormatterBuilder builder;
     private final String timePattern;
@@ -241,7 +270,9 @@ public class TimeFormatter {
   }
 
 
-  private abstract static class FormatComponent {
+  private abstract static class FormatComponent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     int group = -1;
     String quantifier = null;
@@ -276,6 +307,8 @@ public class TimeFormatter {
 
   private abstract static class DateTimeFieldComponent extends FormatComponent {
 
+    private static final long serialVersionUID = 1L;
+
     DateTimeFieldType fieldType;
 
     public Integer parseValue(String str) { return null; }
@@ -301,6 +334,8 @@ public class TimeFormatter {
 
   private static class NumericDateComponent extends DateTimeFieldComponent {
 
+    private static final long serialVersionUID = 1L;
+
     private final int minValue;
     private final int maxValue;
     private final int minDigits;
@@ -341,6 +376,9 @@ public class TimeFormatter {
 
   private static class RelaxedNumericDateComponent extends FormatComponent
   {
+
+    private static final long serialVersionUID = 1L;
+
     NumericDateComponent[] possibleNumericDateComponents;
     int minDigits;
     int maxDigits;
@@ -392,6 +430,8 @@ public class TimeFormatter {
 
   private static class TextDateComponent extends DateTimeFieldComponent {
 
+    private static final long serialVersionUID = 1L;
+
     Map<String, Integer> valueMapping;
     List<String> validValues;
     Locale locale;
@@ -458,6 +498,9 @@ public class TimeFormatter {
 
   private static class TimeZoneOffsetComponent extends FormatComponent
   {
+
+    private static final long serialVersionUID = 1L;
+
     String zeroOffsetParseText;  // Text indicating timezone offset is zero
 
     // TimezoneOffset is + or - followed by
@@ -563,6 +606,9 @@ public class TimeFormatter {
   //  NameKey    PST (or PDT depending on input milliseconds)
   private static class TimeZoneIdComponent extends FormatComponent
   {
+
+    private static final long serialVersionUID = 1L;
+
     static final Map<String, DateTimeZone> timeZonesById;
     static final List<String> timeZoneIds;
     static final String timeZoneIdsRegex;
@@ -610,6 +656,9 @@ public class TimeFormatter {
 
   private static class TimeZoneComponent extends FormatComponent
   {
+
+    private static final long serialVersionUID = 1L;
+
     Locale locale;
 
     static Map<Locale, CollectionValuedMap<String, DateTimeZone>> timeZonesByName = Generics.newHashMap();
@@ -619,11 +668,16 @@ public class TimeFormatter {
     public TimeZoneComponent(Locale locale)
     {
       this.locale = locale;
+      ensureTimeZoneNames(locale);
+    }
+
+    private static CollectionValuedMap<String, DateTimeZone> ensureTimeZoneNames(Locale locale) {
       synchronized (TimeZoneComponent.class) {
         String regex = timeZoneRegexes.get(locale);
         if (regex == null) {
           updateTimeZoneNames(locale);
         }
+        return timeZonesByName.get(locale);
       }
     }
 
@@ -656,7 +710,8 @@ public class TimeFormatter {
       // TODO: do something about these multiple timezones that match the same name...
       // pick one based on location
       str = str.toLowerCase();
-      CollectionValuedMap<String,DateTimeZone> tzMap = timeZonesByName.get(locale);
+      // A component read from compiled rules only needs the names once it parses a time zone
+      CollectionValuedMap<String,DateTimeZone> tzMap = ensureTimeZoneNames(locale);
       Collection<DateTimeZone> v = tzMap.get(str);
       if (v == null || v.isEmpty()) return null;
       else return v.iterator().next();
@@ -680,6 +735,8 @@ public class TimeFormatter {
 
   private static class LiteralComponent extends FormatComponent {
 
+    private static final long serialVersionUID = 1L;
+
     private final String text;
 
     public LiteralComponent(String str) {
@@ -697,6 +754,8 @@ public class TimeFormatter {
 
   private static class RegexComponent extends FormatComponent {
 
+    private static final long serialVersionUID = 1L;
+
     private final String regex;
 
     public RegexComponent(String regex) {
@@ -712,11 +771,13 @@ public class TimeFormatter {
   }
 
 
-  private static class FormatterBuilder {
+  private static class FormatterBuilder implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     boolean useRelaxedHour = true;
     Locale locale;
-    DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder();
+    transient DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder();
     List<FormatComponent> pieces = new ArrayList<>();
     int curGroup = 0;
 
@@ -28,6 +28,10 @@ class CoordinationPattern extends TregexPattern {
     return children;
   }
 
+  boolean isConj() {
+    return isConj;
+  }
+
   @Override
   public String localString() {
     return (isConj ? "and" : "or");
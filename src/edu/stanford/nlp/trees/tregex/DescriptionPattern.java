@@ -273,6 +273,53 @@ public class DescriptionPattern extends TregexPattern  {
     child = n;
   }
 
+  Relation getRelation() {
+    return rel;
+  }
+
+  /** Whether it is the description of this node which is negated, as in {@code !NP}. */
+  boolean isNegatedDescription() {
+    return negDesc;
+  }
+
+  /**
+   * Whether this node has a description which only some labels match, as opposed to
+   * a backreference, a link or {@code __}.
+   */
+  boolean hasSelectiveDescription() {
+    return descriptionMode != null && descriptionMode != DescriptionMode.ANYTHING;
+  }
+
+  /** The only label this node's description matches, if it is written as an exact label, or else null. */
+  String exactLabel() {
+    return (descriptionMode == DescriptionMode.EXACT && basicCatFunction == null) ? exactMatch : null;
+  }
+
+  /**
+   * Whether a node with the given label can match the description of this node,
+   * leaving aside its negation and the variable groups.
+   */
+  boolean descriptionMatches(String value) {
+    if (value == null || descriptionMode == null) {
+      return false;
+    }
+    if (basicCatFunction != null) {
+      value = basicCatFunction.apply(value);
+    }
+    switch (descriptionMode) {
+    case EXACT:
+      return value.equals(exactMatch);
+    case PATTERN:
+      return descPattern.matcher(value).find();
+    case ANYTHING:
+      return true;
+    case STRINGS:
+      return stringFilter.test(value);
+    default:
+      throw new IllegalArgumentException("Unexpected match mode");
+    }
+  }
+
   @Override
   public List<TregexPattern> getChildren() {
     if (child == null) {
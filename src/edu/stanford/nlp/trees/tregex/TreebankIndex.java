@@ -0,0 +1,388 @@
+package edu.stanford.nlp.trees.tregex;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.trees.MemoryTreebank;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.util.Generics;
+import edu.stanford.nlp.util.RuntimeInterruptedException;
+import edu.stanford.nlp.util.logging.Redwood;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An index of a treebank for answering many {@link TregexPattern} queries over it.
+ * <p>
+ * The nodes of each tree are numbered in preorder, which is the order in which
+ * {@link TregexMatcher#find()} visits them.  For each label, the index keeps the list of the
+ * (tree, node) pairs with that label, and for each node the number of the last node it dominates,
+ * so that dominance between two nodes is a comparison of numbers.
+ * <p>
+ * A query first works out from the index which trees could match the pattern, and at which nodes:
+ * every node description of the pattern which is not negated, optional, or under a negated or
+ * optional relation must match a label of the tree, and the dominance relations
+ * ({@code <<}, {@code <}, {@code <:}, {@code >>}, {@code >}, {@code >:}) and {@code ==} between such
+ * nodes must hold between candidate nodes.  This is conservative; the matches themselves come from
+ * running the pattern's {@link TregexMatcher} from each candidate node of each candidate tree,
+ * so they are exactly those {@code find()} would return, in the same order.
+ * <p>
+ * The index can be saved to disk with {@link #save} and read back with {@link #load}.  It holds the trees,
+ * which must not be changed while the index is in use.
+ * {@link edu.stanford.nlp.trees.tregex.tsurgeon.Tsurgeon#processPatternsOnIndex} works on copies.
+ */
+public class TreebankIndex implements Serializable {
+
+  /** A logger for this class */
+  private static final Redwood.RedwoodChannels log = Redwood.channels(TreebankIndex.class);
+
+  private static final long serialVersionUID = 1L;
+
+  private static final Set<String> DOMINATES = Generics.newHashSet(Arrays.asList("<<", "<", "<:"));
+  private static final Set<String> DOMINATED_BY = Generics.newHashSet(Arrays.asList(">>", ">", ">:"));
+
+  private final List<Tree> trees;
+  /** For each tree, the number of the last node each node dominates, by preorder number */
+  private final int[][] subtreeEnds;
+  /** For each label, the (tree, node) pairs with that label, flattened and in order */
+  private final Map<String, int[]> postings;
+
+  public TreebankIndex(Collection<Tree> treebank) {
+    trees = new ArrayList<>(treebank);
+    subtreeEnds = new int[trees.size()][];
+    Map<String, IntBuffer> labels = Generics.newHashMap();
+    for (int t = 0; t < trees.size(); t++) {
+      List<Tree> nodes = trees.get(t).preOrderNodeList();
+      subtreeEnds[t] = new int[nodes.size()];
+      fillSubtreeEnds(trees.get(t), 0, subtreeEnds[t]);
+      for (int n = 0; n < nodes.size(); n++) {
+        String value = nodes.get(n).value();
+        if (value != null) {
+          labels.computeIfAbsent(value, v -> new IntBuffer()).add(t, n);
+        }
+      }
+    }
+    postings = Generics.newHashMap(labels.size());
+    for (Map.Entry<String, IntBuffer> entry : labels.entrySet()) {
+      postings.put(entry.getKey(), entry.getValue().toArray());
+    }
+  }
+
+  /** Numbers the subtree at {@code tree} from {@code start}, returning the number of its last node. */
+  private static int fillSubtreeEnds(Tree tree, int start, int[] ends) {
+    int end = start;
+    for (Tree kid : tree.children()) {
+      end = fillSubtreeEnds(kid, end + 1, ends);
+    }
+    ends[start] = end;
+    return end;
+  }
+
+  public int size() {
+    return trees.size();
+  }
+
+  public Tree getTree(int index) {
+    return trees.get(index);
+  }
+
+  public List<Tree> getTrees() {
+    return Collections.unmodifiableList(trees);
+  }
+
+  /** The labels of the nodes of the treebank. */
+  public Set<String> labels() {
+    return Collections.unmodifiableSet(postings.keySet());
+  }
+
+  public void save(String path) throws IOException {
+    IOUtils.writeObjectToFile(this, path);
+  }
+
+  public static TreebankIndex load(String path) throws IOException, ClassNotFoundException {
+    return IOUtils.readObjectFromURLOrClasspathOrFileSystem(path);
+  }
+
+  /**
+   * Returns the indices of the trees which may match the pattern, in order.
+   * Every tree which matches is returned, but not every tree returned matches.
+   */
+  public List<Integer> candidateTrees(TregexPattern pattern) {
+    Query query = new Query(pattern);
+    List<Integer> result = new ArrayList<>();
+    for (int t = query.trees.nextSetBit(0); t >= 0; t = query.trees.nextSetBit(t + 1)) {
+      result.add(t);
+    }
+    return result;
+  }
+
+  /**
+   * Calls {@code onMatch} with each match of the pattern in the treebank, and the index of its tree,
+   * in the order of the trees and then of {@link TregexMatcher#find()}.
+   * The matcher is positioned on the match; it should not be advanced.
+   *
+   * @return The number of matches
+   */
+  public int forEachMatch(TregexPattern pattern, ObjIntConsumer<TregexMatcher> onMatch) {
+    Query query = new Query(pattern);
+    int matches = 0;
+    for (int t = query.trees.nextSetBit(0); t >= 0; t = query.trees.nextSetBit(t + 1)) {
+      if (Thread.interrupted()) {  // Allow interrupting
+        throw new RuntimeInterruptedException();
+      }
+      BitSet start = query.startNodes(t);
+      if (start.isEmpty()) {
+        continue;
+      }
+      List<Tree> nodes = trees.get(t).preOrderNodeList();
+      TregexMatcher matcher = pattern.matcher(trees.get(t));
+      for (int n = start.nextSetBit(0); n >= 0; n = start.nextSetBit(n + 1)) {
+        if (matcher.matchesAt(nodes.get(n))) {
+          do {
+            onMatch.accept(matcher, t);
+            matches++;
+          } while (matcher.matches());
+        }
+      }
+    }
+    return matches;
+  }
+
+  /** Returns the indices of the trees in which the pattern matches, in order. */
+  public List<Integer> matchingTrees(TregexPattern pattern) {
+    List<Integer> result = new ArrayList<>();
+    forEachMatch(pattern, (matcher, tree) -> {
+      if (result.isEmpty() || result.get(result.size() - 1) != tree) {
+        result.add(tree);
+      }
+    });
+    return result;
+  }
+
+
+  /** The candidate trees and nodes of one pattern. */
+  private class Query {
+    private final TregexPattern pattern;
+    /** For each description, the nodes with a label it matches, by tree */
+    private final Map<DescriptionPattern, Map<Integer, BitSet>> described = new IdentityHashMap<>();
+    final BitSet trees;
+
+    Query(TregexPattern pattern) {
+      this.pattern = pattern;
+      BitSet required = requiredTrees(pattern);
+      if (required == null) {
+        required = new BitSet(TreebankIndex.this.trees.size());
+        required.set(0, TreebankIndex.this.trees.size());
+      }
+      trees = required;
+    }
+
+    private Map<Integer, BitSet> described(DescriptionPattern node) {
+      Map<Integer, BitSet> nodes = described.get(node);
+      if (nodes == null) {
+        nodes = Generics.newHashMap();
+        String label = node.exactLabel();
+        if (label != null) {
+          addPostings(nodes, postings.get(label));
+        } else {
+          for (Map.Entry<String, int[]> entry : postings.entrySet()) {
+            if (node.descriptionMatches(entry.getKey())) {
+              addPostings(nodes, entry.getValue());
+            }
+          }
+        }
+        described.put(node, nodes);
+      }
+      return nodes;
+    }
+
+    private void addPostings(Map<Integer, BitSet> nodes, int[] pairs) {
+      if (pairs != null) {
+        for (int i = 0; i < pairs.length; i += 2) {
+          nodes.computeIfAbsent(pairs[i], t -> new BitSet()).set(pairs[i + 1]);
+        }
+      }
+    }
+
+    private boolean constrains(TregexPattern node) {
+      return node instanceof DescriptionPattern && ((DescriptionPattern) node).hasSelectiveDescription() &&
+          ! ((DescriptionPattern) node).isNegatedDescription();
+    }
+
+    /** The trees which have nodes for all the descriptions the pattern requires, or null for all trees. */
+    private BitSet requiredTrees(TregexPattern node) {
+      if (node.isNegated() || node.isOptional()) {
+        return null;
+      }
+      BitSet result = null;
+      if (node instanceof CoordinationPattern && ! ((CoordinationPattern) node).isConj()) {
+        result = new BitSet();
+        for (TregexPattern child : node.getChildren()) {
+          BitSet alternative = requiredTrees(child);
+          if (alternative == null) {
+            return null;
+          }
+          result.or(alternative);
+        }
+        return result;
+      }
+      if (constrains(node)) {
+        result = new BitSet();
+        for (Integer t : described((DescriptionPattern) node).keySet()) {
+          result.set(t);
+        }
+      }
+      for (TregexPattern child : node.getChildren()) {
+        BitSet required = requiredTrees(child);
+        if (required != null) {
+          if (result == null) {
+            result = required;
+          } else {
+            result.and(required);
+          }
+        }
+      }
+      return result;
+    }
+
+    /** The nodes of the tree at which the pattern may match. */
+    BitSet startNodes(int tree) {
+      return candidates(pattern, tree);
+    }
+
+    /**
+     * The nodes of the tree which may match the top node of the pattern,
+     * or all nodes if that can't be told from the index.
+     */
+    private BitSet candidates(TregexPattern node, int tree) {
+      if (node instanceof DescriptionPattern) {
+        DescriptionPattern description = (DescriptionPattern) node;
+        BitSet nodes;
+        if (constrains(description)) {
+          BitSet labelled = described(description).get(tree);
+          nodes = (labelled == null) ? new BitSet() : (BitSet) labelled.clone();
+        } else {
+          nodes = allNodes(tree);
+        }
+        for (TregexPattern child : node.getChildren()) {
+          nodes = constrain(nodes, child, tree);
+        }
+        return nodes;
+      } else if (node instanceof CoordinationPattern && ! ((CoordinationPattern) node).isConj() && ! node.isNegated()) {
+        BitSet nodes = new BitSet();
+        for (TregexPattern child : node.getChildren()) {
+          nodes.or(candidates(child, tree));
+        }
+        return nodes;
+      }
+      return allNodes(tree);
+    }
+
+    private BitSet allNodes(int tree) {
+      BitSet nodes = new BitSet(subtreeEnds[tree].length);
+      nodes.set(0, subtreeEnds[tree].length);
+      return nodes;
+    }
+
+    /** Those of the given nodes which may satisfy the given relation to a child node. */
+    private BitSet constrain(BitSet nodes, TregexPattern relation, int tree) {
+      if (relation.isNegated() || relation.isOptional() || nodes.isEmpty()) {
+        return nodes;
+      }
+      if (relation instanceof CoordinationPattern) {
+        if (((CoordinationPattern) relation).isConj()) {
+          for (TregexPattern child : relation.getChildren()) {
+            nodes = constrain(nodes, child, tree);
+          }
+          return nodes;
+        } else {
+          BitSet result = new BitSet();
+          for (TregexPattern child : relation.getChildren()) {
+            result.or(constrain((BitSet) nodes.clone(), child, tree));
+          }
+          return result;
+        }
+      }
+      DescriptionPattern child = (DescriptionPattern) relation;
+      BitSet others = candidates(child, tree);
+      String symbol = child.getRelation().toString();
+      int[] ends = subtreeEnds[tree];
+      BitSet result = new BitSet();
+      if (DOMINATES.contains(symbol)) {
+        for (int n = nodes.nextSetBit(0); n >= 0; n = nodes.nextSetBit(n + 1)) {
+          int descendant = others.nextSetBit(n + 1);
+          if (descendant >= 0 && descendant <= ends[n]) {
+            result.set(n);
+          }
+        }
+      } else if (DOMINATED_BY.contains(symbol)) {
+        for (int n = others.nextSetBit(0); n >= 0; n = others.nextSetBit(n + 1)) {
+          if (ends[n] > n) {
+            result.set(n + 1, ends[n] + 1);
+          }
+        }
+        result.and(nodes);
+      } else if (symbol.equals("==")) {
+        result = (BitSet) nodes.clone();
+        result.and(others);
+      } else if ( ! others.isEmpty()) {
+        result = nodes;
+      }
+      return result;
+    }
+  }
+
+
+  /** A growable array of ints. */
+  private static class IntBuffer {
+    private int[] values = new int[8];
+    private int size;
+
+    void add(int first, int second) {
+      if (size + 2 > values.length) {
+        values = Arrays.copyOf(values, values.length * 2);
+      }
+      values[size++] = first;
+      values[size++] = second;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+
+
+  /**
+   * Builds an index of a treebank, or queries one.
+   * <p>
+   * Usage: <br>
+   * {@code java edu.stanford.nlp.trees.tregex.TreebankIndex -build treebankPath indexFile} <br>
+   * {@code java edu.stanford.nlp.trees.tregex.TreebankIndex -query indexFile pattern...}
+   * <p>
+   * A query prints each tree in which a pattern matches.
+   */
+  public static void main(String[] args) throws IOException, ClassNotFoundException {
+    if (args.length >= 3 && args[0].equals("-build")) {
+      MemoryTreebank treebank = new MemoryTreebank();
+      treebank.loadPath(args[1]);
+      TreebankIndex index = new TreebankIndex(treebank);
+      index.save(args[2]);
+      log.info("Indexed " + index.size() + " trees with " + index.postings.size() + " labels into " + args[2]);
+    } else if (args.length >= 3 && args[0].equals("-query")) {
+      TreebankIndex index = load(args[1]);
+      for (int i = 2; i < args.length; i++) {
+        TregexPattern pattern = TregexPattern.compile(args[i]);
+        long start = System.nanoTime();
+        List<Integer> matching = index.matchingTrees(pattern);
+        log.info(pattern.pattern() + ": " + matching.size() + " trees in " + ((System.nanoTime() - start) / 1000000) + " ms");
+        for (int t : matching) {
+          System.out.println(index.getTree(t));
+        }
+      }
+    } else {
+      log.info("Usage: TreebankIndex -build treebankPath indexFile | -query indexFile pattern...");
+    }
+  }
+
+}
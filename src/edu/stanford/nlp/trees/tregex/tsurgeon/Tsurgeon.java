@@ -34,6 +34,7 @@ import edu.stanford.nlp.trees.tregex.Macros;
 import edu.stanford.nlp.trees.tregex.TregexPattern;
 import edu.stanford.nlp.trees.tregex.TregexPatternCompiler;
 import edu.stanford.nlp.trees.tregex.TregexMatcher;
+import edu.stanford.nlp.trees.tregex.TreebankIndex;
 import edu.stanford.nlp.util.Generics;
 import edu.stanford.nlp.util.Pair;
 import edu.stanford.nlp.util.ReflectionLoading;
@@ -616,6 +617,41 @@ public class Tsurgeon  {
     return t;
   }
 
+  /**
+   * Applies the operations to each tree of an index, as {@link #processPatternsOnTree} does,
+   * skipping the operations which the index shows can't match a tree.  The trees of the index
+   * are not changed: a tree some operation may match is copied before it is operated on, and
+   * the other trees are returned as they are.
+   *
+   * @param ops The operations to apply, in order
+   * @param index The index of the trees to process
+   * @return The transformed trees, in the order of the index
+   */
+  public static List<Tree> processPatternsOnIndex(List<Pair<TregexPattern, TsurgeonPattern>> ops, TreebankIndex index) {
+    List<BitSet> candidates = new ArrayList<>(ops.size());
+    for (Pair<TregexPattern, TsurgeonPattern> op : ops) {
+      BitSet trees = new BitSet(index.size());
+      for (int t : index.candidateTrees(op.first())) {
+        trees.set(t);
+      }
+      candidates.add(trees);
+    }
+    List<Tree> result = new ArrayList<>(index.size());
+    for (int t = 0; t < index.size(); t++) {
+      // until an operation changes the tree, the index tells which operations may match it
+      int first = 0;
+      while (first < ops.size() && ! candidates.get(first).get(t)) {
+        first++;
+      }
+      if (first == ops.size()) {
+        result.add(index.getTree(t));
+      } else {
+        result.add(processPatternsOnTree(ops.subList(first, ops.size()), index.getTree(t).deepCopy()));
+      }
+    }
+    return result;
+  }
+
 
 
   /**
@@ -73,10 +73,21 @@ public class ArrayCoreMap implements CoreMap /*, Serializable */ {
    * Copy constructor.
    * @param other The ArrayCoreMap to copy. It may not be null.
    */
+  @SuppressWarnings("unchecked")
   public ArrayCoreMap(ArrayCoreMap other) {
-    size = other.size;
-    keys = Arrays.copyOf(other.keys, size);
-    values = Arrays.copyOf(other.values, size);
+    size = other.size();
+    if (size == other.size) {
+      keys = Arrays.copyOf(other.keys, size);
+      values = Arrays.copyOf(other.values, size);
+    } else {
+      // other keeps some of its entries outside of its arrays
+      keys = ErasureUtils.uncheckedCast(new Class<?>[size]);
+      values = new Object[size];
+      for (int i = 0; i < size; i++) {
+        keys[i] = other.keyAt(i);
+        values[i] = other.valueAt(i);
+      }
+    }
   }
 
   /**
@@ -153,6 +164,32 @@ public class ArrayCoreMap implements CoreMap /*, Serializable */ {
     return null;
   }
 
+  /**
+   * The key of the i-th entry of this map, for 0 &le; i &lt; {@link #size()}.
+   * Together with {@link #valueAt(int)} and {@link #indexOfKey(Class)}, this is how the methods which look at
+   * the whole map (equals, hashCode, toString, serialization, ...) see its entries, so that a subclass
+   * can keep some of its entries outside of the arrays of this class, as {@code CoreLabel} does.
+   * Such a subclass puts its own entries before the entries in the arrays.
+   */
+  protected Class<? extends Key<?>> keyAt(int i) {
+    return keys[i];
+  }
+
+  /** The value of the i-th entry of this map, for 0 &le; i &lt; {@link #size()}. */
+  protected Object valueAt(int i) {
+    return values[i];
+  }
+
+  /** The index of the entry of this map with the given key, or -1 if there is none. */
+  protected int indexOfKey(Class<?> key) {
+    for (int i = 0; i < size; i++) {
+      if (keys[i] == key) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -167,29 +204,28 @@ public class ArrayCoreMap implements CoreMap /*, Serializable */ {
 
           @Override
           public boolean hasNext() {
-            return i < size;
+            return i < ArrayCoreMap.this.size();
           }
 
           @Override
           public Class<?> next() {
-            try {
-              return keys[i++];
-            } catch (ArrayIndexOutOfBoundsException aioobe) {
+            if (i >= ArrayCoreMap.this.size()) {
               throw new NoSuchElementException("ArrayCoreMap keySet iterator exhausted");
             }
+            return keyAt(i++);
           }
 
           @Override
           @SuppressWarnings("unchecked")
           public void remove() {
-            ArrayCoreMap.this.remove((Class)keys[i]);
+            ArrayCoreMap.this.remove((Class)keyAt(i));
           }
         };
       }
 
       @Override
       public int size() {
-        return size;
+        return ArrayCoreMap.this.size();
       }
     };
   }
@@ -203,8 +239,8 @@ public class ArrayCoreMap implements CoreMap /*, Serializable */ {
   public Set<Class<?>> keySetNotNull() {
     Set<Class<?>> mapKeys = new IdentityHashSet<>();
     for (int i = 0; i < size(); ++i) {
-      if (values[i] != null) {
-        mapKeys.add(this.keys[i]);
+      if (valueAt(i) != null) {
+        mapKeys.add(keyAt(i));
       }
     }
     return mapKeys;
@@ -308,10 +344,11 @@ public class ArrayCoreMap implements CoreMap /*, Serializable */ {
     calledSet.add(this);
 
     StringBuilder s = new StringBuilder("[");
+    int size = size();
     for (int i = 0; i < size; i++) {
-      s.append(keys[i].getSimpleName());
+      s.append(keyAt(i).getSimpleName());
       s.append('=');
-      s.append(values[i]);
+      s.append(valueAt(i));
       if (i < size-1) {
         s.append(' ');
       }
@@ -344,12 +381,13 @@ public class ArrayCoreMap implements CoreMap /*, Serializable */ {
     StringBuilder s = new StringBuilder(SHORTER_STRING_CHARSTRING_START_SIZE);
     s.append('[');
     Set<String> whatSet = null;
+    int size = size();
     if (size > SHORTER_STRING_MAX_SIZE_BEFORE_HASHING && what.length > SHORTER_STRING_MAX_SIZE_BEFORE_HASHING) {
       // if there's a lot of stuff, hash.
       whatSet = new HashSet<>(Arrays.asList(what));
     }
     for (int i = 0; i < size; i++) {
-      Class klass = keys[i];
+      Class klass = keyAt(i);
       String name = shortNames.get(klass);
       if (name == null) {
         name = klass.getSimpleName();
@@ -380,7 +418,7 @@ public class ArrayCoreMap implements CoreMap /*, Serializable */ {
         }
         s.append(name);
         s.append('=');
-        s.append(values[i]);
+        s.append(valueAt(i));
       }
     }
     s.append(']');
@@ -420,10 +458,11 @@ public class ArrayCoreMap implements CoreMap /*, Serializable */ {
    */
   public String toShortString(char separator, String... what) {
     StringBuilder s = new StringBuilder();
+    int size = size();
     for (int i = 0; i < size; i++) {
       boolean include;
       if (what.length > 0) {
-        String name = keys[i].getSimpleName();
+        String name = keyAt(i).getSimpleName();
         int annoIdx = name.lastIndexOf("Annotation");
         if (annoIdx >= 0) {
           name = name.substring(0, annoIdx);
@@ -442,7 +481,7 @@ public class ArrayCoreMap implements CoreMap /*, Serializable */ {
         if (s.length() > 0) {
           s.append(separator);
         }
-        s.append(values[i]);
+        s.append(valueAt(i));
       }
     }
     String answer = s.toString();
@@ -538,26 +577,18 @@ public class ArrayCoreMap implements CoreMap /*, Serializable */ {
     calledMap.put(this, other, true);
     calledMap.put(other, this, true);
 
-    if (this.size != other.size) {
+    int size = this.size();
+    if (size != other.size()) {
       result = false;
     } else {
-    for (int i = 0; i < this.size; i++) {
+    for (int i = 0; i < size; i++) {
       // test if other contains this key,value pair
       boolean matched = false;
-      for (int j = 0; j < other.size; j++) {
-        if (this.keys[i] == other.keys[j]) {
-          if ((this.values[i] == null && other.values[j] != null) ||
-              (this.values[i] != null && other.values[j] == null)) {
-            matched = false;
-            break;
-          }
-
-          if ((this.values[i] == null && other.values[j] == null) ||
-              (this.values[i].equals(other.values[j]))) {
-            matched = true;
-            break;
-          }
-        }
+      int j = other.indexOfKey(this.keyAt(i));
+      if (j >= 0) {
+        Object thisValue = this.valueAt(i);
+        Object otherValue = other.valueAt(j);
+        matched = (thisValue == null) ? (otherValue == null) : thisValue.equals(otherValue);
       }
 
       if (!matched) {
@@ -607,9 +638,11 @@ public class ArrayCoreMap implements CoreMap /*, Serializable */ {
 
     int keysCode = 0;
     int valuesCode = 0;
+    int size = size();
     for (int i = 0; i < size; i++) {
-      keysCode += (i < keys.length && values[i] != null ? keys[i].hashCode() : 0);
-      valuesCode += (i < values.length && values[i] != null ? values[i].hashCode() : 0);
+      Object value = valueAt(i);
+      keysCode += (value != null ? keyAt(i).hashCode() : 0);
+      valuesCode += (value != null ? value.hashCode() : 0);
     }
 
     if (createdCalledSet) {
@@ -633,13 +666,30 @@ public class ArrayCoreMap implements CoreMap /*, Serializable */ {
 
   /**
    * Overridden serialization method: compacts our map before writing.
+   * All of the entries are written to the arrays, including those which a subclass
+   * keeps elsewhere, so that the serialized form does not depend on how the entries are stored.
    *
    * @param out Stream to write to
    * @throws IOException If IO error
    */
   private void writeObject(ObjectOutputStream out) throws IOException {
     compact();
-    out.defaultWriteObject();
+    if (size() == size) {
+      out.defaultWriteObject();
+    } else {
+      ObjectOutputStream.PutField fields = out.putFields();
+      int size = size();
+      Class<?>[] allKeys = new Class<?>[size];
+      Object[] allValues = new Object[size];
+      for (int i = 0; i < size; i++) {
+        allKeys[i] = keyAt(i);
+        allValues[i] = valueAt(i);
+      }
+      fields.put("keys", allKeys);
+      fields.put("values", allValues);
+      fields.put("size", size);
+      out.writeFields();
+    }
   }
 
   // TODO: make prettyLog work in the situation of loops in the object graph
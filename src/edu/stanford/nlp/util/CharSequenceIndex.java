@@ -0,0 +1,31 @@
+package edu.stanford.nlp.util;
+
+/**
+ * An {@link Index} of Strings which can also look up any {@link CharSequence},
+ * so that callers can build keys in a reused {@link StringBuilder} rather than
+ * allocating a String for each lookup.
+ */
+public interface CharSequenceIndex extends Index<String> {
+
+  /**
+   * Returns the index of the String with the same chars as the argument, or -1 if there is none.
+   * This never changes the Index.
+   *
+   * @param chars The chars to look up
+   * @return The index of the equal String, or -1 if it is not in the index
+   */
+  int indexOfChars(CharSequence chars);
+
+  /**
+   * Returns the index of the String with the same chars as the argument, or -1 if there is none,
+   * given the hash code {@link String#hashCode()} would compute for those chars.
+   * Callers which build a key from parts whose hash codes they already know can combine those
+   * rather than hash the key again.
+   *
+   * @param chars The chars to look up
+   * @param hash The String hash code of the chars
+   * @return The index of the equal String, or -1 if it is not in the index
+   */
+  int indexOfChars(CharSequence chars, int hash);
+
+}
@@ -0,0 +1,430 @@
+package edu.stanford.nlp.util;
+
+import edu.stanford.nlp.io.RuntimeIOException;
+
+import java.io.BufferedWriter;
+import java.io.DataOutput;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * A read-only {@link Index} of Strings, for large feature spaces which no longer change once
+ * a classifier is trained, such as those of a loaded {@link edu.stanford.nlp.ie.crf.CRFClassifier}.
+ * <p>
+ * A {@link HashIndex} of Strings keeps a String object, a map entry and a boxed Integer for each
+ * feature. This index instead keeps all the features in one byte array, in UTF-8 (with each UTF-16
+ * char encoded on its own, as in modified UTF-8, so that every String round-trips), along with
+ * the precomputed hash code of each feature and an open-addressing table from hash to feature number.
+ * The hash code is the one {@link String#hashCode()} computes, so features can also be looked up
+ * from any {@link CharSequence}, such as a reused StringBuilder, without building a String first;
+ * see {@link #indexOfChars(CharSequence)}.
+ * <p>
+ * Any attempt to add to the index throws an {@link UnsupportedOperationException}; copy it into
+ * a HashIndex to change it. It is serialized as a HashIndex, so that serialized models which
+ * contain one can still be read by code which doesn't know this class.
+ * <p>
+ * The tables can also be written in a flat binary form with {@link #write(DataOutput)}, and an index
+ * can be built directly over that form with {@link #wrap(ByteBuffer)}, without copying it. This is how
+ * {@link edu.stanford.nlp.ie.crf.MappedCRFModel} looks features up straight from a memory-mapped file.
+ */
+public class FrozenStringIndex extends AbstractCollection<String> implements CharSequenceIndex, RandomAccess {
+
+  private static final long serialVersionUID = 1L;
+
+  /** The number of features. */
+  private final int size;
+
+  // The tables are buffers rather than arrays so that they can be either on the heap or in a mapped file.
+  // They are never serialized: see writeReplace().
+
+  /** The encoded features, one after another. */
+  private final transient ByteBuffer arena;
+
+  /** Feature i is encoded in {@code arena[offsets[i]]} up to {@code arena[offsets[i+1]]}. */
+  private final transient IntBuffer offsets;
+
+  /** The length of each feature, in chars. */
+  private final transient IntBuffer lengths;
+
+  /** The hash code of each feature. */
+  private final transient IntBuffer hashes;
+
+  /** The open-addressing table from the hash of a feature to its number, or -1 for an empty slot. */
+  private final transient IntBuffer table;
+
+  private final int mask;
+
+
+  /**
+   * Build a frozen copy of the given index. The features keep their numbers.
+   */
+  public FrozenStringIndex(Index<String> index) {
+    this(index.objectsList());
+  }
+
+  /**
+   * Build an index of the given Strings, numbered in the order of the collection.
+   *
+   * @throws IllegalArgumentException If a String is null or repeated.
+   */
+  public FrozenStringIndex(Collection<String> strings) {
+    size = strings.size();
+    int[] offsets = new int[size + 1];
+    int[] lengths = new int[size];
+    int[] hashes = new int[size];
+    int capacity = Integer.highestOneBit(Math.max(1, size * 2 - 1)) << 1;  // a load factor of at most 0.5
+    int[] table = new int[capacity];
+    mask = capacity - 1;
+    Arrays.fill(table, -1);
+
+    long arenaSize = 0;
+    for (String s : strings) {
+      if (s == null) {
+        throw new IllegalArgumentException("FrozenStringIndex can't hold null");
+      }
+      arenaSize += encodedLength(s);
+    }
+    if (arenaSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many characters for a FrozenStringIndex: " + arenaSize + " bytes");
+    }
+    byte[] arena = new byte[(int) arenaSize];
+    // the buffers share the arrays, which are filled in below
+    this.arena = ByteBuffer.wrap(arena);
+    this.offsets = IntBuffer.wrap(offsets);
+    this.lengths = IntBuffer.wrap(lengths);
+    this.hashes = IntBuffer.wrap(hashes);
+    this.table = IntBuffer.wrap(table);
+
+    int i = 0;
+    int pos = 0;
+    for (String s : strings) {
+      if (indexOf(s, s.hashCode(), i) >= 0) {
+        throw new IllegalArgumentException("Repeated element in FrozenStringIndex: " + s);
+      }
+      offsets[i] = pos;
+      pos = encode(s, arena, pos);
+      lengths[i] = s.length();
+      hashes[i] = s.hashCode();
+      int slot = slot(hashes[i]);
+      while (table[slot] >= 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = i;
+      ++i;
+    }
+    offsets[size] = pos;
+  }
+
+  private FrozenStringIndex(int size, ByteBuffer arena, IntBuffer offsets, IntBuffer lengths, IntBuffer hashes, IntBuffer table) {
+    this.size = size;
+    this.arena = arena;
+    this.offsets = offsets;
+    this.lengths = lengths;
+    this.hashes = hashes;
+    this.table = table;
+    this.mask = table.limit() - 1;
+  }
+
+
+  /**
+   * The number of bytes {@link #write(DataOutput)} writes.
+   */
+  public long binarySize() {
+    return 4L * (3 + offsets.limit() + lengths.limit() + hashes.limit() + table.limit()) + arena.limit();
+  }
+
+  /**
+   * Write the tables of the index in a flat binary form, which {@link #wrap(ByteBuffer)} can read back without copying.
+   * The form is: the number of features, the size of the hash table and the size of the arena,
+   * then the offsets, lengths and hash codes of the features, the hash table, and the arena, all big-endian.
+   */
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(size);
+    out.writeInt(table.limit());
+    out.writeInt(arena.limit());
+    for (IntBuffer ints : Arrays.asList(offsets, lengths, hashes, table)) {
+      for (int i = 0; i < ints.limit(); i++) {
+        out.writeInt(ints.get(i));
+      }
+    }
+    for (int i = 0; i < arena.limit(); i++) {
+      out.writeByte(arena.get(i));
+    }
+  }
+
+  /**
+   * An index over the binary form written by {@link #write(DataOutput)}, which starts at the buffer's position.
+   * The index reads its features straight from the buffer, which may be, e.g., a memory-mapped file;
+   * the buffer must not change afterwards.
+   *
+   * @throws IllegalArgumentException If the buffer is too short to hold the tables it describes
+   */
+  public static FrozenStringIndex wrap(ByteBuffer buffer) {
+    ByteBuffer in = buffer.duplicate();
+    int size = in.getInt();
+    int capacity = in.getInt();
+    int arenaSize = in.getInt();
+    if (size < 0 || capacity <= 0 || Integer.bitCount(capacity) != 1 || arenaSize < 0 ||
+        in.remaining() < 4L * (3L * size + 1 + capacity) + arenaSize) {
+      throw new IllegalArgumentException("Not a FrozenStringIndex: size=" + size + " capacity=" + capacity + " arena=" + arenaSize);
+    }
+    IntBuffer offsets = slice(in, 4 * (size + 1)).asIntBuffer();
+    IntBuffer lengths = slice(in, 4 * size).asIntBuffer();
+    IntBuffer hashes = slice(in, 4 * size).asIntBuffer();
+    IntBuffer table = slice(in, 4 * capacity).asIntBuffer();
+    ByteBuffer arena = slice(in, arenaSize);
+    return new FrozenStringIndex(size, arena, offsets, lengths, hashes, table);
+  }
+
+  /** The next {@code length} bytes of the buffer, as a buffer of their own; the buffer moves past them. */
+  private static ByteBuffer slice(ByteBuffer in, int length) {
+    ByteBuffer slice = in.slice();
+    slice.limit(length);
+    in.position(in.position() + length);
+    return slice;
+  }
+
+
+  /** The number of bytes s takes up in the arena. */
+  private static int encodedLength(String s) {
+    int length = 0;
+    for (int j = 0; j < s.length(); ++j) {
+      char c = s.charAt(j);
+      length += (c < 0x80) ? 1 : (c < 0x800) ? 2 : 3;
+    }
+    return length;
+  }
+
+  /** Encode s into the arena starting at pos, and return the position after it. */
+  private static int encode(String s, byte[] arena, int pos) {
+    for (int j = 0; j < s.length(); ++j) {
+      char c = s.charAt(j);
+      if (c < 0x80) {
+        arena[pos++] = (byte) c;
+      } else if (c < 0x800) {
+        arena[pos++] = (byte) (0xC0 | (c >> 6));
+        arena[pos++] = (byte) (0x80 | (c & 0x3F));
+      } else {
+        arena[pos++] = (byte) (0xE0 | (c >> 12));
+        arena[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        arena[pos++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+    return pos;
+  }
+
+  /** Spread the bits of a String hash code, whose low bits differ little between similar features. */
+  private int slot(int hash) {
+    hash ^= (hash >>> 16);
+    hash *= 0x85ebca6b;
+    hash ^= (hash >>> 13);
+    return hash & mask;
+  }
+
+  /** The same hash code as {@link String#hashCode()}, for any CharSequence. */
+  private static int hash(CharSequence chars) {
+    if (chars instanceof String) {
+      return chars.hashCode();  // cached by String
+    }
+    int hash = 0;
+    for (int j = 0, length = chars.length(); j < length; ++j) {
+      hash = 31 * hash + chars.charAt(j);
+    }
+    return hash;
+  }
+
+  /** Whether feature i is the same sequence of chars as the argument. */
+  private boolean matches(int i, CharSequence chars) {
+    int length = lengths.get(i);
+    if (length != chars.length()) {
+      return false;
+    }
+    int pos = offsets.get(i);
+    for (int j = 0; j < length; ++j) {
+      int b = arena.get(pos++);
+      char c;
+      if (b >= 0) {
+        c = (char) b;
+      } else if ((b & 0xE0) == 0xC0) {
+        c = (char) (((b & 0x1F) << 6) | (arena.get(pos++) & 0x3F));
+      } else {
+        c = (char) (((b & 0x0F) << 12) | ((arena.get(pos++) & 0x3F) << 6) | (arena.get(pos++) & 0x3F));
+      }
+      if (c != chars.charAt(j)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Look up the chars, whose hash code is given, among the first {@code limit} features. */
+  private int indexOf(CharSequence chars, int hash, int limit) {
+    for (int slot = slot(hash); ; slot = (slot + 1) & mask) {
+      int i = table.get(slot);
+      if (i < 0) {
+        return -1;
+      }
+      if (i < limit && hashes.get(i) == hash && matches(i, chars)) {
+        return i;
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int indexOfChars(CharSequence chars) {
+    if (chars == null) {
+      return -1;
+    }
+    return indexOf(chars, hash(chars), size);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int indexOfChars(CharSequence chars, int hash) {
+    if (chars == null) {
+      return -1;
+    }
+    return indexOf(chars, hash, size);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int indexOf(String o) {
+    return indexOfChars(o);
+  }
+
+  /** Since the index is frozen, this is the same as {@link #indexOf(String)}. */
+  @Override
+  public int addToIndex(String o) {
+    return indexOf(o);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Deprecated
+  public int indexOf(String o, boolean add) {
+    return indexOf(o);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String get(int i) {
+    if (i < 0 || i >= size) {
+      throw new ArrayIndexOutOfBoundsException("Index " + i + " outside the bounds [0," + size + ")");
+    }
+    char[] chars = new char[lengths.get(i)];
+    int pos = offsets.get(i);
+    for (int j = 0; j < chars.length; ++j) {
+      int b = arena.get(pos++);
+      if (b >= 0) {
+        chars[j] = (char) b;
+      } else if ((b & 0xE0) == 0xC0) {
+        chars[j] = (char) (((b & 0x1F) << 6) | (arena.get(pos++) & 0x3F));
+      } else {
+        chars[j] = (char) (((b & 0x0F) << 12) | ((arena.get(pos++) & 0x3F) << 6) | (arena.get(pos++) & 0x3F));
+      }
+    }
+    return new String(chars);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<String> objectsList() {
+    return new AbstractList<String>() {
+      @Override
+      public String get(int index) {
+        return FrozenStringIndex.this.get(index);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Collection<String> objects(int[] indices) {
+    List<String> result = new ArrayList<>(indices.length);
+    for (int index : indices) {
+      result.add(get(index));
+    }
+    return result;
+  }
+
+  /** A frozen index is always locked. */
+  @Override
+  public boolean isLocked() {
+    return true;
+  }
+
+  /** A frozen index is always locked. */
+  @Override
+  public void lock() { }
+
+  /** A frozen index can't be unlocked. */
+  @Override
+  public void unlock() {
+    throw new UnsupportedOperationException("A FrozenStringIndex can't be unlocked");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void saveToWriter(Writer out) throws IOException {
+    for (int i = 0; i < size; i++) {
+      out.write(i + "=" + get(i) + '\n');
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void saveToFilename(String file) {
+    try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+      saveToWriter(bw);
+    } catch (IOException e) {
+      throw new RuntimeIOException(e);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean contains(Object o) {
+    return o instanceof String && indexOf((String) o) >= 0;
+  }
+
+  /** A frozen index can't be added to. */
+  @Override
+  public boolean add(String s) {
+    throw new UnsupportedOperationException("A FrozenStringIndex can't be added to");
+  }
+
+  /** A frozen index can't be cleared. */
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException("A FrozenStringIndex can't be cleared");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Iterator<String> iterator() {
+    return objectsList().iterator();
+  }
+
+  /** Serialize as a HashIndex, so that serialized models don't depend on this class. */
+  private Object writeReplace() {
+    return new HashIndex<>(objectsList());
+  }
+
+}
@@ -0,0 +1,262 @@
+package edu.stanford.nlp.util;
+
+import edu.stanford.nlp.util.logging.Redwood;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * A process-wide registry of loaded models (taggers, classifiers, parsers, ...), so that
+ * annotators built from different properties can share a single copy of the same model.
+ * Models are keyed by their type, the path they were loaded from, and the options which
+ * affect how they were loaded.
+ *
+ * <p>
+ * Each model keeps track of the objects (usually annotators) which use it.
+ * Owners are only weakly referenced, so an owner that is garbage collected stops counting;
+ * owners can also give their models back explicitly with {@link ModelRegistry#release(Object)}.
+ * While a model has an owner it is held strongly. Once it has none, it is only softly
+ * referenced, and it is evicted in least-recently-used order if the models without owners
+ * take up more than the memory budget (see {@link ModelRegistry#setMemoryBudget(long)}).
+ * The size of a model is estimated from the size of the file it was loaded from.
+ * </p>
+ *
+ * <p>
+ * A model handed out by the registry is shared between threads and between annotators,
+ * so callers must not mutate it in ways which are not captured by the options in its key.
+ * </p>
+ */
+public class ModelRegistry {
+
+  /** A logger for this class */
+  private static final Redwood.RedwoodChannels log = Redwood.channels(ModelRegistry.class);
+
+  /** A single registered model. */
+  private static class Entry {
+    final String key;
+    final long size;
+    /** The model, while it has at least one owner. */
+    Object strong = null;
+    /** The model, whether or not it has owners. */
+    SoftReference<Object> soft = new SoftReference<>(null);
+    final List<WeakReference<Object>> owners = new ArrayList<>();
+    /** Held while the model is being loaded, so that it is only loaded once. The other fields are guarded by the entry itself. */
+    final Object loadLock = new Object();
+    /** True while the model is being loaded; such entries are never dropped. */
+    boolean loading = false;
+
+    private Entry(String key, long size) {
+      this.key = key;
+      this.size = size;
+    }
+
+    Object value() {
+      return strong != null ? strong : soft.get();
+    }
+
+    /** Drop owners which were garbage collected or released, and demote the model to a soft reference if none are left. */
+    boolean hasOwners() {
+      owners.removeIf(ref -> ref.get() == null);
+      if (owners.isEmpty()) {
+        strong = null;
+      }
+      return ! owners.isEmpty();
+    }
+  }
+
+  /** The registered models, in least-recently-used order. */
+  private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  /** The largest total size, in bytes, of models without owners to keep around. */
+  private static long memoryBudget = Long.MAX_VALUE;
+
+  private ModelRegistry() { } // static methods
+
+
+  /**
+   * Get a model from the registry, loading it if it is not already there.
+   * Concurrent requests for the same model load it only once.
+   *
+   * @param owner The object which will use the model. This is only weakly referenced.
+   * @param type The type of the model; part of the key.
+   * @param path The path the model is loaded from; part of the key, and used to estimate the size of the model.
+   * @param options The options the model is loaded with, or null if there are none; part of the key.
+   * @param loader The function to load the model with, if it is not in the registry.
+   * @param <T> The type of the model.
+   *
+   * @return The (possibly shared) model.
+   */
+  public static <T> T acquire(Object owner, Class<T> type, String path, Properties options, Supplier<? extends T> loader) {
+    String key = key(type, path, options);
+    Entry entry;
+    synchronized (entries) {
+      entry = entries.get(key);
+      if (entry == null) {
+        entry = new Entry(key, estimateSize(path));
+        // until the model is loaded and owned, the new entry must not look like one whose model was collected
+        entry.loading = true;
+        entries.put(key, entry);
+      }
+    }
+    T value;
+    synchronized (entry.loadLock) {
+      Object cached;
+      synchronized (entry) {
+        cached = entry.value();
+        entry.loading = cached == null;
+      }
+      try {
+        value = cached != null ? type.cast(cached) : loader.get();
+        // the model gets its owner before it stops loading, so that evict() never sees it with neither
+        synchronized (entry) {
+          entry.soft = new SoftReference<>(value);
+          entry.strong = value;
+          entry.owners.add(new WeakReference<>(owner));
+        }
+      } finally {
+        synchronized (entry) {
+          entry.loading = false;
+        }
+      }
+    }
+    evict();
+    return value;
+  }
+
+
+  /**
+   * Release every model held by the given owner.
+   * Models with no owners left may then be evicted.
+   *
+   * @param owner The owner to release the models of.
+   */
+  public static void release(Object owner) {
+    List<Entry> all;
+    synchronized (entries) {
+      all = new ArrayList<>(entries.values());
+    }
+    for (Entry entry : all) {
+      synchronized (entry) {
+        entry.owners.removeIf(ref -> ref.get() == owner);
+        entry.hasOwners();
+      }
+    }
+    evict();
+  }
+
+
+  /**
+   * Set the largest total size, in bytes, of the models without owners to keep in memory.
+   * Models which are in use are never evicted.
+   */
+  public static void setMemoryBudget(long bytes) {
+    synchronized (entries) {
+      memoryBudget = bytes;
+    }
+    evict();
+  }
+
+
+  /** The number of models currently loaded, whether or not they have owners. */
+  public static int size() {
+    synchronized (entries) {
+      int count = 0;
+      for (Entry entry : entries.values()) {
+        synchronized (entry) {
+          if (entry.value() != null) {
+            count += 1;
+          }
+        }
+      }
+      return count;
+    }
+  }
+
+
+  /** Remove every model from the registry. Models in use stay alive in their owners, but are no longer shared. */
+  public static void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+
+  /**
+   * Drop the models whose soft references were cleared, and evict the least recently used models
+   * without owners until the rest fit in the memory budget.
+   */
+  private static void evict() {
+    synchronized (entries) {
+      long unownedSize = 0;
+      for (Iterator<Entry> iter = entries.values().iterator(); iter.hasNext(); ) {
+        Entry entry = iter.next();
+        synchronized (entry) {
+          if (entry.hasOwners() || entry.loading) {
+            continue;
+          }
+          if (entry.value() == null) {
+            iter.remove();
+          } else {
+            unownedSize += entry.size;
+          }
+        }
+      }
+      // entries iterate from least to most recently used
+      for (Iterator<Entry> iter = entries.values().iterator(); iter.hasNext() && unownedSize > memoryBudget; ) {
+        Entry entry = iter.next();
+        synchronized (entry) {
+          // entries being loaded were not counted above, and their loader is about to give them an owner
+          if ( ! entry.hasOwners() && ! entry.loading) {
+            log.info("Evicting unused model " + entry.key);
+            entry.soft.clear();
+            unownedSize -= entry.size;
+            iter.remove();
+          }
+        }
+      }
+    }
+  }
+
+
+  private static String key(Class<?> type, String path, Properties options) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(type.getName()).append('#').append(path);
+    if (options != null) {
+      List<String> keys = new ArrayList<>(options.stringPropertyNames());
+      Collections.sort(keys);
+      for (String key : keys) {
+        sb.append(';').append(key).append('=').append(options.getProperty(key));
+      }
+    }
+    return sb.toString();
+  }
+
+
+  /** Estimate the size of a model from the size of its file on disk or in the classpath, or 0 if it can't be found. */
+  private static long estimateSize(String path) {
+    if (path == null) {
+      return 0;
+    }
+    File file = new File(path);
+    if (file.exists()) {
+      return file.length();
+    }
+    try {
+      URL url = ModelRegistry.class.getClassLoader().getResource(path);
+      if (url != null) {
+        URLConnection connection = url.openConnection();
+        return Math.max(0, connection.getContentLengthLong());
+      }
+    } catch (IOException e) {
+      log.debug("Could not find the size of " + path + ": " + e);
+    }
+    return 0;
+  }
+
+}
@@ -0,0 +1,218 @@
+package edu.stanford.nlp.util.concurrent;
+
+import edu.stanford.nlp.util.RuntimeInterruptedException;
+import edu.stanford.nlp.util.logging.Redwood;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A long-lived, work-stealing pool of worker threads, for running many small jobs (such as annotating
+ * the sentences of a document) without creating a thread pool for each batch of jobs, as
+ * {@link MulticoreWrapper} does.
+ * <br>
+ * The pool has a fixed number of threads, so all of the batches run on it together never use more
+ * cores than that, even if the batches themselves are submitted from many threads (e.g., one per document).
+ * Each batch can further limit how many of its jobs run at once.
+ * <br>
+ * Jobs can be given a time limit. A job which runs past its limit has its thread interrupted: as with
+ * {@link InterruptibleMulticoreWrapper}, this relies on the job checking {@link Thread#interrupted()}
+ * (and usually throwing a {@link RuntimeInterruptedException}). A job which ignores the interruption keeps
+ * its worker thread until it finishes.
+ * <br>
+ * Most code should use the pool shared by the whole JVM, {@link #global()}, or {@link #withThreads(int)}
+ * if it is asked for more threads than that pool has.
+ */
+public class SharedWorkerPool {
+
+  /** A logger for this class */
+  private static final Redwood.RedwoodChannels log = Redwood.channels(SharedWorkerPool.class);
+
+  private static SharedWorkerPool global;
+
+  /**
+   * The pool shared by the whole JVM, with one thread per available processor.
+   * Its threads are daemon threads, so it never needs to be shut down.
+   */
+  public static synchronized SharedWorkerPool global() {
+    if (global == null) {
+      global = new SharedWorkerPool(Runtime.getRuntime().availableProcessors());
+    }
+    return global;
+  }
+
+  /** The pools handed out by {@link #withThreads(int)} for more threads than there are processors, by size. */
+  private static final Map<Integer, SharedWorkerPool> largerPools = new ConcurrentHashMap<>();
+
+  /**
+   * A pool which can run the given number of jobs at once: the {@link #global()} pool if it has that many
+   * threads, or else a pool of exactly that many threads, shared by everything that asks for that number.
+   * This is for honoring a user's explicit request for more threads than there are processors
+   * (e.g., for jobs which mostly wait on I/O). Such a pool also lives as long as the JVM.
+   */
+  public static SharedWorkerPool withThreads(int nThreads) {
+    SharedWorkerPool global = global();
+    if (nThreads <= global.nThreads()) {
+      return global;
+    }
+    return largerPools.computeIfAbsent(nThreads, SharedWorkerPool::new);
+  }
+
+
+  private final ForkJoinPool pool;
+
+  /** Interrupts the jobs which run past their time limit. */
+  private final ScheduledThreadPoolExecutor watchdog;
+
+  /**
+   * Create a pool with the given number of worker threads.
+   * The threads are daemon threads; call {@link #shutdown()} to stop them earlier.
+   */
+  public SharedWorkerPool(int nThreads) {
+    AtomicInteger threadCount = new AtomicInteger();
+    this.pool = new ForkJoinPool(nThreads, forkJoinPool -> {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+      thread.setName("worker-pool-" + threadCount.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }, null, false);
+    this.watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "worker-pool-watchdog");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.watchdog.setRemoveOnCancelPolicy(true);
+  }
+
+  /** The number of worker threads of this pool, which is the most jobs it ever runs at once. */
+  public int nThreads() {
+    return pool.getParallelism();
+  }
+
+  /**
+   * Run a job on each of the given items, and return once all of them are done.
+   * The jobs may run in any order.
+   *
+   * @param items The items to process.
+   * @param maxThreads The most jobs of this batch to run at once. If less than or equal to 0, as many as the pool has threads.
+   * @param timeout If positive, the number of milliseconds each job may run for before its thread is interrupted.
+   * @param job The job to run on each item.
+   * @param onFailure Called for items whose job threw an exception (such as the {@link RuntimeInterruptedException}
+   *                  of a job which timed out), from the thread which ran the job. A job which handles
+   *                  its own interruption and returns normally is not considered to have failed.
+   * @throws RuntimeInterruptedException If the calling thread is interrupted while waiting.
+   *                                     The jobs which were not started yet are then dropped.
+   */
+  public <T> void run(List<T> items, int maxThreads, long timeout, Consumer<T> job, Consumer<T> onFailure) {
+    int nTasks = Math.min(items.size(), maxThreads <= 0 ? nThreads() : Math.min(maxThreads, nThreads()));
+    if (nTasks == 0) {
+      return;
+    }
+    // Each task takes the next item which is not taken yet, so that no more than nTasks items run at once
+    AtomicInteger nextItem = new AtomicInteger();
+    AtomicBoolean cancelled = new AtomicBoolean(false);
+    List<ForkJoinTask<?>> tasks = new ArrayList<>(nTasks);
+    for (int i = 0; i < nTasks; i++) {
+      tasks.add(ForkJoinTask.adapt(() -> {
+        for (int index = nextItem.getAndIncrement(); index < items.size() && ! cancelled.get(); index = nextItem.getAndIncrement()) {
+          runOne(items.get(index), timeout, job, onFailure);
+        }
+      }));
+    }
+
+    if (ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool) {
+      // a batch submitted from one of our own jobs: help with the work rather than blocking a worker
+      ForkJoinTask.invokeAll(tasks);
+      return;
+    }
+    for (ForkJoinTask<?> task : tasks) {
+      pool.execute(task);
+    }
+    try {
+      for (ForkJoinTask<?> task : tasks) {
+        task.get();
+      }
+    } catch (InterruptedException e) {
+      cancelled.set(true);
+      throw new RuntimeInterruptedException(e);
+    } catch (ExecutionException e) {
+      // runOne already catches whatever the job throws
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * The state of a job with a time limit, shared between the thread running it and the watchdog.
+   * Both only look at it while holding its lock, so that the watchdog never interrupts the thread
+   * after it has moved on to another job.
+   */
+  private static class Deadline implements Runnable {
+    final Thread thread = Thread.currentThread();
+    boolean done = false;
+    boolean timedOut = false;
+
+    @Override
+    public synchronized void run() {
+      if ( ! done) {
+        timedOut = true;
+        thread.interrupt();
+      }
+    }
+
+    synchronized void finish() {
+      done = true;
+      // clear an interrupt from the watchdog, so it doesn't hit the next job of this thread
+      if (timedOut) {
+        Thread.interrupted();
+      }
+    }
+  }
+
+  private <T> void runOne(T item, long timeout, Consumer<T> job, Consumer<T> onFailure) {
+    Deadline deadline = null;
+    ScheduledFuture<?> alarm = null;
+    if (timeout > 0) {
+      deadline = new Deadline();
+      alarm = watchdog.schedule(deadline, timeout, TimeUnit.MILLISECONDS);
+    }
+    boolean failed = false;
+    try {
+      job.accept(item);
+    } catch (RuntimeInterruptedException e) {
+      failed = true;
+    } catch (Exception | Error e) {
+      log.warn(e);
+      failed = true;
+    } finally {
+      if (deadline != null) {
+        alarm.cancel(false);
+        deadline.finish();
+      }
+    }
+    if (failed) {
+      onFailure.accept(item);
+    }
+  }
+
+  /**
+   * Stop the worker threads once the jobs which are already submitted are done.
+   * This should not be called on the {@link #global()} pool.
+   */
+  public void shutdown() {
+    pool.shutdown();
+    watchdog.shutdown();
+  }
+
+}
@@ -0,0 +1,70 @@
+package edu.stanford.nlp.coref.neural;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.ejml.simple.SimpleMatrix;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link PairwiseScorer} gives exactly the same scores as
+ * {@link NeuralCorefModel#getPairwiseScore}, one pair at a time.
+ */
+public class PairwiseScorerTest {
+
+  private static final int EMBEDDING_SIZE = 7;
+  private static final int HIDDEN_SIZE = 5;
+  private static final int NUM_PAIR_FEATURES = 6;
+
+  private static SimpleMatrix random(Random random, int rows, int columns) {
+    return SimpleMatrix.random(rows, columns, -1, 1, random);
+  }
+
+  private static NeuralCorefModel randomModel(Random random) {
+    return new NeuralCorefModel(
+        random(random, HIDDEN_SIZE, EMBEDDING_SIZE),
+        random(random, HIDDEN_SIZE, EMBEDDING_SIZE),
+        random(random, HIDDEN_SIZE, NUM_PAIR_FEATURES),
+        random(random, HIDDEN_SIZE, 1),
+        null,
+        Arrays.asList(random(random, 4, HIDDEN_SIZE), random(random, 4, 1),
+            random(random, 3, 4), random(random, 3, 1),
+            random(random, 1, 3), random(random, 1, 1)),
+        null);
+  }
+
+  @Test
+  public void testScoresMatchModel() {
+    Random random = new Random(42);
+    NeuralCorefModel model = randomModel(random);
+    PairwiseScorer scorer = new PairwiseScorer(new PairwiseScorer.Weights(model));
+
+    // two documents of different sizes, so that the buffers are reused and grown
+    for (int numMentions : new int[] { 6, 11 }) {
+      SimpleMatrix mentionEmbeddings = random(random, EMBEDDING_SIZE, numMentions);
+      scorer.setMentionEmbeddings(model.getAntecedentEmbeddings(mentionEmbeddings),
+          model.getAnaphorEmbeddings(mentionEmbeddings));
+
+      for (int anaphor = 1; anaphor < numMentions; anaphor++) {
+        int[] antecedents = new int[anaphor];
+        SimpleMatrix[] features = new SimpleMatrix[anaphor];
+        double[] buffer = scorer.pairFeatureBuffer(anaphor);
+        for (int c = 0; c < anaphor; c++) {
+          antecedents[c] = c;
+          features[c] = random(random, NUM_PAIR_FEATURES, 1);
+          System.arraycopy(features[c].getMatrix().getData(), 0, buffer, c * NUM_PAIR_FEATURES, NUM_PAIR_FEATURES);
+        }
+        double[] scores = scorer.score(anaphor, antecedents, anaphor);
+
+        SimpleMatrix anaphorEmbedding = model.getAnaphorEmbedding(mentionEmbeddings.extractVector(false, anaphor));
+        for (int c = 0; c < anaphor; c++) {
+          SimpleMatrix antecedentEmbedding = model.getAntecedentEmbedding(mentionEmbeddings.extractVector(false, c));
+          Assert.assertEquals(model.getPairwiseScore(antecedentEmbedding, anaphorEmbedding, features[c]),
+              scores[c], 0.0);
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,105 @@
+package edu.stanford.nlp.ie.crf;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.util.FrozenStringIndex;
+import edu.stanford.nlp.util.HashIndex;
+import edu.stanford.nlp.util.PropertiesUtils;
+import edu.stanford.nlp.util.Triple;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Tests for the {@link CRFClassifier} feature extraction paths.
+ */
+public class CRFClassifierTest {
+
+  static List<CoreLabel> sentence(String... wordsAndTags) {
+    List<CoreLabel> sentence = new ArrayList<>();
+    for (int i = 0; i < wordsAndTags.length; i += 2) {
+      CoreLabel token = new CoreLabel();
+      token.setWord(wordsAndTags[i]);
+      token.set(CoreAnnotations.AnswerAnnotation.class, wordsAndTags[i + 1]);
+      token.set(CoreAnnotations.GoldAnswerAnnotation.class, wordsAndTags[i + 1]);
+      sentence.add(token);
+    }
+    return sentence;
+  }
+
+  static CRFClassifier<CoreLabel> train(String... extraProps) {
+    Properties props = PropertiesUtils.asProperties(
+        "useWord", "true", "usePrev", "true", "useNext", "true", "useClassFeature", "true",
+        "useWordPairs", "true", "useNGrams", "true", "maxNGramLeng", "4", "wordShape", "chris2useLC",
+        "useSequences", "true", "usePrevSequences", "true", "maxLeft", "1",
+        "backgroundSymbol", "O", "maxIterations", "20");
+    props.putAll(PropertiesUtils.asProperties(extraProps));
+    CRFClassifier<CoreLabel> crf = new CRFClassifier<>(props);
+    List<List<CoreLabel>> train = new ArrayList<>();
+    for (int i = 0; i < 5; ++i) {
+      train.add(sentence("John", "PER", "lives", "O", "in", "O", "Paris", "LOC"));
+      train.add(sentence("Mary", "PER", "visited", "O", "London", "LOC"));
+    }
+    crf.train(train);
+    return crf;
+  }
+
+  /** Extracting feature numbers straight into a buffer gives the same features, and the same answers. */
+  @Test
+  public void testExtractFeatureIds() {
+    CRFClassifier<CoreLabel> crf = train();
+    List<CoreLabel> document = sentence("Mary", "O", "lives", "O", "in", "O", "Paris", "O", "today", "O");
+
+    crf.flags.extractFeatureIds = false;
+    Triple<int[][][], int[], double[][][]> expected = crf.documentToDataAndLabels(document);
+    List<CoreLabel> expectedAnswers = crf.classify(sentence("Mary", "O", "lives", "O", "in", "O", "Paris", "O"));
+    crf.flags.extractFeatureIds = true;
+    crf.featureIndex = new FrozenStringIndex(crf.featureIndex);  // as for a loaded classifier
+    Triple<int[][][], int[], double[][][]> actual = crf.documentToDataAndLabels(document);
+    List<CoreLabel> actualAnswers = crf.classify(sentence("Mary", "O", "lives", "O", "in", "O", "Paris", "O"));
+
+    Assert.assertArrayEquals(expected.second(), actual.second());
+    for (int j = 0; j < expected.first().length; ++j) {
+      for (int k = 0; k < expected.first()[j].length; ++k) {
+        int[] expectedFeatures = expected.first()[j][k].clone();
+        int[] actualFeatures = actual.first()[j][k].clone();
+        Arrays.sort(expectedFeatures);
+        Arrays.sort(actualFeatures);
+        Assert.assertArrayEquals(expectedFeatures, actualFeatures);
+      }
+    }
+    for (int i = 0; i < expectedAnswers.size(); ++i) {
+      Assert.assertEquals(expectedAnswers.get(i).get(CoreAnnotations.AnswerAnnotation.class),
+                          actualAnswers.get(i).get(CoreAnnotations.AnswerAnnotation.class));
+    }
+  }
+
+  /** A loaded classifier only freezes its feature index when asked to, and tags the same either way. */
+  @Test
+  public void testFreezeFeatureIndex() throws Exception {
+    CRFClassifier<CoreLabel> crf = train();
+    File file = File.createTempFile("crf", ".ser.gz");
+    file.deleteOnExit();
+    crf.serializeClassifier(file.getPath());
+
+    CRFClassifier<CoreLabel> loaded = CRFClassifier.getClassifier(file.getPath(), new Properties());
+    Assert.assertTrue(loaded.featureIndex instanceof HashIndex);
+    CRFClassifier<CoreLabel> frozen = CRFClassifier.getClassifier(file.getPath(),
+        PropertiesUtils.asProperties("freezeFeatureIndex", "true"));
+    Assert.assertTrue(frozen.featureIndex instanceof FrozenStringIndex);
+    Assert.assertEquals(loaded.featureIndex.objectsList(), frozen.featureIndex.objectsList());
+
+    List<CoreLabel> expected = loaded.classify(sentence("Mary", "O", "lives", "O", "in", "O", "Paris", "O"));
+    List<CoreLabel> actual = frozen.classify(sentence("Mary", "O", "lives", "O", "in", "O", "Paris", "O"));
+    for (int i = 0; i < expected.size(); ++i) {
+      Assert.assertEquals(expected.get(i).get(CoreAnnotations.AnswerAnnotation.class),
+                          actual.get(i).get(CoreAnnotations.AnswerAnnotation.class));
+    }
+  }
+
+}
@@ -0,0 +1,110 @@
+package edu.stanford.nlp.ie.crf;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.util.HashIndex;
+import edu.stanford.nlp.util.Index;
+import edu.stanford.nlp.util.PropertiesUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Checks that a {@link CRFClassifier} written in the {@link MappedCRFModel} format
+ * maps back to the same features and weights, and tags the same way.
+ */
+public class MappedCRFModelTest {
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Index<String> features = new HashIndex<>(Arrays.asList("WORD-John", "WORD-Smith", "SHAPE-Xxxxx", "", "über"));
+    double[][] weights = { { 1.0, 2.0 }, { -1.5 }, { 0.25, 0.5, 0.75 }, { 3.0, 4.0 }, { 5.0 } };
+    File file = File.createTempFile("crf", ".map");
+    file.deleteOnExit();
+    MappedCRFModel.write(file.getPath(), new byte[] { 1, 2, 3 }, features, weights);
+
+    Assert.assertTrue(MappedCRFModel.isMappedModel(file.getPath()));
+    MappedCRFModel model = MappedCRFModel.load(file.getPath());
+    Assert.assertArrayEquals(new byte[] { 1, 2, 3 }, model.metadata());
+    Index<String> mapped = model.featureIndex();
+    Assert.assertEquals(features.size(), mapped.size());
+    for (int i = 0; i < features.size(); ++i) {
+      Assert.assertEquals(features.get(i), mapped.get(i));
+      Assert.assertEquals(i, mapped.indexOf(features.get(i)));
+    }
+    Assert.assertEquals(-1, mapped.indexOf("WORD-Jones"));
+    Assert.assertEquals(-1, mapped.addToIndex("WORD-Jones"));
+    for (int i = 0; i < weights.length; ++i) {
+      Assert.assertArrayEquals(weights[i], model.weights(i), 0.0);
+    }
+    Assert.assertEquals(9, model.numWeights());
+
+    CliquePotentialFunction potential = model.cliquePotentialFunction();
+    Assert.assertEquals(2.0 + 0.5, potential.computeCliquePotential(1, 1, new int[] { 0, 2 }, null, 0), 1e-10);
+    Assert.assertEquals(-3.0, potential.computeCliquePotential(1, 0, new int[] { 1 }, new double[] { 2.0 }, 0), 1e-10);
+  }
+
+  @Test
+  public void testNotMapped() throws Exception {
+    File file = File.createTempFile("crf", ".ser");
+    file.deleteOnExit();
+    Assert.assertFalse(MappedCRFModel.isMappedModel(file.getPath()));
+    Assert.assertFalse(MappedCRFModel.isMappedModel(file.getPath() + ".missing"));
+  }
+
+  private static List<CoreLabel> sentence(String... wordsAndTags) {
+    List<CoreLabel> sentence = new ArrayList<>();
+    for (int i = 0; i < wordsAndTags.length; i += 2) {
+      CoreLabel token = new CoreLabel();
+      token.setWord(wordsAndTags[i]);
+      token.set(CoreAnnotations.AnswerAnnotation.class, wordsAndTags[i + 1]);
+      token.set(CoreAnnotations.GoldAnswerAnnotation.class, wordsAndTags[i + 1]);
+      sentence.add(token);
+    }
+    return sentence;
+  }
+
+  @Test
+  public void testClassifier() throws Exception {
+    Properties props = PropertiesUtils.asProperties(
+        "useWord", "true", "usePrev", "true", "useNext", "true", "useClassFeature", "true",
+        "maxLeft", "1", "backgroundSymbol", "O", "maxIterations", "20");
+    CRFClassifier<CoreLabel> crf = new CRFClassifier<>(props);
+    List<List<CoreLabel>> train = new ArrayList<>();
+    for (int i = 0; i < 5; ++i) {
+      train.add(sentence("John", "PER", "lives", "O", "in", "O", "Paris", "LOC"));
+      train.add(sentence("Mary", "PER", "visited", "O", "London", "LOC"));
+    }
+    crf.train(train);
+
+    File file = File.createTempFile("crf", ".map");
+    file.deleteOnExit();
+    crf.serializeMappedClassifier(file.getPath());
+    CRFClassifier<CoreLabel> mapped = CRFClassifier.getClassifier(file.getPath(), null);
+    Assert.assertNull(mapped.weights);
+
+    List<CoreLabel> expected = crf.classify(sentence("Mary", "O", "lives", "O", "in", "O", "London", "O"));
+    List<CoreLabel> actual = mapped.classify(sentence("Mary", "O", "lives", "O", "in", "O", "London", "O"));
+    for (int i = 0; i < expected.size(); ++i) {
+      Assert.assertEquals(expected.get(i).get(CoreAnnotations.AnswerAnnotation.class),
+                          actual.get(i).get(CoreAnnotations.AnswerAnnotation.class));
+    }
+    Assert.assertEquals("PER", actual.get(0).get(CoreAnnotations.AnswerAnnotation.class));
+
+    // the weights can be read, but not changed
+    Assert.assertEquals(crf.getNumWeights(), mapped.getNumWeights());
+    Assert.assertEquals(crf.topWeights(), mapped.topWeights());
+    try {
+      mapped.scaleWeights(2.0);
+      Assert.fail("Expected the weights of a mapped classifier to be read only");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+}
@@ -0,0 +1,134 @@
+package edu.stanford.nlp.ling;
+
+import java.io.*;
+
+import edu.stanford.nlp.util.ArrayCoreMap;
+import edu.stanford.nlp.util.CoreMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that a CoreLabel, which keeps its most common keys in fields,
+ * behaves as a CoreMap just like an ArrayCoreMap with the same entries.
+ */
+public class CoreLabelTest {
+
+  private static CoreLabel token() {
+    CoreLabel token = new CoreLabel();
+    token.setValue("Paris");
+    token.set(CoreAnnotations.BeforeAnnotation.class, " ");
+    token.setWord("Paris");
+    token.setOriginalText("Paris");
+    token.setBeginPosition(1000);
+    token.setEndPosition(1005);
+    token.setIndex(3);
+    token.set(CoreAnnotations.SentenceIndexAnnotation.class, 0);
+    token.setTag("NNP");
+    token.setLemma("Paris");
+    token.setNER("CITY");
+    return token;
+  }
+
+  /** An ArrayCoreMap with the same entries, in the order CoreLabel gives them. */
+  @SuppressWarnings("unchecked")
+  private static ArrayCoreMap copy(CoreMap map) {
+    ArrayCoreMap copy = new ArrayCoreMap();
+    for (Class key : map.keySet()) {
+      copy.set(key, map.get(key));
+    }
+    return copy;
+  }
+
+  @Test
+  public void testGetAndSet() {
+    CoreLabel token = token();
+    Assert.assertEquals(11, token.size());
+    Assert.assertEquals("Paris", token.word());
+    Assert.assertEquals("Paris", token.get(CoreAnnotations.TextAnnotation.class));
+    Assert.assertEquals(1000, token.beginPosition());
+    Assert.assertEquals(Integer.valueOf(1005), token.get(CoreAnnotations.CharacterOffsetEndAnnotation.class));
+    Assert.assertEquals(3, token.index());
+    Assert.assertEquals("NNP", token.tag());
+    Assert.assertEquals("CITY", token.ner());
+    Assert.assertEquals(Integer.valueOf(0), token.get(CoreAnnotations.SentenceIndexAnnotation.class));
+
+    Assert.assertEquals("NNP", token.set(CoreAnnotations.PartOfSpeechAnnotation.class, "NN"));
+    Assert.assertEquals("NN", token.tag());
+    Assert.assertEquals(Integer.valueOf(3), token.remove(CoreAnnotations.IndexAnnotation.class));
+    Assert.assertFalse(token.containsKey(CoreAnnotations.IndexAnnotation.class));
+    Assert.assertEquals(-1, token.index());
+    Assert.assertNull(token.remove(CoreAnnotations.IndexAnnotation.class));
+    Assert.assertEquals(10, token.size());
+
+    // changing the word still clears the lemma
+    token.setWord("Lyon");
+    Assert.assertFalse(token.containsKey(CoreAnnotations.LemmaAnnotation.class));
+    Assert.assertNull(token.lemma());
+  }
+
+  @Test
+  public void testNullValues() {
+    CoreLabel token = new CoreLabel();
+    Assert.assertNull(token.set(CoreAnnotations.TextAnnotation.class, null));
+    Assert.assertTrue(token.containsKey(CoreAnnotations.TextAnnotation.class));
+    Assert.assertNull(token.word());
+    // a null Integer can't be kept in its field, but is still an entry of the map
+    token.set(CoreAnnotations.IndexAnnotation.class, null);
+    Assert.assertTrue(token.containsKey(CoreAnnotations.IndexAnnotation.class));
+    Assert.assertEquals(-1, token.index());
+    Assert.assertEquals(2, token.size());
+    Assert.assertTrue(token.keySetNotNull().isEmpty());
+    token.setIndex(4);
+    Assert.assertEquals(4, token.index());
+    Assert.assertEquals(2, token.size());
+    Assert.assertEquals(Integer.valueOf(4), token.set(CoreAnnotations.IndexAnnotation.class, null));
+    Assert.assertTrue(token.containsKey(CoreAnnotations.IndexAnnotation.class));
+    Assert.assertNull(token.remove(CoreAnnotations.IndexAnnotation.class));
+    Assert.assertEquals(1, token.size());
+  }
+
+  @Test
+  public void testSameAsArrayCoreMap() {
+    CoreLabel token = token();
+    ArrayCoreMap map = copy(token);
+    Assert.assertEquals(map, token);
+    Assert.assertEquals(token, map);
+    Assert.assertEquals(map.hashCode(), token.hashCode());
+    Assert.assertEquals(map.toShorterString(), token.toShorterString());
+    Assert.assertEquals(map.toShorterString("Text", "Before", "NamedEntityTag"), token.toShorterString("Text", "Before", "NamedEntityTag"));
+    Assert.assertEquals(map.toShortString('|', "Text", "PartOfSpeech", "SentenceIndex"), token.toShortString('|', "Text", "PartOfSpeech", "SentenceIndex"));
+    Assert.assertEquals(map.keySet(), token.keySet());
+
+    // the copy constructors of both classes see every entry
+    Assert.assertEquals(token, new CoreLabel(token));
+    Assert.assertEquals(map, new ArrayCoreMap(token));
+    Assert.assertEquals(token, new CoreLabel((CoreMap) map));
+
+    CoreLabel other = token();
+    other.setNER("LOCATION");
+    Assert.assertNotEquals(token, other);
+    Assert.assertNotEquals(map, other);
+    other.setNER("CITY");
+    Assert.assertEquals(token, other);
+  }
+
+  @Test
+  public void testSerialization() throws IOException, ClassNotFoundException {
+    CoreLabel token = token();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(token);
+      out.writeObject(copy(token));
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      CoreLabel read = (CoreLabel) in.readObject();
+      Assert.assertEquals(token, read);
+      Assert.assertEquals(1000, read.beginPosition());
+      Assert.assertEquals("CITY", read.ner());
+      // the entries in the fields are serialized in the arrays of ArrayCoreMap
+      Assert.assertEquals(in.readObject(), read);
+    }
+  }
+
+}
@@ -0,0 +1,191 @@
+package edu.stanford.nlp.ling.tokensregex;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.util.CoreMap;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Checks that rules read back from a {@link CompiledRuleCache} extract the same as the parsed rules.
+ */
+public class CompiledRuleCacheTest {
+
+  private static final String RULES =
+      "ner = { type: \"CLASS\", value: \"edu.stanford.nlp.ling.CoreAnnotations$NamedEntityTagAnnotation\" }\n" +
+      "ENV.defaultStringPatternFlags = 2\n" +
+      "$Colors = ( /red/ | /green/ | /pale|light/ /blue/ )\n" +
+      "ENV.defaults[\"ruleType\"] = \"tokens\"\n" +
+      "{ pattern: ( $Colors ), action: ( Annotate($0, ner, \"COLOR\") ) }\n" +
+      "{ pattern: ( [ { word:/[0-9]+/ } ] /dollars?/ ), action: ( Annotate($0, ner, \"MONEY\") ) }\n" +
+      "{ pattern: ( $Long ), action: ( Annotate($0, ner, \"LONG\") ) }\n";
+
+  private static final String SENTENCE = "The light blue car cost 300 dollars , not a remarkably RED sum";
+
+  /** A pattern bound in code, which can't be serialized. */
+  private static class LongWordPattern extends NodePattern<CoreMap> {
+    private final Object notSerializable = new Object();
+
+    @Override
+    public boolean match(CoreMap token) {
+      return token.get(CoreAnnotations.TextAnnotation.class).length() > 9;
+    }
+  }
+
+  /** A pattern bound in code, which can be serialized. */
+  private static class MinLengthPattern extends NodePattern<CoreMap> {
+    private static final long serialVersionUID = 1L;
+
+    private final int minLength;
+
+    MinLengthPattern(int minLength) {
+      this.minLength = minLength;
+    }
+
+    @Override
+    public boolean match(CoreMap token) {
+      return token.get(CoreAnnotations.TextAnnotation.class).length() >= minLength;
+    }
+  }
+
+  private File directory;
+  private File rules;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = Files.createTempDirectory("rulecache").toFile();
+    rules = new File(directory, "test.rules.txt");
+    writeRules(RULES);
+  }
+
+  @After
+  public void tearDown() {
+    for (File file : directory.listFiles()) {
+      file.delete();
+    }
+    directory.delete();
+  }
+
+  private void writeRules(String text) throws Exception {
+    try (PrintWriter pw = IOUtils.getPrintWriter(rules.getAbsolutePath())) {
+      pw.print(text);
+    }
+  }
+
+  private static Env newEnv() {
+    Env env = TokenSequencePattern.getNewEnv();
+    env.bind("$Long", new LongWordPattern());
+    return env;
+  }
+
+  private static List<String> annotate(CoreMapExpressionExtractor<MatchedExpression> extractor) {
+    List<CoreLabel> tokens = new ArrayList<>();
+    int offset = 0;
+    for (String word : SENTENCE.split(" ")) {
+      CoreLabel token = new CoreLabel();
+      token.setWord(word);
+      token.setValue(word);
+      token.setBeginPosition(offset);
+      token.setEndPosition(offset + word.length());
+      token.setNER("O");
+      tokens.add(token);
+      offset += word.length() + 1;
+    }
+    Annotation sentence = new Annotation(SENTENCE);
+    sentence.set(CoreAnnotations.TokensAnnotation.class, tokens);
+    extractor.extractExpressions(sentence);
+    List<String> tags = new ArrayList<>();
+    for (CoreLabel token : tokens) {
+      tags.add(token.ner());
+    }
+    return tags;
+  }
+
+  private CoreMapExpressionExtractor<MatchedExpression> extractor(Env env, boolean cached) {
+    CoreMapExpressionExtractor.setRuleCacheDirectory(cached ? directory.getPath() : null);
+    try {
+      return CoreMapExpressionExtractor.createExtractorFromFiles(env, rules.getPath());
+    } finally {
+      CoreMapExpressionExtractor.setRuleCacheDirectory(null);
+    }
+  }
+
+  private File onlyEntry() {
+    File[] entries = directory.listFiles((dir, name) -> name.startsWith("rules-"));
+    Assert.assertEquals(1, entries.length);
+    return entries[0];
+  }
+
+  @Test
+  public void testCachedRules() throws Exception {
+    List<String> expected = annotate(extractor(newEnv(), false));
+    Assert.assertEquals("COLOR", expected.get(1));
+    Assert.assertEquals("MONEY", expected.get(6));
+    Assert.assertEquals("LONG", expected.get(10));
+    Assert.assertEquals("COLOR", expected.get(11));
+
+    Assert.assertEquals(expected, annotate(extractor(newEnv(), true)));
+    File entry = onlyEntry();
+    Assert.assertNotNull(new CompiledRuleCache(directory.getPath()).read(entry, newEnv()));
+    Assert.assertEquals(expected, annotate(extractor(newEnv(), true)));
+    Assert.assertEquals(entry, onlyEntry());
+  }
+
+  @Test
+  public void testChangedRules() throws Exception {
+    annotate(extractor(newEnv(), true));
+    writeRules(RULES.replace("/green/", "/green|car/"));
+    List<String> tags = annotate(extractor(newEnv(), true));
+    Assert.assertEquals("COLOR", tags.get(3));
+    Assert.assertEquals(2, directory.listFiles((dir, name) -> name.startsWith("rules-")).length);
+  }
+
+  @Test
+  public void testDifferentEnvironment() throws Exception {
+    annotate(extractor(newEnv(), true));
+    Env env = newEnv();
+    env.setDefaultStringMatchFlags(NodePattern.CASE_INSENSITIVE);
+    annotate(extractor(env, true));
+    Assert.assertEquals(2, directory.listFiles((dir, name) -> name.startsWith("rules-")).length);
+  }
+
+  @Test
+  public void testDifferentBinding() throws Exception {
+    Env env = newEnv();
+    env.bind("$MinLength", new MinLengthPattern(5));
+    annotate(extractor(env, true));
+    env = newEnv();
+    env.bind("$MinLength", new MinLengthPattern(5));
+    annotate(extractor(env, true));
+    Assert.assertEquals(1, directory.listFiles((dir, name) -> name.startsWith("rules-")).length);
+    // the same class, bound with different contents
+    env = newEnv();
+    env.bind("$MinLength", new MinLengthPattern(6));
+    annotate(extractor(env, true));
+    Assert.assertEquals(2, directory.listFiles((dir, name) -> name.startsWith("rules-")).length);
+  }
+
+  @Test
+  public void testUnreadableEntry() throws Exception {
+    List<String> expected = annotate(extractor(newEnv(), false));
+    annotate(extractor(newEnv(), true));
+    File entry = onlyEntry();
+    Files.write(entry.toPath(), Collections.singletonList("not an entry"));
+    Assert.assertEquals(expected, annotate(extractor(newEnv(), true)));
+    // and the entry is written again
+    Assert.assertNotNull(new CompiledRuleCache(directory.getPath()).read(entry, newEnv()));
+  }
+
+}
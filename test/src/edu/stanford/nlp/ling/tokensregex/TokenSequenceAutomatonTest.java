@@ -0,0 +1,80 @@
+package edu.stanford.nlp.ling.tokensregex;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.ling.CoreLabel;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TokenSequenceAutomatonTest {
+
+  private static List<CoreLabel> tokens(String text) {
+    List<CoreLabel> tokens = new ArrayList<>();
+    for (String word : text.split(" ")) {
+      CoreLabel token = new CoreLabel();
+      token.setWord(word);
+      token.setValue(word);
+      tokens.add(token);
+    }
+    return tokens;
+  }
+
+  private static List<String> find(TokenSequenceAutomaton automaton, String text) {
+    List<String> matches = new ArrayList<>();
+    automaton.find(tokens(text), (phrase, start, end) -> matches.add(phrase + ":" + start + "-" + end));
+    return matches;
+  }
+
+  private static List<String[]> phrases(String... phrases) {
+    List<String[]> list = new ArrayList<>();
+    for (String phrase : phrases) {
+      list.add(phrase.split(" "));
+    }
+    return list;
+  }
+
+  @Test
+  public void testFindsAllOccurrences() {
+    TokenSequenceAutomaton automaton = new TokenSequenceAutomaton(
+        phrases("New York", "New York City", "York", "City of New York", "A A"), false);
+    Assert.assertEquals(5, automaton.numPhrases());
+    Assert.assertEquals(Arrays.asList("0:2-4", "2:3-4", "1:2-5"),
+        find(automaton, "I love New York City"));
+    // matches ending at the same token come longest first
+    Assert.assertEquals(Arrays.asList("3:0-4", "0:2-4", "2:3-4"),
+        find(automaton, "City of New York ."));
+    Assert.assertEquals(Arrays.asList("4:0-2", "4:1-3", "4:2-4"), find(automaton, "A A A A"));
+    Assert.assertEquals(Arrays.asList(), find(automaton, "new york"));
+  }
+
+  @Test
+  public void testIgnoreCase() {
+    TokenSequenceAutomaton automaton = new TokenSequenceAutomaton(phrases("New York", "STRASSE"), true);
+    Assert.assertEquals(Arrays.asList("0:1-3"), find(automaton, "in nEW yORK"));
+    Assert.assertEquals(Arrays.asList("1:0-1"), find(automaton, "strasse"));
+  }
+
+  @Test
+  public void testDuplicatePhrases() {
+    TokenSequenceAutomaton automaton = new TokenSequenceAutomaton(phrases("Stanford", "Stanford"), false);
+    Assert.assertEquals(Arrays.asList("0:1-2", "1:1-2"), find(automaton, "at Stanford"));
+  }
+
+  @Test
+  public void testSerialization() throws Exception {
+    TokenSequenceAutomaton automaton = new TokenSequenceAutomaton(
+        phrases("New York", "New York City", "York"), true);
+    File file = File.createTempFile("automaton", ".ser");
+    file.deleteOnExit();
+    IOUtils.writeObjectToFile(automaton, file);
+    TokenSequenceAutomaton loaded = IOUtils.readObjectFromFile(file);
+    Assert.assertTrue(loaded.ignoreCase());
+    Assert.assertEquals(find(automaton, "new york city"), find(loaded, "new york city"));
+  }
+
+}
@@ -0,0 +1,93 @@
+package edu.stanford.nlp.neural;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.ejml.simple.SimpleMatrix;
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.stanford.nlp.io.IOUtils;
+
+/**
+ * Checks that a compact or mapped {@link Embedding} returns the same vectors as the
+ * map of matrices it was built from, rounded to floats.
+ */
+public class EmbeddingTest {
+
+  private static Map<String, SimpleMatrix> wordVectors() {
+    Map<String, SimpleMatrix> wordVectors = new HashMap<>();
+    wordVectors.put("the", new SimpleMatrix(new double[][] {{0.1}, {0.2}, {0.3}}));
+    wordVectors.put("cat", new SimpleMatrix(new double[][] {{-1.5}, {2.25}, {1e-3}}));
+    wordVectors.put("café", new SimpleMatrix(new double[][] {{7}, {8}, {9}}));
+    wordVectors.put("UNK", new SimpleMatrix(new double[][] {{0}, {0}, {1}}));
+    return wordVectors;
+  }
+
+  private static void checkSameVectors(Map<String, SimpleMatrix> expected, Embedding embedding) {
+    Assert.assertEquals(3, embedding.getEmbeddingSize());
+    Assert.assertEquals(expected.keySet(), embedding.keySet());
+    for (Map.Entry<String, SimpleMatrix> entry : expected.entrySet()) {
+      SimpleMatrix actual = embedding.get(entry.getKey());
+      for (int i = 0; i < 3; ++i) {
+        Assert.assertEquals((float) entry.getValue().get(i), actual.get(i), 0.0);
+      }
+    }
+    // unknown words get the unknown vector, as before
+    Assert.assertEquals(1.0, embedding.get("dog").get(2), 0.0);
+    Assert.assertFalse(embedding.containsWord("dog"));
+  }
+
+  @Test
+  public void testCompact() {
+    Embedding embedding = new Embedding(wordVectors());
+    Map<String, SimpleMatrix> expected = new HashMap<>(embedding.getWordVectors());
+    Assert.assertFalse(embedding.isCompact());
+    embedding.compact();
+    Assert.assertTrue(embedding.isCompact());
+    checkSameVectors(expected, embedding);
+
+    int row = embedding.getWordIndex("cat");
+    Assert.assertEquals(2.25f, embedding.getValue(row, 1), 0.0f);
+    double[] sum = { 1, 1, 1 };
+    embedding.addRow(row, sum);
+    embedding.addRow(embedding.getWordIndex("the"), sum);
+    Assert.assertArrayEquals(new double[] { 1.0 - 1.5 + 0.1f, 1.0 + 2.25 + 0.2f, 1.0 + 1e-3f + 0.3f }, sum, 1e-12);
+    Assert.assertEquals(embedding.getWordIndex(Embedding.UNKNOWN_WORD), embedding.getWordIndex("dog"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRowsNeedCompact() {
+    new Embedding(wordVectors()).getWordIndex("cat");
+  }
+
+  @Test
+  public void testMapped() throws IOException {
+    Embedding embedding = new Embedding(wordVectors());
+    Map<String, SimpleMatrix> expected = new HashMap<>(embedding.getWordVectors());
+    File file = File.createTempFile("embedding", ".map");
+    file.deleteOnExit();
+    embedding.writeMapped(file.getPath());
+    Assert.assertTrue(Embedding.isMappedEmbedding(file.getPath()));
+    Embedding mapped = Embedding.loadMapped(file.getPath());
+    Assert.assertTrue(mapped.isCompact());
+    checkSameVectors(expected, mapped);
+  }
+
+  @Test
+  public void testSerializeCompact() throws IOException, ClassNotFoundException {
+    Embedding embedding = new Embedding(wordVectors());
+    Map<String, SimpleMatrix> expected = new HashMap<>(embedding.getWordVectors());
+    embedding.compact();
+    File file = File.createTempFile("embedding", ".ser");
+    file.deleteOnExit();
+    IOUtils.writeObjectToFile(embedding, file);
+    Assert.assertFalse(Embedding.isMappedEmbedding(file.getPath()));
+    Embedding read = IOUtils.readObjectFromFile(file);
+    Assert.assertFalse(read.isCompact());
+    checkSameVectors(expected, read);
+  }
+
+}
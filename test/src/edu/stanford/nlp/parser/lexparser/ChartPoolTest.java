@@ -0,0 +1,59 @@
+package edu.stanford.nlp.parser.lexparser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChartPoolTest {
+
+  @Test
+  public void testChartShape() {
+    ChartPool pool = new ChartPool(5, 1 << 20);
+    float[][][] chart = pool.floatChart(4);
+    Assert.assertEquals(4, chart.length);
+    for (int start = 0; start < 4; start++) {
+      Assert.assertEquals(5, chart[start].length);
+      for (int end = 0; end <= 4; end++) {
+        if (end > start) {
+          Assert.assertEquals(5, chart[start][end].length);
+        } else {
+          Assert.assertNull(chart[start][end]);
+        }
+      }
+    }
+    int[][][] counts = pool.intChart(3);
+    Assert.assertNull(counts[1][1]);
+    Assert.assertEquals(5, counts[1][3].length);
+  }
+
+  @Test
+  public void testRowsAreReused() {
+    ChartPool pool = new ChartPool(5, 1 << 20);
+    float[][][] chart = pool.floatChart(3);
+    pool.release(chart);
+    Assert.assertEquals(6, pool.pooledRows());
+    float[][][] smaller = pool.floatChart(2);
+    Assert.assertEquals(3, pool.pooledRows());
+    // the last row released is the first one handed out again
+    Assert.assertSame(chart[2][3], smaller[0][1]);
+
+    int[][] rows = pool.intRows(4);
+    pool.release(rows);
+    Assert.assertEquals(7, pool.pooledRows());
+    Assert.assertSame(rows[3], pool.intRows(1)[0]);
+  }
+
+  @Test
+  public void testPoolIsBounded() {
+    // room for 4 rows of 5 ints
+    ChartPool pool = new ChartPool(5, 80);
+    pool.release(pool.floatChart(4));
+    Assert.assertEquals(4, pool.pooledRows());
+    pool.release(pool.intRows(3));
+    Assert.assertEquals(4, pool.pooledRows());
+    // rows of another grammar are not kept
+    ChartPool other = new ChartPool(6, 1 << 20);
+    other.release(new int[][] { new int[5] });
+    Assert.assertEquals(0, other.pooledRows());
+  }
+
+}
@@ -0,0 +1,113 @@
+package edu.stanford.nlp.parser.lexparser;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.stanford.nlp.ling.HasWord;
+import edu.stanford.nlp.ling.SentenceUtils;
+import edu.stanford.nlp.parser.common.ParserQuery;
+import edu.stanford.nlp.trees.MemoryTreebank;
+import edu.stanford.nlp.trees.Tree;
+
+/**
+ * Checks that filling in the PCFG chart on several threads gives the same
+ * parses as filling it in on one, using a small grammar trained on the fly.
+ */
+public class ExhaustivePCFGParserTest {
+
+  private static final String[] TREES = {
+    "(ROOT (S (NP (DT the) (NN dog)) (VP (VBD saw) (NP (DT a) (NN cat))) (. .)))",
+    "(ROOT (S (NP (DT a) (NN cat)) (VP (VBD chased) (NP (DT the) (NN dog)) (PP (IN in) (NP (DT the) (NN park)))) (. .)))",
+    "(ROOT (S (NP (NP (DT the) (NN man)) (PP (IN with) (NP (DT a) (NN telescope)))) (VP (VBD saw) (NP (DT the) (NN dog))) (. .)))",
+    "(ROOT (S (NP (DT the) (JJ big) (NN dog)) (VP (VBD slept) (PP (IN in) (NP (DT the) (NN house)))) (. .)))",
+    "(ROOT (S (NP (DT the) (NN cat)) (VP (VBD saw) (NP (DT the) (NN man)) (PP (IN with) (NP (DT a) (JJ big) (NN telescope)))) (. .)))",
+  };
+
+  private static LexicalizedParser parser;
+
+  @BeforeClass
+  public static void trainParser() {
+    Options op = new Options();
+    op.doDep = false;
+    op.doPCFG = true;
+    // without parent annotation, the few trees here give a grammar which can parse long sentences
+    op.trainOptions.PA = false;
+    op.trainOptions.gPA = false;
+    op.trainOptions.markovFactor = true;
+    op.trainOptions.markovOrder = 1;
+    MemoryTreebank treebank = new MemoryTreebank();
+    for (String tree : TREES) {
+      treebank.add(Tree.valueOf(tree));
+    }
+    parser = LexicalizedParser.trainFromTreebank(treebank, op);
+  }
+
+  private static ParserQuery parse(List<? extends HasWord> sentence, int insideThreads) {
+    parser.getOp().testOptions.insideThreads = insideThreads;
+    ParserQuery pq = parser.parserQuery();
+    Assert.assertTrue(pq.parse(sentence));
+    return pq;
+  }
+
+  private static void checkSameParses(String text) {
+    List<HasWord> sentence = SentenceUtils.toWordList(text.split(" "));
+    ParserQuery serial = parse(sentence, 1);
+    ParserQuery parallel = parse(sentence, 4);
+    Assert.assertEquals(serial.getBestPCFGParse().toString(), parallel.getBestPCFGParse().toString());
+    Assert.assertEquals(serial.getPCFGScore(), parallel.getPCFGScore(), 0.0);
+  }
+
+  @Test
+  public void testShortSentence() {
+    checkSameParses("the dog saw a cat .");
+  }
+
+  @Test
+  public void testLongSentence() {
+    checkSameParses("the man with a big telescope in the park with the dog in the house " +
+                    "saw the cat with a telescope in the park with the big dog in the house .");
+  }
+
+  @Test
+  public void testPooledCharts() {
+    List<HasWord> longSentence = SentenceUtils.toWordList(("the man with a big telescope in the park " +
+        "saw the cat with a telescope in the house .").split(" "));
+    List<HasWord> shortSentence = SentenceUtils.toWordList("a cat saw the dog in the park .".split(" "));
+    parser.getOp().testOptions.insideThreads = 1;
+
+    LexicalizedParserQuery unpooled = parser.lexicalizedParserQuery();
+    ((ExhaustivePCFGParser) unpooled.getPCFGParser()).setChartPool(null);
+    Assert.assertTrue(unpooled.parse(shortSentence));
+    String expected = unpooled.getBestPCFGParse().toString();
+    double expectedScore = unpooled.getPCFGScore();
+
+    // the short sentence gets rows which the long one left its scores in
+    ChartPool pool = new ChartPool(parser.stateIndex.size(), 1L << 30);
+    LexicalizedParserQuery pooled = parser.lexicalizedParserQuery();
+    ((ExhaustivePCFGParser) pooled.getPCFGParser()).setChartPool(pool);
+    Assert.assertTrue(pooled.parse(longSentence));
+    pooled.release();
+    int released = pool.pooledRows();
+    Assert.assertTrue(released > 0);
+    Assert.assertTrue(pooled.parse(shortSentence));
+    Assert.assertTrue(pool.pooledRows() < released);
+    Assert.assertEquals(expected, pooled.getBestPCFGParse().toString());
+    Assert.assertEquals(expectedScore, pooled.getPCFGScore(), 0.0);
+    pooled.release();
+    Assert.assertEquals(released, pool.pooledRows());
+  }
+
+  @Test
+  public void testLengthNormalization() {
+    parser.getOp().testOptions.lengthNormalization = true;
+    try {
+      checkSameParses("the cat with the dog in the park saw the man with a telescope in the big house .");
+    } finally {
+      parser.getOp().testOptions.lengthNormalization = false;
+    }
+  }
+
+}
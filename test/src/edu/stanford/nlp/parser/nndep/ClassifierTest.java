@@ -0,0 +1,132 @@
+package edu.stanford.nlp.parser.nndep;
+
+import edu.stanford.nlp.util.PropertiesUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks that scoring a batch of configurations gives exactly the
+ * same scores as scoring them one at a time, and that compacted
+ * weights give nearly the same scores as double weights.
+ */
+public class ClassifierTest {
+
+  private static final int NUM_EMBEDDINGS = 10;
+
+  private static double[][] randomMatrix(Random random, int rows, int columns, double scale) {
+    double[][] matrix = new double[rows][columns];
+    for (double[] row : matrix) {
+      for (int j = 0; j < columns; ++j) {
+        row[j] = random.nextGaussian() * scale;
+      }
+    }
+    return matrix;
+  }
+
+  /** A classifier with random weights, which are the same for the same seed. */
+  private static Classifier randomClassifier(long seed) {
+    Config config = new Config(PropertiesUtils.asProperties("hiddenSize", "8", "embeddingSize", "4"));
+    Random random = new Random(seed);
+    // scaled so that the inputs to the cube nonlinearity are around 1, as in a trained model
+    double[][] E = randomMatrix(random, NUM_EMBEDDINGS, config.embeddingSize, 0.5);
+    double[][] W1 = randomMatrix(random, config.hiddenSize, Config.numTokens * config.embeddingSize, 0.1);
+    double[] b1 = randomMatrix(random, 1, config.hiddenSize, 0.1)[0];
+    double[][] W2 = randomMatrix(random, 5, config.hiddenSize, 1.0);
+    // precompute a few (token, position) pairs, so that both paths through the hidden layer are used
+    Classifier classifier = new Classifier(config, E, W1, b1, W2,
+        Arrays.asList(3 * Config.numTokens, 3 * Config.numTokens + 1, 7 * Config.numTokens + 2));
+    classifier.preCompute();
+    return classifier;
+  }
+
+  private static int[][] randomFeatures(Random random) {
+    int[][] features = new int[6][Config.numTokens];
+    for (int[] feature : features) {
+      for (int j = 0; j < feature.length; ++j) {
+        feature[j] = random.nextInt(NUM_EMBEDDINGS);
+      }
+    }
+    return features;
+  }
+
+  /** The scores of the network computed straightforwardly, without precomputed activations or blocking. */
+  private static double[] referenceScores(Classifier classifier, int[] feature) {
+    double[][] E = classifier.getE(), W1 = classifier.getW1(), W2 = classifier.getW2();
+    double[] b1 = classifier.getb1();
+    int embeddingSize = E[0].length;
+    double[] hidden = new double[W1.length];
+    for (int i = 0; i < hidden.length; ++i) {
+      double sum = b1[i];
+      for (int j = 0; j < feature.length; ++j) {
+        for (int k = 0; k < embeddingSize; ++k) {
+          sum += W1[i][j * embeddingSize + k] * E[feature[j]][k];
+        }
+      }
+      hidden[i] = sum * sum * sum;
+    }
+    double[] scores = new double[W2.length];
+    for (int i = 0; i < scores.length; ++i) {
+      for (int j = 0; j < hidden.length; ++j) {
+        scores[i] += W2[i][j] * hidden[j];
+      }
+    }
+    return scores;
+  }
+
+  @Test
+  public void testBatchScores() {
+    Classifier classifier = randomClassifier(1234);
+    int[][] features = randomFeatures(new Random(5678));
+    double[][] batch = classifier.computeScores(features);
+    Assert.assertEquals(features.length, batch.length);
+    for (int i = 0; i < features.length; ++i) {
+      Assert.assertArrayEquals(classifier.computeScores(features[i]), batch[i], 0.0);
+      // the precomputed activations sum the same terms in a different order
+      Assert.assertArrayEquals(referenceScores(classifier, features[i]), batch[i], 1e-10);
+    }
+    // a vector's scores don't depend on the rest of its batch
+    double[][] half = classifier.computeScores(Arrays.copyOfRange(features, 2, 5));
+    for (int i = 0; i < half.length; ++i) {
+      Assert.assertArrayEquals(batch[i + 2], half[i], 0.0);
+    }
+  }
+
+  private static void checkCompactScores(WeightPrecision precision, double tolerance) {
+    int[][] features = randomFeatures(new Random(5678));
+    double[][] expected = randomClassifier(1234).computeScores(features);
+
+    Classifier classifier = randomClassifier(1234);
+    classifier.compact(precision);
+    Assert.assertEquals(precision, classifier.getWeightPrecision());
+    double[][] batch = classifier.computeScores(features);
+    for (int i = 0; i < features.length; ++i) {
+      double max = 0;
+      for (double score : expected[i]) {
+        max = Math.max(max, Math.abs(score));
+      }
+      Assert.assertArrayEquals(expected[i], batch[i], tolerance * max);
+      Assert.assertArrayEquals(batch[i], classifier.computeScores(features[i]), 0.0);
+    }
+  }
+
+  @Test
+  public void testFloatScores() {
+    checkCompactScores(WeightPrecision.FLOAT, 1e-5);
+  }
+
+  @Test
+  public void testInt8Scores() {
+    checkCompactScores(WeightPrecision.INT8, 0.05);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testCompactedWeightsAreDropped() {
+    Classifier classifier = randomClassifier(1234);
+    classifier.compact(WeightPrecision.INT8);
+    classifier.getW1();
+  }
+
+}
@@ -0,0 +1,210 @@
+package edu.stanford.nlp.pipeline;
+
+import edu.stanford.nlp.ling.CoreAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.util.RuntimeInterruptedException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks that the {@link AnnotationBatcher} annotates every document exactly once,
+ * whether its batch fills up or times out, that a failed batch is retried one document at a time,
+ * and that cancelling every document of a running batch interrupts it.
+ */
+public class AnnotationBatcherTest {
+
+  /** Marks each document it sees, and counts how many it has seen. */
+  private static class CountingAnnotator implements Annotator {
+    final AtomicInteger count = new AtomicInteger(0);
+
+    @Override
+    public void annotate(Annotation annotation) {
+      count.incrementAndGet();
+      annotation.set(CoreAnnotations.DocIDAnnotation.class, "annotated");
+    }
+
+    @Override
+    public Set<Class<? extends CoreAnnotation>> requirementsSatisfied() {
+      return Collections.emptySet();
+    }
+
+    @Override
+    public Set<Class<? extends CoreAnnotation>> requires() {
+      return Collections.emptySet();
+    }
+  }
+
+  @Test
+  public void testFullBatches() throws Exception {
+    CountingAnnotator annotator = new CountingAnnotator();
+    AnnotationPipeline pipeline = new AnnotationPipeline();
+    pipeline.addAnnotator(annotator);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    AnnotationBatcher batcher = new AnnotationBatcher(executor, 4, 10000);
+    try {
+      List<Future<Annotation>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; ++i) {
+        futures.add(batcher.submit(pipeline, new Annotation("doc " + i)));
+      }
+      for (Future<Annotation> future : futures) {
+        Assert.assertEquals("annotated", future.get(5, TimeUnit.SECONDS).get(CoreAnnotations.DocIDAnnotation.class));
+      }
+      Assert.assertEquals(8, annotator.count.get());
+      Assert.assertEquals(4.0, batcher.averageBatchSize(), 1e-10);
+    } finally {
+      batcher.shutdown();
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testPartialBatchTimesOut() throws Exception {
+    CountingAnnotator annotator = new CountingAnnotator();
+    AnnotationPipeline pipeline = new AnnotationPipeline();
+    pipeline.addAnnotator(annotator);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    AnnotationBatcher batcher = new AnnotationBatcher(executor, 100, 5);
+    try {
+      Future<Annotation> first = batcher.submit(pipeline, new Annotation("first"));
+      Future<Annotation> second = batcher.submit(pipeline, new Annotation("second"));
+      Assert.assertNotNull(first.get(5, TimeUnit.SECONDS));
+      Assert.assertNotNull(second.get(5, TimeUnit.SECONDS));
+      Assert.assertEquals(2, annotator.count.get());
+    } finally {
+      batcher.shutdown();
+      executor.shutdown();
+    }
+  }
+
+  /** Fails any batch holding the document "bad", and leaves a mark on each document it sees before failing. */
+  private static class FailingAnnotator implements Annotator {
+    @Override
+    public void annotate(Annotation annotation) {
+      if (annotation.get(CoreAnnotations.DocIDAnnotation.class) != null) {
+        throw new AssertionError("Saw a partly annotated document");
+      }
+      annotation.set(CoreAnnotations.DocIDAnnotation.class, "seen");
+      if (annotation.get(CoreAnnotations.TextAnnotation.class).equals("bad")) {
+        throw new IllegalStateException("bad document");
+      }
+    }
+
+    @Override
+    public Set<Class<? extends CoreAnnotation>> requirementsSatisfied() {
+      return Collections.emptySet();
+    }
+
+    @Override
+    public Set<Class<? extends CoreAnnotation>> requires() {
+      return Collections.emptySet();
+    }
+  }
+
+  @Test
+  public void testFailedBatchRetriesFreshCopies() throws Exception {
+    AnnotationPipeline pipeline = new AnnotationPipeline();
+    pipeline.addAnnotator(new FailingAnnotator());
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    AnnotationBatcher batcher = new AnnotationBatcher(executor, 3, 10000);
+    try {
+      Future<Annotation> good = batcher.submit(pipeline, new Annotation("good"));
+      Future<Annotation> bad = batcher.submit(pipeline, new Annotation("bad"));
+      Future<Annotation> late = batcher.submit(pipeline, new Annotation("late"));
+      Assert.assertEquals("seen", good.get(5, TimeUnit.SECONDS).get(CoreAnnotations.DocIDAnnotation.class));
+      Assert.assertEquals("seen", late.get(5, TimeUnit.SECONDS).get(CoreAnnotations.DocIDAnnotation.class));
+      try {
+        bad.get(5, TimeUnit.SECONDS);
+        Assert.fail("Expected the bad document to fail");
+      } catch (ExecutionException e) {
+        Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+      }
+    } finally {
+      batcher.shutdown();
+      executor.shutdown();
+    }
+  }
+
+  /** Blocks on each document until interrupted, counting the documents it sees and the interrupts. */
+  private static class BlockingAnnotator implements Annotator {
+    final AtomicInteger count = new AtomicInteger(0);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch interrupted = new CountDownLatch(1);
+
+    @Override
+    public void annotate(Annotation annotation) {
+      count.incrementAndGet();
+      started.countDown();
+      try {
+        Thread.sleep(60000);
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+        throw new RuntimeInterruptedException(e);
+      }
+    }
+
+    @Override
+    public Set<Class<? extends CoreAnnotation>> requirementsSatisfied() {
+      return Collections.emptySet();
+    }
+
+    @Override
+    public Set<Class<? extends CoreAnnotation>> requires() {
+      return Collections.emptySet();
+    }
+  }
+
+  @Test
+  public void testCancelInterruptsRunningBatch() throws Exception {
+    BlockingAnnotator annotator = new BlockingAnnotator();
+    AnnotationPipeline pipeline = new AnnotationPipeline();
+    pipeline.addAnnotator(annotator);
+    ExecutorService executor = Executors.newFixedThreadPool(1);
+    AnnotationBatcher batcher = new AnnotationBatcher(executor, 2, 10000);
+    try {
+      Future<Annotation> first = batcher.submit(pipeline, new Annotation("first"));
+      Future<Annotation> second = batcher.submit(pipeline, new Annotation("second"));
+      Assert.assertTrue(annotator.started.await(5, TimeUnit.SECONDS));
+      first.cancel(true);
+      Assert.assertEquals(1, annotator.interrupted.getCount());  // the second document is still wanted
+      second.cancel(true);
+      Assert.assertTrue(annotator.interrupted.await(5, TimeUnit.SECONDS));
+    } finally {
+      batcher.shutdown();
+      executor.shutdown();
+    }
+    Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    // the cancelled documents are not retried one at a time
+    Assert.assertEquals(1, annotator.count.get());
+  }
+
+  @Test
+  public void testStatistics() throws Exception {
+    AnnotationPipeline pipeline = new AnnotationPipeline();
+    pipeline.addAnnotator(new CountingAnnotator());
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    AnnotationBatcher batcher = new AnnotationBatcher(executor, 2, 10000);
+    try {
+      Assert.assertEquals(0.0, batcher.latencyPercentile(99), 1e-10);
+      Assert.assertEquals(0.0, batcher.throughput(), 1e-10);
+      List<Future<Annotation>> futures = new ArrayList<>();
+      for (int i = 0; i < 6; ++i) {
+        futures.add(batcher.submit(pipeline, new Annotation("doc " + i)));
+      }
+      for (Future<Annotation> future : futures) {
+        future.get(5, TimeUnit.SECONDS);
+      }
+      Assert.assertTrue(batcher.latencyPercentile(50) > 0.0);
+      Assert.assertTrue(batcher.latencyPercentile(50) <= batcher.latencyPercentile(99));
+      Assert.assertTrue(batcher.throughput() > 0.0);
+      Assert.assertTrue(batcher.statistics().contains("Batches: 3"));
+    } finally {
+      batcher.shutdown();
+      executor.shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,257 @@
+package edu.stanford.nlp.pipeline;
+
+import java.io.*;
+import java.util.*;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.pipeline.ColumnarAnnotationReader.Column;
+import edu.stanford.nlp.pipeline.ColumnarAnnotationReader.RowGroup;
+import edu.stanford.nlp.pipeline.ColumnarAnnotationReader.StringColumn;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations;
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+import edu.stanford.nlp.stats.ClassicCounter;
+import edu.stanford.nlp.stats.Counter;
+import edu.stanford.nlp.trees.GrammaticalRelation;
+import edu.stanford.nlp.util.ArrayCoreMap;
+import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.PropertiesUtils;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class ColumnarAnnotationTest {
+
+  private static final String[] TEXTS = {
+    "Bill ate muffins. Mary runs.",
+    "  Fred Smith met Bill in Paris.\nThey talked.",
+    "",
+    "Paris is big. Bills were paid by Fred.",
+  };
+
+  private static final Set<String> PEOPLE = new HashSet<>(Arrays.asList("Bill", "Mary", "Fred", "Smith"));
+
+  private static List<Annotation> documents;
+
+  @BeforeClass
+  public static void setUp() {
+    StanfordCoreNLP pipeline = new StanfordCoreNLP(PropertiesUtils.asProperties(
+        "annotators", "tokenize,ssplit",
+        "tokenize.language", "en"));
+    documents = new ArrayList<>();
+    for (int d = 0; d < TEXTS.length; d++) {
+      Annotation document = new Annotation(TEXTS[d]);
+      pipeline.annotate(document);
+      document.set(CoreAnnotations.DocIDAnnotation.class, "doc" + d);
+      for (CoreMap sentence : document.get(CoreAnnotations.SentencesAnnotation.class)) {
+        List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
+        List<CoreMap> mentions = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+          CoreLabel token = tokens.get(i);
+          token.setLemma(token.word().toLowerCase().replaceAll("s$", ""));
+          token.setTag(Character.isUpperCase(token.word().charAt(0)) ? "NNP" : "NN");
+          token.setNER(PEOPLE.contains(token.word()) ? "PERSON" : token.word().equals("Paris") ? "CITY" : "O");
+          if ( ! token.ner().equals("O") && (i == 0 || ! tokens.get(i - 1).ner().equals(token.ner()))) {
+            int end = i + 1;
+            while (end < tokens.size() && PEOPLE.contains(tokens.get(end).word())) {
+              end += 1;
+            }
+            CoreMap mention = new ArrayCoreMap();
+            mention.set(CoreAnnotations.TokensAnnotation.class, tokens.subList(i, end));
+            mention.set(CoreAnnotations.EntityTypeAnnotation.class, token.ner());
+            mentions.add(mention);
+          }
+        }
+        sentence.set(CoreAnnotations.MentionsAnnotation.class, mentions);
+        // a flat tree: the first token governs all others
+        SemanticGraph graph = new SemanticGraph();
+        List<IndexedWord> nodes = new ArrayList<>();
+        for (CoreLabel token : tokens) {
+          IndexedWord node = new IndexedWord(token);
+          nodes.add(node);
+          graph.addVertex(node);
+        }
+        graph.addRoot(nodes.get(0));
+        for (int i = 1; i < nodes.size(); i++) {
+          graph.addEdge(nodes.get(0), nodes.get(i), GrammaticalRelation.valueOf(i % 2 == 0 ? "dobj" : "nsubj"), 1.0, false);
+        }
+        sentence.set(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class, graph);
+      }
+      documents.add(document);
+    }
+  }
+
+  private static File write(int rowGroupTokens) throws IOException {
+    File file = File.createTempFile("documents", ".col");
+    file.deleteOnExit();
+    try (ColumnarAnnotationWriter writer = new ColumnarAnnotationWriter(new FileOutputStream(file), rowGroupTokens)) {
+      for (Annotation document : documents) {
+        writer.add(document);
+      }
+    }
+    return file;
+  }
+
+  private static List<String> edges(SemanticGraph graph) {
+    List<String> edges = new ArrayList<>();
+    for (IndexedWord root : graph.getRoots()) {
+      edges.add("root -> " + root.index());
+    }
+    for (SemanticGraphEdge edge : graph.edgeListSorted()) {
+      edges.add(edge.getGovernor().index() + " " + edge.getRelation() + " -> " + edge.getDependent().index());
+    }
+    return edges;
+  }
+
+  private static void assertSameDocument(Annotation expected, CoreDocument actual) {
+    assertEquals(expected.get(CoreAnnotations.TextAnnotation.class), actual.text());
+    assertEquals(expected.get(CoreAnnotations.DocIDAnnotation.class), actual.docID());
+    List<CoreMap> sentences = expected.get(CoreAnnotations.SentencesAnnotation.class);
+    assertEquals(sentences.size(), actual.sentences().size());
+    for (int s = 0; s < sentences.size(); s++) {
+      CoreMap sentence = sentences.get(s);
+      CoreSentence actualSentence = actual.sentences().get(s);
+      assertEquals(sentence.get(CoreAnnotations.TextAnnotation.class), actualSentence.text());
+      List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
+      assertEquals(tokens.size(), actualSentence.tokens().size());
+      for (int i = 0; i < tokens.size(); i++) {
+        CoreLabel token = tokens.get(i);
+        CoreLabel actualToken = actualSentence.tokens().get(i);
+        assertEquals(token.word(), actualToken.word());
+        assertEquals(token.lemma(), actualToken.lemma());
+        assertEquals(token.tag(), actualToken.tag());
+        assertEquals(token.ner(), actualToken.ner());
+        assertEquals(token.beginPosition(), actualToken.beginPosition());
+        assertEquals(token.endPosition(), actualToken.endPosition());
+        assertEquals(token.originalText(), actualToken.originalText());
+        assertEquals(token.before(), actualToken.before());
+        assertEquals(token.after(), actualToken.after());
+        assertEquals(token.index(), actualToken.index());
+      }
+      assertEquals(edges(sentence.get(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class)),
+                   edges(actualSentence.coreMap().get(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class)));
+      List<CoreMap> mentions = sentence.get(CoreAnnotations.MentionsAnnotation.class);
+      assertEquals(mentions.size(), actualSentence.entityMentions().size());
+      for (int m = 0; m < mentions.size(); m++) {
+        List<CoreLabel> mentionTokens = mentions.get(m).get(CoreAnnotations.TokensAnnotation.class);
+        CoreEntityMention actualMention = actualSentence.entityMentions().get(m);
+        assertEquals(mentions.get(m).get(CoreAnnotations.EntityTypeAnnotation.class), actualMention.entityType());
+        assertEquals(TEXTS[Integer.parseInt(actual.docID().substring(3))].substring(
+            mentionTokens.get(0).beginPosition(), mentionTokens.get(mentionTokens.size() - 1).endPosition()), actualMention.text());
+      }
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    for (int rowGroupTokens : new int[]{1, 5, ColumnarAnnotationWriter.DEFAULT_ROW_GROUP_TOKENS}) {
+      try (ColumnarAnnotationReader reader = new ColumnarAnnotationReader(write(rowGroupTokens))) {
+        assertEquals(documents.size(), reader.numDocuments());
+        if (rowGroupTokens == 1) {
+          // one row group per document, except for the empty document which is grouped with the next one
+          assertEquals(documents.size() - 1, reader.numRowGroups());
+        } else if (rowGroupTokens == ColumnarAnnotationWriter.DEFAULT_ROW_GROUP_TOKENS) {
+          assertEquals(1, reader.numRowGroups());
+        }
+        int d = 0;
+        for (CoreDocument document : reader.documents()) {
+          assertSameDocument(documents.get(d), document);
+          d += 1;
+        }
+        assertEquals(documents.size(), d);
+      }
+    }
+  }
+
+  @Test
+  public void testCountValues() throws IOException {
+    Counter<String> expected = new ClassicCounter<>();
+    long numTokens = 0;
+    for (Annotation document : documents) {
+      for (CoreLabel token : document.get(CoreAnnotations.TokensAnnotation.class)) {
+        expected.incrementCount(token.ner());
+        numTokens += 1;
+      }
+    }
+    try (ColumnarAnnotationReader reader = new ColumnarAnnotationReader(write(5))) {
+      assertEquals(numTokens, reader.numTokens());
+      assertEquals(expected, reader.countValues(Column.NER));
+      assertEquals(4.0, reader.countValues(Column.DOC_ID).totalCount(), 0.0);
+      assertEquals(2.0, reader.countValues(Column.MENTION_TYPE).getCount("CITY"), 0.0);
+    }
+  }
+
+  /** All of the PERSON mentions which contain a token with the given lemma, by reading only the columns needed. */
+  private static List<String> personMentionsWithLemma(ColumnarAnnotationReader reader, String lemma) {
+    List<String> found = new ArrayList<>();
+    for (RowGroup rowGroup : reader) {
+      StringColumn types = rowGroup.strings(Column.MENTION_TYPE);
+      StringColumn lemmas = rowGroup.strings(Column.LEMMA);
+      int person = types.idOf("PERSON");
+      int wanted = lemmas.idOf(lemma);
+      if (person < 0 || wanted < 0) {
+        continue;
+      }
+      int[] begins = rowGroup.ints(Column.MENTION_BEGIN);
+      int[] ends = rowGroup.ints(Column.MENTION_END);
+      StringColumn words = rowGroup.strings(Column.WORD);
+      for (int m = 0; m < rowGroup.numMentions(); m++) {
+        if (types.ids()[m] != person) {
+          continue;
+        }
+        for (int t = begins[m]; t < ends[m]; t++) {
+          if (lemmas.ids()[t] == wanted) {
+            StringBuilder mention = new StringBuilder();
+            for (int i = begins[m]; i < ends[m]; i++) {
+              mention.append(i > begins[m] ? " " : "").append(words.get(i));
+            }
+            found.add(mention.toString());
+            break;
+          }
+        }
+      }
+    }
+    return found;
+  }
+
+  @Test
+  public void testColumnQuery() throws IOException {
+    for (int rowGroupTokens : new int[]{3, 100}) {
+      try (ColumnarAnnotationReader reader = new ColumnarAnnotationReader(write(rowGroupTokens))) {
+        assertEquals(Arrays.asList("Fred Smith", "Fred"), personMentionsWithLemma(reader, "fred"));
+        // "Bills" has the lemma bill, but is not a PERSON
+        assertEquals(Arrays.asList("Bill", "Bill"), personMentionsWithLemma(reader, "bill"));
+        assertEquals(Collections.emptyList(), personMentionsWithLemma(reader, "paris"));
+      }
+    }
+  }
+
+  @Test
+  public void testOutputter() throws IOException {
+    File file = File.createTempFile("document", ".col");
+    file.deleteOnExit();
+    try (OutputStream out = new FileOutputStream(file)) {
+      ColumnarOutputter.columnarPrint(documents.get(1), out);
+    }
+    try (ColumnarAnnotationReader reader = new ColumnarAnnotationReader(file)) {
+      assertEquals(1, reader.numRowGroups());
+      assertSameDocument(documents.get(1), reader.rowGroup(0).document(0));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testNotColumnar() throws IOException {
+    File file = File.createTempFile("document", ".txt");
+    file.deleteOnExit();
+    try (Writer out = new FileWriter(file)) {
+      out.write("This is not a columnar annotation file at all.");
+    }
+    new ColumnarAnnotationReader(file).close();
+  }
+
+}
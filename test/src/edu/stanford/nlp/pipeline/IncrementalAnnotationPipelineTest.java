@@ -0,0 +1,230 @@
+package edu.stanford.nlp.pipeline;
+
+import java.util.*;
+
+import edu.stanford.nlp.ling.CoreAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations;
+import edu.stanford.nlp.trees.GrammaticalRelation;
+import edu.stanford.nlp.util.CoreMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class IncrementalAnnotationPipelineTest {
+
+  /** Tags each token with its position in the sentence, and links the tokens of a sentence in a chain of dependencies. */
+  private static class ChainAnnotator extends SentenceAnnotator {
+    final List<String> annotated = new ArrayList<>();
+
+    @Override
+    protected void doOneSentence(Annotation annotation, CoreMap sentence) {
+      annotated.add(sentence.get(CoreAnnotations.TextAnnotation.class));
+      List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
+      SemanticGraph graph = new SemanticGraph();
+      IndexedWord previous = null;
+      for (CoreLabel token : tokens) {
+        token.setTag("T" + token.index());
+        IndexedWord word = new IndexedWord(token);
+        graph.addVertex(word);
+        if (previous == null) {
+          graph.setRoot(word);
+        } else {
+          graph.addEdge(previous, word, GrammaticalRelation.DEPENDENT, 1.0, false);
+        }
+        previous = word;
+      }
+      graph.compact();
+      sentence.set(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class, graph);
+    }
+
+    @Override
+    protected void doOneFailedSentence(Annotation annotation, CoreMap sentence) {
+      throw new AssertionError("Unexpected failure");
+    }
+
+    @Override
+    protected int nThreads() {
+      return 1;
+    }
+
+    @Override
+    protected long maxTime() {
+      return -1;
+    }
+
+    @Override
+    public Set<Class<? extends CoreAnnotation>> requirementsSatisfied() {
+      return Collections.singleton(CoreAnnotations.PartOfSpeechAnnotation.class);
+    }
+
+    @Override
+    public Set<Class<? extends CoreAnnotation>> requires() {
+      return Collections.emptySet();
+    }
+  }
+
+  /** Counts the documents it is run on. */
+  private static class CountingAnnotator implements Annotator {
+    int runs = 0;
+
+    @Override
+    public void annotate(Annotation annotation) {
+      runs++;
+    }
+
+    @Override
+    public Set<Class<? extends CoreAnnotation>> requirementsSatisfied() {
+      return Collections.emptySet();
+    }
+
+    @Override
+    public Set<Class<? extends CoreAnnotation>> requires() {
+      return Collections.emptySet();
+    }
+  }
+
+  private final ChainAnnotator chain = new ChainAnnotator();
+  private final CountingAnnotator document = new CountingAnnotator();
+  private final AnnotationPipeline pipeline = new AnnotationPipeline(Arrays.asList(
+      new TokenizerAnnotator(false, "en"), new WordsToSentencesAnnotator(false), chain, document));
+  private final IncrementalAnnotationPipeline incremental = pipeline.incremental();
+
+  private Annotation annotate(String text) {
+    Annotation annotation = new Annotation(text);
+    pipeline.annotate(annotation);
+    return annotation;
+  }
+
+  /** Checks that the updated annotation is what annotating its text from scratch would give. */
+  private static void assertSameAsFromScratch(Annotation expected, Annotation actual) {
+    Assert.assertEquals(expected.get(CoreAnnotations.TextAnnotation.class), actual.get(CoreAnnotations.TextAnnotation.class));
+    List<CoreMap> expectedSentences = expected.get(CoreAnnotations.SentencesAnnotation.class);
+    List<CoreMap> actualSentences = actual.get(CoreAnnotations.SentencesAnnotation.class);
+    Assert.assertEquals(expectedSentences.size(), actualSentences.size());
+    for (int i = 0; i < expectedSentences.size(); i++) {
+      CoreMap expectedSentence = expectedSentences.get(i);
+      CoreMap actualSentence = actualSentences.get(i);
+      Assert.assertEquals(expectedSentence.get(CoreAnnotations.TextAnnotation.class), actualSentence.get(CoreAnnotations.TextAnnotation.class));
+      Assert.assertEquals(expectedSentence.get(CoreAnnotations.SentenceIndexAnnotation.class), actualSentence.get(CoreAnnotations.SentenceIndexAnnotation.class));
+      Assert.assertEquals(expectedSentence.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class), actualSentence.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class));
+      Assert.assertEquals(expectedSentence.get(CoreAnnotations.CharacterOffsetEndAnnotation.class), actualSentence.get(CoreAnnotations.CharacterOffsetEndAnnotation.class));
+      Assert.assertEquals(expectedSentence.get(CoreAnnotations.TokenBeginAnnotation.class), actualSentence.get(CoreAnnotations.TokenBeginAnnotation.class));
+      Assert.assertEquals(expectedSentence.get(CoreAnnotations.TokenEndAnnotation.class), actualSentence.get(CoreAnnotations.TokenEndAnnotation.class));
+      SemanticGraph graph = actualSentence.get(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class);
+      Assert.assertEquals(expectedSentence.get(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class).toString(), graph.toString());
+      for (CoreLabel token : actualSentence.get(CoreAnnotations.TokensAnnotation.class)) {
+        // a new vertex for the token has to find the graph's vertex
+        Assert.assertTrue(graph.containsVertex(new IndexedWord(token)));
+      }
+    }
+    List<CoreLabel> expectedTokens = expected.get(CoreAnnotations.TokensAnnotation.class);
+    List<CoreLabel> actualTokens = actual.get(CoreAnnotations.TokensAnnotation.class);
+    Assert.assertEquals(expectedTokens.size(), actualTokens.size());
+    for (int i = 0; i < expectedTokens.size(); i++) {
+      CoreLabel expectedToken = expectedTokens.get(i);
+      CoreLabel actualToken = actualTokens.get(i);
+      Assert.assertEquals(expectedToken.word(), actualToken.word());
+      Assert.assertEquals(expectedToken.tag(), actualToken.tag());
+      Assert.assertEquals(expectedToken.beginPosition(), actualToken.beginPosition());
+      Assert.assertEquals(expectedToken.endPosition(), actualToken.endPosition());
+      Assert.assertEquals(expectedToken.sentIndex(), actualToken.sentIndex());
+      Assert.assertEquals(expectedToken.before(), actualToken.before());
+      Assert.assertEquals(expectedToken.after(), actualToken.after());
+      Assert.assertEquals(expectedToken.get(CoreAnnotations.TokenBeginAnnotation.class), actualToken.get(CoreAnnotations.TokenBeginAnnotation.class));
+    }
+  }
+
+  private static final String TEXT = "The cat sat on the mat.  It was happy.\nThe dog barked.  Then it slept.  The end.";
+
+  @Test
+  public void testEditWithinASentence() {
+    Annotation annotation = annotate(TEXT);
+    chain.annotated.clear();
+    int documentRuns = document.runs;
+    int at = TEXT.indexOf("barked");
+    List<CoreMap> changed = incremental.reannotate(annotation, new IncrementalAnnotationPipeline.TextEdit(at, at + "barked".length(), "howled loudly"));
+    String newText = TEXT.replace("barked", "howled loudly");
+
+    Assert.assertEquals(1, changed.size());
+    Assert.assertEquals(Collections.singletonList("The dog howled loudly."), chain.annotated);
+    Assert.assertEquals(documentRuns + 1, document.runs);
+    assertSameAsFromScratch(annotate(newText), annotation);
+  }
+
+  @Test
+  public void testSentencesKeepTheirAnnotations() {
+    Annotation annotation = annotate(TEXT);
+    List<CoreMap> before = new ArrayList<>(annotation.get(CoreAnnotations.SentencesAnnotation.class));
+    int at = TEXT.indexOf("happy");
+    incremental.reannotate(annotation, new IncrementalAnnotationPipeline.TextEdit(at, at, "very "));
+
+    List<CoreMap> after = annotation.get(CoreAnnotations.SentencesAnnotation.class);
+    Assert.assertSame(before.get(0), after.get(0));
+    Assert.assertNotSame(before.get(1), after.get(1));
+    for (int i = 2; i < before.size(); i++) {
+      Assert.assertSame(before.get(i), after.get(i));
+    }
+  }
+
+  @Test
+  public void testEditsWhichMoveSentenceBoundaries() {
+    Annotation annotation = annotate(TEXT);
+    // split a sentence in two
+    String text = TEXT.replace("The dog barked.", "The dog. It barked.");
+    incremental.reannotate(annotation, text);
+    assertSameAsFromScratch(annotate(text), annotation);
+
+    // merge two sentences
+    text = text.replace("slept.  The end.", "slept and the end.");
+    incremental.reannotate(annotation, text);
+    assertSameAsFromScratch(annotate(text), annotation);
+
+    // add a sentence at the start, which moves every other sentence
+    text = "First things first. " + text;
+    incremental.reannotate(annotation, text);
+    assertSameAsFromScratch(annotate(text), annotation);
+
+    // delete the last sentence, and add one at the end
+    text = text.substring(0, text.indexOf("Then")) + "Fin.";
+    incremental.reannotate(annotation, text);
+    assertSameAsFromScratch(annotate(text), annotation);
+  }
+
+  @Test
+  public void testWhitespaceOnlyEdit() {
+    Annotation annotation = annotate(TEXT);
+    String text = TEXT.replace("It was", "It    was");
+    List<CoreMap> changed = incremental.reannotate(annotation, text);
+    // the sentence's text changed, but the other sentences only moved
+    Assert.assertEquals(1, changed.size());
+    assertSameAsFromScratch(annotate(text), annotation);
+
+    chain.annotated.clear();
+    int documentRuns = document.runs;
+    text = text.replace("happy.\nThe", "happy.\n\n\nThe");
+    changed = incremental.reannotate(annotation, text);
+    Assert.assertEquals(0, changed.size());
+    Assert.assertEquals(0, chain.annotated.size());
+    Assert.assertEquals(documentRuns, document.runs);
+    assertSameAsFromScratch(annotate(text), annotation);
+  }
+
+  @Test
+  public void testTextEditBetween() {
+    IncrementalAnnotationPipeline.TextEdit edit = IncrementalAnnotationPipeline.TextEdit.between("abcdef", "abXYef");
+    Assert.assertEquals(2, edit.begin);
+    Assert.assertEquals(4, edit.end);
+    Assert.assertEquals("XY", edit.text);
+    Assert.assertEquals("abXYef", edit.applyTo("abcdef"));
+
+    edit = IncrementalAnnotationPipeline.TextEdit.between("aaa", "aaaa");
+    Assert.assertEquals("aaaa", edit.applyTo("aaa"));
+    Assert.assertEquals(1, edit.lengthChange());
+  }
+
+}
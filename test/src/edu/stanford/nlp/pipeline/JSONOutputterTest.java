@@ -1,11 +1,14 @@
 package edu.stanford.nlp.pipeline;
 
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.util.CoreMap;
 import edu.stanford.nlp.util.PropertiesUtils;
 import edu.stanford.nlp.util.StringUtils;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.function.Consumer;
@@ -189,4 +192,23 @@ public class JSONOutputterTest {
     Assert.assertEquals(expected, actual);
   }
 
+  @Test
+  public void testStreamedSentences() throws IOException {
+    Annotation ann = new Annotation("JSON is neat. Better than XML.");
+    StanfordCoreNLP pipeline = new StanfordCoreNLP(PropertiesUtils.asProperties("annotators", "tokenize, ssplit"));
+    pipeline.annotate(ann);
+    AnnotationOutputter.Options options = new AnnotationOutputter.Options(false);
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    JSONOutputter outputter = new JSONOutputter();
+    for (CoreMap sentence : ann.get(CoreAnnotations.SentencesAnnotation.class)) {
+      outputter.printSentence(sentence, os, options);
+    }
+    outputter.printDocumentTrailer(ann, false, os, options);
+    String[] lines = os.toString("utf-8").split("\n");
+    Assert.assertEquals(3, lines.length);
+    Assert.assertTrue(lines[0].startsWith("{\"index\":0,\"tokens\":[{\"index\":1,\"word\":\"JSON\""));
+    Assert.assertTrue(lines[1].startsWith("{\"index\":1,\"tokens\":[{\"index\":1,\"word\":\"Better\""));
+    Assert.assertEquals("{}", lines[2]);
+  }
+
 }
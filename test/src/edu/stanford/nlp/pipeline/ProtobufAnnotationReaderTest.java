@@ -0,0 +1,165 @@
+package edu.stanford.nlp.pipeline;
+
+import java.io.*;
+import java.util.*;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.TreeCoreAnnotations;
+import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.PropertiesUtils;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class ProtobufAnnotationReaderTest {
+
+  private static final String[] TEXTS = {
+    "The dog barked. It was loud.",
+    "Bill ate three blueberry muffins.",
+    "He said she left. Nobody knows why. It is a mystery.",
+    "A book about dogs.",
+  };
+
+  private static List<Annotation> documents;
+
+  private static File archive;
+
+  @BeforeClass
+  public static void setUp() throws IOException {
+    StanfordCoreNLP pipeline = new StanfordCoreNLP(PropertiesUtils.asProperties(
+        "annotators", "tokenize,ssplit",
+        "tokenize.language", "en"));
+    documents = new ArrayList<>();
+    for (String text : TEXTS) {
+      Annotation document = new Annotation(text);
+      pipeline.annotate(document);
+      for (CoreMap sentence : document.get(CoreAnnotations.SentencesAnnotation.class)) {
+        StringBuilder tree = new StringBuilder("(ROOT (X");
+        for (CoreLabel token : sentence.get(CoreAnnotations.TokensAnnotation.class)) {
+          tree.append(" (Y ").append(token.word()).append(')');
+        }
+        sentence.set(TreeCoreAnnotations.TreeAnnotation.class, Tree.valueOf(tree.append("))").toString()));
+        sentence.set(CoreAnnotations.NumerizedTokensAnnotation.class, Collections.emptyList());
+      }
+      documents.add(document);
+    }
+
+    archive = File.createTempFile("documents", ".pb");
+    archive.deleteOnExit();
+    ProtobufAnnotationReader.offsetsFile(archive).deleteOnExit();
+    ProtobufAnnotationSerializer serializer = new ProtobufAnnotationSerializer();
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(archive))) {
+      for (Annotation document : documents) {
+        serializer.write(document, out);
+      }
+    }
+  }
+
+  private static List<String> words(CoreMap sentence) {
+    List<String> words = new ArrayList<>();
+    for (CoreLabel token : sentence.get(CoreAnnotations.TokensAnnotation.class)) {
+      words.add(token.word());
+    }
+    return words;
+  }
+
+  private static void assertSameSentences(List<CoreMap> expected, List<CoreMap> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).get(CoreAnnotations.TextAnnotation.class), actual.get(i).get(CoreAnnotations.TextAnnotation.class));
+      assertEquals(words(expected.get(i)), words(actual.get(i)));
+    }
+  }
+
+  @Test
+  public void testReadEverything() throws IOException {
+    try (ProtobufAnnotationReader reader = new ProtobufAnnotationReader(new FileInputStream(archive), EnumSet.noneOf(ProtobufAnnotationReader.Part.class))) {
+      for (Annotation expected : documents) {
+        assertTrue(reader.next());
+        Annotation document = reader.document();
+        assertEquals(expected.get(CoreAnnotations.TextAnnotation.class), document.get(CoreAnnotations.TextAnnotation.class));
+        List<CoreMap> sentences = document.get(CoreAnnotations.SentencesAnnotation.class);
+        assertSameSentences(expected.get(CoreAnnotations.SentencesAnnotation.class), sentences);
+        for (CoreMap sentence : sentences) {
+          assertNotNull(sentence.get(TreeCoreAnnotations.TreeAnnotation.class));
+          assertNotNull(sentence.get(CoreAnnotations.NumerizedTokensAnnotation.class));
+        }
+      }
+      assertFalse(reader.next());
+    }
+  }
+
+  @Test
+  public void testSkipParts() throws IOException {
+    Set<ProtobufAnnotationReader.Part> skipped = EnumSet.of(ProtobufAnnotationReader.Part.PARSE_TREES, ProtobufAnnotationReader.Part.NUMERIZED_TOKENS);
+    try (ProtobufAnnotationReader reader = new ProtobufAnnotationReader(archive, skipped)) {
+      for (Annotation expected : documents) {
+        assertTrue(reader.next());
+        assertEquals(0, reader.documentProto().getSentence(0).getParseTree().getChildCount());
+        Annotation document = reader.document();
+        List<CoreMap> sentences = document.get(CoreAnnotations.SentencesAnnotation.class);
+        assertSameSentences(expected.get(CoreAnnotations.SentencesAnnotation.class), sentences);
+        for (CoreMap sentence : sentences) {
+          assertNull(sentence.get(TreeCoreAnnotations.TreeAnnotation.class));
+          assertNull(sentence.get(CoreAnnotations.NumerizedTokensAnnotation.class));
+        }
+      }
+      assertFalse(reader.next());
+    }
+  }
+
+  @Test
+  public void testLazySentences() throws IOException {
+    try (ProtobufAnnotationReader reader = new ProtobufAnnotationReader(archive, EnumSet.of(ProtobufAnnotationReader.Part.PARSE_TREES))) {
+      for (Annotation expected : documents) {
+        assertTrue(reader.next());
+        List<CoreMap> sentences = new ArrayList<>();
+        for (CoreMap sentence : reader.sentences()) {
+          assertNull(sentence.get(TreeCoreAnnotations.TreeAnnotation.class));
+          sentences.add(sentence);
+        }
+        assertSameSentences(expected.get(CoreAnnotations.SentencesAnnotation.class), sentences);
+      }
+      assertFalse(reader.next());
+    }
+  }
+
+  @Test
+  public void testSeek() throws IOException {
+    assertEquals(documents.size(), ProtobufAnnotationReader.writeOffsets(archive));
+    try (ProtobufAnnotationReader reader = new ProtobufAnnotationReader(archive, EnumSet.allOf(ProtobufAnnotationReader.Part.class))) {
+      for (int index : new int[]{2, 0, 3, 1, 2}) {
+        reader.seek(index);
+        assertTrue(reader.next());
+        assertEquals(index, reader.documentIndex());
+        assertEquals(TEXTS[index], reader.document().get(CoreAnnotations.TextAnnotation.class));
+      }
+      // reading carries on after the document we jumped to
+      reader.seek(2);
+      assertTrue(reader.next());
+      assertTrue(reader.next());
+      assertEquals(3, reader.documentIndex());
+      assertEquals(TEXTS[3], reader.document().get(CoreAnnotations.TextAnnotation.class));
+      assertFalse(reader.next());
+      try {
+        reader.seek(documents.size());
+        fail("Seeking past the last document should fail");
+      } catch (IndexOutOfBoundsException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testSeekInStream() throws IOException {
+    try (ProtobufAnnotationReader reader = new ProtobufAnnotationReader(new FileInputStream(archive), EnumSet.noneOf(ProtobufAnnotationReader.Part.class))) {
+      reader.seek(0);
+    }
+  }
+
+}
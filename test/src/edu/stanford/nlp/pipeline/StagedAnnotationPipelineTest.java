@@ -0,0 +1,159 @@
+package edu.stanford.nlp.pipeline;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.stanford.nlp.ling.CoreAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.util.RuntimeInterruptedException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class StagedAnnotationPipelineTest {
+
+  /**
+   * Appends its name to the text of each document, after sleeping a little.
+   * Records how many documents it works on at once.
+   */
+  private static class AppendingAnnotator implements Annotator {
+    final String name;
+    final long sleepMillis;
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+
+    AppendingAnnotator(String name, long sleepMillis) {
+      this.name = name;
+      this.sleepMillis = sleepMillis;
+    }
+
+    @Override
+    public void annotate(Annotation annotation) {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(sleepMillis);
+      } catch (InterruptedException e) {
+        throw new RuntimeInterruptedException(e);
+      } finally {
+        running.decrementAndGet();
+      }
+      if (annotation.get(CoreAnnotations.DocIDAnnotation.class).equals("fail-" + name)) {
+        throw new IllegalStateException("Expected failure");
+      }
+      annotation.set(CoreAnnotations.TextAnnotation.class, annotation.get(CoreAnnotations.TextAnnotation.class) + name);
+    }
+
+    @Override
+    public Set<Class<? extends CoreAnnotation>> requirementsSatisfied() {
+      return Collections.emptySet();
+    }
+
+    @Override
+    public Set<Class<? extends CoreAnnotation>> requires() {
+      return Collections.emptySet();
+    }
+  }
+
+  private static List<Annotation> documents(int n) {
+    List<Annotation> documents = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      Annotation document = new Annotation("");
+      document.set(CoreAnnotations.DocIDAnnotation.class, "doc" + i);
+      documents.add(document);
+    }
+    return documents;
+  }
+
+  @Test
+  public void testEveryDocumentGoesThroughEveryStage() {
+    AppendingAnnotator a = new AppendingAnnotator("a", 1);
+    AppendingAnnotator b = new AppendingAnnotator("b", 4);
+    AppendingAnnotator c = new AppendingAnnotator("c", 1);
+    AnnotationPipeline pipeline = new AnnotationPipeline(Arrays.asList(a, b, c));
+    StagedAnnotationPipeline staged = pipeline.staged(1, 3);
+    Assert.assertEquals(3, staged.stages().size());
+    Assert.assertEquals(3, staged.stages().get(1).numThreads);
+    Assert.assertEquals(1, staged.stages().get(2).numThreads);
+
+    List<Annotation> documents = documents(60);
+    Set<String> done = ConcurrentHashMap.newKeySet();
+    // the last stage has one thread, so the callback needs no synchronization
+    staged.annotate(documents, document -> Assert.assertTrue(done.add(document.get(CoreAnnotations.DocIDAnnotation.class))));
+    Assert.assertEquals(60, done.size());
+    for (Annotation document : documents) {
+      Assert.assertEquals("abc", document.get(CoreAnnotations.TextAnnotation.class));
+    }
+    Assert.assertEquals(1, a.maxRunning.get());
+    Assert.assertTrue(b.maxRunning.get() <= 3);
+    Assert.assertEquals(1, c.maxRunning.get());
+    for (StagedAnnotationPipeline.Stage stage : staged.stages()) {
+      Assert.assertEquals(60, stage.documents());
+      Assert.assertTrue(stage.maxQueueDepth() <= stage.queueCapacity);
+      Assert.assertEquals(0, stage.queueDepth());
+    }
+
+    // the pipeline can be run again, and its statistics start over
+    staged.annotate(documents(10));
+    Assert.assertEquals(10, staged.stages().get(0).documents());
+  }
+
+  @Test
+  public void testBottleneck() {
+    AppendingAnnotator fast = new AppendingAnnotator("fast", 0);
+    AppendingAnnotator slow = new AppendingAnnotator("slow", 5);
+    StagedAnnotationPipeline staged = new StagedAnnotationPipeline(Arrays.asList(
+        new StagedAnnotationPipeline.Stage("fast", Collections.singletonList(fast), 1, 1),
+        new StagedAnnotationPipeline.Stage("slow", Collections.singletonList(slow), 1, 2)));
+    staged.annotate(documents(30));
+    Assert.assertSame(staged.stages().get(1), staged.bottleneck());
+    // the slow stage holds back the fast one, which fills up the slow stage's queue
+    Assert.assertEquals(2, staged.stages().get(1).maxQueueDepth());
+    Assert.assertTrue(staged.stages().get(0).blockedMillis() > 0);
+    String information = staged.stageInformation();
+    Assert.assertTrue(information, information.contains("slow (1 thread): 30 docs"));
+    Assert.assertTrue(information, information.contains("queue 0/2 (max 2) <- bottleneck"));
+  }
+
+  @Test
+  public void testFailure() {
+    AppendingAnnotator a = new AppendingAnnotator("a", 0);
+    AppendingAnnotator b = new AppendingAnnotator("b", 1);
+    StagedAnnotationPipeline staged = new AnnotationPipeline(Arrays.asList(a, b)).staged(2, 2);
+    List<Annotation> documents = documents(100);
+    documents.get(10).set(CoreAnnotations.DocIDAnnotation.class, "fail-b");
+    try {
+      staged.annotate(documents);
+      Assert.fail("The failure of an annotator should be rethrown");
+    } catch (IllegalStateException e) {
+      Assert.assertEquals("Expected failure", e.getMessage());
+    }
+    // every thread stopped, and the failure did not hang the pipeline
+    Assert.assertTrue(staged.stages().get(1).documents() < 100);
+  }
+
+  @Test(timeout = 10000)
+  public void testCallbackFailure() {
+    AppendingAnnotator a = new AppendingAnnotator("a", 0);
+    AppendingAnnotator b = new AppendingAnnotator("b", 0);
+    // queues of one document each, so the first stage blocks unless the last stage keeps draining its queue
+    StagedAnnotationPipeline staged = new StagedAnnotationPipeline(Arrays.asList(
+        new StagedAnnotationPipeline.Stage("a", Collections.singletonList(a), 1, 1),
+        new StagedAnnotationPipeline.Stage("b", Collections.singletonList(b), 1, 1)));
+    AtomicInteger calls = new AtomicInteger();
+    try {
+      staged.annotate(documents(50), document -> {
+        if (calls.incrementAndGet() == 3) {
+          throw new IllegalStateException("Expected callback failure");
+        }
+      });
+      Assert.fail("The failure of the callback should be rethrown");
+    } catch (IllegalStateException e) {
+      Assert.assertEquals("Expected callback failure", e.getMessage());
+    }
+    // no more documents were handed to the callback after it failed
+    Assert.assertEquals(3, calls.get());
+  }
+
+}
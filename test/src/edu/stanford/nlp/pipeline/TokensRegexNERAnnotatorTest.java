@@ -0,0 +1,147 @@
+package edu.stanford.nlp.pipeline;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Checks that matching the literal entries with a token automaton annotates
+ * the same as compiling every entry to a TokensRegex pattern.
+ */
+public class TokensRegexNERAnnotatorTest {
+
+  private static final String NAME = "tokensregexner";
+
+  private static final String[] MAPPING = {
+    "Stanford University\tSCHOOL\tORGANIZATION\t2",
+    "Stanford\tLOCATION",
+    "University of [A-Z][a-z]+\tSCHOOL",
+    "New York\tCITY",
+    "New York City\tCITY\tLOCATION\t3",
+    "York City\tTEAM\tLOCATION\t3",
+    "( [ {word:/[0-9]+/} ] dollars )\tMONEY",
+    "A A\tREPEAT",
+    "big apple\tCITY",
+  };
+
+  /** Sentences, as word/POS/NER tokens. */
+  private static final String[] SENTENCES = {
+    "Stanford/NNP/ORGANIZATION University/NNP/ORGANIZATION is/VBZ/O in/IN/O Stanford/NNP/O ,/,/O " +
+        "not/RB/O New/NNP/O York/NNP/O City/NNP/O or/CC/O New/NNP/LOCATION York/NNP/LOCATION ./././O",
+    "University/NNP/O of/IN/O Alaska/NNP/LOCATION costs/VBZ/O 5/CD/NUMBER dollars/NNS/O",
+    "A/DT/O A/DT/O A/NN/O A/DT/O",
+    "the/DT/O Big/JJ/O Apple/NNP/MISC and/CC/O York/NN/O City/NNP/O",
+  };
+
+  private static File mappingFile(boolean ignoreCase) throws Exception {
+    File file = File.createTempFile("tokensregexner", ".tab");
+    file.deleteOnExit();
+    try (PrintWriter pw = IOUtils.getPrintWriter(file.getAbsolutePath())) {
+      for (String line : MAPPING) {
+        pw.println(line);
+      }
+    }
+    return file;
+  }
+
+  private static TokensRegexNERAnnotator annotator(Properties props, boolean literalAutomaton) {
+    Properties copy = new Properties();
+    // only TEAM entries need overwritable types to replace other labels
+    copy.setProperty(NAME + ".noDefaultOverwriteLabels", "TEAM");
+    copy.putAll(props);
+    copy.setProperty(NAME + ".literalAutomaton", String.valueOf(literalAutomaton));
+    return new TokensRegexNERAnnotator(NAME, copy);
+  }
+
+  private static List<CoreLabel> tokens(String sentence) {
+    List<CoreLabel> tokens = new ArrayList<>();
+    for (String token : sentence.split(" ")) {
+      String[] fields = token.split("/");
+      CoreLabel label = new CoreLabel();
+      label.setWord(fields[0]);
+      label.setValue(fields[0]);
+      label.setTag(fields[1]);
+      label.setNER(fields[2]);
+      tokens.add(label);
+    }
+    return tokens;
+  }
+
+  private static List<String> annotate(TokensRegexNERAnnotator annotator, String sentence) {
+    List<CoreLabel> tokens = tokens(sentence);
+    Annotation annotation = new Annotation(sentence);
+    annotation.set(CoreAnnotations.TokensAnnotation.class, tokens);
+    annotator.annotate(annotation);
+    List<String> tags = new ArrayList<>();
+    for (CoreLabel token : tokens) {
+      tags.add(token.ner());
+    }
+    return tags;
+  }
+
+  private static void checkSameAnnotations(Properties props) {
+    TokensRegexNERAnnotator patterns = annotator(props, false);
+    TokensRegexNERAnnotator automaton = annotator(props, true);
+    for (String sentence : SENTENCES) {
+      Assert.assertEquals(sentence, annotate(patterns, sentence), annotate(automaton, sentence));
+    }
+  }
+
+  @Test
+  public void testCaseSensitive() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(NAME + ".mapping", mappingFile(false).getAbsolutePath());
+    checkSameAnnotations(props);
+    List<String> tags = annotate(annotator(props, true), SENTENCES[0]);
+    Assert.assertEquals("SCHOOL", tags.get(0));
+    Assert.assertEquals("LOCATION", tags.get(4));
+    Assert.assertEquals("CITY", tags.get(9));
+    Assert.assertEquals("CITY", tags.get(11));
+  }
+
+  @Test
+  public void testIgnoreCase() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(NAME + ".mapping", mappingFile(true).getAbsolutePath());
+    props.setProperty(NAME + ".ignorecase", "true");
+    checkSameAnnotations(props);
+    Assert.assertEquals("CITY", annotate(annotator(props, true), SENTENCES[3]).get(2));
+  }
+
+  @Test
+  public void testValidPosPattern() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(NAME + ".mapping", mappingFile(false).getAbsolutePath());
+    props.setProperty(NAME + ".validpospattern", "NNP|DT");
+    checkSameAnnotations(props);
+    props.setProperty(NAME + ".posmatchtype", "MATCH_ALL_TOKENS");
+    checkSameAnnotations(props);
+  }
+
+  @Test
+  public void testCache() throws Exception {
+    File cache = File.createTempFile("tokensregexner", ".ser");
+    Assert.assertTrue(cache.delete());
+    cache.deleteOnExit();
+    Properties props = new Properties();
+    props.setProperty(NAME + ".mapping", mappingFile(false).getAbsolutePath());
+    props.setProperty(NAME + ".literalAutomaton.cache", cache.getAbsolutePath());
+    List<String> built = annotate(annotator(props, true), SENTENCES[0]);
+    Assert.assertTrue(cache.exists());
+    Assert.assertEquals(built, annotate(annotator(props, true), SENTENCES[0]));
+    // the same entries, but case insensitive: the cached automaton is not for them
+    props.setProperty(NAME + ".ignorecase", "true");
+    Assert.assertEquals("CITY", annotate(annotator(props, true), SENTENCES[3]).get(2));
+    Assert.assertEquals("CITY", annotate(annotator(props, true), SENTENCES[3]).get(2));
+  }
+
+}
@@ -245,4 +245,54 @@ public class SemanticGraphTest extends TestCase {
     }
   }
 
+  public void testCompact() {
+    SemanticGraph compact = makeGraph();
+    compact.compact();
+    assertTrue(compact.isCompact());
+    assertEquals(graph, compact);
+    assertEquals(graph.hashCode(), compact.hashCode());
+    assertEquals(graph.edgeCount(), compact.edgeCount());
+    assertEquals(graph.vertexSet(), compact.vertexSet());
+    for (IndexedWord word : graph.vertexSet()) {
+      assertEquals(graph.getChildren(word), compact.getChildren(word));
+      assertEquals(graph.getParents(word), compact.getParents(word));
+      assertEquals(graph.outDegree(word), compact.outDegree(word));
+      assertEquals(graph.inDegree(word), compact.inDegree(word));
+      assertEquals(Generics.newHashSet(graph.outgoingEdgeList(word)), Generics.newHashSet(compact.outgoingEdgeList(word)));
+      assertEquals(Generics.newHashSet(graph.incomingEdgeList(word)), Generics.newHashSet(compact.incomingEdgeList(word)));
+      for (IndexedWord child : graph.getChildren(word)) {
+        assertEquals(graph.getAllEdges(word, child), compact.getAllEdges(word, child));
+      }
+    }
+    assertEquals(graph.toString(), compact.toString());
+    assertEquals(graph.topologicalSort().size(), compact.topologicalSort().size());
+    assertEquals(graph.getShortestUndirectedPathNodes(graph.getNodeByIndex(10), graph.getNodeByIndex(14)),
+                 compact.getShortestUndirectedPathNodes(compact.getNodeByIndex(10), compact.getNodeByIndex(14)));
+
+    // a copy shares the compact graph until one of them is changed
+    SemanticGraph copy = new SemanticGraph(compact);
+    assertTrue(copy.isCompact());
+    SemanticGraphEdge edge = copy.edgeListSorted().get(0);
+    assertTrue(copy.removeEdge(edge));
+    assertFalse(copy.isCompact());
+    assertEquals(graph.edgeCount() - 1, copy.edgeCount());
+    assertTrue(compact.isCompact());
+    assertEquals(graph.edgeCount(), compact.edgeCount());
+    assertTrue(compact.containsEdge(edge));
+  }
+
+  public void testCompactWithCopyNodes() {
+    SemanticGraph gr = SemanticGraph.valueOf("[ate subj>Bill dobj>[muffins compound>blueberry]]");
+    IndexedWord muffins = gr.getNodeByWordPattern("muffins");
+    IndexedWord copy = muffins.makeSoftCopy(1);
+    gr.addVertex(copy);
+    gr.addEdge(gr.getFirstRoot(), copy, UniversalEnglishGrammaticalRelations.DIRECT_OBJECT, Double.NEGATIVE_INFINITY, false);
+    SemanticGraph compact = new SemanticGraph(gr);
+    compact.compact();
+    assertEquals(gr, compact);
+    assertTrue(compact.containsVertex(copy));
+    assertTrue(compact.containsVertex(muffins));
+    assertEquals(2, compact.getChildrenWithReln(compact.getFirstRoot(), UniversalEnglishGrammaticalRelations.DIRECT_OBJECT).size());
+  }
+
 }
@@ -0,0 +1,128 @@
+package edu.stanford.nlp.semgraph.semgrex;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.stanford.nlp.semgraph.SemanticGraph;
+
+public class MultiPatternMatcherTest extends TestCase {
+
+  private static final String[] GRAPHS = {
+    "[ate subj>Bill dobj>[muffins compound>blueberry]]",
+    "[ate subj>Bill dobj>[muffins nn>blueberry]]",
+    "[bought subj>Bill dobj>[car amod>red] iobj>Mary]",
+    "[sold nsubj>[Bill compound>Fred] dobj>[muffins amod>blue] nmod>[store case>at det>the]]",
+  };
+
+  private static final String[] PATTERNS = {
+    "{}",
+    "{word:Bill}",
+    "!{word:Bill}",
+    "{word:/^(?!Bill).*$/}",
+    "{} >dobj {}",
+    "{}=gov >/subj|nsubj/ {word:Bill}=dep",
+    "{word:ate} >subj {}=a >dobj ({}=b >compound {})",
+    "{word:/ate|sold/} >dobj {word:muffins}",
+    "{word:muffins} !> {word:blueberry}",
+    "{word:muffins} ?>amod {}=mod",
+    "{word:car} < {word:bought}",
+    "{word:bought} >> {word:red}",
+    "[{word:ate} | {word:sold}] >dobj {}=obj",
+    "{word:ate} [>subj {word:Fred} | >dobj {}]",
+    "{}=a >subj {} : {}=a >dobj {word:car}",
+    "{word:muffins} $-- {word:Bill}",
+    "{$}",
+    "{word:nothing} > {}",
+    "{} >nmod ({word:store} >case {word:at} >det {word:the})",
+    "{}=a >> {word:Fred}",
+  };
+
+  private static List<SemgrexPattern> compile(String... patterns) {
+    List<SemgrexPattern> compiled = new ArrayList<>();
+    for (String pattern : patterns) {
+      compiled.add(SemgrexPattern.compile(pattern));
+    }
+    return compiled;
+  }
+
+  private static List<String> findOneByOne(List<SemgrexPattern> patterns, SemanticGraph graph, boolean ignoreCase) {
+    List<String> matches = new ArrayList<>();
+    for (SemgrexPattern pattern : patterns) {
+      SemgrexMatcher matcher = pattern.matcher(graph, ignoreCase);
+      while (matcher.find()) {
+        matches.add(pattern + " at " + matcher.getMatch() + ' ' + matcher.namesToNodes);
+      }
+    }
+    return matches;
+  }
+
+  private static List<String> findAll(MultiPatternMatcher matcher, SemanticGraph graph) {
+    List<String> matches = new ArrayList<>();
+    for (MultiPatternMatcher.Match match : matcher.findAll(graph)) {
+      matches.add(match.toString());
+    }
+    return matches;
+  }
+
+  public void testSameMatches() {
+    List<SemgrexPattern> patterns = compile(PATTERNS);
+    MultiPatternMatcher matcher = SemgrexPattern.getMultiPatternMatcher(patterns);
+    for (String graphString : GRAPHS) {
+      SemanticGraph graph = SemanticGraph.valueOf(graphString);
+      List<String> expected = findOneByOne(patterns, graph, false);
+      assertFalse(expected.isEmpty());
+      assertEquals(graphString, expected, findAll(matcher, graph));
+    }
+  }
+
+  public void testIgnoreCase() {
+    List<SemgrexPattern> patterns = compile("{word:bill}", "{word:ATE} >dobj {word:/MUFF.*/}", "{word:Bill}");
+    SemanticGraph graph = SemanticGraph.valueOf(GRAPHS[0]);
+    assertEquals(1, findAll(new MultiPatternMatcher(patterns), graph).size());
+    List<String> expected = findOneByOne(patterns, graph, true);
+    assertEquals(3, expected.size());
+    assertEquals(expected, findAll(new MultiPatternMatcher(patterns, true), graph));
+  }
+
+  public void testTriggeredPatterns() {
+    List<SemgrexPattern> patterns = compile(PATTERNS);
+    MultiPatternMatcher matcher = new MultiPatternMatcher(patterns);
+    List<SemgrexPattern> triggered = matcher.getTriggeredPatterns(SemanticGraph.valueOf(GRAPHS[2]));
+    List<SemgrexPattern> notTriggered = new ArrayList<>(patterns);
+    notTriggered.removeAll(triggered);
+    assertEquals(compile("{word:ate} >subj {}=a >dobj ({}=b >compound {})",
+                         "{word:/ate|sold/} >dobj {word:muffins}",
+                         "{word:muffins} !> {word:blueberry}",
+                         "{word:muffins} ?>amod {}=mod",
+                         "[{word:ate} | {word:sold}] >dobj {}=obj",
+                         "{word:ate} [>subj {word:Fred} | >dobj {}]",
+                         "{word:muffins} $-- {word:Bill}",
+                         "{word:nothing} > {}",
+                         "{} >nmod ({word:store} >case {word:at} >det {word:the})",
+                         "{}=a >> {word:Fred}"),
+                 notTriggered);
+    // triggering is conservative: this one only fails on the relation
+    SemgrexPattern relation = SemgrexPattern.compile("{word:Mary} > {word:bought}");
+    assertEquals(Arrays.asList(relation),
+                 new MultiPatternMatcher(Arrays.asList(relation)).getTriggeredPatterns(SemanticGraph.valueOf(GRAPHS[2])));
+    assertFalse(relation.matcher(SemanticGraph.valueOf(GRAPHS[2])).find());
+  }
+
+  public void testAnyMatch() {
+    MultiPatternMatcher matcher = new MultiPatternMatcher(compile(PATTERNS));
+    SemanticGraph graph = SemanticGraph.valueOf(GRAPHS[3]);
+    List<String> all = findAll(matcher, graph);
+    List<String> seen = new ArrayList<>();
+    assertTrue(matcher.anyMatch(graph, (pattern, m) -> {
+      seen.add(new MultiPatternMatcher.Match(pattern, m).toString());
+      return m.getNode("dep") != null;
+    }));
+    assertEquals(all.subList(0, seen.size()), seen);
+    assertTrue(seen.get(seen.size() - 1).contains("dep=Bill"));
+    assertFalse(matcher.anyMatch(graph, (pattern, m) -> false));
+  }
+
+}
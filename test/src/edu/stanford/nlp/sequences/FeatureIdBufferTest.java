@@ -0,0 +1,41 @@
+package edu.stanford.nlp.sequences;
+
+import edu.stanford.nlp.util.FrozenStringIndex;
+import edu.stanford.nlp.util.HashIndex;
+import edu.stanford.nlp.util.Index;
+import edu.stanford.nlp.util.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Tests that features assembled from parts in a {@link FeatureIdBuffer} are found in the index.
+ */
+public class FeatureIdBufferTest {
+
+  private static final String LONG_TEMPLATE = '-' + StringUtils.repeat("LONG", 20);
+
+  private static int[] addFeatures(Index<String> index) {
+    FeatureIdBuffer ids = new FeatureIdBuffer(index);
+    ids.clear();
+    ids.add("Paris", "-WORD", "C");
+    ids.add(new StringBuilder("Paris-WORD"), "C");  // already there
+    ids.add('x', "-CHAR", null);
+    ids.add(null, "-NULL", "");
+    ids.add(42, LONG_TEMPLATE, "dom-C");
+    ids.add("Xxxx-SHAPE|C");
+    ids.add("London", "-WORD", "C");  // not in the index
+    return ids.toArray();
+  }
+
+  @Test
+  public void testAddParts() {
+    Index<String> index = new HashIndex<>(Arrays.asList(
+        "other", "Paris-WORD|C", "x-CHAR", "null-NULL", "42" + LONG_TEMPLATE + "|dom-C", "Xxxx-SHAPE|C"));
+    int[] expected = { 1, 2, 3, 4, 5 };
+    Assert.assertArrayEquals(expected, addFeatures(index));
+    Assert.assertArrayEquals(expected, addFeatures(new FrozenStringIndex(index)));
+  }
+
+}
@@ -0,0 +1,128 @@
+package edu.stanford.nlp.trees.tregex;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.tregex.tsurgeon.Tsurgeon;
+import edu.stanford.nlp.trees.tregex.tsurgeon.TsurgeonPattern;
+import edu.stanford.nlp.util.Pair;
+
+public class TreebankIndexTest extends TestCase {
+
+  private static final String[] TREES = {
+    "(ROOT (S (NP (DT The) (NN dog)) (VP (VBD barked)) (. .)))",
+    "(ROOT (S (NP (NNP Bill)) (VP (VBD ate) (NP (NN blueberry) (NNS muffins))) (. .)))",
+    "(ROOT (S (NP (PRP He)) (VP (VBD said) (SBAR (S (NP (PRP she)) (VP (VBD left))))) (. .)))",
+    "(ROOT (NP (NP (DT a) (NN book)) (PP (IN about) (NP (NNS dogs)))))",
+    "(ROOT (S (S (NP (NNP Moe)) (VP (VBZ runs))) (CC and) (S (NP (NNP Larry)) (VP (VBZ walks)))))",
+    "(ROOT (FRAG (ADJP (JJ Good)) (. !)))",
+  };
+
+  private static final String[] PATTERNS = {
+    "NP",
+    "__",
+    "NP < NN",
+    "NP << NNS",
+    "NNS >> NP",
+    "NN > NP",
+    "S < (NP $+ VP)",
+    "/^VB/ , NP",
+    "S << SBAR",
+    "S !<< SBAR",
+    "NP ?< DT=det",
+    "NP=np < (NN|NNS) : PP",
+    "@NP < /^NN/",
+    "VP < (VBD=verb < ate|barked)",
+    "S < S=a < S=b",
+    "ROOT <: FRAG",
+    "NP < DT | VP < SBAR",
+    "NP [ < NNS | < (DT < a) ]",
+    "NP << (NN == __)",
+    "SBAR <<, S",
+    "NP=a << NP=b",
+    "X",
+    "/dog/",
+    "!NP < NNP",
+  };
+
+  private static List<Tree> treebank() {
+    return Arrays.asList(TregexTest.treesFromString(TREES));
+  }
+
+  private static List<String> findOneByOne(List<Tree> trees, TregexPattern pattern) {
+    List<String> matches = new ArrayList<>();
+    for (int t = 0; t < trees.size(); t++) {
+      TregexMatcher matcher = pattern.matcher(trees.get(t));
+      while (matcher.find()) {
+        matches.add(t + " " + matcher.getMatch() + ' ' + matcher.namesToNodes);
+      }
+    }
+    return matches;
+  }
+
+  private static List<String> findInIndex(TreebankIndex index, TregexPattern pattern) {
+    List<String> matches = new ArrayList<>();
+    index.forEachMatch(pattern, (matcher, t) -> matches.add(t + " " + matcher.getMatch() + ' ' + matcher.namesToNodes));
+    return matches;
+  }
+
+  public void testSameMatches() {
+    List<Tree> trees = treebank();
+    TreebankIndex index = new TreebankIndex(trees);
+    for (String patternString : PATTERNS) {
+      TregexPattern pattern = TregexPattern.compile(patternString);
+      assertEquals(patternString, findOneByOne(trees, pattern), findInIndex(index, pattern));
+    }
+  }
+
+  public void testCandidateTrees() {
+    TreebankIndex index = new TreebankIndex(treebank());
+    assertEquals(Arrays.asList(2), index.candidateTrees(TregexPattern.compile("S << SBAR")));
+    assertEquals(Arrays.asList(1, 3), index.candidateTrees(TregexPattern.compile("NP << NNS")));
+    assertEquals(Arrays.asList(0, 1, 2, 4), index.candidateTrees(TregexPattern.compile("S !<< SBAR")));
+    assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), index.candidateTrees(TregexPattern.compile("__ !<< SBAR")));
+    assertEquals(Arrays.asList(0, 3), index.candidateTrees(TregexPattern.compile("NP < DT")));
+    assertEquals(Arrays.asList(), index.candidateTrees(TregexPattern.compile("X < NP")));
+    // in tree 3 the PP dominates the NNS, but not immediately: only the matcher rules it out
+    assertEquals(Arrays.asList(3), index.candidateTrees(TregexPattern.compile("NNS > PP")));
+    assertEquals(Arrays.asList(), index.matchingTrees(TregexPattern.compile("NNS > PP")));
+    assertEquals(Arrays.asList(1, 3), index.matchingTrees(TregexPattern.compile("NP < NNS")));
+  }
+
+  public void testSaveAndLoad() throws Exception {
+    TreebankIndex index = new TreebankIndex(treebank());
+    File file = File.createTempFile("treebank", ".index");
+    file.deleteOnExit();
+    index.save(file.getPath());
+    TreebankIndex loaded = TreebankIndex.load(file.getPath());
+    assertEquals(index.size(), loaded.size());
+    assertEquals(index.labels(), loaded.labels());
+    for (String patternString : PATTERNS) {
+      TregexPattern pattern = TregexPattern.compile(patternString);
+      assertEquals(patternString, findInIndex(index, pattern), findInIndex(loaded, pattern));
+    }
+  }
+
+  public void testTsurgeon() {
+    List<Pair<TregexPattern, TsurgeonPattern>> ops = new ArrayList<>();
+    ops.add(new Pair<>(TregexPattern.compile("NNS=n > NP"), Tsurgeon.parseOperation("relabel n NN")));
+    ops.add(new Pair<>(TregexPattern.compile("NP < (NN=n $- NN)"), Tsurgeon.parseOperation("relabel n NNX")));
+    ops.add(new Pair<>(TregexPattern.compile("SBAR=s"), Tsurgeon.parseOperation("excise s s")));
+
+    TreebankIndex index = new TreebankIndex(treebank());
+    List<Tree> expected = new ArrayList<>();
+    for (Tree tree : treebank()) {
+      expected.add(Tsurgeon.processPatternsOnTree(ops, tree));
+    }
+    assertEquals(expected, Tsurgeon.processPatternsOnIndex(ops, index));
+    assertEquals("(ROOT (S (NP (NNP Bill)) (VP (VBD ate) (NP (NN blueberry) (NNX muffins))) (. .)))", expected.get(1).toString());
+    // the trees of the index are not changed
+    assertEquals(treebank(), index.getTrees());
+  }
+
+}
@@ -0,0 +1,90 @@
+package edu.stanford.nlp.util;
+
+import edu.stanford.nlp.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks that a {@link FrozenStringIndex} numbers its Strings the same way as the index it was built from.
+ */
+public class FrozenStringIndexTest {
+
+  private static final List<String> STRINGS = Arrays.asList(
+      "WORD-John", "PWORD-lives", "", "café", "北京", "😀 emoji", "\ud800 lone surrogate", "Aa", "BB");
+
+  @Test
+  public void testLookup() {
+    Index<String> original = new HashIndex<>(STRINGS);
+    FrozenStringIndex frozen = new FrozenStringIndex(original);
+    Assert.assertEquals(original.size(), frozen.size());
+    for (int i = 0; i < original.size(); ++i) {
+      Assert.assertEquals(original.get(i), frozen.get(i));
+      Assert.assertEquals(i, frozen.indexOf(original.get(i)));
+      Assert.assertEquals(i, frozen.indexOfChars(new StringBuilder(original.get(i))));
+    }
+    // "Aa" and "BB" have the same hash code
+    Assert.assertEquals("Aa".hashCode(), "BB".hashCode());
+    Assert.assertEquals(-1, frozen.indexOf("AaBB"));
+    Assert.assertEquals(-1, frozen.indexOf("WORD-Jon"));
+    Assert.assertEquals(-1, frozen.addToIndex("WORD-Jon"));
+    Assert.assertEquals(-1, frozen.indexOfChars(null));
+    Assert.assertTrue(frozen.contains("café"));
+    Assert.assertEquals(STRINGS, frozen.objectsList());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testFrozen() {
+    new FrozenStringIndex(STRINGS).add("new");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRepeated() {
+    new FrozenStringIndex(Arrays.asList("a", "b", "a"));
+  }
+
+  @Test
+  public void testSerializedAsHashIndex() throws IOException, ClassNotFoundException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(new FrozenStringIndex(STRINGS));
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      Object read = in.readObject();
+      Assert.assertTrue(read instanceof HashIndex);
+      Assert.assertEquals(STRINGS, ((HashIndex<?>) read).objectsList());
+    }
+  }
+
+  @Test
+  public void testWrap() throws IOException {
+    FrozenStringIndex frozen = new FrozenStringIndex(STRINGS);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    bytes.write(new byte[] { 7, 7, 7 });  // the index need not start at the beginning of the buffer
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      frozen.write(out);
+    }
+    Assert.assertEquals(3 + frozen.binarySize(), bytes.size());
+    ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+    buffer.position(3);
+    FrozenStringIndex wrapped = FrozenStringIndex.wrap(buffer);
+    Assert.assertEquals(STRINGS, wrapped.objectsList());
+    for (int i = 0; i < STRINGS.size(); ++i) {
+      Assert.assertEquals(i, wrapped.indexOfChars(new StringBuilder(STRINGS.get(i))));
+    }
+    Assert.assertEquals(-1, wrapped.indexOf("AaBB"));
+  }
+
+  @Test
+  public void testSaveToFilename() throws IOException {
+    File file = File.createTempFile("frozen", ".txt");
+    file.deleteOnExit();
+    new FrozenStringIndex(Arrays.asList("a", "b")).saveToFilename(file.getPath());
+    Assert.assertEquals("0=a\n1=b\n", IOUtils.slurpFile(file));
+  }
+
+}
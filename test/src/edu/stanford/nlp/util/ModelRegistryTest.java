@@ -0,0 +1,95 @@
+package edu.stanford.nlp.util;
+
+import edu.stanford.nlp.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks that the {@link ModelRegistry} shares models between owners,
+ * and only evicts models which are no longer in use.
+ */
+public class ModelRegistryTest {
+
+  @After
+  public void tearDown() {
+    ModelRegistry.setMemoryBudget(Long.MAX_VALUE);
+    ModelRegistry.clear();
+  }
+
+  @Test
+  public void testShared() {
+    AtomicInteger loads = new AtomicInteger(0);
+    Object first = new Object();
+    Object second = new Object();
+    String a = ModelRegistry.acquire(first, String.class, "shared", null, () -> "model " + loads.incrementAndGet());
+    String b = ModelRegistry.acquire(second, String.class, "shared", null, () -> "model " + loads.incrementAndGet());
+    Assert.assertSame(a, b);
+    Assert.assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void testOptionsAreKeyed() {
+    Properties one = PropertiesUtils.asProperties("flags", "-one");
+    Properties two = PropertiesUtils.asProperties("flags", "-two");
+    Object owner = new Object();
+    String a = ModelRegistry.acquire(owner, String.class, "keyed", one, () -> "one");
+    String b = ModelRegistry.acquire(owner, String.class, "keyed", two, () -> "two");
+    String c = ModelRegistry.acquire(owner, String.class, "keyed", PropertiesUtils.asProperties("flags", "-one"), () -> "three");
+    Assert.assertEquals("one", a);
+    Assert.assertEquals("two", b);
+    Assert.assertEquals("one", c);
+  }
+
+  @Test
+  public void testEvictOnlyReleased() throws IOException {
+    File file = File.createTempFile("model", ".ser");
+    file.deleteOnExit();
+    IOUtils.writeStringToFile("not really a model", file.getPath(), "utf-8");
+    ModelRegistry.setMemoryBudget(0);
+    Object owner = new Object();
+    AtomicInteger loads = new AtomicInteger(0);
+    ModelRegistry.acquire(owner, String.class, file.getPath(), null, () -> "model " + loads.incrementAndGet());
+    Assert.assertEquals(1, ModelRegistry.size());
+    ModelRegistry.release(owner);
+    Assert.assertEquals(0, ModelRegistry.size());
+    ModelRegistry.acquire(owner, String.class, file.getPath(), null, () -> "model " + loads.incrementAndGet());
+    Assert.assertEquals(2, loads.get());
+  }
+
+  private static String modelFile(String text) throws IOException {
+    File file = File.createTempFile("model", ".ser");
+    file.deleteOnExit();
+    IOUtils.writeStringToFile(text, file.getPath(), "utf-8");
+    return file.getPath();
+  }
+
+  @Test
+  public void testNoEvictionWhileLoading() throws IOException {
+    String older = modelFile("an older unused model");
+    String loading = modelFile("the model being loaded");
+    String newer = modelFile("a newer unused model");
+    Object owner = new Object();
+    ModelRegistry.acquire(owner, String.class, older, null, () -> "older");
+    ModelRegistry.release(owner);
+    AtomicInteger loads = new AtomicInteger(0);
+    // while the model loads, another model is released and the budget shrinks,
+    // so that evicting walks past the loading model to get to the newer one
+    String model = ModelRegistry.acquire(owner, String.class, loading, null, () -> {
+      Object other = new Object();
+      ModelRegistry.acquire(other, String.class, newer, null, () -> "newer");
+      ModelRegistry.release(other);
+      ModelRegistry.setMemoryBudget(0);
+      return "model " + loads.incrementAndGet();
+    });
+    Assert.assertEquals(1, ModelRegistry.size());
+    Assert.assertSame(model, ModelRegistry.acquire(new Object(), String.class, loading, null, () -> "model " + loads.incrementAndGet()));
+    Assert.assertEquals(1, loads.get());
+  }
+
+}
@@ -0,0 +1,173 @@
+package edu.stanford.nlp.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.stanford.nlp.util.RuntimeInterruptedException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test of SharedWorkerPool.
+ */
+public class SharedWorkerPoolTest {
+
+  private SharedWorkerPool pool;
+
+  @Before
+  public void setUp() {
+    pool = new SharedWorkerPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  private static List<Integer> items(int n) {
+    List<Integer> items = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      items.add(i);
+    }
+    return items;
+  }
+
+  /** Runs jobs which record how many of them are running at once. */
+  private static class ConcurrencyCounter {
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final Set<Integer> done = ConcurrentHashMap.newKeySet();
+
+    void run(int item) {
+      int now = running.incrementAndGet();
+      maxRunning.accumulateAndGet(now, Math::max);
+      try {
+        Thread.sleep(2);
+      } catch (InterruptedException e) {
+        throw new RuntimeInterruptedException(e);
+      } finally {
+        running.decrementAndGet();
+      }
+      Assert.assertTrue(done.add(item));
+    }
+  }
+
+  @Test
+  public void testRunsEveryItem() {
+    ConcurrencyCounter counter = new ConcurrencyCounter();
+    pool.run(items(200), -1, 0, counter::run, item -> Assert.fail("No job should fail"));
+    Assert.assertEquals(200, counter.done.size());
+    Assert.assertTrue(counter.maxRunning.get() <= 4);
+    pool.run(Collections.emptyList(), 2, 0, item -> Assert.fail(), item -> Assert.fail());
+  }
+
+  @Test
+  public void testMaxThreads() {
+    ConcurrencyCounter counter = new ConcurrencyCounter();
+    pool.run(items(100), 2, 0, counter::run, item -> Assert.fail("No job should fail"));
+    Assert.assertEquals(100, counter.done.size());
+    Assert.assertTrue(counter.maxRunning.get() <= 2);
+  }
+
+  @Test
+  public void testBatchesShareThreads() throws InterruptedException {
+    ConcurrencyCounter counter = new ConcurrencyCounter();
+    List<Thread> callers = new ArrayList<>();
+    for (int t = 0; t < 6; t++) {
+      int offset = t * 1000;
+      Thread caller = new Thread(() -> pool.run(items(50), 3, 0, item -> counter.run(offset + item), item -> Assert.fail()));
+      callers.add(caller);
+      caller.start();
+    }
+    for (Thread caller : callers) {
+      caller.join();
+    }
+    Assert.assertEquals(300, counter.done.size());
+    // 6 batches of 3 threads each, but never more than the 4 threads of the pool
+    Assert.assertTrue(counter.maxRunning.get() <= 4);
+  }
+
+  @Test
+  public void testTimeout() {
+    Set<Integer> failed = ConcurrentHashMap.newKeySet();
+    Set<Integer> succeeded = ConcurrentHashMap.newKeySet();
+    pool.run(items(20), 2, 100, item -> {
+      if (item % 5 == 0) {
+        // a slow job which checks for interruption
+        while (true) {
+          if (Thread.interrupted()) {
+            throw new RuntimeInterruptedException();
+          }
+        }
+      }
+      // the interrupt of a timed out job must not leak into the next job on the same thread
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException e) {
+        throw new RuntimeInterruptedException(e);
+      }
+      succeeded.add(item);
+    }, failed::add);
+    Assert.assertEquals(ConcurrentHashMap.newKeySet(), intersection(failed, succeeded));
+    Assert.assertEquals(4, failed.size());
+    for (int item : failed) {
+      Assert.assertEquals(0, item % 5);
+    }
+    Assert.assertEquals(16, succeeded.size());
+  }
+
+  private static Set<Integer> intersection(Set<Integer> a, Set<Integer> b) {
+    Set<Integer> both = ConcurrentHashMap.newKeySet();
+    both.addAll(a);
+    both.retainAll(b);
+    return both;
+  }
+
+  @Test
+  public void testExceptions() {
+    Set<Integer> failed = ConcurrentHashMap.newKeySet();
+    pool.run(items(10), -1, 0, item -> {
+      if (item == 3) {
+        throw new IllegalStateException("Expected failure");
+      }
+    }, failed::add);
+    Assert.assertEquals(Collections.singleton(3), failed);
+  }
+
+  @Test
+  public void testNestedBatches() {
+    SharedWorkerPool single = new SharedWorkerPool(1);
+    try {
+      AtomicInteger count = new AtomicInteger();
+      // with one thread, a nested batch which blocked its worker would never finish
+      single.run(items(3), -1, 0,
+                 outer -> single.run(items(4), -1, 0, inner -> count.incrementAndGet(), inner -> Assert.fail()),
+                 outer -> Assert.fail());
+      Assert.assertEquals(12, count.get());
+    } finally {
+      single.shutdown();
+    }
+  }
+
+  @Test
+  public void testWithThreads() {
+    SharedWorkerPool global = SharedWorkerPool.global();
+    Assert.assertSame(global, SharedWorkerPool.withThreads(1));
+    Assert.assertSame(global, SharedWorkerPool.withThreads(global.nThreads()));
+    SharedWorkerPool larger = SharedWorkerPool.withThreads(global.nThreads() + 4);
+    Assert.assertEquals(global.nThreads() + 4, larger.nThreads());
+    Assert.assertSame(larger, SharedWorkerPool.withThreads(global.nThreads() + 4));
+
+    ConcurrencyCounter counter = new ConcurrencyCounter();
+    larger.run(items(50), -1, 0, counter::run, item -> Assert.fail());
+    Assert.assertEquals(50, counter.done.size());
+  }
+
+}